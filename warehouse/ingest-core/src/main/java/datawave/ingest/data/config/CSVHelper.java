@@ -118,6 +118,11 @@ public class CSVHelper extends DataTypeHelperImpl {
     /** Partial configuration key for specifying CSV fields that a record must have. */
     public static final String REQUIRED_FIELDS = ".data.fields.required";
 
+    /**
+     * Parameter to specify that a quoted field may contain newlines, so that a record continues onto the following lines until its quotes are closed.
+     */
+    public static final String MULTI_LINE_RECORDS = ".data.multiline.records";
+
     /** Pattern used to prevent matching escaped multivalue field separators when splitting multivalued fields */
     public static final String BACKSLASH_ESCAPE_LOOKBEHIND_PATTERN = "(?<!\\\\)";
 
@@ -129,6 +134,7 @@ public class CSVHelper extends DataTypeHelperImpl {
     private String separator = null;
     private boolean skipHeaderRow = false;
     private boolean processExtraFields = false;
+    private boolean multiLineRecords = false;
     private Map<String,String> multiValuedFields = new HashMap<>();
     private Map<String,String> multiValuedFieldsBlacklist = new HashMap<>();
     private boolean hasMultiValuedFieldsBlacklist = false;
@@ -171,6 +177,9 @@ public class CSVHelper extends DataTypeHelperImpl {
         // Get the process extra fields property
         this.processExtraFields = config.getBoolean(this.getType().typeName() + PROCESS_EXTRA_FIELDS, false);
 
+        // Get the multi-line records property
+        this.multiLineRecords = config.getBoolean(this.getType().typeName() + MULTI_LINE_RECORDS, false);
+
         // Get the whitelist of event fields to keep.
         Collection<String> cw = config.getStringCollection(this.getType().typeName() + FIELD_WHITELIST);
         if (cw != null && !cw.isEmpty()) {
@@ -281,6 +290,10 @@ public class CSVHelper extends DataTypeHelperImpl {
         return processExtraFields;
     }
 
+    public boolean multiLineRecords() {
+        return multiLineRecords;
+    }
+
     public Map<String,String> getMultiValuedFields() {
         return multiValuedFields;
     }
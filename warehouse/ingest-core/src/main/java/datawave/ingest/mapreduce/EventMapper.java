@@ -2,10 +2,12 @@ package datawave.ingest.mapreduce;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -15,22 +17,35 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.Stack;
 import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.Value;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
 import org.apache.hadoop.mapreduce.Counter;
 import org.apache.hadoop.mapreduce.CounterGroup;
 import org.apache.hadoop.mapreduce.Counters;
 import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.MapContext;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.map.WrappedMapper;
+import org.apache.hadoop.mapreduce.task.MapContextImpl;
 import org.apache.log4j.Logger;
 import org.apache.log4j.NDC;
 
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import datawave.data.normalizer.DateNormalizer;
 import datawave.ingest.data.RawRecordContainer;
@@ -56,6 +71,7 @@ import datawave.ingest.mapreduce.job.metrics.MetricsConfiguration;
 import datawave.ingest.mapreduce.job.metrics.MetricsService;
 import datawave.ingest.mapreduce.job.metrics.ReusableMetricsLabels;
 import datawave.ingest.mapreduce.job.statsd.StatsDEnabledMapper;
+import datawave.ingest.mapreduce.job.writer.BufferedContextWriter;
 import datawave.ingest.mapreduce.job.writer.BulkContextWriter;
 import datawave.ingest.mapreduce.job.writer.ContextWriter;
 import datawave.ingest.mapreduce.job.writer.LiveContextWriter;
@@ -81,9 +97,10 @@ import datawave.util.time.TraceStopwatch;
  * is within the window, then the map will parse the Event into a map of field names and field values, the map method will call the process() method on each
  * DataTypeHandler implementation that has been configured for the Type of Event.
  *
- * This class no longer supports processing events in a multi-threaded fashion as that was proven to NOT be beneficial in the long run (i.e. The bulk of the
- * time is spent in the ContextWriter which is synchronized. Also multithreading mean potentially more memory use which we should already be maximizing per
- * machine in the hadoop map-reduce cluster.)
+ * By default events are processed on the map thread. When the bulk of the time is spent in the handlers rather than in the ContextWriter, for example when
+ * tokenizing content, EVENT_PROCESSING_THREADS may be set to process events on a bounded pool of threads instead. Each thread has its own handlers, and the
+ * output of each event is buffered and written to the ContextWriter by the map thread in the order the events were read, so the ContextWriter chain itself is
+ * never used concurrently. This uses more memory, and ExtendedDataTypeHandlers that use the map context directly must be safe to call from several threads.
  *
  *
  *
@@ -130,6 +147,24 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
 
     public static final String ID_FILTER_FSTS = "ingest.event.mapper.id.filter.fsts";
 
+    /**
+     * The number of threads processing events in each mapper. Events are processed on the map thread when this is 1, the default, or when ingest metrics are
+     * enabled. On multiple threads, the offset recorded in the ORIG_FILE field counts every event read, including those discarded as too old.
+     */
+    public static final String EVENT_PROCESSING_THREADS = "ingest.event.mapper.threads";
+
+    /**
+     * The number of events that may be read while the oldest one is still being processed, when processing events on multiple threads. Defaults to four per
+     * thread.
+     */
+    public static final String EVENT_PROCESSING_QUEUE_SIZE = "ingest.event.mapper.queue.size";
+
+    /**
+     * The counter group for the events processed on multiple threads, the time spent processing them, the time the map thread waited for them and the time it
+     * spent writing their output.
+     */
+    public static final String EVENT_PROCESSING_COUNTERS = "EventMapperThreads";
+
     protected Map<String,List<DataTypeHandler<K1>>> typeMap = new HashMap<>();
 
     /**
@@ -163,6 +198,20 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
     private MetricsService<K2,V2> metricsService;
     private ReusableMetricsLabels metricsLabels;
 
+    // when processing events on multiple threads, the workers and the events they are processing in the order they were read
+    private List<EventMapper<K1,V1,K2,V2>> workers = null;
+    private BlockingQueue<EventMapper<K1,V1,K2,V2>> idleWorkers = null;
+    private ExecutorService workerPool = null;
+    private Deque<Future<BufferedContextWriter<K2,V2>>> pendingEvents = null;
+    private int maxPendingEvents = 0;
+    private long waitNanos = 0;
+    private long writeNanos = 0;
+
+    // set on a worker, which is given this context in place of the one of the map task, and counts into its own reporter
+    private Context workerContext = null;
+    private long processNanos = 0;
+    private long eventsProcessed = 0;
+
     /**
      * Set up the datatype handlers
      */
@@ -278,6 +327,15 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
 
         offset = 0;
 
+        int threads = filterConf.getInt(EVENT_PROCESSING_THREADS, 1);
+        if (threads > 1) {
+            if (metricsEnabled) {
+                log.warn("Ingest metrics are not supported when processing events on multiple threads, processing events on the map thread");
+            } else {
+                setupWorkers(context, threads, filterConf.getInt(EVENT_PROCESSING_QUEUE_SIZE, threads * 4));
+            }
+        }
+
         if (log.isInfoEnabled()) {
             log.info("EventMapper configured. Bulk Ingest = true");
             log.info("EventMapper configured with the following filters: " + getDataTypeFilterClassNames());
@@ -285,6 +343,90 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
 
     }
 
+    /**
+     * Set up the workers that process events when EVENT_PROCESSING_THREADS is greater than 1
+     *
+     * @param context
+     *            the context
+     * @param threads
+     *            the number of threads
+     * @param queueSize
+     *            the number of events that may be read while the oldest one is still being processed
+     * @throws IOException
+     *             if a worker cannot be created
+     */
+    private void setupWorkers(Context context, int threads, int queueSize) throws IOException {
+        MultiTableRangePartitioner.setContext(context);
+        workers = new ArrayList<>(threads);
+        idleWorkers = new ArrayBlockingQueue<>(threads);
+        for (int i = 0; i < threads; i++) {
+            EventMapper<K1,V1,K2,V2> worker = newWorker();
+            worker.setupWorker(this, context);
+            workers.add(worker);
+            idleWorkers.add(worker);
+        }
+        pendingEvents = new ArrayDeque<>();
+        maxPendingEvents = Math.max(queueSize, threads);
+        workerPool = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("EventMapper-%d").setDaemon(true).build());
+
+        log.info("EventMapper processing events on " + threads + " threads with up to " + maxPendingEvents + " events in progress");
+    }
+
+    /**
+     * Create a worker. By default this is another instance of this class, which is then set up from this one instead of through setup().
+     *
+     * @return a new worker
+     * @throws IOException
+     *             if the worker cannot be created
+     */
+    @SuppressWarnings("unchecked")
+    protected EventMapper<K1,V1,K2,V2> newWorker() throws IOException {
+        try {
+            return getClass().getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Unable to create an event processing worker of " + getClass(), e);
+        }
+    }
+
+    /**
+     * Set up a worker from the mapper it works for. The worker loads its own handlers and validators, and counts into its own reporter, which the mapper adds
+     * to its context in cleanup(). The context of the map task is not thread safe, so the worker gets a context of its own, with a copy of the configuration.
+     * Nothing may be written to that context; the output of a worker goes through its context writer.
+     *
+     * @param mapper
+     *            the mapper
+     * @param context
+     *            the context
+     */
+    protected void setupWorker(EventMapper<K1,V1,K2,V2> mapper, Context context) {
+        markingFunctions = mapper.markingFunctions;
+        interval = mapper.interval;
+        createSequenceFileName = mapper.createSequenceFileName;
+        trimSequenceFileName = mapper.trimSequenceFileName;
+        createRawFileName = mapper.createRawFileName;
+        splitStart = mapper.splitStart;
+        validators = ArrayListMultimap.create();
+        // the task context copies the configuration into a JobConf of its own
+        MapContext<K1,V1,K2,V2> mapContext = new MapContextImpl<>(context.getConfiguration(), context.getTaskAttemptID(), null, null, null, reporter,
+                        mapper.split);
+        workerContext = new WrappedMapper<K1,V1,K2,V2>().getMapContext(mapContext);
+    }
+
+    @Override
+    public TaskAttemptContext getContext(TaskAttemptContext context) {
+        return workerContext != null ? workerContext : super.getContext(context);
+    }
+
+    @Override
+    public Counter getCounter(TaskAttemptContext context, String group, String counter) {
+        return workerContext != null ? workerContext.getCounter(group, counter) : super.getCounter(context, group, counter);
+    }
+
+    @Override
+    public Counter getCounter(TaskAttemptContext context, Enum<?> counterName) {
+        return workerContext != null ? workerContext.getCounter(counterName) : super.getCounter(context, counterName);
+    }
+
     /**
      * Get the data type handlers for a given type name. This will also fill the dataTypeDiscardIntervalCache and the validators as a side effect.
      *
@@ -386,6 +528,148 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
     }
 
     public void map(K1 key, V1 value, Context context) throws IOException, InterruptedException {
+        countLineBytes(value, context);
+
+        if (workerPool != null) {
+            submitEvent(key, value, context);
+        } else {
+            mapEvent(key, value, context);
+        }
+    }
+
+    private void countLineBytes(V1 value, Context context) {
+        long rawDataBytes = value.getDataOutputSize();
+        if (rawDataBytes != -1) {
+            getCounter(context, IngestInput.LINE_BYTES.toString(), "TOTAL").increment(rawDataBytes);
+            long minBytes = getCounter(context, IngestInput.LINE_BYTES.toString(), "MIN").getValue();
+            if (rawDataBytes < minBytes) {
+                getCounter(context, IngestInput.LINE_BYTES.toString(), "MIN").setValue(rawDataBytes);
+            }
+            long maxBytes = getCounter(context, IngestInput.LINE_BYTES.toString(), "MAX").getValue();
+            if (rawDataBytes > maxBytes) {
+                getCounter(context, IngestInput.LINE_BYTES.toString(), "MAX").setValue(rawDataBytes);
+            }
+        }
+    }
+
+    /**
+     * Hand an event to the workers, and write out the events that are done in the order they were read. If too many events are in progress, this waits for the
+     * oldest one.
+     *
+     * @param key
+     *            the key of the map process
+     * @param value
+     *            the event
+     * @param context
+     *            the context
+     * @throws IOException
+     *             if an event failed
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @SuppressWarnings("unchecked")
+    private void submitEvent(K1 key, V1 value, Context context) throws IOException, InterruptedException {
+        // the record reader may reuse the key and value for the next event
+        final K1 eventKey = key instanceof Writable ? (K1) WritableUtils.clone((Writable) key, context.getConfiguration()) : key;
+        final V1 event = (V1) value.copy();
+        final long eventOffset = offset++;
+        final String ndc = NDC.getDepth() > 0 ? NDC.peek() : null;
+
+        pendingEvents.add(workerPool.submit(() -> processOnWorker(eventKey, event, eventOffset, ndc)));
+
+        writeCompletedEvents(context, false);
+    }
+
+    private BufferedContextWriter<K2,V2> processOnWorker(K1 key, V1 value, long eventOffset, String ndc) throws Exception {
+        EventMapper<K1,V1,K2,V2> worker = idleWorkers.take();
+        BufferedContextWriter<K2,V2> output = new BufferedContextWriter<>();
+        if (ndc != null) {
+            NDC.push(ndc);
+        }
+        long start = System.nanoTime();
+        try {
+            worker.contextWriter = output;
+            worker.offset = eventOffset;
+            worker.mapEvent(key, value, worker.workerContext);
+        } finally {
+            worker.processNanos += System.nanoTime() - start;
+            worker.eventsProcessed++;
+            worker.contextWriter = null;
+            if (ndc != null) {
+                NDC.pop();
+            }
+            idleWorkers.put(worker);
+        }
+        return output;
+    }
+
+    /**
+     * Write the output of the oldest events to the context writer, for as long as they are done or there are too many events in progress
+     *
+     * @param context
+     *            the context
+     * @param all
+     *            whether to wait for every event in progress
+     * @throws IOException
+     *             if an event failed
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    private void writeCompletedEvents(Context context, boolean all) throws IOException, InterruptedException {
+        while (!pendingEvents.isEmpty() && (all || pendingEvents.size() >= maxPendingEvents || pendingEvents.peek().isDone())) {
+            long start = System.nanoTime();
+            BufferedContextWriter<K2,V2> output;
+            try {
+                output = pendingEvents.poll().get();
+            } catch (ExecutionException e) {
+                abortWorkers();
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof InterruptedException) {
+                    throw (InterruptedException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException("Failed to process an event", cause);
+            } catch (InterruptedException e) {
+                abortWorkers();
+                throw e;
+            }
+            long written = System.nanoTime();
+            waitNanos += written - start;
+
+            output.writeTo(contextWriter, context);
+            writeNanos += System.nanoTime() - written;
+            context.progress();
+        }
+    }
+
+    private void abortWorkers() {
+        for (Future<?> pending : pendingEvents) {
+            pending.cancel(true);
+        }
+        pendingEvents.clear();
+        workerPool.shutdownNow();
+    }
+
+    /**
+     * Process an event, writing its output to the context writer
+     *
+     * @param key
+     *            the key of the map process
+     * @param value
+     *            the event
+     * @param context
+     *            the context
+     * @throws IOException
+     *             if the event could not be processed, nor written to the error tables
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    protected void mapEvent(K1 key, V1 value, Context context) throws IOException, InterruptedException {
 
         TraceStopwatch eventMapperTimer = null;
 
@@ -400,7 +684,10 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         // This is a little bit fragile, but there is no other way
         // to get the context on a partitioner, and we are only
         // using this to set some counters that collect stats.
-        MultiTableRangePartitioner.setContext(context);
+        // The workers leave the partitioner with the context of the map task, as that is the one the partitioner is called for.
+        if (workerContext == null) {
+            MultiTableRangePartitioner.setContext(context);
+        }
 
         Long myInterval = dataTypeDiscardIntervalCache.get(value.getDataType().typeName());
 
@@ -411,19 +698,6 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         // Flag to control whether a reprocessed event caused an NDC.push
         boolean reprocessedNDCPush = false;
 
-        long rawDataBytes = value.getDataOutputSize();
-        if (rawDataBytes != -1) {
-            getCounter(context, IngestInput.LINE_BYTES.toString(), "TOTAL").increment(rawDataBytes);
-            long minBytes = getCounter(context, IngestInput.LINE_BYTES.toString(), "MIN").getValue();
-            if (rawDataBytes < minBytes) {
-                getCounter(context, IngestInput.LINE_BYTES.toString(), "MIN").setValue(rawDataBytes);
-            }
-            long maxBytes = getCounter(context, IngestInput.LINE_BYTES.toString(), "MAX").getValue();
-            if (rawDataBytes > maxBytes) {
-                getCounter(context, IngestInput.LINE_BYTES.toString(), "MAX").setValue(rawDataBytes);
-            }
-        }
-
         // First lets clear this event from the error table if we are reprocessing a previously errored event
         if (value.getAuxData() instanceof EventErrorSummary) {
             EventErrorSummary errorSummary = (EventErrorSummary) (value.getAuxData());
@@ -621,16 +895,34 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
     @Override
     public void cleanup(Context context) throws IOException, InterruptedException {
 
+        // the handlers and counters of the workers are cleaned up along with our own
+        List<EventMapper<K1,V1,K2,V2>> mappers = new ArrayList<>();
+        mappers.add(this);
+        if (workerPool != null) {
+            writeCompletedEvents(context, true);
+            workerPool.shutdown();
+            mappers.addAll(workers);
+
+            for (EventMapper<K1,V1,K2,V2> worker : workers) {
+                getCounter(context, EVENT_PROCESSING_COUNTERS, "EVENTS").increment(worker.eventsProcessed);
+                getCounter(context, EVENT_PROCESSING_COUNTERS, "PROCESS_MILLIS").increment(TimeUnit.NANOSECONDS.toMillis(worker.processNanos));
+            }
+            getCounter(context, EVENT_PROCESSING_COUNTERS, "WAIT_MILLIS").increment(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            getCounter(context, EVENT_PROCESSING_COUNTERS, "WRITE_MILLIS").increment(TimeUnit.NANOSECONDS.toMillis(writeNanos));
+        }
+
         // Write the metadata to the output
-        for (List<DataTypeHandler<K1>> handlers : typeMap.values()) {
-            for (DataTypeHandler<K1> h : handlers)
-                if (h.getMetadata() != null) {
-                    try {
-                        contextWriter.write(h.getMetadata().getBulkMetadata(), context);
-                    } finally {
-                        contextWriter.commit(context);
+        for (EventMapper<K1,V1,K2,V2> mapper : mappers) {
+            for (List<DataTypeHandler<K1>> handlers : mapper.typeMap.values()) {
+                for (DataTypeHandler<K1> h : handlers)
+                    if (h.getMetadata() != null) {
+                        try {
+                            contextWriter.write(h.getMetadata().getBulkMetadata(), context);
+                        } finally {
+                            contextWriter.commit(context);
+                        }
                     }
-                }
+            }
         }
 
         // dump any unflushed metrics
@@ -641,17 +933,21 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         // cleanup the context writer
         contextWriter.cleanup(context);
 
-        for (List<DataTypeHandler<K1>> handlers : typeMap.values()) {
-            for (DataTypeHandler<K1> h : handlers)
-                h.close(context);
+        for (EventMapper<K1,V1,K2,V2> mapper : mappers) {
+            for (List<DataTypeHandler<K1>> handlers : mapper.typeMap.values()) {
+                for (DataTypeHandler<K1> h : handlers)
+                    h.close(context);
+            }
+            mapper.typeMap.clear();
         }
-        typeMap.clear();
 
-        // Add the counters from the standalone reporter to this context.
-        Counters counters = reporter.getCounters();
-        for (CounterGroup cg : counters) {
-            for (Counter c : cg) {
-                getCounter(context, cg.getName(), c.getName()).increment(c.getValue());
+        // Add the counters from the standalone reporters to this context.
+        for (EventMapper<K1,V1,K2,V2> mapper : mappers) {
+            Counters counters = mapper.reporter.getCounters();
+            for (CounterGroup cg : counters) {
+                for (Counter c : cg) {
+                    getCounter(context, cg.getName(), c.getName()).increment(c.getValue());
+                }
             }
         }
 
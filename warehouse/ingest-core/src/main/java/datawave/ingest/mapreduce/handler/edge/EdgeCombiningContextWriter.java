@@ -0,0 +1,217 @@
+package datawave.ingest.mapreduce.handler.edge;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Multimap;
+
+import datawave.edge.util.EdgeKey.EDGE_FORMAT;
+import datawave.edge.util.EdgeKeyDecoder;
+import datawave.ingest.data.config.filter.KeyValueFilter;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+import datawave.ingest.mapreduce.job.writer.AbstractContextWriter;
+import datawave.ingest.mapreduce.job.writer.BulkContextWriter;
+import datawave.ingest.mapreduce.job.writer.ContextWriter;
+import datawave.iterators.EdgeCombiner;
+
+/**
+ * This is a context writer that combines the edges written by the {@link ProtobufEdgeDataTypeHandler} across events before passing them on to the next writer
+ * in the chain, so that an edge seen in many events of a task leaves the mapper once instead of once per event. Edges with the same key, ignoring the
+ * timestamp, are combined the way the {@link EdgeCombiner} on the edge table would combine them: counts are summed, hour bitmasks are or'ed, and the earliest
+ * load date is kept. The combined edge is written with the newest timestamp of the edges combined. Stats edges and deletes are passed through as is, as is
+ * everything written to other tables.
+ * <p>
+ * The combined edges are held in a cache bounded by {@link ProtobufEdgeDataTypeHandler#EDGE_COMBINING_CACHE_BYTES} bytes. Once the cache is full, the edges
+ * that were combined least recently are written out to make room, and whatever is left is written out when the task is cleaned up. Entries only reach the
+ * cache once the event that wrote them has been committed, so the edges of an event that is rolled back are never combined.
+ * <p>
+ * This is configured as a filter class, e.g. by adding it to the all.filter.classes property.
+ */
+public class EdgeCombiningContextWriter<OK,OV> extends AbstractContextWriter<OK,OV> implements KeyValueFilter<OK,OV> {
+
+    // The property used to configure the next writer in the chain
+    public static final String CONTEXT_WRITER_CLASS = "ingest.edge.combining.context.writer.class";
+
+    public static final long DEFAULT_CACHE_BYTES = 64L * 1024 * 1024;
+
+    // the counters for the edges received and written by the cache
+    public static final String EDGE_COMBINING_COUNTERS = "EDGE_COMBINING_CACHE";
+    public static final String EDGES_RECEIVED = "EDGES_RECEIVED";
+    public static final String EDGES_WRITTEN = "EDGES_WRITTEN";
+
+    // a rough allowance for the objects holding a cached edge, on top of the bytes of its key and value
+    private static final int ENTRY_OVERHEAD = 200;
+
+    // the combined edges by key, with the timestamp cleared, in the order they were last combined
+    private final LinkedHashMap<Key,CombinedEdge> cache = new LinkedHashMap<>(1024, 0.75f, true);
+    private final EdgeCombiner combiner = new EdgeCombiner();
+    private final Text colFam = new Text();
+
+    private Text edgeTableName = null;
+    private long maxBytes = DEFAULT_CACHE_BYTES;
+    private long bytes = 0;
+    private long received = 0;
+    private long written = 0;
+
+    // The chained context writer
+    private ContextWriter<OK,OV> contextWriter;
+
+    @Override
+    public void configureChainedContextWriter(Configuration conf, Class<? extends ContextWriter<OK,OV>> contextWriterClass) {
+        conf.setClass(CONTEXT_WRITER_CLASS, contextWriterClass, ContextWriter.class);
+    }
+
+    @Override
+    public String[] getTableNames(Configuration conf) {
+        return new String[0];
+    }
+
+    @Override
+    public int[] getTableLoaderPriorities(Configuration conf) {
+        return new int[0];
+    }
+
+    @Override
+    public void setup(Configuration conf, boolean outputTableCounters) throws IOException, InterruptedException {
+        super.setup(conf, false);
+
+        String tableName = conf.get(ProtobufEdgeDataTypeHandler.EDGE_TABLE_NAME);
+        if (tableName != null) {
+            edgeTableName = new Text(tableName);
+        }
+        maxBytes = conf.getLong(ProtobufEdgeDataTypeHandler.EDGE_COMBINING_CACHE_BYTES, DEFAULT_CACHE_BYTES);
+
+        // create and setup the chained context writer
+        Class<ContextWriter<OK,OV>> contextWriterClass = (Class<ContextWriter<OK,OV>>) conf.getClass(CONTEXT_WRITER_CLASS, BulkContextWriter.class,
+                        ContextWriter.class);
+        try {
+            contextWriter = contextWriterClass.getDeclaredConstructor().newInstance();
+            contextWriter.setup(conf, outputTableCounters);
+        } catch (Exception e) {
+            throw new IOException("Failed to initialized " + contextWriterClass + " from property " + CONTEXT_WRITER_CLASS, e);
+        }
+    }
+
+    @Override
+    public void commit(TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        super.commit(context);
+        contextWriter.commit(context);
+    }
+
+    @Override
+    protected void flush(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        Multimap<BulkIngestKey,Value> output = ArrayListMultimap.create();
+        for (Map.Entry<BulkIngestKey,Value> entry : entries.entries()) {
+            if (isCombinable(entry.getKey())) {
+                combine(entry.getKey().getKey(), entry.getValue());
+            } else {
+                output.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        // make room in the cache by writing out the edges combined least recently
+        Iterator<CombinedEdge> edges = cache.values().iterator();
+        while (bytes > maxBytes && edges.hasNext()) {
+            write(edges.next(), output);
+            edges.remove();
+        }
+
+        if (!output.isEmpty()) {
+            contextWriter.write(output, context);
+        }
+    }
+
+    @Override
+    public void rollback() throws IOException, InterruptedException {
+        super.rollback();
+        contextWriter.rollback();
+    }
+
+    @Override
+    public void cleanup(TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        super.cleanup(context);
+
+        Multimap<BulkIngestKey,Value> output = ArrayListMultimap.create();
+        for (CombinedEdge edge : cache.values()) {
+            write(edge, output);
+        }
+        cache.clear();
+        if (!output.isEmpty()) {
+            contextWriter.write(output, context);
+        }
+
+        getCounter(context, EDGE_COMBINING_COUNTERS, EDGES_RECEIVED).increment(received);
+        getCounter(context, EDGE_COMBINING_COUNTERS, EDGES_WRITTEN).increment(written);
+        received = 0;
+        written = 0;
+
+        contextWriter.cleanup(context);
+    }
+
+    /**
+     * @return the estimated number of bytes held by the cache
+     */
+    public long getCachedBytes() {
+        return bytes;
+    }
+
+    private boolean isCombinable(BulkIngestKey key) {
+        if (maxBytes <= 0 || !key.getTableName().equals(edgeTableName) || key.getKey().isDeleted()) {
+            return false;
+        }
+        key.getKey().getColumnFamily(colFam);
+        return EdgeKeyDecoder.determineEdgeFormat(colFam) == EDGE_FORMAT.STANDARD;
+    }
+
+    private void combine(Key key, Value value) {
+        received++;
+        Key cacheKey = new Key(key);
+        cacheKey.setTimestamp(0);
+
+        CombinedEdge edge = cache.get(cacheKey);
+        if (edge == null) {
+            cache.put(cacheKey, new CombinedEdge(cacheKey, key.getTimestamp(), value));
+            bytes += ENTRY_OVERHEAD + cacheKey.getSize() + value.getSize();
+        } else {
+            bytes -= edge.value.getSize();
+            // the combiner expects the values of the newest key first
+            if (key.getTimestamp() > edge.timestamp) {
+                edge.value = combiner.reduce(cacheKey, Iterators.forArray(value, edge.value));
+                edge.timestamp = key.getTimestamp();
+            } else {
+                edge.value = combiner.reduce(cacheKey, Iterators.forArray(edge.value, value));
+            }
+            bytes += edge.value.getSize();
+        }
+    }
+
+    private void write(CombinedEdge edge, Multimap<BulkIngestKey,Value> output) {
+        Key key = new Key(edge.key);
+        key.setTimestamp(edge.timestamp);
+        output.put(new BulkIngestKey(edgeTableName, key), edge.value);
+        bytes -= ENTRY_OVERHEAD + edge.key.getSize() + edge.value.getSize();
+        written++;
+    }
+
+    private static class CombinedEdge {
+        private final Key key;
+        private long timestamp;
+        private Value value;
+
+        private CombinedEdge(Key key, long timestamp, Value value) {
+            this.key = key;
+            this.timestamp = timestamp;
+            this.value = value;
+        }
+    }
+}
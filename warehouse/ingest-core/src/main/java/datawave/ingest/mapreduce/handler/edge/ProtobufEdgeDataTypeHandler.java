@@ -110,6 +110,9 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
 
     public static final String EDGE_STATS_LOG_USE_BLOOM = "protobufedge.stats.use.bloom";
 
+    // the size in bytes of the cache used by the EdgeCombiningContextWriter to combine edges across events before they leave the mapper
+    public static final String EDGE_COMBINING_CACHE_BYTES = "protobufedge.combining.cache.bytes";
+
     public static final String ACTIVITY_DATE_FUTURE_DELTA = "protobufedge.valid.activitytime.future.delta";
     public static final String ACTIVITY_DATE_PAST_DELTA = "protobufedge.valid.activitytime.past.delta";
 
@@ -0,0 +1,243 @@
+package datawave.ingest.mapreduce.handler.shard.content;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+
+import datawave.ingest.mapreduce.handler.shard.content.BoundedOffsetQueue.OffsetList;
+
+/**
+ * A bounded offset queue like the {@link BoundedOffsetQueue}, for integer offsets. It keeps the offsets of each term in a growing int array rather than a list
+ * of boxed integers, and keys the terms by their {@link TermAndZone} rather than by a token string built for every offset added. The term with the fewest
+ * offsets is found through a heap that is updated in place as offsets are added, so adding an offset takes logarithmic rather than linear time in the number of
+ * terms.
+ * <p>
+ * The {@link TermAndZone} passed to {@link #addOffset(TermAndZone, int)} is only retained when it is the first offset of a term, and then a copy of it is, so
+ * callers may reuse a single instance for every term they add.
+ */
+public class BoundedIntOffsetQueue implements OffsetQueue<Integer> {
+
+    private static final int INITIAL_OFFSETS = 4;
+
+    private static class TermOffsets {
+        private final TermAndZone termAndZone;
+        private int[] offsets = new int[INITIAL_OFFSETS];
+        private int size = 0;
+        // the index of this term in the heap
+        private int index;
+
+        private TermOffsets(TermAndZone termAndZone) {
+            this.termAndZone = termAndZone;
+        }
+
+        private void add(int offset) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            offsets[size++] = offset;
+        }
+    }
+
+    /**
+     * A read only list view of the offsets of a term
+     */
+    private static class IntList extends AbstractList<Integer> implements RandomAccess {
+        private final int[] offsets;
+        private final int size;
+
+        private IntList(TermOffsets term) {
+            this.offsets = term.offsets;
+            this.size = term.size;
+        }
+
+        @Override
+        public Integer get(int index) {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return offsets[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    // The offsets of each term
+    private final HashMap<TermAndZone,TermOffsets> offsetsMap;
+
+    // A min heap of the terms by their number of offsets
+    private TermOffsets[] heap;
+    private int heapSize = 0;
+
+    // The max size
+    private final int maxNumOffsets;
+
+    // The current size of the queue in terms of offsets (i.e. not in terms of keys)
+    private int numOffsets = 0;
+
+    /**
+     * Create a bounded offset queue
+     *
+     * @param maxNumOffsets
+     *            the max size of offsets
+     */
+    public BoundedIntOffsetQueue(int maxNumOffsets) {
+        this.maxNumOffsets = maxNumOffsets;
+        this.heap = new TermOffsets[Math.max(16, maxNumOffsets / 10)];
+        this.offsetsMap = new HashMap<>(Math.max(16, maxNumOffsets / 10));
+    }
+
+    @Override
+    public int size() {
+        return this.numOffsets;
+    }
+
+    public int getCapacity() {
+        return this.maxNumOffsets;
+    }
+
+    @Override
+    public OffsetList<Integer> addOffset(TermAndZone termAndZone, Integer offset) {
+        return addOffset(termAndZone, offset.intValue());
+    }
+
+    /**
+     * Add an offset. If this addition pushes the queue past its limit, then the term with the fewest offsets is removed and returned.
+     *
+     * @param termAndZone
+     *            the termAndZone, which is copied if it is not yet in the queue
+     * @param offset
+     *            the offset to add
+     * @return The removed overflow entry. Null if the queue is not full yet.
+     */
+    public OffsetList<Integer> addOffset(TermAndZone termAndZone, int offset) {
+        TermOffsets term = offsetsMap.get(termAndZone);
+        if (term == null) {
+            term = new TermOffsets(new TermAndZone(termAndZone.term, termAndZone.zone));
+            offsetsMap.put(term.termAndZone, term);
+            term.add(offset);
+            push(term);
+        } else {
+            term.add(offset);
+            // the term can only have moved further from the top of the heap
+            siftDown(term.index);
+        }
+
+        numOffsets++;
+        if (numOffsets > maxNumOffsets) {
+            TermOffsets smallest = pop();
+            offsetsMap.remove(smallest.termAndZone);
+            numOffsets -= smallest.size;
+            return toOffsetList(smallest, new OffsetList<>());
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(heap, 0, heapSize, null);
+        heapSize = 0;
+        offsetsMap.clear();
+        numOffsets = 0;
+    }
+
+    @Override
+    public List<Integer> getOffsets(TermAndZone termAndZone) {
+        TermOffsets term = offsetsMap.get(termAndZone);
+        return (term == null ? null : new IntList(term));
+    }
+
+    @Override
+    public boolean containsKey(TermAndZone termAndZone) {
+        return offsetsMap.containsKey(termAndZone);
+    }
+
+    @Override
+    public Iterable<OffsetList<Integer>> offsets() {
+        return () -> {
+            final Iterator<TermOffsets> terms = offsetsMap.values().iterator();
+            final OffsetList<Integer> offsets = new OffsetList<>();
+            return new Iterator<OffsetList<Integer>>() {
+                @Override
+                public boolean hasNext() {
+                    return terms.hasNext();
+                }
+
+                @Override
+                public OffsetList<Integer> next() {
+                    return toOffsetList(terms.next(), offsets);
+                }
+            };
+        };
+    }
+
+    private static OffsetList<Integer> toOffsetList(TermOffsets term, OffsetList<Integer> list) {
+        list.termAndZone = term.termAndZone;
+        list.offsets = new IntList(term);
+        return list;
+    }
+
+    private void push(TermOffsets term) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+        }
+        heap[heapSize] = term;
+        term.index = heapSize;
+        heapSize++;
+        siftUp(term.index);
+    }
+
+    private TermOffsets pop() {
+        TermOffsets top = heap[0];
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heap[0].index = 0;
+            siftDown(0);
+        }
+        heap[heapSize] = null;
+        return top;
+    }
+
+    private void siftUp(int index) {
+        TermOffsets term = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].size <= term.size) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(term, index);
+    }
+
+    private void siftDown(int index) {
+        TermOffsets term = heap[index];
+        int half = heapSize >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < heapSize && heap[right].size < heap[child].size) {
+                child = right;
+            }
+            if (term.size <= heap[child].size) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(term, index);
+    }
+
+    private void place(TermOffsets term, int index) {
+        heap[index] = term;
+        term.index = index;
+    }
+}
@@ -4,7 +4,9 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
@@ -41,7 +43,7 @@ import datawave.ingest.data.tokenize.TruncateAttribute;
 import datawave.ingest.mapreduce.handler.ExtendedDataTypeHandler;
 import datawave.ingest.mapreduce.handler.shard.AbstractColumnBasedHandler;
 import datawave.ingest.mapreduce.handler.shard.ShardedDataTypeHandler;
-import datawave.ingest.mapreduce.handler.shard.content.BoundedOffsetQueue;
+import datawave.ingest.mapreduce.handler.shard.content.BoundedIntOffsetQueue;
 import datawave.ingest.mapreduce.handler.shard.content.BoundedOffsetQueue.OffsetList;
 import datawave.ingest.mapreduce.handler.shard.content.ContentIndexCounters;
 import datawave.ingest.mapreduce.handler.shard.content.OffsetQueue;
@@ -108,6 +110,13 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
 
     private int termPosition = 0;
 
+    // the token zone names by field name, and the term types stripped of their brackets by term type, so they are only built once
+    private final Map<String,String> tokenZoneNames = new HashMap<>();
+    private final Map<String,String> termTypeNames = new HashMap<>();
+
+    // reused for every offset added to the token offset cache, which copies it when it holds on to it
+    private final TermAndZone offsetTermAndZone = new TermAndZone("", "");
+
     @Override
     public void setup(TaskAttemptContext context) {
         super.setup(context);
@@ -134,7 +143,7 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
         searchUtilReverse = TokenSearch.Factory.newInstance(DefaultTokenSearch.class.getCanonicalName(), tokenHelper.getStopWords(), true);
         tokenHelper.configureSearchUtil(searchUtilReverse);
 
-        tokenOffsetCache = new BoundedOffsetQueue<>(tokenHelper.getTokenOffsetCacheMaxSize());
+        tokenOffsetCache = new BoundedIntOffsetQueue(tokenHelper.getTokenOffsetCacheMaxSize());
 
         // Conditionally create an NGrams factory
         if (this.getBloomFiltersEnabled()) {
@@ -354,7 +363,7 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
         }
 
         String indexedFieldName = nci.getIndexedFieldName();
-        String modifiedFieldName = indexedFieldName + tokenFieldNameSuffix;
+        String modifiedFieldName = tokenZoneNames.computeIfAbsent(indexedFieldName, name -> name + tokenFieldNameSuffix);
         String content = nci.getIndexedFieldValue();
 
         TokenStream tokenizer = a.tokenStream(indexedFieldName, new StringReader(content));
@@ -408,21 +417,17 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
                     break; // eof
                 }
 
-                // Get the term and any synonyms for it
-                String token = termAtt.toString();
-                String type = typeAtt.type();
+                String type = termTypeNames.computeIfAbsent(typeAtt.type(), ContentIndexingColumnBasedHandler::stripTermType);
 
                 // term positions aren't reset between fields of the same name, see getShardNamesAndValues.
                 termPosition += posIncrAtt.getPositionIncrement();
 
-                if (type.startsWith("<") && type.endsWith(">")) {
-                    type = type.substring(1, type.length() - 1); // <FOO> => FOO without regex
-                }
-
                 // Make sure the term length is greater than the minimum allowed length
-                int tlen = token.length();
+                int tlen = termAtt.length();
                 if (tlen < tokenHelper.getTermLengthMinimum()) {
-                    log.debug("Ignoring token of length " + token.length() + " because it is too short");
+                    if (log.isDebugEnabled()) {
+                        log.debug("Ignoring token of length " + tlen + " because it is too short");
+                    }
                     counters.increment(ContentIndexCounters.TOO_SHORT_COUNTER, reporter);
                     continue;
                 }
@@ -438,13 +443,13 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
                 }
 
                 if (tlen > tokenHelper.getTermLengthWarningLimit()) {
-                    log.warn("Encountered long term: " + tlen + " characters, '" + token + "'");
+                    log.warn("Encountered long term: " + tlen + " characters, '" + termAtt + "'");
                     counters.increment(ContentIndexCounters.LENGTH_WARNING_COUNTER, reporter);
                 }
 
                 if (truncAtt.isTruncated()) {
                     if (log.isDebugEnabled()) {
-                        log.debug("Encountered truncated term: " + tlen + " characters, '" + token + "'");
+                        log.debug("Encountered truncated term: " + tlen + " characters, '" + termAtt + "'");
                     }
                     counters.increment(ContentIndexCounters.TRUNCATION_COUNTER, reporter);
                 }
@@ -469,6 +474,9 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
                     continue;
                 }
 
+                // Get the term and any synonyms for it. The term is only copied out of the term buffer once it has passed the checks above
+                String token = termAtt.toString();
+
                 if (indexField) {
                     NormalizedContentInterface newField;
                     Collection<String> synonyms;
@@ -497,7 +505,7 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
                         fields.put(modifiedFieldName, newField);
 
                         if (tokenOffsetCache != null) {
-                            tokenOffsetCache.addOffset(new TermAndZone(s, modifiedFieldName), termPosition);
+                            addOffset(s, modifiedFieldName, termPosition);
                         }
                     }
 
@@ -561,6 +569,19 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
         }
     }
 
+    private void addOffset(String term, String zone, int position) {
+        offsetTermAndZone.term = term;
+        offsetTermAndZone.zone = zone;
+        tokenOffsetCache.addOffset(offsetTermAndZone, position);
+    }
+
+    private static String stripTermType(String type) {
+        if (type.startsWith("<") && type.endsWith(">")) {
+            return type.substring(1, type.length() - 1); // <FOO> => FOO without regex
+        }
+        return type;
+    }
+
     /**
      * Creates a Term Frequency index key in the "tf" column family.
      *
@@ -722,14 +743,14 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
 
                     if (tokenOffsetCache != null) {
                         for (NormalizedContentInterface normalizedNci : normalizedValueFields) {
-                            tokenOffsetCache.addOffset(new TermAndZone(normalizedNci.getIndexedFieldValue(), indexedFieldName), position);
+                            addOffset(normalizedNci.getIndexedFieldValue(), indexedFieldName, position);
                         }
                     }
                 } else {
                     index.put(indexedFieldName, newField);
                     fields.put(indexedFieldName, newField);
                     if (tokenOffsetCache != null) {
-                        tokenOffsetCache.addOffset(new TermAndZone(trimmedToken, indexedFieldName), position);
+                        addOffset(trimmedToken, indexedFieldName, position);
                     }
                 }
                 position++;
@@ -48,7 +48,7 @@ import datawave.ingest.mapreduce.handler.DataTypeHandler;
 import datawave.ingest.mapreduce.handler.ExtendedDataTypeHandler;
 import datawave.ingest.mapreduce.handler.shard.AbstractColumnBasedHandler;
 import datawave.ingest.mapreduce.handler.shard.ShardedDataTypeHandler;
-import datawave.ingest.mapreduce.handler.shard.content.BoundedOffsetQueue;
+import datawave.ingest.mapreduce.handler.shard.content.BoundedIntOffsetQueue;
 import datawave.ingest.mapreduce.handler.shard.content.BoundedOffsetQueue.OffsetList;
 import datawave.ingest.mapreduce.handler.shard.content.ContentIndexCounters;
 import datawave.ingest.mapreduce.handler.shard.content.OffsetQueue;
@@ -206,7 +206,7 @@ public abstract class ExtendedContentIndexingColumnBasedHandler<KEYIN,KEYOUT,VAL
         }
         // The tokens offsets queue is a bounded priority queue that will allow us to cache the
         // highest cardinality offsets up to a predetermined max size
-        tokenOffsetCache = new BoundedOffsetQueue<>(tokenHelper.getTokenOffsetCacheMaxSize());
+        tokenOffsetCache = new BoundedIntOffsetQueue(tokenHelper.getTokenOffsetCacheMaxSize());
 
         stopWords = tokenHelper.getStopWords();
 
@@ -0,0 +1,134 @@
+package datawave.ingest.mapreduce.job;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runs bulk imports with a number of concurrent imports that adapts to how long the tablet servers take to import. The concurrency starts at the maximum, is
+ * halved whenever an import takes longer than the latency target, and grows back by one for every import that completes within it.
+ * <p>
+ * The number of files imported and the time spent importing are tracked to report the import rate.
+ */
+public class BulkImportScheduler {
+
+    private static final Logger log = Logger.getLogger(BulkImportScheduler.class);
+
+    private final int maxConcurrency;
+    private final long latencyTarget;
+    private final ExecutorService executor;
+
+    private int concurrency;
+    private long filesImported = 0;
+    private long importMillis = 0;
+
+    /**
+     * @param maxConcurrency
+     *            the maximum number of concurrent imports
+     * @param latencyTarget
+     *            the time in ms that an import may take before the concurrency is reduced
+     */
+    public BulkImportScheduler(int maxConcurrency, long latencyTarget) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.latencyTarget = latencyTarget;
+        this.concurrency = this.maxConcurrency;
+        this.executor = Executors.newFixedThreadPool(this.maxConcurrency, r -> {
+            Thread t = new Thread(r, "bulk-import");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Run a set of imports, waiting for all of them to complete. No new imports are started once one has failed.
+     *
+     * @param imports
+     *            the imports, each returning the number of files it imported
+     * @throws IOException
+     *             if any of the imports failed
+     * @throws InterruptedException
+     *             if interrupted while waiting on the imports
+     */
+    public void importAll(List<Callable<Integer>> imports) throws IOException, InterruptedException {
+        CompletionService<Integer> completion = new ExecutorCompletionService<>(executor);
+        Iterator<Callable<Integer>> pending = imports.iterator();
+        int running = 0;
+        Exception failure = null;
+
+        while (running > 0 || (failure == null && pending.hasNext())) {
+            while (failure == null && pending.hasNext() && running < getConcurrency()) {
+                Callable<Integer> task = pending.next();
+                completion.submit(() -> timed(task));
+                running++;
+            }
+
+            Future<Integer> done = completion.take();
+            running--;
+            try {
+                done.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = (e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw (failure instanceof IOException ? (IOException) failure : new IOException(failure));
+        }
+    }
+
+    private Integer timed(Callable<Integer> task) throws Exception {
+        long start = System.currentTimeMillis();
+        Integer files = task.call();
+        record(files == null ? 0 : files, System.currentTimeMillis() - start);
+        return files;
+    }
+
+    /**
+     * Record a completed import and adapt the concurrency to its latency
+     *
+     * @param files
+     *            the number of files imported
+     * @param millis
+     *            the time the import took
+     */
+    synchronized void record(int files, long millis) {
+        filesImported += files;
+        importMillis += millis;
+        if (millis > latencyTarget) {
+            int reduced = Math.max(1, concurrency / 2);
+            if (reduced != concurrency) {
+                log.info("Import took " + millis + "ms, reducing the concurrent bulk imports from " + concurrency + " to " + reduced);
+            }
+            concurrency = reduced;
+        } else if (concurrency < maxConcurrency) {
+            concurrency++;
+        }
+    }
+
+    public synchronized int getConcurrency() {
+        return concurrency;
+    }
+
+    public synchronized long getFilesImported() {
+        return filesImported;
+    }
+
+    public synchronized long getImportMillis() {
+        return importMillis;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
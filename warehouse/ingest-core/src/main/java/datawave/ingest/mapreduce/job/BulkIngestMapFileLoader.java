@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Observer;
 import java.util.Stack;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -85,6 +86,9 @@ public final class BulkIngestMapFileLoader implements Runnable {
     private static int SHUTDOWN_PORT = 24111;
     private static boolean FIFO = true;
     private static boolean INGEST_METRICS = true;
+    private static boolean BATCH_JOBS = false;
+    private static int NUM_BULK_THREADS = 8;
+    private static long IMPORT_LATENCY_TARGET = 5 * 60 * 1000; // 5 minutes
 
     public static final String CLEANUP_FILE_MARKER = "job.cleanup";
     public static final String COMPLETE_FILE_MARKER = "job.complete";
@@ -108,6 +112,9 @@ public final class BulkIngestMapFileLoader implements Runnable {
     private volatile boolean running;
     private ExecutorService executor;
     private JobObservable jobObservable;
+    private BulkImportScheduler importScheduler;
+    private int fsAccessFailures = 0;
+    private long oldestCompletedJobTime = 0;
 
     public static void main(String[] args) throws AccumuloSecurityException, IOException, NoSuchMethodException {
 
@@ -122,11 +129,11 @@ public final class BulkIngestMapFileLoader implements Runnable {
             log.error("usage: BulkIngestMapFileLoader hdfsWorkDir jobDirPattern instanceName zooKeepers username password "
                             + "[-sleepTime sleepTime] [-majcThreshold threshold] [-majcCheckInterval count] [-majcDelay majcDelay] "
                             + " [-seqFileHdfs seqFileSystemUri] [-srcHdfs srcFileSystemURI] [-destHdfs destFileSystemURI] [-jt jobTracker] "
-                            + "[-ingestMetricsDisabled] [-jobObservers jobObserverClasses] [-shutdownPort portNum] confFile [{confFile}]");
+                            + "[-ingestMetricsDisabled] [-jobObservers jobObserverClasses] [-shutdownPort portNum] [-batchJobs] [-importLatencyTarget ms] "
+                            + "confFile [{confFile}]");
             System.exit(-1);
         }
 
-        int numBulkThreads = 8;
         int numBulkAssignThreads = 4;
         List<Observer> jobObservers = new ArrayList<>();
         // default the number of HDFS threads to 1
@@ -195,7 +202,7 @@ public final class BulkIngestMapFileLoader implements Runnable {
                         System.exit(-2);
                     }
                     try {
-                        numBulkThreads = Integer.parseInt(args[++i]);
+                        NUM_BULK_THREADS = Integer.parseInt(args[++i]);
                     } catch (NumberFormatException e) {
                         log.error("-numThreads must be followed by the number of bulk import threads", e);
                         System.exit(-2);
@@ -272,6 +279,20 @@ public final class BulkIngestMapFileLoader implements Runnable {
                         log.error("-shutdownPort must be followed a port number", e);
                         System.exit(-2);
                     }
+                } else if ("-importLatencyTarget".equalsIgnoreCase(args[i])) {
+                    if (i + 2 > args.length) {
+                        log.error("-importLatencyTarget must be followed by the ms a batched import may take before fewer imports are run at once");
+                        System.exit(-2);
+                    }
+                    try {
+                        IMPORT_LATENCY_TARGET = Long.parseLong(args[++i]);
+                    } catch (NumberFormatException e) {
+                        log.error("-importLatencyTarget must be followed by the ms a batched import may take before fewer imports are run at once", e);
+                        System.exit(-2);
+                    }
+                } else if ("-batchJobs".equalsIgnoreCase(args[i])) {
+                    BATCH_JOBS = true;
+                    log.info("Batching the imports of job directories");
                 } else if ("-ingestMetricsDisabled".equalsIgnoreCase(args[i])) {
                     INGEST_METRICS = false;
                     log.info("Ingest metrics disabled");
@@ -323,7 +344,7 @@ public final class BulkIngestMapFileLoader implements Runnable {
         log.info("Will not bring map files online unless at least " + MAJC_WAIT_TIMEOUT + "ms have passed since last time.");
         log.info("Will check the majcThreshold and majcDelay every " + MAJC_CHECK_INTERVAL + " bulk loads.");
         log.info("Processing a max of " + MAX_DIRECTORIES + " directories");
-        log.info("Using " + numBulkThreads + " bulk load threads");
+        log.info("Using " + NUM_BULK_THREADS + " bulk load threads");
         log.info("Using " + numHdfsThreads + " HDFS operation threads");
         log.info("Using " + numBulkAssignThreads + " bulk assign threads");
         log.info("Using " + seqFileHdfs + " as the file system containing the original sequence files");
@@ -332,6 +353,9 @@ public final class BulkIngestMapFileLoader implements Runnable {
         log.info("Using " + jobtracker + " as the jobtracker");
         log.info("Using " + SHUTDOWN_PORT + " as the shutdown port");
         log.info("Using " + (FIFO ? "FIFO" : "LIFO") + " processing order");
+        if (BATCH_JOBS) {
+            log.info("Importing up to " + MAJC_CHECK_INTERVAL + " job directories at a time, with an import latency target of " + IMPORT_LATENCY_TARGET + "ms");
+        }
 
         for (String[] s : properties) {
             conf.set(s[0], s[1]);
@@ -393,6 +417,9 @@ public final class BulkIngestMapFileLoader implements Runnable {
         this.jobtracker = jobtracker;
         this.running = true;
         this.executor = Executors.newFixedThreadPool(numHdfsThreads > 0 ? numHdfsThreads : 1);
+        if (BATCH_JOBS) {
+            this.importScheduler = new BulkImportScheduler(NUM_BULK_THREADS, IMPORT_LATENCY_TARGET);
+        }
         try {
             this.jobObservable = new JobObservable(seqFileHdfs != null ? getFileSystem(seqFileHdfs) : null);
         } catch (IOException e) {
@@ -426,7 +453,6 @@ public final class BulkIngestMapFileLoader implements Runnable {
         log.info("Starting process to monitor map files.");
         long lastOnlineTime = 0;
         long lastLoadMessageTime = 0;
-        int fsAccessFailures = 0;
         Path[] jobDirectories = new Path[0];
         int nextJobIndex = 0;
 
@@ -461,7 +487,23 @@ public final class BulkIngestMapFileLoader implements Runnable {
                         jobDirectories = getJobDirectories(srcHdfs, new Path(workDir, jobDirPattern + '/' + COMPLETE_FILE_MARKER));
                         nextJobIndex = 0;
                     }
-                    if (jobDirectories.length > 0) {
+                    if (jobDirectories.length > 0 && importScheduler != null) {
+                        // take ownership of as many job directories as will be imported together
+                        List<Path> ownedDirectories = new ArrayList<>();
+                        while (ownedDirectories.size() < MAJC_CHECK_INTERVAL && nextJobIndex < jobDirectories.length && running) {
+                            Path srcJobDirectory = jobDirectories[nextJobIndex++];
+                            if (takeOwnershipJobDirectory(srcJobDirectory)) {
+                                ownedDirectories.add(srcJobDirectory);
+                            }
+                        }
+                        if (!ownedDirectories.isEmpty()) {
+                            loadJobDirectories(ownedDirectories);
+                            // now that we actually processed something, reset the last load message time to force a message on the next round
+                            lastLoadMessageTime = 0;
+                            writeStats(ownedDirectories.toArray(new Path[ownedDirectories.size()]));
+                            lastOnlineTime = System.currentTimeMillis();
+                        }
+                    } else if (jobDirectories.length > 0) {
                         while (processedDirectories.size() < MAJC_CHECK_INTERVAL && jobDirectories.length > 0) {
                             Path srcJobDirectory = jobDirectories[nextJobIndex++];
                             if (!running)
@@ -501,21 +543,7 @@ public final class BulkIngestMapFileLoader implements Runnable {
                                     lastLoadMessageTime = 0;
                                 } catch (Exception e) {
                                     log.error("Failed to process " + mapFilesDir, e);
-                                    boolean marked = markJobDirectoryFailed(workingHdfs, dstJobDirectory);
-                                    if (!marked) {
-                                        ++fsAccessFailures;
-                                        if (fsAccessFailures >= 3) {
-                                            log.error("Too many failures updating marker files.  Exiting...");
-                                            shutdown();
-                                        } else {
-                                            log.warn("Failed to mark " + dstJobDirectory + " as failed. Sleeping in case this was a transient failure.");
-                                            try {
-                                                Thread.sleep(FAILURE_SLEEP_TIME);
-                                            } catch (InterruptedException ie) {
-                                                log.warn("Interrupted while sleeping.", ie);
-                                            }
-                                        }
-                                    }
+                                    handleFailedJobDirectory(workingHdfs, dstJobDirectory);
                                 }
                             }
                             if (nextJobIndex >= jobDirectories.length) {
@@ -538,10 +566,105 @@ public final class BulkIngestMapFileLoader implements Runnable {
             log.info("Shutting down executor service");
             accumuloClient.close();
             executor.shutdown();
+            if (importScheduler != null) {
+                importScheduler.shutdown();
+            }
         }
         log.info("Bulk map file loader shutting down.");
     }
 
+    /**
+     * Marks a job directory that could not be loaded as failed, shutting down if the marker files cannot be updated repeatedly.
+     *
+     * @param workingHdfs
+     *            the file system holding the job directory
+     * @param jobDirectory
+     *            the job directory
+     */
+    private void handleFailedJobDirectory(URI workingHdfs, Path jobDirectory) {
+        boolean marked = markJobDirectoryFailed(workingHdfs, jobDirectory);
+        if (!marked) {
+            ++fsAccessFailures;
+            if (fsAccessFailures >= 3) {
+                log.error("Too many failures updating marker files.  Exiting...");
+                shutdown();
+            } else {
+                log.warn("Failed to mark " + jobDirectory + " as failed. Sleeping in case this was a transient failure.");
+                try {
+                    Thread.sleep(FAILURE_SLEEP_TIME);
+                } catch (InterruptedException ie) {
+                    log.warn("Interrupted while sleeping.", ie);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads a set of job directories that this process has taken ownership of, importing the map files of all of them together. Each job directory is copied
+     * if needed, then the map files of every job are brought online with {@link #bringMapFilesOnline(List)}, and finally each job directory is verified and
+     * cleaned up on its own. A job directory that fails is marked as failed without affecting the others, except that a failed import fails every job in it.
+     *
+     * @param srcJobDirectories
+     *            the job directories
+     */
+    private void loadJobDirectories(List<Path> srcJobDirectories) {
+        long start = System.currentTimeMillis();
+        List<Path> mapFilesDirs = new ArrayList<>();
+        for (Path srcJobDirectory : srcJobDirectories) {
+            if (INGEST_METRICS) {
+                reporter.getCounter("MapFileLoader.StartTimes", srcJobDirectory.getName()).increment(start);
+            }
+            try {
+                log.info("Started processing " + new Path(srcJobDirectory, "mapFiles"));
+                // copy the data if needed
+                mapFilesDirs.add(new Path(distCpDirectory(srcJobDirectory), "mapFiles"));
+            } catch (Exception e) {
+                log.error("Failed to process " + new Path(srcJobDirectory, "mapFiles"), e);
+                handleFailedJobDirectory(srcHdfs, srcJobDirectory);
+            }
+        }
+        if (mapFilesDirs.isEmpty()) {
+            return;
+        }
+
+        long filesImported = importScheduler.getFilesImported();
+        try {
+            bringMapFilesOnline(mapFilesDirs);
+        } catch (Exception e) {
+            log.error("Failed to bring map files online for " + mapFilesDirs, e);
+            for (Path mapFilesDir : mapFilesDirs) {
+                handleFailedJobDirectory(destHdfs, mapFilesDir.getParent());
+            }
+            return;
+        }
+        filesImported = importScheduler.getFilesImported() - filesImported;
+
+        for (Path mapFilesDir : mapFilesDirs) {
+            try {
+                // ensure everything got loaded
+                verifyNothingLeftBehind(mapFilesDir);
+                cleanUpJobDirectory(mapFilesDir);
+            } catch (Exception e) {
+                log.error("Failed to process " + mapFilesDir, e);
+                handleFailedJobDirectory(destHdfs, mapFilesDir.getParent());
+            }
+        }
+
+        long end = System.currentTimeMillis();
+        long filesPerSecond = (filesImported * 1000) / Math.max(1, end - start);
+        long backlogAge = (oldestCompletedJobTime > 0 ? end - oldestCompletedJobTime : 0);
+        log.info("Finished processing " + mapFilesDirs.size() + " job directories, duration (sec): " + ((end - start) / 1000) + ", files imported: "
+                        + filesImported + ", files/sec: " + filesPerSecond + ", backlog age (sec): " + (backlogAge / 1000) + ", concurrent imports: "
+                        + importScheduler.getConcurrency());
+        if (INGEST_METRICS) {
+            reporter.getCounter("MapFileLoader.Scheduler", "FilesImported").increment(filesImported);
+            // the rate, backlog age and concurrency are gauges, reporting the latest batch rather than adding up over the batches
+            reporter.getCounter("MapFileLoader.Scheduler", "FilesPerSecond").setValue(filesPerSecond);
+            reporter.getCounter("MapFileLoader.Scheduler", "BacklogAgeMillis").setValue(backlogAge);
+            reporter.getCounter("MapFileLoader.Scheduler", "ConcurrentImports").setValue(importScheduler.getConcurrency());
+        }
+    }
+
     protected void cleanJobDirectoriesOnStartup() throws IOException {
         Path[] cleanupDirectories = getJobDirectories(destHdfs, new Path(workDir, jobDirPattern + '/' + CLEANUP_FILE_MARKER));
         for (int i = 0; i < cleanupDirectories.length; i++) {
@@ -734,11 +857,13 @@ public final class BulkIngestMapFileLoader implements Runnable {
                 long m2 = o2.getModificationTime();
                 return order * ((m1 < m2) ? -1 : ((m1 > m2) ? 1 : 0));
             });
+            oldestCompletedJobTime = Math.min(files[0].getModificationTime(), files[files.length - 1].getModificationTime());
             jobDirectories = new Path[Math.min(MAX_DIRECTORIES, files.length)];
             for (int i = 0; i < jobDirectories.length; i++) {
                 jobDirectories[i] = files[i].getPath().getParent();
             }
         } else {
+            oldestCompletedJobTime = 0;
             jobDirectories = new Path[0];
         }
         log.debug("Completed job directories: " + Arrays.toString(jobDirectories));
@@ -770,23 +895,7 @@ public final class BulkIngestMapFileLoader implements Runnable {
         FileStatus[] tableDirs = fs.globStatus(new Path(mapFilesDir, "*"));
 
         // sort the table dirs in priority order based on the configuration
-        Arrays.sort(tableDirs, (o1, o2) -> {
-            Integer p1 = tablePriorities.get(o1.getPath().getName());
-            Integer p2 = tablePriorities.get(o2.getPath().getName());
-            if (p1 == null) {
-                if (p2 == null) {
-                    return o1.getPath().getName().compareTo(o2.getPath().getName());
-                } else {
-                    return 1;
-                }
-            } else {
-                if (p2 == null) {
-                    return -1;
-                } else {
-                    return p1.compareTo(p2);
-                }
-            }
-        });
+        Arrays.sort(tableDirs, (o1, o2) -> compareTablePriority(o1.getPath().getName(), o2.getPath().getName()));
 
         // now load the tables in the prioritized order, concurrently loading those with the same priority
         Integer priority = null;
@@ -854,6 +963,236 @@ public final class BulkIngestMapFileLoader implements Runnable {
             throw new IOException(e);
     }
 
+    private int compareTablePriority(String table1, String table2) {
+        Integer p1 = tablePriorities.get(table1);
+        Integer p2 = tablePriorities.get(table2);
+        if (p1 == null) {
+            if (p2 == null) {
+                return table1.compareTo(table2);
+            } else {
+                return 1;
+            }
+        } else {
+            if (p2 == null) {
+                return -1;
+            } else {
+                return p1.compareTo(p2);
+            }
+        }
+    }
+
+    /**
+     * Brings all map files in a set of job map files directories online in accumulo. The table directories of every job are combined by table, so that each
+     * table is imported once for all of the jobs. The tables are imported in priority order, with the tables of the same priority imported concurrently
+     * through the {@link BulkImportScheduler}. Files that fail to import are moved back to the failures directory of the job they came from.
+     *
+     * @param mapFilesDirs
+     *            the map files directories
+     * @throws IOException
+     *             for IO related issues or a failed import
+     * @throws AccumuloException
+     *             for accumulo issues
+     * @throws AccumuloSecurityException
+     *             for accumulo auth issues
+     * @throws InterruptedException
+     *             if interrupted waiting on the imports
+     */
+    public void bringMapFilesOnline(List<Path> mapFilesDirs) throws IOException, AccumuloException, AccumuloSecurityException, InterruptedException {
+        log.info("Bringing all mapFiles under " + mapFilesDirs + " online.");
+
+        FileSystem fs = getFileSystem(destHdfs);
+        Map<String,String> tableIds = accumuloClient.tableOperations().tableIdMap();
+
+        // the table directories of every job by table, in priority order
+        Map<String,List<Path>> tableDirs = new TreeMap<>((t1, t2) -> {
+            int cmp = compareTablePriority(t1, t2);
+            return cmp != 0 ? cmp : t1.compareTo(t2);
+        });
+        for (Path mapFilesDir : mapFilesDirs) {
+            for (FileStatus stat : fs.globStatus(new Path(mapFilesDir, "*"))) {
+                String tableName = stat.getPath().getName();
+                if (tableIds.containsKey(tableName)) {
+                    tableDirs.computeIfAbsent(tableName, k -> new ArrayList<>()).add(stat.getPath());
+                } else {
+                    log.debug("Skipping " + stat.getPath() + " since it is not a accumulo table directory.");
+                }
+            }
+        }
+
+        // the combined table directories live under the first job, so that anything left behind fails that job
+        Path batchDir = new Path(mapFilesDirs.get(0), "batch");
+
+        Integer priority = null;
+        List<Callable<Integer>> imports = new ArrayList<>();
+        for (Map.Entry<String,List<Path>> entry : tableDirs.entrySet()) {
+            Integer newPriority = tablePriorities.get(entry.getKey());
+            if (!imports.isEmpty() && !Objects.equal(priority, newPriority)) {
+                importScheduler.importAll(imports);
+                imports = new ArrayList<>();
+            }
+            priority = newPriority;
+            imports.add(new BatchImport(entry.getKey(), entry.getValue(), batchDir));
+        }
+        if (!imports.isEmpty()) {
+            importScheduler.importAll(imports);
+        }
+
+        // everything was imported or moved back to its job, so only empty directories remain
+        fs.delete(batchDir, true);
+    }
+
+    /**
+     * Imports the table directories of several jobs for one table with a single import. The files are moved into a combined directory, prefixed with the index
+     * of the job they came from so that failures can be returned to it. If the import throws, every file that was not imported is returned to its job before
+     * the exception is rethrown, so that no files are stranded under the first job when the jobs are marked as failed.
+     */
+    private class BatchImport implements Callable<Integer> {
+        private final String tableName;
+        private final List<Path> tableDirs;
+        private final Path batchDir;
+
+        private BatchImport(String tableName, List<Path> tableDirs, Path batchDir) {
+            this.tableName = tableName;
+            this.tableDirs = tableDirs;
+            this.batchDir = batchDir;
+        }
+
+        @Override
+        public Integer call() throws Exception {
+            FileSystem fileSystem = getFileSystem(destHdfs);
+            Path tableBatchDir = new Path(batchDir, tableName);
+            Path failuresPath = new Path(batchDir, "failures/" + tableName);
+            if (fileSystem.exists(failuresPath)) {
+                log.fatal("Cannot bring map files online because a failures directory already exists: " + failuresPath);
+                throw new IOException("Cannot bring map files online because a failures directory already exists: " + failuresPath);
+            }
+            fileSystem.mkdirs(tableBatchDir);
+            fileSystem.mkdirs(failuresPath);
+
+            try {
+                int files = 0;
+                for (int i = 0; i < tableDirs.size(); i++) {
+                    Path tableDir = tableDirs.get(i);
+                    collapseDirectory(fileSystem, tableDir, tableDir);
+                    for (FileStatus file : fileSystem.listStatus(tableDir)) {
+                        Path destFilePath = new Path(tableBatchDir, i + "_" + file.getPath().getName());
+                        if (!fileSystem.rename(file.getPath(), destFilePath)) {
+                            throw new IOException("Unable to move " + file.getPath() + " to " + destFilePath);
+                        }
+                        files++;
+                    }
+                }
+
+                log.info("Bringing " + files + " map files from " + tableDirs.size() + " jobs online for " + tableName);
+                accumuloClient.tableOperations().importDirectory(tableName, tableBatchDir.toString(), failuresPath.toString(), false);
+                log.info("Completed bringing map files online for " + tableName);
+
+                // return the failed files to their jobs so that those jobs are marked as failed
+                returnToJobs(fileSystem, failuresPath, "failures/" + tableName);
+
+                if (fileSystem.listStatus(tableBatchDir).length > 0) {
+                    log.fatal("Failed to completely import " + tableBatchDir);
+                    throw new IOException("Failed to completely import " + tableBatchDir);
+                }
+                return files;
+            } catch (Exception e) {
+                // the jobs are about to be marked as failed, so return everything that was not imported to the job it came from
+                try {
+                    returnToJobs(fileSystem, tableBatchDir, tableName);
+                    returnToJobs(fileSystem, failuresPath, "failures/" + tableName);
+                    fileSystem.delete(tableBatchDir, false);
+                    fileSystem.delete(failuresPath, false);
+                } catch (Exception returnFailure) {
+                    log.fatal("Failed to return the map files under " + batchDir + " to their jobs", returnFailure);
+                    e.addSuppressed(returnFailure);
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Move the files of a combined directory back to the jobs they came from, using the index they were prefixed with
+         *
+         * @param fileSystem
+         *            the file system
+         * @param dir
+         *            the combined directory
+         * @param jobSubDir
+         *            the directory to move the files to, relative to the map files directory of their job
+         * @throws IOException
+         *             if a file could not be moved
+         */
+        private void returnToJobs(FileSystem fileSystem, Path dir, String jobSubDir) throws IOException {
+            for (FileStatus file : fileSystem.listStatus(dir)) {
+                String name = file.getPath().getName();
+                int index = name.indexOf('_');
+                Path jobDir = new Path(tableDirs.get(Integer.parseInt(name.substring(0, index))).getParent(), jobSubDir);
+                fileSystem.mkdirs(jobDir);
+                Path destFilePath = new Path(jobDir, name.substring(index + 1));
+                if (!fileSystem.rename(file.getPath(), destFilePath)) {
+                    throw new IOException("Unable to move " + file.getPath() + " to " + destFilePath);
+                }
+            }
+        }
+    }
+
+    private void collapseDirectory(FileSystem fileSystem, Path tableDir, Path dir) throws IOException {
+        // collapse any subdirectories, and then collapse those to the top level
+        for (FileStatus file : fileSystem.listStatus(dir)) {
+            if (file.isDirectory()) {
+                Path filePath = file.getPath();
+                log.warn("Found an unexpected subdirectory " + filePath + ".  Collapsing into " + tableDir + ".");
+                collapseDirectory(fileSystem, tableDir, filePath);
+                for (FileStatus subFile : fileSystem.listStatus(filePath)) {
+                    Path subFilePath = subFile.getPath();
+                    Path destFilePath = new Path(tableDir, subFilePath.getName());
+                    // if the dest file already exists, then check if it is the same file
+                    if (fileSystem.exists(destFilePath)) {
+                        FileChecksum subFileCheckSum = fileSystem.getFileChecksum(subFilePath);
+                        FileChecksum destFileCheckSum = fileSystem.getFileChecksum(destFilePath);
+                        if (subFileCheckSum.equals(destFileCheckSum)) {
+                            log.info(subFilePath + " and " + destFilePath + " are identical, removing the former");
+                            fileSystem.delete(subFilePath, false);
+                        } else {
+                            // Attempt to rename the file instead of failing
+                            destFilePath = new Path(tableDir, getNextName(subFilePath.getName()));
+                            while (fileSystem.exists(destFilePath)) {
+                                destFilePath = new Path(tableDir, getNextName(destFilePath.getName()));
+                            }
+                            log.info("Renaming " + subFilePath + " to " + destFilePath);
+                            fileSystem.rename(subFilePath, destFilePath);
+                        }
+                    } else {
+                        log.info("Renaming " + subFilePath + " to " + destFilePath);
+                        fileSystem.rename(subFilePath, destFilePath);
+                    }
+                }
+                // verify the directory is empty
+                if (fileSystem.listStatus(filePath).length > 0) {
+                    log.fatal("Failed to collapse subdirectory " + filePath);
+                    throw new IOException("Failed to collapse subdirectory " + filePath);
+                }
+                fileSystem.delete(filePath, false);
+            }
+        }
+    }
+
+    /**
+     * Return a rfile with .1 appended before the extension. {@code foo.ext -> foo.1.ext foo -> foo.1}
+     *
+     * @param rfile
+     *            the rfile string
+     * @return a rfile with .1 appended before the extension
+     */
+    private String getNextName(String rfile) {
+        int index = rfile.lastIndexOf('.');
+        if (index < 0) {
+            return rfile + ".1";
+        } else {
+            return rfile.substring(0, index) + ".1" + rfile.substring(index);
+        }
+    }
+
     public ImportRunnable startImport(Path mapFilesDir, String tableName, Path tableDir, AccumuloClient accumuloClient) {
         ImportRunnable runnable = new ImportRunnable(mapFilesDir, tableName, tableDir, accumuloClient);
         Thread thread = new Thread(runnable);
@@ -936,65 +1275,7 @@ public final class BulkIngestMapFileLoader implements Runnable {
         }
 
         private void collapseDirectory() throws IOException {
-            collapseDirectory(tableDir);
-        }
-
-        private void collapseDirectory(Path dir) throws IOException {
-            // collapse any subdirectories, and then collapse those to the top level
-            FileSystem fileSystem = FileSystem.get(srcHdfs, new Configuration());
-            for (FileStatus file : fileSystem.listStatus(dir)) {
-                if (file.isDirectory()) {
-                    Path filePath = file.getPath();
-                    log.warn("Found an unexpected subdirectory " + filePath + ".  Collapsing into " + tableDir + ".");
-                    collapseDirectory(filePath);
-                    for (FileStatus subFile : fileSystem.listStatus(filePath)) {
-                        Path subFilePath = subFile.getPath();
-                        Path destFilePath = new Path(tableDir, subFilePath.getName());
-                        // if the dest file already exists, then check if it is the same file
-                        if (fileSystem.exists(destFilePath)) {
-                            FileChecksum subFileCheckSum = fileSystem.getFileChecksum(subFilePath);
-                            FileChecksum destFileCheckSum = fileSystem.getFileChecksum(destFilePath);
-                            if (subFileCheckSum.equals(destFileCheckSum)) {
-                                log.info(subFilePath + " and " + destFilePath + " are identical, removing the former");
-                                fileSystem.delete(subFilePath, false);
-                            } else {
-                                // Attempt to rename the file instead of failing
-                                destFilePath = new Path(tableDir, getNextName(subFilePath.getName()));
-                                while (fileSystem.exists(destFilePath)) {
-                                    destFilePath = new Path(tableDir, getNextName(destFilePath.getName()));
-                                }
-                                log.info("Renaming " + subFilePath + " to " + destFilePath);
-                                fileSystem.rename(subFilePath, destFilePath);
-                            }
-                        } else {
-                            log.info("Renaming " + subFilePath + " to " + destFilePath);
-                            fileSystem.rename(subFilePath, destFilePath);
-                        }
-                    }
-                    // verify the directory is empty
-                    if (fileSystem.listStatus(filePath).length > 0) {
-                        log.fatal("Failed to collapse subdirectory " + filePath);
-                        throw new IOException("Failed to collapse subdirectory " + filePath);
-                    }
-                    fileSystem.delete(filePath, false);
-                }
-            }
-        }
-
-        /**
-         * Return a rfile with .1 appended before the extension. {@code foo.ext -> foo.1.ext foo -> foo.1}
-         *
-         * @param rfile
-         *            the rfile string
-         * @return a rfile with .1 appended before the extension
-         */
-        private String getNextName(String rfile) {
-            int index = rfile.lastIndexOf('.');
-            if (index < 0) {
-                return rfile + ".1";
-            } else {
-                return rfile.substring(0, index) + ".1" + rfile.substring(index);
-            }
+            collapseDirectory(FileSystem.get(srcHdfs, new Configuration()), tableDir, tableDir);
         }
 
         private void validateComplete() throws IOException {
@@ -4,10 +4,12 @@ import static org.apache.accumulo.core.conf.Property.TABLE_CRYPTO_PREFIX;
 
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -75,6 +77,10 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
     protected static final String MAX_RFILE_UNDEDUPPED_ENTRIES = PREFIX + ".maxRFileUndeduppedEntries";
     protected static final String GENERATE_MAP_FILE_ROW_KEYS = PREFIX + ".generateMapFileRowKeys";
     protected static final String GENERATE_MAP_FILE_PER_SHARD_LOCATION = PREFIX + ".generateMapFilePerShardLocation";
+    protected static final String PIPELINED_WRITERS = PREFIX + ".pipelinedWriters";
+    protected static final String PIPELINED_WRITER_THREADS = PREFIX + ".pipelinedWriterThreads";
+    protected static final String PIPELINED_WRITER_QUEUE_SIZE = PREFIX + ".pipelinedWriterQueueSize";
+    protected static final String PIPELINED_WRITER_BLOCK_SIZE = PREFIX + ".pipelinedWriterBlockSize";
 
     protected static final String BASE = "bulk.output.partition.count.";
     public static final String CONFIGURE_LOCALITY_GROUPS = PREFIX + ".tables";
@@ -100,6 +106,11 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
     protected int maxRFileEntries = 0;
     protected boolean generateMapFileRowKeys = false;
     protected boolean generateMapFilePerShardLocation = false;
+    protected boolean pipelinedWriters = false;
+    protected int pipelinedWriterThreads = 8;
+    protected List<PipelinedFileSKVWriter> openPipelinedWriters = new ArrayList<>();
+    protected int pipelinedWriterQueueSize = 16;
+    protected int pipelinedWriterBlockSize = 1000;
     private long startWriteTime = 0L;
 
     protected Map<String,Map<Text,String>> columnFamilyToLocalityGroup;
@@ -116,6 +127,29 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
         conf.setBoolean(GENERATE_MAP_FILE_PER_SHARD_LOCATION, generateMapFilePerShardLocation);
     }
 
+    /**
+     * Write each RFile on its own thread, fed through a bounded queue of blocks of entries, so that compression and writes to the file system overlap with the
+     * reduce. A reducer may have an RFile open for every table and shard it writes to, so only up to the given number of RFiles are written on threads at a
+     * time; any others are written on the reduce thread.
+     *
+     * @param conf
+     *            the configuration
+     * @param pipelinedWriters
+     *            whether to write each RFile on its own thread
+     * @param threads
+     *            the maximum number of RFiles written on threads of their own at a time
+     * @param queueSize
+     *            the maximum number of blocks queued for each RFile
+     * @param blockSize
+     *            the number of entries in a block
+     */
+    public static void setPipelinedWriters(Configuration conf, boolean pipelinedWriters, int threads, int queueSize, int blockSize) {
+        conf.setBoolean(PIPELINED_WRITERS, pipelinedWriters);
+        conf.setInt(PIPELINED_WRITER_THREADS, threads);
+        conf.setInt(PIPELINED_WRITER_QUEUE_SIZE, queueSize);
+        conf.setInt(PIPELINED_WRITER_BLOCK_SIZE, blockSize);
+    }
+
     public static void setCompressionType(Configuration conf, String compressionType) {
         if (compressionType != null) {
             if (!("snappy".equals(compressionType) || "lzo".equals(compressionType) || "gz".equals(compressionType) || "none".equals(compressionType)))
@@ -250,8 +284,17 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
     protected SizeTrackingWriter openWriter(String filename, AccumuloConfiguration tableConf) throws IOException {
         startWriteTime = System.currentTimeMillis();
         CryptoService cs = CryptoFactoryLoader.getServiceForClient(CryptoEnvironment.Scope.TABLE, tableConf.getAllCryptoProperties());
-        return new SizeTrackingWriter(
-                        FileOperations.getInstance().newWriterBuilder().forFile(filename, fs, conf, cs).withTableConfiguration(tableConf).build());
+        FileSKVWriter writer = FileOperations.getInstance().newWriterBuilder().forFile(filename, fs, conf, cs).withTableConfiguration(tableConf).build();
+        if (pipelinedWriters) {
+            openPipelinedWriters.removeIf(pipelined -> !pipelined.isRunning());
+            if (openPipelinedWriters.size() < pipelinedWriterThreads) {
+                PipelinedFileSKVWriter pipelined = new PipelinedFileSKVWriter(writer, new Path(filename).getName(), pipelinedWriterQueueSize,
+                                pipelinedWriterBlockSize);
+                openPipelinedWriters.add(pipelined);
+                writer = pipelined;
+            }
+        }
+        return new SizeTrackingWriter(writer);
     }
 
     /**
@@ -488,6 +531,11 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
         generateMapFileRowKeys = conf.getBoolean(GENERATE_MAP_FILE_ROW_KEYS, generateMapFileRowKeys);
         generateMapFilePerShardLocation = conf.getBoolean(GENERATE_MAP_FILE_PER_SHARD_LOCATION, generateMapFilePerShardLocation);
 
+        pipelinedWriters = conf.getBoolean(PIPELINED_WRITERS, pipelinedWriters);
+        pipelinedWriterThreads = conf.getInt(PIPELINED_WRITER_THREADS, pipelinedWriterThreads);
+        pipelinedWriterQueueSize = conf.getInt(PIPELINED_WRITER_QUEUE_SIZE, pipelinedWriterQueueSize);
+        pipelinedWriterBlockSize = conf.getInt(PIPELINED_WRITER_BLOCK_SIZE, pipelinedWriterBlockSize);
+
         // Only do this once.
         if (null == writers) {
             writers = new HashMap<>();
@@ -0,0 +1,222 @@
+package datawave.ingest.mapreduce.job;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.log4j.Logger;
+
+/**
+ * A {@link FileSKVWriter} that hands everything written to it to a dedicated thread, which writes it to the delegate. Entries are copied into blocks of a fixed
+ * number of entries, and up to a fixed number of blocks are queued for the writer thread, so the caller only blocks when the writer thread falls that far
+ * behind. This lets the compression and file system writes of the delegate overlap with the work of the caller.
+ * <p>
+ * The delegate is only used by one thread at a time: the writer thread, except for {@link #createMetaStore} and {@link #getLength}, which first wait for the
+ * queue to drain. A failure on the writer thread closes the delegate, and is thrown from the next call on this writer.
+ * <p>
+ * Every writer starts a thread of its own, which runs until the writer is closed or fails, so the number of writers open at a time should be bounded by the
+ * caller, as {@link MultiRFileOutputFormatter} does.
+ */
+public class PipelinedFileSKVWriter implements FileSKVWriter {
+
+    private static final Logger log = Logger.getLogger(PipelinedFileSKVWriter.class);
+
+    private interface Operation {
+        void apply(FileSKVWriter writer) throws IOException;
+    }
+
+    private static final Operation END = writer -> {};
+
+    private final FileSKVWriter delegate;
+    private final BlockingQueue<Operation> queue;
+    private final int blockSize;
+    private final Thread thread;
+
+    private Key[] keys;
+    private Value[] values;
+    private int count = 0;
+
+    private volatile Throwable failure = null;
+    private boolean closed = false;
+
+    /**
+     * @param delegate
+     *            the writer to write to
+     * @param name
+     *            a name for the writer thread
+     * @param queueSize
+     *            the maximum number of blocks waiting to be written
+     * @param blockSize
+     *            the number of entries in a block
+     */
+    public PipelinedFileSKVWriter(FileSKVWriter delegate, String name, int queueSize, int blockSize) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.blockSize = blockSize;
+        this.keys = new Key[blockSize];
+        this.values = new Value[blockSize];
+        this.thread = new Thread(this::run, "rfile-writer-" + name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void run() {
+        // on a failure this thread closes the delegate and stops, and the caller sees the failure the next time it waits on or adds to the queue
+        Throwable error = null;
+        try {
+            Operation operation;
+            while ((operation = queue.take()) != END) {
+                operation.apply(delegate);
+            }
+        } catch (InterruptedException e) {
+            error = e;
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            log.error("Failed to write to " + thread.getName(), e);
+            error = e;
+        } finally {
+            try {
+                delegate.close();
+            } catch (Throwable e) {
+                if (error == null) {
+                    log.error("Failed to close " + thread.getName(), e);
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+            failure = error;
+        }
+    }
+
+    /**
+     * @return true until the writer thread has stopped, after a close or a failure
+     */
+    public boolean isRunning() {
+        return thread.isAlive();
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable t = failure;
+        if (t != null) {
+            throw new IOException("Failed to write to " + thread.getName(), t);
+        }
+    }
+
+    private void enqueue(Operation operation) throws IOException {
+        checkFailure();
+        try {
+            while (!queue.offer(operation, 1, TimeUnit.SECONDS)) {
+                checkFailure();
+                if (!thread.isAlive()) {
+                    throw new IOException("The writer thread " + thread.getName() + " is no longer running");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting on " + thread.getName());
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (count > 0) {
+            final Key[] blockKeys = keys;
+            final Value[] blockValues = values;
+            final int blockCount = count;
+            enqueue(writer -> {
+                for (int i = 0; i < blockCount; i++) {
+                    writer.append(blockKeys[i], blockValues[i]);
+                }
+            });
+            keys = new Key[blockSize];
+            values = new Value[blockSize];
+            count = 0;
+        }
+    }
+
+    /**
+     * Wait for everything written so far to be written to the delegate
+     *
+     * @throws IOException
+     *             if the writer thread failed
+     */
+    private void sync() throws IOException {
+        flushBlock();
+        CountDownLatch latch = new CountDownLatch(1);
+        enqueue(writer -> latch.countDown());
+        try {
+            while (!latch.await(1, TimeUnit.SECONDS)) {
+                checkFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting on " + thread.getName());
+        }
+        checkFailure();
+    }
+
+    @Override
+    public boolean supportsLocalityGroups() {
+        return delegate.supportsLocalityGroups();
+    }
+
+    @Override
+    public void startNewLocalityGroup(String name, Set<ByteSequence> columnFamilies) throws IOException {
+        flushBlock();
+        enqueue(writer -> writer.startNewLocalityGroup(name, columnFamilies));
+    }
+
+    @Override
+    public void startDefaultLocalityGroup() throws IOException {
+        flushBlock();
+        enqueue(FileSKVWriter::startDefaultLocalityGroup);
+    }
+
+    @Override
+    public void append(Key key, Value value) throws IOException {
+        // the caller may reuse the key and value, so they are copied
+        keys[count] = new Key(key);
+        values[count] = (value == null ? null : new Value(value));
+        if (++count == blockSize) {
+            flushBlock();
+        }
+    }
+
+    @Override
+    public DataOutputStream createMetaStore(String name) throws IOException {
+        sync();
+        return delegate.createMetaStore(name);
+    }
+
+    @Override
+    public long getLength() throws IOException {
+        sync();
+        return delegate.getLength();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flushBlock();
+        enqueue(END);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting on " + thread.getName());
+        }
+        checkFailure();
+    }
+}
@@ -0,0 +1,81 @@
+package datawave.ingest.mapreduce.job.writer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+
+/**
+ * A context writer that holds on to everything written to it until it is replayed into another context writer with {@link #writeTo}. This lets an event be
+ * processed on another thread while the output is still written by the map thread, in the order the events were read. Each commit is replayed as a write and a
+ * commit of the same entries, and a rollback drops everything written since the last commit.
+ *
+ * @param <OK>
+ *            The output key
+ * @param <OV>
+ *            The output value
+ */
+public class BufferedContextWriter<OK,OV> implements ContextWriter<OK,OV> {
+
+    private final List<Multimap<BulkIngestKey,Value>> committed = new ArrayList<>();
+    private Multimap<BulkIngestKey,Value> cache = ArrayListMultimap.create();
+
+    @Override
+    public void setup(Configuration conf, boolean outputTableCounters) throws IOException, InterruptedException {}
+
+    @Override
+    public void write(BulkIngestKey key, Value value, TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        cache.put(key, value);
+    }
+
+    @Override
+    public void write(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        cache.putAll(entries);
+    }
+
+    @Override
+    public void commit(TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        if (!cache.isEmpty()) {
+            committed.add(cache);
+            cache = ArrayListMultimap.create();
+        }
+    }
+
+    @Override
+    public void rollback() throws IOException, InterruptedException {
+        cache = ArrayListMultimap.create();
+    }
+
+    @Override
+    public void cleanup(TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        commit(context);
+    }
+
+    /**
+     * Replay everything committed so far into another context writer
+     *
+     * @param writer
+     *            the context writer to write to
+     * @param context
+     *            the context
+     * @throws IOException
+     *             if there is an issue with read or write
+     * @throws InterruptedException
+     *             if the thread is interrupted
+     */
+    public void writeTo(ContextWriter<OK,OV> writer, TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        for (Multimap<BulkIngestKey,Value> entries : committed) {
+            writer.write(entries, context);
+            writer.commit(context);
+        }
+        committed.clear();
+    }
+}
@@ -0,0 +1,228 @@
+package datawave.ingest.mapreduce.job.writer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+
+/**
+ * An off heap buffer of serialized key/value pairs for one table, sized in bytes. The keys and values are appended to a direct buffer, and only the offset of
+ * each entry is kept on heap. Once full, the entries are sorted by their serialized keys so that the values of identical keys are next to each other and can be
+ * combined as they are read back.
+ * <p>
+ * Each entry is laid out as the key length, the serialized key, the value length and the value bytes. Keys serialize the same way every time, so identical keys
+ * have identical bytes and the byte order groups them, which is all that is needed to combine them; it is not the order of {@link Key#compareTo}.
+ */
+public class SortedAggregationBuffer {
+
+    private final ByteBuffer buffer;
+    private int[] offsets = new int[1024];
+    private int count = 0;
+    private boolean sorted = true;
+
+    private final DataOutputBuffer keyOut = new DataOutputBuffer();
+    private final DataInputBuffer keyIn = new DataInputBuffer();
+
+    /**
+     * @param capacity
+     *            the size of the buffer in bytes
+     */
+    public SortedAggregationBuffer(int capacity) {
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * Append an entry
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     * @return false if the buffer does not have room for the entry
+     * @throws IOException
+     *             if the key cannot be serialized
+     */
+    public boolean add(Key key, Value value) throws IOException {
+        keyOut.reset();
+        key.write(keyOut);
+        int length = 8 + keyOut.getLength() + value.getSize();
+        if (buffer.remaining() < length) {
+            return false;
+        }
+
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count++] = buffer.position();
+        sorted = false;
+
+        buffer.putInt(keyOut.getLength());
+        buffer.put(keyOut.getData(), 0, keyOut.getLength());
+        buffer.putInt(value.getSize());
+        buffer.put(value.get(), 0, value.getSize());
+        return true;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @return the number of bytes used
+     */
+    public int getBytes() {
+        return buffer.position();
+    }
+
+    public int getCapacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Sort the entries by their serialized keys, after which the entries of identical keys are adjacent
+     */
+    public void sort() {
+        if (!sorted) {
+            sort(0, count - 1);
+            sorted = true;
+        }
+    }
+
+    /**
+     * @param i
+     *            the index of an entry
+     * @return the key of the entry
+     * @throws IOException
+     *             if the key cannot be deserialized
+     */
+    public Key getKey(int i) throws IOException {
+        int offset = offsets[i];
+        int length = buffer.getInt(offset);
+        byte[] bytes = new byte[length];
+        get(offset + 4, bytes);
+        keyIn.reset(bytes, length);
+        Key key = new Key();
+        key.readFields(keyIn);
+        return key;
+    }
+
+    /**
+     * @param i
+     *            the index of an entry
+     * @return the value of the entry
+     */
+    public Value getValue(int i) {
+        int offset = offsets[i];
+        offset += 4 + buffer.getInt(offset);
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        get(offset + 4, bytes);
+        return new Value(bytes, false);
+    }
+
+    /**
+     * @param i
+     *            the index of an entry
+     * @param j
+     *            the index of another entry
+     * @return whether the two entries have identical keys
+     */
+    public boolean sameKey(int i, int j) {
+        return compareKeys(offsets[i], offsets[j]) == 0;
+    }
+
+    /**
+     * Drop every entry, keeping the buffer for reuse
+     */
+    public void clear() {
+        buffer.clear();
+        count = 0;
+        sorted = true;
+    }
+
+    private void get(int offset, byte[] bytes) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(bytes);
+    }
+
+    private int compareKeys(int a, int b) {
+        int lengthA = buffer.getInt(a);
+        int lengthB = buffer.getInt(b);
+        a += 4;
+        b += 4;
+        int length = Math.min(lengthA, lengthB);
+        for (int i = 0; i < length; i++) {
+            int cmp = (buffer.get(a + i) & 0xff) - (buffer.get(b + i) & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return lengthA - lengthB;
+    }
+
+    private void sort(int lo, int hi) {
+        while (hi - lo > 16) {
+            // median of three as the pivot, then partition
+            int mid = (lo + hi) >>> 1;
+            if (compareKeys(offsets[mid], offsets[lo]) < 0) {
+                swap(mid, lo);
+            }
+            if (compareKeys(offsets[hi], offsets[lo]) < 0) {
+                swap(hi, lo);
+            }
+            if (compareKeys(offsets[hi], offsets[mid]) < 0) {
+                swap(hi, mid);
+            }
+            int pivot = offsets[mid];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (compareKeys(offsets[i], pivot) < 0) {
+                    i++;
+                }
+                while (compareKeys(offsets[j], pivot) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            // recurse into the smaller side to bound the depth
+            if (j - lo < hi - i) {
+                sort(lo, j);
+                lo = i;
+            } else {
+                sort(i, hi);
+                hi = j;
+            }
+        }
+
+        // insertion sort the small ranges
+        for (int i = lo + 1; i <= hi; i++) {
+            int offset = offsets[i];
+            int j = i - 1;
+            while (j >= lo && compareKeys(offsets[j], offset) > 0) {
+                offsets[j + 1] = offsets[j];
+                j--;
+            }
+            offsets[j + 1] = offset;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int tmp = offsets[i];
+        offsets[i] = offsets[j];
+        offsets[j] = tmp;
+    }
+}
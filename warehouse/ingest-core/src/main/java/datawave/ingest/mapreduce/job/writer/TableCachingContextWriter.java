@@ -13,6 +13,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.TaskInputOutputContext;
 
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 
@@ -23,6 +24,9 @@ import datawave.ingest.mapreduce.job.reduce.BulkIngestKeyDedupeCombiner;
  * This is a caching context writer that will cache the entries for a table and will only actually flush entries once that cache is full. The cache will be
  * aggregated as the entries are received. This cache will cache values across calls to commit, which means that entries are aggregated across events (see
  * EventMapper contextWriter commit calls).
+ * <p>
+ * A table may instead be given an off heap buffer sized in bytes, which holds many more entries for the same heap. The entries of such a table are appended to
+ * a {@link SortedAggregationBuffer} as they are received, and only aggregated when the buffer is full, by sorting it and reducing the values of each key.
  *
  */
 public class TableCachingContextWriter extends AbstractContextWriter<BulkIngestKey,Value> implements ChainedContextWriter<BulkIngestKey,Value> {
@@ -44,6 +48,19 @@ public class TableCachingContextWriter extends AbstractContextWriter<BulkIngestK
     // entries
     public static final String TABLES_TO_CACHE_SUFFIX = ".table.context.writer.cache";
 
+    // the tables to buffer off heap will be configured by setting a <tablename>.table.context.writer.buffer.bytes property where the value is the size of the
+    // buffer in bytes. This takes precedence over the entry based cache for the same table.
+    public static final String TABLES_TO_BUFFER_SUFFIX = ".table.context.writer.buffer.bytes";
+
+    // the number of entries spilled from the off heap buffer of a table before they were aggregated
+    public static final String SPILLED_BUFFER_TOTAL = "TABLE_BUFFER_SPILLED_ENTRIES";
+
+    // the number of entries that are written per call to the chained context writer when spilling a buffer
+    private static final int SPILL_BATCH_SIZE = 10000;
+
+    // The off heap buffers, by table
+    private final Map<Text,SortedAggregationBuffer> buffers = new HashMap<>();
+
     // This is the cache
     private final Map<Text,Multimap<BulkIngestKey,Value>> aggregatedCache = new HashMap<>();
 
@@ -79,6 +96,14 @@ public class TableCachingContextWriter extends AbstractContextWriter<BulkIngestK
                 tableCacheConf.put(new Text(tableName), maxCacheSize);
             }
         }
+        for (Map.Entry<String,String> prop : conf) {
+            if (prop.getKey().endsWith(TABLES_TO_BUFFER_SUFFIX)) {
+                Text tableName = new Text(prop.getKey().substring(0, prop.getKey().length() - TABLES_TO_BUFFER_SUFFIX.length()));
+                int bufferSize = Integer.parseInt(prop.getValue());
+                tableCacheConf.remove(tableName);
+                buffers.put(tableName, new SortedAggregationBuffer(bufferSize));
+            }
+        }
 
         // create and setup the chained context writer
         Class<ContextWriter<BulkIngestKey,Value>> contextWriterClass = null;
@@ -108,7 +133,10 @@ public class TableCachingContextWriter extends AbstractContextWriter<BulkIngestK
         Multimap<BulkIngestKey,Value> residual = HashMultimap.create();
         for (BulkIngestKey key : entries.keySet()) {
             Collection<Value> values = entries.get(key);
-            if (tableCacheConf.containsKey(key.getTableName())) {
+            SortedAggregationBuffer buffer = buffers.get(key.getTableName());
+            if (buffer != null) {
+                buffer(buffer, key, values, context);
+            } else if (tableCacheConf.containsKey(key.getTableName())) {
                 cache(key, values, context);
             } else {
                 residual.putAll(key, values);
@@ -142,6 +170,80 @@ public class TableCachingContextWriter extends AbstractContextWriter<BulkIngestK
             }
         }
         aggregatedCache.clear();
+
+        for (Map.Entry<Text,SortedAggregationBuffer> buffer : buffers.entrySet()) {
+            spill(buffer.getKey(), buffer.getValue(), context);
+        }
+    }
+
+    private void buffer(SortedAggregationBuffer buffer, BulkIngestKey key, Collection<Value> values, TaskInputOutputContext<?,?,BulkIngestKey,Value> context)
+                    throws IOException, InterruptedException {
+        for (Value value : values) {
+            if (!buffer.add(key.getKey(), value)) {
+                spill(key.getTableName(), buffer, context);
+                if (!buffer.add(key.getKey(), value)) {
+                    // larger than the whole buffer
+                    contextWriter.write(key, value, context);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sort a buffer, reduce the values of each key and write the results to the chained context writer
+     *
+     * @param table
+     *            the table
+     * @param buffer
+     *            the buffer
+     * @param context
+     *            the context
+     * @throws IOException
+     *             if there is an issue with read or write
+     * @throws InterruptedException
+     *             if the thread is interrupted
+     */
+    private void spill(Text table, SortedAggregationBuffer buffer, TaskInputOutputContext<?,?,BulkIngestKey,Value> context)
+                    throws IOException, InterruptedException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+
+        buffer.sort();
+
+        Multimap<BulkIngestKey,Value> output = ArrayListMultimap.create();
+        List<Value> values = new ArrayList<>();
+        long written = 0;
+        int start = 0;
+        while (start < buffer.size()) {
+            int end = start + 1;
+            while (end < buffer.size() && buffer.sameKey(start, end)) {
+                end++;
+            }
+
+            BulkIngestKey key = new BulkIngestKey(table, buffer.getKey(start));
+            values.clear();
+            for (int i = start; i < end; i++) {
+                values.add(buffer.getValue(i));
+            }
+            output.putAll(key, values.size() > 1 ? reduceValues(key, values, context) : values);
+
+            if (output.size() >= SPILL_BATCH_SIZE) {
+                written += output.size();
+                contextWriter.write(output, context);
+                output = ArrayListMultimap.create();
+            }
+            start = end;
+        }
+        if (!output.isEmpty()) {
+            written += output.size();
+            contextWriter.write(output, context);
+        }
+
+        getCounter(context, SPILLED_BUFFER_TOTAL, table.toString()).increment(buffer.size());
+        getCounter(context, FLUSHED_BUFFER_TOTAL, table.toString()).increment(written);
+        getCounter(context, FLUSHED_BUFFER_COUNTER, table.toString()).increment(1);
+        buffer.clear();
     }
 
     private void cache(BulkIngestKey key, Collection<Value> values, TaskInputOutputContext<?,?,BulkIngestKey,Value> context)
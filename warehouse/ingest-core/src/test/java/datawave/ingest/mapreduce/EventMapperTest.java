@@ -7,16 +7,26 @@ import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.accumulo.core.data.Value;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
 import org.easymock.EasyMockRule;
 import org.easymock.Mock;
 import org.junit.After;
@@ -25,6 +35,7 @@ import org.junit.Rule;
 import org.junit.Test;
 
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 
 import datawave.ingest.data.RawRecordContainer;
@@ -37,6 +48,8 @@ import datawave.ingest.mapreduce.job.metrics.Metric;
 import datawave.ingest.mapreduce.job.metrics.MetricsConfiguration;
 import datawave.ingest.mapreduce.job.metrics.TestEventCountMetricsReceiver;
 import datawave.ingest.mapreduce.job.writer.ContextWriter;
+import datawave.ingest.test.StandaloneStatusReporter;
+import datawave.ingest.test.StandaloneTaskAttemptContext;
 
 public class EventMapperTest {
 
@@ -212,6 +225,84 @@ public class EventMapperTest {
         assertEquals(4, written.size());
     }
 
+    @Test
+    public void shouldWriteEventsInOrderWhenProcessingOnThreads() throws IOException, InterruptedException {
+        conf.setClass(EventMapper.CONTEXT_WRITER_CLASS, OrderedContextWriter.class, ContextWriter.class);
+        conf.setInt(EventMapper.EVENT_PROCESSING_THREADS, 4);
+        conf.setInt(EventMapper.EVENT_PROCESSING_QUEUE_SIZE, 6);
+
+        eventMapper.setup(mapContext);
+        for (int i = 0; i < 50; i++) {
+            // the record is copied, so it may be reused like a record reader would
+            record.setRawData(("some data " + i).getBytes());
+            record.generateId(null);
+            eventMapper.map(new LongWritable(i), record, mapContext);
+        }
+        eventMapper.cleanup(mapContext);
+
+        List<Map.Entry<BulkIngestKey,Value>> written = OrderedContextWriter.getWritten();
+
+        // two fields mutations + LOAD_DATE + ORIG_FILE + RAW_FILE for each event
+        assertEquals(250, written.size());
+
+        // the output of each event is written before that of the next one
+        List<String> origFiles = new ArrayList<>();
+        for (Map.Entry<BulkIngestKey,Value> entry : written) {
+            if (entry.getKey().getKey().getColumnFamily().toString().equals(EventMapper.SEQUENCE_FILE_FIELDNAME)) {
+                origFiles.add(entry.getKey().getKey().getColumnQualifier().toString());
+            }
+        }
+        for (int i = 0; i < 50; i++) {
+            assertEquals("|" + i, origFiles.get(i));
+        }
+    }
+
+    @Test
+    public void errorEventWithZeroTimestampNotDroppedWhenProcessingOnThreads() throws IOException, InterruptedException {
+        conf.setInt(EventMapper.EVENT_PROCESSING_THREADS, 2);
+
+        eventMapper.setup(mapContext);
+        eventMapper.map(new LongWritable(1), errorRecord, mapContext);
+        eventMapper.cleanup(mapContext);
+
+        // two fields mutations + LOAD_DATE + ORIG_FILE
+        assertEquals(4, TestContextWriter.getWritten().size());
+    }
+
+    @Test
+    public void shouldGiveEachWorkerItsOwnContext() throws IOException, InterruptedException {
+        conf.setInt(EventMapper.EVENT_PROCESSING_THREADS, 4);
+        ContextRecordingEventMapper.contexts.clear();
+        eventMapper = new ContextRecordingEventMapper();
+
+        eventMapper.setup(mapContext);
+        for (int i = 0; i < 50; i++) {
+            record.setRawData(("some data " + i).getBytes());
+            record.generateId(null);
+            eventMapper.map(new LongWritable(i), record, mapContext);
+        }
+        eventMapper.cleanup(mapContext);
+
+        Map<Object,Set<Mapper.Context>> contexts = ContextRecordingEventMapper.contexts;
+        assertFalse(contexts.isEmpty());
+        assertFalse("the map thread processed an event", contexts.containsKey(eventMapper));
+
+        // every worker always gets the same context, which is not the one of the map task nor that of another worker
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Object> configurations = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Set<Mapper.Context> workerContexts : contexts.values()) {
+            assertEquals(1, workerContexts.size());
+            Mapper.Context context = workerContexts.iterator().next();
+            assertNotSame(mapContext, context);
+            assertNotSame(conf, context.getConfiguration());
+            assertTrue("a context was shared by two workers", seen.add(context));
+            assertTrue("a configuration was shared by two workers", configurations.add(context.getConfiguration()));
+        }
+
+        // two fields mutations + LOAD_DATE + ORIG_FILE + RAW_FILE for each event
+        assertEquals(250, TestContextWriter.getWritten().size());
+    }
+
     private Map.Entry<BulkIngestKey,Value> getMetric(Multimap<BulkIngestKey,Value> written) {
         return getFieldEntry(written, Metric.EVENT_COUNT.toString());
     }
@@ -230,4 +321,49 @@ public class EventMapperTest {
         return null;
     }
 
+    /**
+     * Records everything written in the order it was written
+     */
+    public static class OrderedContextWriter<OK,OV> extends TestContextWriter<OK,OV> {
+
+        private static final List<Map.Entry<BulkIngestKey,Value>> ordered = new ArrayList<>();
+
+        public OrderedContextWriter() {
+            synchronized (ordered) {
+                ordered.clear();
+            }
+        }
+
+        @Override
+        public void write(BulkIngestKey key, Value value, TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+            synchronized (ordered) {
+                ordered.add(Maps.immutableEntry(key, value));
+            }
+        }
+
+        @Override
+        public void write(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+            synchronized (ordered) {
+                ordered.addAll(entries.entries());
+            }
+        }
+
+        public static List<Map.Entry<BulkIngestKey,Value>> getWritten() {
+            return ordered;
+        }
+    }
+
+    /**
+     * Records the contexts that each mapper processes events with
+     */
+    public static class ContextRecordingEventMapper extends EventMapper<LongWritable,RawRecordContainer,BulkIngestKey,Value> {
+
+        private static final Map<Object,Set<Mapper.Context>> contexts = new ConcurrentHashMap<>();
+
+        @Override
+        protected void mapEvent(LongWritable key, RawRecordContainer value, Context context) throws IOException, InterruptedException {
+            contexts.computeIfAbsent(this, k -> Collections.newSetFromMap(new ConcurrentHashMap<>())).add(context);
+            super.mapEvent(key, value, context);
+        }
+    }
 }
@@ -0,0 +1,181 @@
+package datawave.ingest.mapreduce.handler.edge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.hadoop.mapreduce.task.MapContextImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+
+import datawave.edge.util.EdgeValue;
+import datawave.edge.util.EdgeValue.EdgeValueBuilder;
+import datawave.ingest.mapreduce.handler.MockStatusReporter;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+import datawave.ingest.mapreduce.job.writer.ContextWriter;
+
+public class EdgeCombiningContextWriterTest {
+
+    private static final Text EDGE_TABLE = new Text("edge");
+    private static final Text SHARD_TABLE = new Text("shard");
+
+    private static final List<Map.Entry<BulkIngestKey,Value>> output = new ArrayList<>();
+
+    private Configuration conf;
+    private TaskInputOutputContext<?,?,BulkIngestKey,Value> context;
+    private MockStatusReporter reporter;
+
+    @Before
+    public void setup() {
+        output.clear();
+        conf = new Configuration();
+        conf.set(ProtobufEdgeDataTypeHandler.EDGE_TABLE_NAME, EDGE_TABLE.toString());
+        conf.setClass(EdgeCombiningContextWriter.CONTEXT_WRITER_CLASS, CapturingContextWriter.class, ContextWriter.class);
+        reporter = new MockStatusReporter();
+        context = new MapContextImpl<>(conf, new TaskAttemptID(), null, null, null, reporter, null);
+    }
+
+    @Test
+    public void testCombinesAcrossEvents() throws Exception {
+        EdgeCombiningContextWriter<BulkIngestKey,Value> writer = createWriter();
+
+        writer.write(new BulkIngestKey(EDGE_TABLE, edgeKey("MY_EDGE/TO-FROM", 2000L)), edgeValue(1, 3, "20230102", "uuid-newer"), context);
+        writer.commit(context);
+        writer.write(new BulkIngestKey(EDGE_TABLE, edgeKey("MY_EDGE/TO-FROM", 1000L)), edgeValue(1, 5, "20230101", "uuid-older"), context);
+        writer.commit(context);
+        writer.write(new BulkIngestKey(EDGE_TABLE, edgeKey("MY_EDGE/TO-FROM", 1500L)), edgeValue(1, 5, "20230103", "uuid-middle"), context);
+        writer.commit(context);
+
+        assertTrue(output.isEmpty());
+        writer.cleanup(context);
+
+        assertEquals(1, output.size());
+        Key key = output.get(0).getKey().getKey();
+        assertEquals(2000L, key.getTimestamp());
+        EdgeValue value = EdgeValue.decode(output.get(0).getValue());
+        assertEquals(3L, (long) value.getCount());
+        assertTrue(value.isHourSet(3));
+        assertTrue(value.isHourSet(5));
+        assertEquals("20230101", value.getLoadDate());
+
+        assertEquals(3, reporter.getCounter(EdgeCombiningContextWriter.EDGE_COMBINING_COUNTERS, EdgeCombiningContextWriter.EDGES_RECEIVED).getValue());
+        assertEquals(1, reporter.getCounter(EdgeCombiningContextWriter.EDGE_COMBINING_COUNTERS, EdgeCombiningContextWriter.EDGES_WRITTEN).getValue());
+    }
+
+    @Test
+    public void testPassesThroughOtherEntries() throws Exception {
+        EdgeCombiningContextWriter<BulkIngestKey,Value> writer = createWriter();
+
+        Key deleted = edgeKey("MY_EDGE/TO-FROM", 1000L);
+        deleted.setDeleted(true);
+        writer.write(new BulkIngestKey(EDGE_TABLE, deleted), edgeValue(-1, 3, "20230101", "uuid"), context);
+        writer.write(new BulkIngestKey(EDGE_TABLE, edgeKey("STATS/ACTIVITY/MY_EDGE/TO", 1000L)), edgeValue(1, 3, "20230101", "uuid"), context);
+        writer.write(new BulkIngestKey(SHARD_TABLE, edgeKey("MY_EDGE/TO-FROM", 1000L)), new Value(new byte[0]), context);
+        writer.commit(context);
+
+        assertEquals(3, output.size());
+        assertEquals(0, writer.getCachedBytes());
+        writer.cleanup(context);
+        assertEquals(3, output.size());
+    }
+
+    @Test
+    public void testRollback() throws Exception {
+        EdgeCombiningContextWriter<BulkIngestKey,Value> writer = createWriter();
+
+        writer.write(new BulkIngestKey(EDGE_TABLE, edgeKey("MY_EDGE/TO-FROM", 1000L)), edgeValue(1, 3, "20230101", "uuid"), context);
+        writer.rollback();
+        writer.commit(context);
+        assertEquals(0, writer.getCachedBytes());
+
+        writer.cleanup(context);
+        assertTrue(output.isEmpty());
+    }
+
+    @Test
+    public void testEvictsWhenFull() throws Exception {
+        conf.setLong(ProtobufEdgeDataTypeHandler.EDGE_COMBINING_CACHE_BYTES, 1000);
+        EdgeCombiningContextWriter<BulkIngestKey,Value> writer = createWriter();
+
+        for (int i = 0; i < 100; i++) {
+            writer.write(new BulkIngestKey(EDGE_TABLE, edgeKey("MY_EDGE_" + i + "/TO-FROM", 1000L)), edgeValue(1, 3, "20230101", "uuid"), context);
+            writer.commit(context);
+            assertTrue(writer.getCachedBytes() <= 1000);
+        }
+        assertTrue(output.size() > 90);
+
+        writer.cleanup(context);
+        assertEquals(100, output.size());
+        assertEquals(0, writer.getCachedBytes());
+        // the least recently combined edges are written first
+        assertEquals(new Text("MY_EDGE_0/TO-FROM"), output.get(0).getKey().getKey().getColumnFamily());
+    }
+
+    private EdgeCombiningContextWriter<BulkIngestKey,Value> createWriter() throws IOException, InterruptedException {
+        EdgeCombiningContextWriter<BulkIngestKey,Value> writer = new EdgeCombiningContextWriter<>();
+        writer.setup(conf, false);
+        return writer;
+    }
+
+    private static Key edgeKey(String columnFamily, long timestamp) {
+        return new Key(new Text("source\0sink"), new Text(columnFamily), new Text("20230101/MY_CSV-MY_CSV///A"), new Text("PUBLIC"), timestamp);
+    }
+
+    private static Value edgeValue(long count, int hour, String loadDate, String uuid) {
+        EdgeValueBuilder builder = EdgeValue.newBuilder();
+        builder.setCount(count);
+        builder.setHour(hour);
+        builder.setLoadDate(loadDate);
+        builder.setUuid(uuid);
+        builder.setSourceValue("source");
+        builder.setSinkValue("sink");
+        return builder.build().encode();
+    }
+
+    public static class CapturingContextWriter implements ContextWriter<BulkIngestKey,Value> {
+
+        private Multimap<BulkIngestKey,Value> pending = ArrayListMultimap.create();
+
+        @Override
+        public void setup(Configuration conf, boolean outputTableCounters) {}
+
+        @Override
+        public void write(BulkIngestKey key, Value value, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) {
+            pending.put(key, value);
+        }
+
+        @Override
+        public void write(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) {
+            pending.putAll(entries);
+        }
+
+        @Override
+        public void commit(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) {
+            output.addAll(pending.entries());
+            pending = ArrayListMultimap.create();
+        }
+
+        @Override
+        public void rollback() {
+            pending = ArrayListMultimap.create();
+        }
+
+        @Override
+        public void cleanup(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) {
+            commit(context);
+        }
+    }
+}
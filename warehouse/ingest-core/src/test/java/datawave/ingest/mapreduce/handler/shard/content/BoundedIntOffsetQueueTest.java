@@ -0,0 +1,88 @@
+package datawave.ingest.mapreduce.handler.shard.content;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BoundedIntOffsetQueueTest {
+
+    @Test
+    public void testAddOffset() {
+
+        BoundedIntOffsetQueue uut = new BoundedIntOffsetQueue(20);
+
+        for (int offset = 0; offset < uut.getCapacity(); offset++) {
+            TermAndZone taz = new TermAndZone(String.format("term-%d:zone-%d", offset, offset));
+            Assert.assertNull("AddOffset unexpectedly returned an offset list", uut.addOffset(taz, offset));
+        }
+
+        TermAndZone taz = new TermAndZone(String.format("term-%d:zone-%d", 0, 0));
+        int count = uut.getCapacity() - 1;
+        for (int offset = 0; offset < count; offset++) {
+            BoundedOffsetQueue.OffsetList<Integer> ol = uut.addOffset(taz, (offset + uut.getCapacity()));
+            Assert.assertNotNull("AddOffset failed to return an offset list", ol);
+            Assert.assertEquals("AddOffset returned a term other than the smallest", 1, ol.size());
+        }
+
+        BoundedOffsetQueue.OffsetList<Integer> ol = uut.addOffset(taz, (2 * uut.getCapacity()));
+        Assert.assertNotNull("AddOffset failed to return an offset list", ol);
+        Assert.assertEquals("AddOffset returned a OffsetList with an unexpected number of offsets.", 21, ol.offsets.size());
+        Assert.assertEquals(taz, ol.termAndZone);
+        Assert.assertEquals(Integer.valueOf(0), ol.offsets.get(0));
+        Assert.assertEquals(Integer.valueOf(40), ol.offsets.get(20));
+        Assert.assertEquals("AddOffset failed to correctly update the number of elements in the Queue", 0, uut.size());
+    }
+
+    @Test
+    public void testReusedTermAndZone() {
+        BoundedIntOffsetQueue uut = new BoundedIntOffsetQueue(100);
+
+        TermAndZone taz = new TermAndZone("", "ZONE");
+        for (int offset = 0; offset < 10; offset++) {
+            taz.term = "term-" + (offset % 3);
+            uut.addOffset(taz, offset);
+        }
+
+        Assert.assertEquals(10, uut.size());
+        Assert.assertEquals(Arrays.asList(0, 3, 6, 9), uut.getOffsets(new TermAndZone("term-0", "ZONE")));
+        Assert.assertEquals(Arrays.asList(1, 4, 7), uut.getOffsets(new TermAndZone("term-1", "ZONE")));
+        Assert.assertTrue(uut.containsKey(new TermAndZone("term-2", "ZONE")));
+        Assert.assertNull(uut.getOffsets(new TermAndZone("term-3", "ZONE")));
+
+        Map<TermAndZone,Integer> sizes = new HashMap<>();
+        for (BoundedOffsetQueue.OffsetList<Integer> offsets : uut.offsets()) {
+            sizes.put(new TermAndZone(offsets.termAndZone.term, offsets.termAndZone.zone), offsets.size());
+        }
+        Assert.assertEquals(3, sizes.size());
+        Assert.assertEquals(Integer.valueOf(3), sizes.get(new TermAndZone("term-2", "ZONE")));
+
+        uut.clear();
+        Assert.assertEquals(0, uut.size());
+        Assert.assertFalse(uut.offsets().iterator().hasNext());
+    }
+
+    @Test
+    public void testEvictsSmallestTerm() {
+        BoundedIntOffsetQueue uut = new BoundedIntOffsetQueue(10);
+
+        TermAndZone taz = new TermAndZone("", "ZONE");
+        int offset = 0;
+        for (String term : new String[] {"a", "a", "a", "b", "b", "c", "c", "c", "c", "d"}) {
+            taz.term = term;
+            Assert.assertNull(uut.addOffset(taz, offset++));
+        }
+
+        taz.term = "b";
+        BoundedOffsetQueue.OffsetList<Integer> ol = uut.addOffset(taz, offset++);
+        Assert.assertEquals(new TermAndZone("d", "ZONE"), ol.termAndZone);
+        Assert.assertEquals(10, uut.size());
+
+        taz.term = "e";
+        ol = uut.addOffset(taz, offset);
+        Assert.assertEquals(new TermAndZone("e", "ZONE"), ol.termAndZone);
+        Assert.assertEquals(10, uut.size());
+    }
+}
@@ -0,0 +1,92 @@
+package datawave.ingest.mapreduce.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class BulkImportSchedulerTest {
+
+    private BulkImportScheduler scheduler;
+
+    @After
+    public void after() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrencyAdaptsToLatency() {
+        scheduler = new BulkImportScheduler(8, 1000);
+        assertEquals(8, scheduler.getConcurrency());
+
+        scheduler.record(1, 5000);
+        assertEquals(4, scheduler.getConcurrency());
+        scheduler.record(1, 5000);
+        scheduler.record(1, 5000);
+        scheduler.record(1, 5000);
+        assertEquals(1, scheduler.getConcurrency());
+
+        scheduler.record(1, 10);
+        assertEquals(2, scheduler.getConcurrency());
+        for (int i = 0; i < 10; i++) {
+            scheduler.record(1, 10);
+        }
+        assertEquals(8, scheduler.getConcurrency());
+
+        assertEquals(15, scheduler.getFilesImported());
+        assertEquals(20110, scheduler.getImportMillis());
+    }
+
+    @Test
+    public void testImportAll() throws Exception {
+        scheduler = new BulkImportScheduler(3, 60000);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Callable<Integer>> imports = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            imports.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(20);
+                running.decrementAndGet();
+                return 2;
+            });
+        }
+        scheduler.importAll(imports);
+
+        assertEquals(20, scheduler.getFilesImported());
+        assertTrue(maxRunning.get() <= 3);
+    }
+
+    @Test
+    public void testImportFailure() throws Exception {
+        scheduler = new BulkImportScheduler(1, 60000);
+        AtomicInteger started = new AtomicInteger();
+        List<Callable<Integer>> imports = new ArrayList<>();
+        imports.add(() -> {
+            started.incrementAndGet();
+            throw new IOException("expected");
+        });
+        imports.add(() -> {
+            started.incrementAndGet();
+            return 1;
+        });
+        try {
+            scheduler.importAll(imports);
+            fail("Expected the failed import to be thrown");
+        } catch (IOException e) {
+            assertEquals("expected", e.getMessage());
+        }
+        // no new imports are started after a failure
+        assertEquals(1, started.get());
+    }
+}
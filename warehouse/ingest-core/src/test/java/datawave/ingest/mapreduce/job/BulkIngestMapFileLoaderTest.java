@@ -16,6 +16,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.admin.TableOperations;
 import org.apache.accumulo.core.client.security.tokens.PasswordToken;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
@@ -31,6 +34,7 @@ import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
+import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -38,6 +42,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.contrib.java.lang.system.ExpectedSystemExit;
 import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
 import org.powermock.api.easymock.PowerMock;
 import org.powermock.reflect.Whitebox;
 
@@ -65,6 +70,9 @@ public class BulkIngestMapFileLoaderTest {
     @Rule
     public final ExpectedSystemExit exit = ExpectedSystemExit.none();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Rule
     public TestLogCollector logCollector = new TestLogCollector.Builder().with(BulkIngestMapFileLoader.class, Level.ALL).build();
 
@@ -2738,4 +2746,64 @@ public class BulkIngestMapFileLoaderTest {
             BulkIngestMapFileLoaderTest.logger.info("testMarkJobCleanupOnStartup completed.");
         }
     }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testBatchImportReturnsFilesToTheirJobsOnFailure() throws Exception {
+        BulkIngestMapFileLoaderTest.logger.info("testBatchImportReturnsFilesToTheirJobsOnFailure called...");
+
+        Configuration conf = new Configuration();
+        FileSystem fs = FileSystem.getLocal(conf);
+        Path root = new Path(temporaryFolder.newFolder().toURI());
+        Path mapFiles0 = new Path(root, "job0/mapFiles");
+        Path mapFiles1 = new Path(root, "job1/mapFiles");
+        for (Path file : new Path[] {new Path(mapFiles0, "tableA/a0.rf"), new Path(mapFiles0, "tableB/b0.rf"), new Path(mapFiles1, "tableA/a1.rf"),
+                        new Path(mapFiles1, "tableB/b1.rf")}) {
+            fs.create(file).close();
+        }
+
+        BulkIngestMapFileLoader uut = new BulkIngestMapFileLoader(".", "jobs/", "localhost", "localhost", "user", new PasswordToken("pass"), root.toUri(),
+                        root.toUri(), root.toUri(), "localhost", new HashMap<>(), conf, 0);
+
+        TableOperations tableOperations = EasyMock.createMock(TableOperations.class);
+        EasyMock.expect(tableOperations.tableIdMap()).andReturn(Map.of("tableA", "1", "tableB", "2"));
+        // tableA imports everything
+        tableOperations.importDirectory(EasyMock.eq("tableA"), EasyMock.anyString(), EasyMock.anyString(), EasyMock.eq(false));
+        EasyMock.expectLastCall().andAnswer(() -> {
+            for (FileStatus file : fs.listStatus(new Path((String) EasyMock.getCurrentArguments()[1]))) {
+                fs.delete(file.getPath(), false);
+            }
+            return null;
+        });
+        // tableB fails the file of the second job, and then throws
+        tableOperations.importDirectory(EasyMock.eq("tableB"), EasyMock.anyString(), EasyMock.anyString(), EasyMock.eq(false));
+        EasyMock.expectLastCall().andAnswer(() -> {
+            Object[] args = EasyMock.getCurrentArguments();
+            fs.rename(new Path((String) args[1], "1_b1.rf"), new Path((String) args[2], "1_b1.rf"));
+            throw new AccumuloException("import failed");
+        });
+        AccumuloClient client = EasyMock.createMock(AccumuloClient.class);
+        EasyMock.expect(client.tableOperations()).andReturn(tableOperations).anyTimes();
+        EasyMock.replay(tableOperations, client);
+
+        Whitebox.setInternalState(uut, "accumuloClient", client);
+        Whitebox.setInternalState(uut, "importScheduler", new BulkImportScheduler(1, Long.MAX_VALUE));
+
+        try {
+            uut.bringMapFilesOnline(List.of(mapFiles0, mapFiles1));
+            Assert.fail("BulkIngestMapFileLoader#bringMapFilesOnline failed to throw the import failure");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getCause() instanceof AccumuloException);
+        }
+        EasyMock.verify(tableOperations, client);
+
+        Assert.assertFalse(fs.exists(new Path(mapFiles0, "tableA/a0.rf")));
+        Assert.assertFalse(fs.exists(new Path(mapFiles1, "tableA/a1.rf")));
+        Assert.assertTrue("The file that was not imported was not returned to its job", fs.exists(new Path(mapFiles0, "tableB/b0.rf")));
+        Assert.assertTrue("The failed file was not returned to its job", fs.exists(new Path(mapFiles1, "failures/tableB/b1.rf")));
+        Assert.assertFalse("Files were left in the combined directory", fs.exists(new Path(mapFiles0, "batch/tableB")));
+        Assert.assertFalse("Files were left in the combined directory", fs.exists(new Path(mapFiles0, "batch/failures/tableB")));
+
+        BulkIngestMapFileLoaderTest.logger.info("testBatchImportReturnsFilesToTheirJobsOnFailure completed.");
+    }
 }
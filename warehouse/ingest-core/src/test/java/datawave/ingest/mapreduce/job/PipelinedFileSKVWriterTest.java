@@ -0,0 +1,124 @@
+package datawave.ingest.mapreduce.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.junit.Test;
+
+public class PipelinedFileSKVWriterTest {
+
+    @Test
+    public void testWritesInOrder() throws IOException {
+        RecordingWriter delegate = new RecordingWriter();
+        PipelinedFileSKVWriter writer = new PipelinedFileSKVWriter(delegate, "test", 2, 3);
+        writer.startDefaultLocalityGroup();
+
+        // reuse the key and value as a reducer would
+        Key key = new Key();
+        Value value = new Value();
+        List<String> expected = new ArrayList<>();
+        expected.add("default");
+        for (int i = 0; i < 100; i++) {
+            key.set(new Key("row" + i, "cf", "cq"));
+            value.set(Integer.toString(i).getBytes());
+            writer.append(key, value);
+            expected.add("row" + i + "=" + i);
+            if (i == 50) {
+                writer.startNewLocalityGroup("lg", Collections.emptySet());
+                expected.add("lg");
+            }
+        }
+        writer.close();
+
+        assertTrue(delegate.closed);
+        assertFalse(writer.isRunning());
+        assertEquals(expected, delegate.operations);
+    }
+
+    @Test
+    public void testFailureIsThrownToCaller() throws IOException {
+        RecordingWriter delegate = new RecordingWriter();
+        delegate.failAfter = 10;
+        PipelinedFileSKVWriter writer = new PipelinedFileSKVWriter(delegate, "test", 1, 1);
+        try {
+            for (int i = 0; i < 100; i++) {
+                writer.append(new Key("row" + i), new Value());
+            }
+            writer.close();
+            fail("Expected the failure of the delegate to be thrown");
+        } catch (IOException e) {
+            assertEquals("expected", e.getCause().getMessage());
+        }
+        assertEquals(10, delegate.operations.size());
+        // the writer thread closes the delegate before the failure is seen
+        assertTrue(delegate.closed);
+    }
+
+    @Test
+    public void testGetLengthWaitsForWrites() throws IOException {
+        RecordingWriter delegate = new RecordingWriter();
+        PipelinedFileSKVWriter writer = new PipelinedFileSKVWriter(delegate, "test", 4, 1000);
+        for (int i = 0; i < 10; i++) {
+            writer.append(new Key("row" + i), new Value());
+        }
+        assertEquals(10, writer.getLength());
+        writer.close();
+    }
+
+    private static class RecordingWriter implements FileSKVWriter {
+        private final List<String> operations = new ArrayList<>();
+        private int failAfter = -1;
+        private volatile boolean closed = false;
+
+        @Override
+        public boolean supportsLocalityGroups() {
+            return true;
+        }
+
+        @Override
+        public void startNewLocalityGroup(String name, Set<ByteSequence> columnFamilies) throws IOException {
+            operations.add(name);
+        }
+
+        @Override
+        public void startDefaultLocalityGroup() throws IOException {
+            operations.add("default");
+        }
+
+        @Override
+        public void append(Key key, Value value) throws IOException {
+            if (operations.size() == failAfter) {
+                throw new IOException("expected");
+            }
+            operations.add(key.getRow() + "=" + value);
+        }
+
+        @Override
+        public DataOutputStream createMetaStore(String name) throws IOException {
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+        }
+
+        @Override
+        public long getLength() throws IOException {
+            return operations.size();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package datawave.ingest.mapreduce.job.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Test;
+
+public class SortedAggregationBufferTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        SortedAggregationBuffer buffer = new SortedAggregationBuffer(1024);
+        Key key = new Key("row", "cf", "cq", "vis", 1234L);
+        assertTrue(buffer.add(key, new Value("value".getBytes())));
+
+        buffer.sort();
+        assertEquals(1, buffer.size());
+        assertEquals(key, buffer.getKey(0));
+        assertEquals(new Value("value".getBytes()), buffer.getValue(0));
+    }
+
+    @Test
+    public void testSortGroupsIdenticalKeys() throws IOException {
+        SortedAggregationBuffer buffer = new SortedAggregationBuffer(1 << 20);
+        Map<Key,Integer> expected = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            Key key = new Key("row" + (i * 7919 % 37), "cf", "cq" + (i % 3));
+            expected.merge(key, 1, Integer::sum);
+            assertTrue(buffer.add(key, new Value(Integer.toString(i).getBytes())));
+        }
+        buffer.sort();
+
+        Map<Key,Integer> actual = new HashMap<>();
+        int start = 0;
+        while (start < buffer.size()) {
+            int end = start + 1;
+            while (end < buffer.size() && buffer.sameKey(start, end)) {
+                end++;
+            }
+            Key key = buffer.getKey(start);
+            assertFalse("key appeared in two groups: " + key, actual.containsKey(key));
+            actual.put(key, end - start);
+            start = end;
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testFullAndClear() throws IOException {
+        SortedAggregationBuffer buffer = new SortedAggregationBuffer(64);
+        Key key = new Key("row", "cf", "cq");
+        Value value = new Value(new byte[16]);
+        int added = 0;
+        while (buffer.add(key, value)) {
+            added++;
+        }
+        assertTrue(added > 0);
+        assertEquals(added, buffer.size());
+        assertTrue(buffer.getBytes() <= buffer.getCapacity());
+
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.getBytes());
+        assertTrue(buffer.add(key, value));
+    }
+}
@@ -0,0 +1,185 @@
+package datawave.ingest.mapreduce.job.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.user.SummingCombiner;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
+
+import datawave.ingest.config.TableConfigCache;
+import datawave.ingest.data.config.ingest.AccumuloHelper;
+import datawave.ingest.mapreduce.StandaloneStatusReporter;
+import datawave.ingest.mapreduce.StandaloneTaskAttemptContext;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+import datawave.ingest.mapreduce.job.TableConfigurationUtil;
+import datawave.ingest.mapreduce.job.reduce.BulkIngestKeyDedupeCombiner;
+
+public class TableCachingContextWriterTest {
+
+    private static final Text INDEX_TABLE = new Text("shardIndex");
+    private static final Text SHARD_TABLE = new Text("shard");
+    private static final int ENTRIES = 2000;
+
+    private Configuration conf;
+    private Multimap<BulkIngestKey,Value> input;
+
+    @Before
+    public void setup() {
+        conf = new Configuration();
+        conf.set(AccumuloHelper.USERNAME, "root");
+        conf.set(AccumuloHelper.PASSWORD, "cGFzc3dvcmQ=");
+        conf.set(AccumuloHelper.INSTANCE_NAME, "instance");
+        conf.set(AccumuloHelper.ZOOKEEPERS, "localhost");
+        conf.setBoolean(BulkIngestKeyDedupeCombiner.USING_COMBINER, true);
+        conf.set(TableConfigurationUtil.JOB_OUTPUT_TABLE_NAMES, INDEX_TABLE.toString());
+        conf.setClass(TableCachingContextWriter.CONTEXT_WRITER_CLASS, RecordingContextWriter.class, ContextWriter.class);
+
+        // sum the values of the index table, as its minc combiner would
+        Map<String,String> indexProperties = new HashMap<>();
+        indexProperties.put("table.iterator.minc.sum", "10," + SummingCombiner.class.getName());
+        indexProperties.put("table.iterator.minc.sum.opt.type", "STRING");
+        Map<String,Map<String,String>> tableConfigs = new HashMap<>();
+        tableConfigs.put(INDEX_TABLE.toString(), indexProperties);
+        TableConfigCache.getCurrentCache(conf).setTableConfigs(tableConfigs);
+
+        input = ArrayListMultimap.create();
+        for (int i = 0; i < ENTRIES; i++) {
+            Key key = new Key("term" + (i * 7919 % 97), "FIELD", "20240101_" + (i % 5) + "\0datatype");
+            input.put(new BulkIngestKey(INDEX_TABLE, key), new Value(Integer.toString(1 + i % 3)));
+            if (i % 4 == 0) {
+                input.put(new BulkIngestKey(SHARD_TABLE, new Key("20240101_" + (i % 5), "datatype\0uid" + i, "FIELD\0value")), new Value());
+            }
+        }
+    }
+
+    @After
+    public void teardown() {
+        TableConfigCache.getCurrentCache(conf).clear();
+    }
+
+    @Test
+    public void testBufferAggregatesLikeCache() throws Exception {
+        Configuration cacheConf = new Configuration(conf);
+        cacheConf.setInt(INDEX_TABLE + TableCachingContextWriter.TABLES_TO_CACHE_SUFFIX, 100);
+        StandaloneTaskAttemptContext<?,?,BulkIngestKey,Value> cacheContext = newContext(cacheConf);
+        Multimap<BulkIngestKey,Value> cached = write(cacheConf, cacheContext);
+
+        // a buffer far smaller than the entries written, so that it is flushed when full as well as on cleanup
+        Configuration bufferConf = new Configuration(conf);
+        bufferConf.setInt(INDEX_TABLE + TableCachingContextWriter.TABLES_TO_BUFFER_SUFFIX, 4096);
+        StandaloneTaskAttemptContext<?,?,BulkIngestKey,Value> bufferContext = newContext(bufferConf);
+        Multimap<BulkIngestKey,Value> buffered = write(bufferConf, bufferContext);
+
+        Map<BulkIngestKey,Long> expected = sum(input, INDEX_TABLE);
+        assertEquals(97 * 5, expected.size());
+        assertEquals(expected, sum(cached, INDEX_TABLE));
+        assertEquals(expected, sum(buffered, INDEX_TABLE));
+
+        // the entries of a table that is neither cached nor buffered are passed on as they are
+        assertEquals(entries(input, SHARD_TABLE), entries(cached, SHARD_TABLE));
+        assertEquals(entries(input, SHARD_TABLE), entries(buffered, SHARD_TABLE));
+
+        // every index entry went through the buffer, which was spilled more than once and reduced the entries as it did
+        long spills = counter(bufferContext, TableCachingContextWriter.FLUSHED_BUFFER_COUNTER);
+        assertEquals(entries(input, INDEX_TABLE).size(), counter(bufferContext, TableCachingContextWriter.SPILLED_BUFFER_TOTAL));
+        assertTrue("the buffer was only spilled " + spills + " times", spills > 1);
+        assertEquals(entries(buffered, INDEX_TABLE).size(), counter(bufferContext, TableCachingContextWriter.FLUSHED_BUFFER_TOTAL));
+        assertTrue(entries(buffered, INDEX_TABLE).size() < entries(input, INDEX_TABLE).size());
+        assertTrue(entries(buffered, INDEX_TABLE).size() <= spills * expected.size());
+        assertEquals(0, counter(cacheContext, TableCachingContextWriter.SPILLED_BUFFER_TOTAL));
+    }
+
+    private Multimap<BulkIngestKey,Value> write(Configuration conf, TaskInputOutputContext<?,?,BulkIngestKey,Value> context)
+                    throws IOException, InterruptedException {
+        TableCachingContextWriter writer = new TableCachingContextWriter();
+        writer.setup(conf, false);
+        int written = 0;
+        for (Map.Entry<BulkIngestKey,Value> entry : input.entries()) {
+            writer.write(entry.getKey(), entry.getValue(), context);
+            // commit every few entries, as the EventMapper does after each event
+            if (++written % 10 == 0) {
+                writer.commit(context);
+            }
+        }
+        writer.cleanup(context);
+        return ArrayListMultimap.create(RecordingContextWriter.written);
+    }
+
+    private static StandaloneTaskAttemptContext<?,?,BulkIngestKey,Value> newContext(Configuration conf) {
+        return new StandaloneTaskAttemptContext<>(conf, new StandaloneStatusReporter());
+    }
+
+    private static long counter(StandaloneTaskAttemptContext<?,?,BulkIngestKey,Value> context, String group) {
+        return context.getCounter(group, INDEX_TABLE.toString()).getValue();
+    }
+
+    private static Map<BulkIngestKey,Long> sum(Multimap<BulkIngestKey,Value> entries, Text table) {
+        Map<BulkIngestKey,Long> sums = new HashMap<>();
+        for (Map.Entry<BulkIngestKey,Value> entry : entries.entries()) {
+            if (entry.getKey().getTableName().equals(table)) {
+                sums.merge(entry.getKey(), Long.parseLong(entry.getValue().toString()), Long::sum);
+            }
+        }
+        return sums;
+    }
+
+    private static Multiset<Map.Entry<BulkIngestKey,Value>> entries(Multimap<BulkIngestKey,Value> entries, Text table) {
+        Multiset<Map.Entry<BulkIngestKey,Value>> tableEntries = HashMultiset.create();
+        for (Map.Entry<BulkIngestKey,Value> entry : entries.entries()) {
+            if (entry.getKey().getTableName().equals(table)) {
+                tableEntries.add(entry);
+            }
+        }
+        return tableEntries;
+    }
+
+    /**
+     * Records every entry written to it, including repeated entries, in a static buffer as the chained context writer is created by the writer under test
+     */
+    public static class RecordingContextWriter implements ContextWriter<BulkIngestKey,Value> {
+
+        private static final Multimap<BulkIngestKey,Value> written = ArrayListMultimap.create();
+
+        public RecordingContextWriter() {
+            written.clear();
+        }
+
+        @Override
+        public void setup(Configuration conf, boolean outputTableCounters) {}
+
+        @Override
+        public void write(BulkIngestKey key, Value value, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) {
+            written.put(key, value);
+        }
+
+        @Override
+        public void write(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) {
+            written.putAll(entries);
+        }
+
+        @Override
+        public void commit(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) {}
+
+        @Override
+        public void rollback() {}
+
+        @Override
+        public void cleanup(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) {}
+    }
+}
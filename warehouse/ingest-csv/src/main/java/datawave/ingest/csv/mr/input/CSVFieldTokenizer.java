@@ -0,0 +1,352 @@
+package datawave.ingest.csv.mr.input;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Splits a raw csv record into fields directly from its bytes. The fields are unquoted into a reusable buffer, and a String is only created for a field when it
+ * is asked for, so fields that are never looked at cost nothing beyond the copy.
+ * <p>
+ * Fields are split the same way the {@link org.apache.commons.lang.text.StrTokenizer} instances previously used by the {@link CSVReaderBase} split them: a ","
+ * separator splits like {@link org.apache.commons.lang.text.StrTokenizer#getCSVInstance()}, a "\t" separator like
+ * {@link org.apache.commons.lang.text.StrTokenizer#getTSVInstance()}, and anything else is a plain separator without quoting or trimming. Empty fields are
+ * returned as null.
+ */
+public class CSVFieldTokenizer {
+
+    private static final byte QUOTE = '"';
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private final byte[] delimiter;
+    private final boolean quoted;
+    private final boolean trimmed;
+
+    private byte[] work = new byte[1024];
+    private int used = 0;
+
+    private int[] starts = new int[64];
+    private int[] ends = new int[64];
+    private int count = 0;
+
+    /**
+     * @param delimiter
+     *            the bytes separating the fields
+     * @param quoted
+     *            whether fields may be quoted
+     * @param trimmed
+     *            whether whitespace outside of quotes is trimmed from fields
+     */
+    public CSVFieldTokenizer(byte[] delimiter, boolean quoted, boolean trimmed) {
+        this.delimiter = delimiter;
+        this.quoted = quoted;
+        this.trimmed = trimmed;
+    }
+
+    /**
+     * Create a tokenizer for a configured separator
+     *
+     * @param separator
+     *            the separator, as configured by {@code <type>.data.separator}
+     * @return the tokenizer
+     */
+    public static CSVFieldTokenizer forSeparator(String separator) {
+        if (separator.equals(",")) {
+            return new CSVFieldTokenizer(new byte[] {','}, true, true);
+        } else if (separator.equals("\\t")) {
+            return new CSVFieldTokenizer(new byte[] {'\t'}, true, true);
+        } else {
+            return new CSVFieldTokenizer(separator.getBytes(StandardCharsets.UTF_8), false, false);
+        }
+    }
+
+    /**
+     * @return whether fields may be quoted, and hence whether a record may span lines
+     */
+    public boolean isQuoted() {
+        return quoted;
+    }
+
+    /**
+     * Split a record into fields
+     *
+     * @param bytes
+     *            the record
+     * @param length
+     *            the length of the record
+     * @return the number of fields
+     */
+    public int tokenize(byte[] bytes, int length) {
+        count = 0;
+        used = 0;
+        if (work.length < length) {
+            work = new byte[Math.max(length, work.length * 2)];
+        }
+
+        int pos = 0;
+        while (pos >= 0 && pos < length) {
+            pos = readNextField(bytes, pos, length);
+            // a delimiter at the end of the record is followed by an empty field
+            if (pos >= length) {
+                addField(used, used);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of fields in the last record tokenized
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Get a field from the last record tokenized
+     *
+     * @param index
+     *            the index of the field
+     * @return the field, or null if empty
+     */
+    public String getField(int index) {
+        int length = ends[index] - starts[index];
+        return (length == 0 ? null : new String(work, starts[index], length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Get the fields from the last record tokenized
+     *
+     * @return the fields, with null for empty fields
+     */
+    public String[] getFields() {
+        String[] fields = new String[count];
+        for (int i = 0; i < count; i++) {
+            fields[i] = getField(i);
+        }
+        return fields;
+    }
+
+    /**
+     * Determine whether a record is complete, or ends within a quoted field and hence continues on the next line
+     *
+     * @param bytes
+     *            the record
+     * @param length
+     *            the length of the record
+     * @return true if the record does not end within a quoted field
+     */
+    public boolean isComplete(byte[] bytes, int length) {
+        if (!quoted) {
+            return true;
+        }
+        QuoteState state = newQuoteState(false);
+        state.update(bytes, length);
+        return !state.inQuotes();
+    }
+
+    /**
+     * Create a state machine that follows the quoting of a stream of records
+     *
+     * @param inQuotes
+     *            whether the stream starts within a quoted field
+     * @return the quote state
+     */
+    public QuoteState newQuoteState(boolean inQuotes) {
+        return new QuoteState(delimiter[0], trimmed, inQuotes);
+    }
+
+    private int readNextField(byte[] bytes, int start, int length) {
+        // skip leading whitespace
+        while (start < length && trimmed && isTrim(bytes[start]) && delimiterLength(bytes, start, length) == 0 && !(quoted && bytes[start] == QUOTE)) {
+            start++;
+        }
+        if (start >= length) {
+            addField(used, used);
+            return -1;
+        }
+        int delimiterLength = delimiterLength(bytes, start, length);
+        if (delimiterLength > 0) {
+            addField(used, used);
+            return start + delimiterLength;
+        }
+        if (quoted && bytes[start] == QUOTE) {
+            return readField(bytes, start + 1, length, true);
+        }
+        return readField(bytes, start, length, false);
+    }
+
+    private int readField(byte[] bytes, int pos, int length, boolean quotedField) {
+        int fieldStart = used;
+        int trimEnd = used;
+        boolean quoting = quotedField;
+        while (pos < length) {
+            byte b = bytes[pos];
+            if (quoting) {
+                if (b == QUOTE) {
+                    if (pos + 1 < length && bytes[pos + 1] == QUOTE) {
+                        // an escaped quote
+                        work[used++] = QUOTE;
+                        pos += 2;
+                        trimEnd = used;
+                        continue;
+                    }
+                    quoting = false;
+                    pos++;
+                    continue;
+                }
+                work[used++] = b;
+                pos++;
+                trimEnd = used;
+            } else {
+                int delimiterLength = delimiterLength(bytes, pos, length);
+                if (delimiterLength > 0) {
+                    addField(fieldStart, trimEnd);
+                    return pos + delimiterLength;
+                }
+                if (quotedField && b == QUOTE) {
+                    quoting = true;
+                    pos++;
+                    continue;
+                }
+                work[used++] = b;
+                pos++;
+                if (!(trimmed && isTrim(b))) {
+                    trimEnd = used;
+                }
+            }
+        }
+        addField(fieldStart, trimEnd);
+        return -1;
+    }
+
+    private int delimiterLength(byte[] bytes, int pos, int length) {
+        if (pos + delimiter.length > length) {
+            return 0;
+        }
+        for (int i = 0; i < delimiter.length; i++) {
+            if (bytes[pos + i] != delimiter[i]) {
+                return 0;
+            }
+        }
+        return delimiter.length;
+    }
+
+    private void addField(int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    private static boolean isTrim(byte b) {
+        return (b & 0xff) <= ' ';
+    }
+
+    /**
+     * Follows the quoting of a stream of records one byte at a time, to find where records that span lines end. It also notes any quote that is out of place,
+     * i.e. one within an unquoted field or a closing quote followed by anything but a separator or the end of the line, which is used to tell whether a
+     * position in the middle of a file is within a quoted field.
+     */
+    public static class QuoteState {
+        private static final int FIELD_START = 0;
+        private static final int UNQUOTED = 1;
+        private static final int QUOTED = 2;
+        private static final int QUOTE_IN_QUOTED = 3;
+        private static final int AFTER_QUOTE = 4;
+
+        private final byte delimiter;
+        private final boolean trimmed;
+        private int state;
+        private boolean misplacedQuote = false;
+
+        private QuoteState(byte delimiter, boolean trimmed, boolean inQuotes) {
+            this.delimiter = delimiter;
+            this.trimmed = trimmed;
+            this.state = (inQuotes ? QUOTED : FIELD_START);
+        }
+
+        /**
+         * @param b
+         *            the next byte in the stream
+         * @return true if the byte ended a record
+         */
+        public boolean update(byte b) {
+            if (state == QUOTE_IN_QUOTED) {
+                if (b == QUOTE) {
+                    // an escaped quote
+                    state = QUOTED;
+                    return false;
+                }
+                state = AFTER_QUOTE;
+            }
+            switch (state) {
+                case QUOTED:
+                    if (b == QUOTE) {
+                        state = QUOTE_IN_QUOTED;
+                    }
+                    return false;
+                case FIELD_START:
+                    if (b == LF) {
+                        return true;
+                    } else if (b == delimiter || (trimmed && isTrim(b))) {
+                        return false;
+                    }
+                    state = (b == QUOTE ? QUOTED : UNQUOTED);
+                    return false;
+                case UNQUOTED:
+                    if (b == LF) {
+                        state = FIELD_START;
+                        return true;
+                    } else if (b == delimiter) {
+                        state = FIELD_START;
+                    } else if (b == QUOTE) {
+                        misplacedQuote = true;
+                    }
+                    return false;
+                default:
+                    // after a closing quote
+                    if (b == LF) {
+                        state = FIELD_START;
+                        return true;
+                    } else if (b == delimiter) {
+                        state = FIELD_START;
+                    } else if (b == QUOTE) {
+                        misplacedQuote = true;
+                        state = QUOTED;
+                    } else if (b != CR) {
+                        misplacedQuote = true;
+                    }
+                    return false;
+            }
+        }
+
+        /**
+         * @param bytes
+         *            the next bytes in the stream
+         * @param length
+         *            the number of bytes
+         */
+        public void update(byte[] bytes, int length) {
+            for (int i = 0; i < length; i++) {
+                update(bytes[i]);
+            }
+        }
+
+        /**
+         * @return true if the stream is currently within a quoted field
+         */
+        public boolean inQuotes() {
+            return state == QUOTED;
+        }
+
+        /**
+         * @return true if a quote has been out of place
+         */
+        public boolean hasMisplacedQuote() {
+            return misplacedQuote;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.io.IOException;
 
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
@@ -14,12 +15,20 @@ import datawave.ingest.data.RawRecordContainer;
 
 /**
  * Specialization of SequenceFileInputFormat that expects an {@link RawRecordContainer} object as the value.
+ * <p>
+ * Files are not split unless {@link #SPLITTABLE} is enabled, in which case uncompressed files are split so that large files are read by several mappers. Each
+ * split starts at the first record that starts within it (see {@link CSVReaderBase}).
  */
 public class CSVFileInputFormat extends SequenceFileInputFormat<LongWritable,RawRecordContainer> {
 
+    /**
+     * Parameter to specify that uncompressed csv files may be split
+     */
+    public static final String SPLITTABLE = "csv.input.splittable";
+
     @Override
     protected boolean isSplitable(JobContext context, Path filename) {
-        return false;
+        return context.getConfiguration().getBoolean(SPLITTABLE, false) && new CompressionCodecFactory(context.getConfiguration()).getCodec(filename) == null;
     }
 
     @Override
@@ -1,12 +1,20 @@
 package datawave.ingest.csv.mr.input;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.text.StrTokenizer;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
@@ -14,14 +22,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import datawave.data.hash.UID;
+import datawave.ingest.csv.mr.input.CSVFieldTokenizer.QuoteState;
 import datawave.ingest.data.RawDataErrorNames;
 import datawave.ingest.data.RawRecordContainer;
 import datawave.ingest.data.config.CSVHelper;
 import datawave.ingest.input.reader.EventRecordReader;
+import datawave.ingest.input.reader.LfLineReader;
 import datawave.ingest.input.reader.LongLineEventRecordReader;
 
 /**
  * RecordReader that reads events from "Comma"-Separated-Value formats. Here the "Comma" can be any separator.
+ * <p>
+ * Records are split into fields directly from their bytes by a {@link CSVFieldTokenizer}. When {@code <type>.data.multiline.records} is enabled, a quoted field
+ * may contain newlines and a record continues onto the following lines until its quotes are closed. A split starting in the middle of a file then starts at the
+ * first record that starts within it, so files may be split (see {@link CSVFileInputFormat#SPLITTABLE}).
  */
 public class CSVReaderBase extends LongLineEventRecordReader implements EventRecordReader {
     /** Logging mechanism for CSVReader. */
@@ -42,8 +56,25 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
     /** Primary DataTypeHelper for CSV records. */
     private CSVHelper csvHelper;
 
-    /** Splits raw input records Strings according to the configured separator. */
-    private StrTokenizer _tokenizer;
+    /** Splits raw input records according to the configured separator. */
+    private CSVFieldTokenizer _tokenizer;
+
+    /** Splits raw input records instead of {@link #_tokenizer} once a caller has used the deprecated {@link #getTokenizer()} or {@link #setTokenizer}. */
+    private StrTokenizer legacyTokenizer;
+
+    /** Whether a quoted field may continue a record onto the following lines. */
+    private boolean multiLineRecords;
+
+    /** Whether this reader starts at the beginning of the file, and hence reads the header row if there is one. */
+    private boolean startOfFile = true;
+
+    /** Holds the lines that continue a multi-line record. */
+    private final Text continuation = new Text();
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    /** The minimum number of bytes looked at to tell whether a split starts within a quoted field. */
+    private static final long MIN_RECORD_START_LOOKAHEAD = 1024 * 1024;
 
     /** Super class returns the position in bytes in the file as the key. This returns the record number. */
     @Override
@@ -55,11 +86,43 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
     /** Points the RecordReader to the next record. */
     @Override
     public boolean nextKeyValue() throws IOException {
-        if (counter == 0 && csvHelper.skipHeaderRow())
-            super.nextKeyValue();
+        if (counter == 0 && startOfFile && csvHelper.skipHeaderRow())
+            nextRecord();
         counter++;
 
-        return super.nextKeyValue();
+        return nextRecord();
+    }
+
+    /**
+     * Reads the next record. With multi-line records, this reads as many lines as it takes to close the quotes of the record.
+     *
+     * @return true if there was a record
+     * @throws IOException
+     *             if there is an issue reading the file
+     */
+    protected boolean nextRecord() throws IOException {
+        if (!super.nextKeyValue()) {
+            return false;
+        }
+        if (multiLineRecords && _tokenizer.isQuoted()) {
+            QuoteState quotes = _tokenizer.newQuoteState(false);
+            quotes.update(value.getBytes(), value.getLength());
+            while (quotes.inQuotes()) {
+                // a record that starts within the split is read to its end, even if that is past the end of the split
+                int newSize = in.readLine(continuation, maxLineLength, Integer.MAX_VALUE);
+                if (newSize == 0) {
+                    break;
+                }
+                pos += newSize;
+                if (!newLineIncluded) {
+                    value.append(NEWLINE, 0, NEWLINE.length);
+                    quotes.update(NEWLINE, NEWLINE.length);
+                }
+                value.append(continuation.getBytes(), 0, continuation.getLength());
+                quotes.update(continuation.getBytes(), continuation.getLength());
+            }
+        }
+        return true;
     }
 
     @Override
@@ -73,6 +136,7 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         setInputDate(System.currentTimeMillis());
         initializeRawFileName(genericSplit);
         initializeTotalSize(genericSplit);
+        initializeRecordStart(genericSplit, context.getConfiguration());
     }
 
     public void initializeRawFileName(final InputSplit genericSplit) {
@@ -90,6 +154,121 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         }
     }
 
+    /**
+     * A split that starts in the middle of a file has already skipped ahead to the start of the next line. With multi-line records that line may be within a
+     * quoted field, in which case this skips ahead to the start of the next record, which is where the reader of the previous split stops.
+     *
+     * @param genericSplit
+     *            the split
+     * @param conf
+     *            the configuration
+     * @throws IOException
+     *             if there is an issue reading the file
+     */
+    public void initializeRecordStart(final InputSplit genericSplit, final Configuration conf) throws IOException {
+        if (genericSplit instanceof FileSplit) {
+            final FileSplit split = (FileSplit) genericSplit;
+            startOfFile = (split.getStart() == 0);
+            if (!startOfFile && multiLineRecords && _tokenizer.isQuoted() && pos < end && end != Long.MAX_VALUE) {
+                final long recordStart = findRecordStart(split.getPath(), conf);
+                if (recordStart != pos) {
+                    in.close();
+                    final FSDataInputStream fileIn = split.getPath().getFileSystem(conf).open(split.getPath());
+                    fileIn.seek(recordStart);
+                    in = new LfLineReader(fileIn, conf);
+                    in.setNewLineIncluded(newLineIncluded);
+                    start = pos = recordStart;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the first record that starts at or after the current line. Whether the line is within a quoted field is decided by following the quotes from the
+     * line both ways, as if it starts a record and as if it is within a quoted field, until a quote is out of place one way but not the other. The scan stops
+     * early if the line has no quotes and holds at least as many fields as the header, as it then starts a record. If that is not decided by the end of the
+     * split (or within {@value #MIN_RECORD_START_LOOKAHEAD} bytes, whichever is further), the line starts a record if there were no quotes at all, otherwise
+     * the quotes are followed from the start of the file.
+     *
+     * @param file
+     *            the file being read
+     * @param conf
+     *            the configuration
+     * @return the position of the first record
+     * @throws IOException
+     *             if there is an issue reading the file
+     */
+    protected long findRecordStart(final Path file, final Configuration conf) throws IOException {
+        final FileSystem fs = file.getFileSystem(conf);
+        try (FSDataInputStream fileIn = fs.open(file)) {
+            fileIn.seek(pos);
+            final InputStream stream = new BufferedInputStream(fileIn);
+            final QuoteState outside = _tokenizer.newQuoteState(false);
+            final QuoteState inside = _tokenizer.newQuoteState(true);
+            final ByteArrayOutputStream firstLine = new ByteArrayOutputStream();
+            boolean sawQuote = false;
+            boolean sawLineBreak = false;
+            long insideRecordStart = -1;
+            final long lookahead = Math.max(end, pos + MIN_RECORD_START_LOOKAHEAD);
+            long position = pos;
+            int b;
+            while (position < lookahead && (b = stream.read()) != -1) {
+                position++;
+                sawQuote |= (b == '"');
+                if (!sawQuote && !sawLineBreak) {
+                    if (b == '\n') {
+                        sawLineBreak = true;
+                        if (_tokenizer.tokenize(firstLine.toByteArray(), firstLine.size()) >= csvHelper.getHeader().length) {
+                            return pos;
+                        }
+                    } else if (b != '\r') {
+                        firstLine.write(b);
+                    }
+                }
+                outside.update((byte) b);
+                if (inside.update((byte) b) && insideRecordStart < 0) {
+                    insideRecordStart = position;
+                }
+                if (outside.hasMisplacedQuote() != inside.hasMisplacedQuote()) {
+                    if (inside.hasMisplacedQuote()) {
+                        return pos;
+                    }
+                    return (insideRecordStart >= 0 ? insideRecordStart : nextRecordStart(stream, inside, position));
+                } else if (outside.hasMisplacedQuote()) {
+                    break;
+                }
+            }
+            if (!sawQuote) {
+                return pos;
+            }
+        }
+
+        log.info("Unable to tell whether {} is within a quoted field of {}, following the quotes from the start of the file", pos, file);
+        try (FSDataInputStream fileIn = fs.open(file)) {
+            final InputStream stream = new BufferedInputStream(fileIn);
+            final QuoteState quotes = _tokenizer.newQuoteState(false);
+            for (long position = 0; position < pos; position++) {
+                final int b = stream.read();
+                if (b == -1) {
+                    return position;
+                }
+                quotes.update((byte) b);
+            }
+            return (quotes.inQuotes() ? nextRecordStart(stream, quotes, pos) : pos);
+        }
+    }
+
+    private static long nextRecordStart(final InputStream stream, final QuoteState quotes, long position) throws IOException {
+        int b;
+        while ((b = stream.read()) != -1) {
+            position++;
+            if (quotes.update((byte) b)) {
+                break;
+            }
+        }
+        return position;
+    }
+
     /**
      * Gets the Event and this RecordReader ready for reading.
      *
@@ -101,10 +280,11 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         super.initializeEvent(conf);
         setCsvHelper((CSVHelper) helper);
         initializeTokenizer();
+        multiLineRecords = csvHelper.multiLineRecords();
     }
 
     public void initializeTokenizer() {
-        _tokenizer = createTokenizer();
+        _tokenizer = CSVFieldTokenizer.forSeparator(csvHelper.getSeparator());
     }
 
     /**
@@ -130,10 +310,9 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
 
         processedSize += value.getLength();
 
-        final String rawEventRecordStr = value.toString();
-        _tokenizer.reset(rawEventRecordStr);
-
-        final String[] rawEventFields = _tokenizer.getTokenArray();
+        // only the fields that are processed are turned into Strings
+        final String[] legacyFields = (legacyTokenizer == null ? null : legacyTokenizer.reset(value.toString()).getTokenArray());
+        final int rawEventFields = (legacyFields == null ? _tokenizer.tokenize(value.getBytes(), value.getLength()) : legacyFields.length);
         final String[] header = csvHelper.getHeader();
 
         // If the event date field name is not specified in the configuration, then set the event date to the file modification time.
@@ -141,12 +320,12 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
             event.setDate(fileModificationTime);
 
         // We still try to process the event record.
-        final int fields = Math.min(rawEventFields.length, header.length);
+        final int fields = Math.min(rawEventFields, header.length);
         String field, fieldName;
         int i;
 
         for (i = 0; i < fields; i++) {
-            field = StringEscapeUtils.unescapeCsv(rawEventFields[i]);
+            field = StringEscapeUtils.unescapeCsv(getField(legacyFields, i));
             fieldName = header[i];
 
             field = csvHelper.clean(fieldName, field);
@@ -155,9 +334,9 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         }
 
         // Check to see if we have data beyond the header specification that should be processed. This is the case for the CSV logs
-        if (csvHelper.processExtraFields() && rawEventFields.length > header.length) {
-            while (i < rawEventFields.length) {
-                processExtraField(rawEventFields[i]);
+        if (csvHelper.processExtraFields() && rawEventFields > header.length) {
+            while (i < rawEventFields) {
+                processExtraField(getField(legacyFields, i));
                 i++;
             }
         }
@@ -165,7 +344,7 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         // decorate with additional data (used by overriding classes)
         decorateEvent();
 
-        event.setRawData(rawEventRecordStr.getBytes());
+        event.setRawData(Arrays.copyOf(value.getBytes(), value.getLength()));
 
         // Check to see if we need to override the UID. The use case for this is that some of the hashes are "enrichment" and the same
         // values will be loaded over and over again. By default, the UID is calculated on the raw byte[]
@@ -178,17 +357,21 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
 
         enforcePolicy(event);
 
-        if (header.length > rawEventFields.length) {
+        if (header.length > rawEventFields) {
             event.addError(RawDataErrorNames.NOT_ENOUGH_FIELDS);
-            log.error("More fields in header than in data. Header fields: {}, data fields: {}", header.length, rawEventFields.length);
-        } else if ((!csvHelper.processExtraFields()) && (header.length < rawEventFields.length)) {
+            log.error("More fields in header than in data. Header fields: {}, data fields: {}", header.length, rawEventFields);
+        } else if ((!csvHelper.processExtraFields()) && (header.length < rawEventFields)) {
             event.addError(RawDataErrorNames.TOO_MANY_FIELDS);
-            log.error("More fields in data than in header. Header fields: {}, data fields: {}", header.length, rawEventFields.length);
+            log.error("More fields in data than in header. Header fields: {}, data fields: {}", header.length, rawEventFields);
         }
 
         return event;
     }
 
+    private String getField(final String[] legacyFields, final int index) {
+        return (legacyFields == null ? _tokenizer.getField(index) : legacyFields[index]);
+    }
+
     /** Decorate the event with additional info post field processing but prior to event validation */
     protected void decorateEvent() { /* default is noop */}
 
@@ -202,29 +385,6 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         }
     }
 
-    /**
-     * Creates a new StrTokenizer based on the configuration.
-     *
-     * @return a string tokenizer
-     */
-    private StrTokenizer createTokenizer() {
-        final StrTokenizer tokenizer;
-
-        if (csvHelper.getSeparator().equals(",")) {
-            tokenizer = StrTokenizer.getCSVInstance();
-        } else if (csvHelper.getSeparator().equals("\\t")) {
-            tokenizer = StrTokenizer.getTSVInstance();
-        } else {
-            tokenizer = new StrTokenizer();
-            tokenizer.setDelimiterString(csvHelper.getSeparator());
-        }
-
-        tokenizer.setIgnoreEmptyTokens(false);
-        tokenizer.setEmptyTokenAsNull(true);
-
-        return tokenizer;
-    }
-
     /**
      * Used to process extra fields. The PROCESS_EXTRA_FIELDS configuration parameter must be set to enable this processing.
      *
@@ -294,14 +454,58 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         return Math.min(1f, (float) processedSize / (float) totalSize);
     }
 
-    public StrTokenizer getTokenizer() {
+    public CSVFieldTokenizer getFieldTokenizer() {
         return _tokenizer;
     }
 
-    public void setTokenizer(StrTokenizer _tokenizer) {
+    public void setFieldTokenizer(CSVFieldTokenizer _tokenizer) {
         this._tokenizer = _tokenizer;
     }
 
+    /**
+     * Gets a string tokenizer for the configured separator. Records are split with it, rather than with the faster {@link CSVFieldTokenizer}, from then on.
+     *
+     * @return the string tokenizer
+     * @deprecated use {@link #getFieldTokenizer()}
+     */
+    @Deprecated
+    public StrTokenizer getTokenizer() {
+        if (legacyTokenizer == null) {
+            legacyTokenizer = createLegacyTokenizer();
+        }
+        return legacyTokenizer;
+    }
+
+    /**
+     * Splits records with the given string tokenizer, rather than with the faster {@link CSVFieldTokenizer}.
+     *
+     * @param _tokenizer
+     *            the string tokenizer
+     * @deprecated use {@link #setFieldTokenizer(CSVFieldTokenizer)}
+     */
+    @Deprecated
+    public void setTokenizer(StrTokenizer _tokenizer) {
+        this.legacyTokenizer = _tokenizer;
+    }
+
+    private StrTokenizer createLegacyTokenizer() {
+        final StrTokenizer tokenizer;
+
+        if (csvHelper.getSeparator().equals(",")) {
+            tokenizer = StrTokenizer.getCSVInstance();
+        } else if (csvHelper.getSeparator().equals("\\t")) {
+            tokenizer = StrTokenizer.getTSVInstance();
+        } else {
+            tokenizer = new StrTokenizer();
+            tokenizer.setDelimiterString(csvHelper.getSeparator());
+        }
+
+        tokenizer.setIgnoreEmptyTokens(false);
+        tokenizer.setEmptyTokenAsNull(true);
+
+        return tokenizer;
+    }
+
     public CSVHelper getCsvHelper() {
         return csvHelper;
     }
@@ -318,6 +522,14 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         this.totalSize = totalSize;
     }
 
+    public boolean isMultiLineRecords() {
+        return multiLineRecords;
+    }
+
+    public void setMultiLineRecords(boolean multiLineRecords) {
+        this.multiLineRecords = multiLineRecords;
+    }
+
     public long getCounter() {
         return counter;
     }
@@ -0,0 +1,84 @@
+package datawave.ingest.csv.mr.input;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.lang.text.StrTokenizer;
+import org.junit.Test;
+
+public class CSVFieldTokenizerTest {
+
+    private static final String[] RECORDS = {"", "a", "a,b,c", "a,,c,", ",", " a , b ,\"x, y\" ,\"he said \"\"hi\"\"\"", "\"a\"b\"c,d\"e", "ab\"c,d",
+            "\"unterminated,x", "\"multi\nline\",z", "a\t\tb \t\"c\td\"", "a|| b ||\"c\"||", "été,\"naïve, café\""};
+
+    @Test
+    public void testCsvMatchesStrTokenizer() {
+        assertMatches(",", StrTokenizer.getCSVInstance());
+    }
+
+    @Test
+    public void testTsvMatchesStrTokenizer() {
+        assertMatches("\\t", StrTokenizer.getTSVInstance());
+    }
+
+    @Test
+    public void testSeparatorMatchesStrTokenizer() {
+        StrTokenizer tokenizer = new StrTokenizer();
+        tokenizer.setDelimiterString("||");
+        assertMatches("||", tokenizer);
+    }
+
+    @Test
+    public void testIsComplete() {
+        CSVFieldTokenizer tokenizer = CSVFieldTokenizer.forSeparator(",");
+        assertTrue(isComplete(tokenizer, "a,\"b\",c"));
+        assertTrue(isComplete(tokenizer, "a,\"b\"\"\""));
+        assertTrue(isComplete(tokenizer, "a,b\"c"));
+        assertFalse(isComplete(tokenizer, "a,\"b"));
+        assertFalse(isComplete(tokenizer, "a,\"b\"\""));
+        assertFalse(isComplete(tokenizer, "a,\"b\nc\",\"d"));
+
+        // without quoting every line is a record
+        assertTrue(isComplete(CSVFieldTokenizer.forSeparator("|"), "a|\"b"));
+    }
+
+    @Test
+    public void testMisplacedQuotes() {
+        CSVFieldTokenizer tokenizer = CSVFieldTokenizer.forSeparator(",");
+        assertFalse(misplaced(tokenizer, false, "a,\"b, c\",\"\"\"d\"\"\"\n"));
+        assertTrue(misplaced(tokenizer, false, "a,b\"c\n"));
+        assertTrue(misplaced(tokenizer, false, "\"a\"b\n"));
+
+        // the end of a quoted field that started on a previous line
+        assertFalse(misplaced(tokenizer, true, "end of b\",c\n"));
+        assertTrue(misplaced(tokenizer, false, "end of b\",c\n"));
+    }
+
+    private static void assertMatches(String separator, StrTokenizer expected) {
+        CSVFieldTokenizer tokenizer = CSVFieldTokenizer.forSeparator(separator);
+        expected.setIgnoreEmptyTokens(false);
+        expected.setEmptyTokenAsNull(true);
+        for (String record : RECORDS) {
+            byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+            String[] fields = expected.reset(record).getTokenArray();
+            assertEquals(record, fields.length, tokenizer.tokenize(bytes, bytes.length));
+            assertArrayEquals(record, fields, tokenizer.getFields());
+        }
+    }
+
+    private static boolean isComplete(CSVFieldTokenizer tokenizer, String record) {
+        byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+        return tokenizer.isComplete(bytes, bytes.length);
+    }
+
+    private static boolean misplaced(CSVFieldTokenizer tokenizer, boolean inQuotes, String records) {
+        CSVFieldTokenizer.QuoteState state = tokenizer.newQuoteState(inQuotes);
+        byte[] bytes = records.getBytes(StandardCharsets.UTF_8);
+        state.update(bytes, bytes.length);
+        return state.hasMisplacedQuote();
+    }
+}
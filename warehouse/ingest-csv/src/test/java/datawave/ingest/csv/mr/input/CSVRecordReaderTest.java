@@ -0,0 +1,139 @@
+package datawave.ingest.csv.mr.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import datawave.ingest.data.RawRecordContainer;
+import datawave.ingest.data.TypeRegistry;
+import datawave.ingest.data.config.CSVHelper;
+
+public class CSVRecordReaderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Configuration conf;
+    private File file;
+
+    @Before
+    public void setup() throws IOException {
+        conf = new Configuration();
+        conf.addResource(ClassLoader.getSystemResource("config/ingest/all-config.xml"));
+        conf.addResource(ClassLoader.getSystemResource("config/ingest/csv-ingest-config.xml"));
+        conf.setBoolean("mycsv" + CSVHelper.MULTI_LINE_RECORDS, true);
+        TypeRegistry.reset();
+        TypeRegistry.getInstance(conf);
+
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            data.append("2016-04-26 03:00:00,trrn.n2016117aamy.").append(String.format("%010d", i));
+            data.append(",ENGLISH,3173,698,MIME,md5,sha1,sha256,2016-04-26T01:31:53Z,PUBLIC");
+            switch (i % 4) {
+                case 0:
+                    data.append(",\"Summary=first line\nsecond line, with \"\"quotes\"\"\n\nlast line\"");
+                    break;
+                case 1:
+                    data.append(",\"Summary=quoted, on one line\"");
+                    break;
+                case 2:
+                    data.append(",\"Summary=\"\"\n,\"\"\"");
+                    break;
+                default:
+                    data.append(",Summary=unquoted");
+            }
+            data.append(",FOO_FIELD=MYFOO\n");
+        }
+        file = temporaryFolder.newFile("multiline.csv");
+        Files.write(file.toPath(), data.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testMultiLineRecords() throws IOException {
+        List<String> records = read(0, file.length());
+        assertEquals(50, records.size());
+        assertEquals(
+                        "2016-04-26 03:00:00,trrn.n2016117aamy.0000000000,ENGLISH,3173,698,MIME,md5,sha1,sha256,2016-04-26T01:31:53Z,PUBLIC,"
+                                        + "\"Summary=first line\nsecond line, with \"\"quotes\"\"\n\nlast line\",FOO_FIELD=MYFOO",
+                        records.get(0));
+    }
+
+    @Test
+    public void testSplitsReadEveryRecordOnce() throws IOException {
+        List<String> expected = read(0, file.length());
+        for (long splitSize : new long[] {7, 64, 250, 1000}) {
+            List<String> records = new ArrayList<>();
+            for (long start = 0; start < file.length(); start += splitSize) {
+                records.addAll(read(start, Math.min(splitSize, file.length() - start)));
+            }
+            assertEquals("split size " + splitSize, expected, records);
+        }
+    }
+
+    @Test
+    public void testDeprecatedStrTokenizerSplitsTheSame() throws IOException {
+        List<String> expected = describe(false);
+        assertEquals(50, expected.size());
+        assertEquals(expected, describe(true));
+    }
+
+    @Test
+    public void testSplittable() {
+        CSVFileInputFormat format = new CSVFileInputFormat();
+        Path path = new Path(file.toURI());
+        assertFalse(format.isSplitable(new TaskAttemptContextImpl(conf, new TaskAttemptID()), path));
+
+        conf.setBoolean(CSVFileInputFormat.SPLITTABLE, true);
+        TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+        assertTrue(format.isSplitable(context, path));
+        assertFalse(format.isSplitable(context, path.suffix(".gz")));
+    }
+
+    private List<String> read(long start, long length) throws IOException {
+        List<String> records = new ArrayList<>();
+        TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+        try (CSVRecordReader reader = new CSVRecordReader()) {
+            reader.initialize(new FileSplit(new Path(file.toURI()), start, length, null), context);
+            while (reader.nextKeyValue()) {
+                records.add(new String(reader.getEvent().getRawData(), StandardCharsets.UTF_8));
+            }
+        }
+        return records;
+    }
+
+    @SuppressWarnings("deprecation")
+    private List<String> describe(boolean legacyTokenizer) throws IOException {
+        List<String> events = new ArrayList<>();
+        TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+        try (CSVRecordReader reader = new CSVRecordReader()) {
+            reader.initialize(new FileSplit(new Path(file.toURI()), 0, file.length(), null), context);
+            if (legacyTokenizer) {
+                assertNotNull(reader.getTokenizer());
+            }
+            while (reader.nextKeyValue()) {
+                RawRecordContainer event = reader.getEvent();
+                events.add(event.getId() + " " + event.getErrors());
+            }
+        }
+        return events;
+    }
+}
@@ -22,17 +22,20 @@ public class JsonDataTypeHelper extends CSVHelper {
 
         String COLUMN_VISIBILITY_FIELD = ".data.category.marking.visibility.field";
         String FLATTENER_MODE = ".data.json.flattener.mode";
+        String STREAMING = ".data.json.streaming";
 
     }
 
     protected String columnVisibilityField = null;
     protected FlattenMode jsonObjectFlattenMode = FlattenMode.NORMAL;
+    protected boolean streaming = false;
 
     @Override
     public void setup(Configuration config) throws IllegalArgumentException {
         super.setup(config);
         this.setJsonObjectFlattenModeByName(config.get(this.getType().typeName() + Properties.FLATTENER_MODE, FlattenMode.NORMAL.name()));
         this.setColumnVisibilityField(config.get(this.getType().typeName() + Properties.COLUMN_VISIBILITY_FIELD));
+        this.setStreaming(config.getBoolean(this.getType().typeName() + Properties.STREAMING, false));
     }
 
     public String getColumnVisibilityField() {
@@ -55,6 +58,19 @@ public class JsonDataTypeHelper extends CSVHelper {
         this.jsonObjectFlattenMode = mode;
     }
 
+    /**
+     * Whether json objects should be flattened as they are parsed, rather than parsed into a tree and then flattened
+     *
+     * @return true if json objects should be flattened as they are parsed
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     public JsonObjectFlattener newFlattener() {
 
         // Set flattener's whitelist and blacklist according to current state of the helper
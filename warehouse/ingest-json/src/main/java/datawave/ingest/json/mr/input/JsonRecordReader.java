@@ -3,6 +3,7 @@ package datawave.ingest.json.mr.input;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringWriter;
 import java.net.URI;
 import java.util.Iterator;
 import java.util.Map;
@@ -28,6 +29,7 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 import datawave.data.hash.UID;
 import datawave.ingest.data.RawRecordContainer;
@@ -52,6 +54,11 @@ import datawave.ingest.json.util.JsonObjectFlattener;
  *
  * <p>
  * For custom parsing requirements, extend this class and override the 'parseCurrentValue' method to suit your needs.
+ *
+ * <p>
+ * If the configured {@link JsonDataTypeHelper} enables {@link JsonDataTypeHelper#isStreaming() streaming}, each json object is flattened as it is parsed, and
+ * its raw json is written out at the same time, rather than parsing it into a tree first. In that case the {@link #parseCurrentValue(JsonReader, JsonWriter)}
+ * method is used instead.
  */
 public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
 
@@ -73,6 +80,9 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
     protected Iterator<JsonElement> jsonIterator;
     protected JsonReader reader;
     protected JsonElement currentJsonObj;
+    protected String currentJson;
+    protected boolean streaming = false;
+    protected boolean inArray = false;
     protected boolean parseHeaderOnly = true;
     protected JsonDataTypeHelper jsonHelper = null;
     protected JsonObjectFlattener jsonFlattener = null;
@@ -91,13 +101,24 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
 
     @Override
     public BytesWritable getCurrentValue() {
-        if (currentJsonObj != null) {
-            return new BytesWritable(currentJsonObj.toString().getBytes());
+        String json = getCurrentJson();
+        if (json != null) {
+            return new BytesWritable(json.getBytes());
         } else {
             return null;
         }
     }
 
+    /**
+     * @return the raw json of the current object, or null if there is none
+     */
+    protected String getCurrentJson() {
+        if (currentJsonObj != null) {
+            return currentJsonObj.toString();
+        }
+        return currentJson;
+    }
+
     public Multimap<String,String> getCurrentFields() {
         return currentValue;
     }
@@ -132,18 +153,20 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
 
         String normURI = fileURI.getScheme() + "://" + fileURI.getPath();
 
+        jsonHelper = (JsonDataTypeHelper) createHelper(context.getConfiguration());
+        this.streaming = jsonHelper.isStreaming();
+
         setupReader(is);
 
         if (logger.isInfoEnabled()) {
             logger.info("Reading Json records from " + normURI + " via " + is.getClass().getName());
         }
 
-        jsonHelper = (JsonDataTypeHelper) createHelper(context.getConfiguration());
         this.parseHeaderOnly = !jsonHelper.processExtraFields();
         jsonFlattener = jsonHelper.newFlattener();
 
         if (logger.isInfoEnabled()) {
-            logger.info("Json flattener mode: " + jsonFlattener.getFlattenMode().name());
+            logger.info("Json flattener mode: " + jsonFlattener.getFlattenMode().name() + (streaming ? " (streaming)" : ""));
         }
     }
 
@@ -151,7 +174,9 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
         countingInputStream = new CountingInputStream(is);
         reader = new JsonReader(new InputStreamReader(countingInputStream));
         reader.setLenient(true);
-        setupIterator(reader);
+        if (!streaming) {
+            setupIterator(reader);
+        }
     }
 
     protected void setupIterator(JsonReader reader) {
@@ -171,6 +196,20 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
         jsonFlattener.flatten(jsonObject, currentValue);
     }
 
+    /**
+     * Flattens the next json object from the reader as it is parsed, used instead of {@link #parseCurrentValue(JsonObject)} when streaming
+     *
+     * @param reader
+     *            reader positioned at the start of a json object
+     * @param echo
+     *            writer to which the raw json of the object must be written
+     * @throws IOException
+     *             if the json cannot be read
+     */
+    protected void parseCurrentValue(JsonReader reader, JsonWriter echo) throws IOException {
+        jsonFlattener.flatten(reader, currentValue, echo);
+    }
+
     @Override
     public boolean nextKeyValue() throws IOException {
 
@@ -179,6 +218,10 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
         currentValue.clear();
         counter++;
 
+        if (streaming) {
+            return nextStreamingKeyValue();
+        }
+
         if (!jsonIterator.hasNext()) {
             /*
              * Note that for streaming purposes we support files containing multiple distinct json objects concatenated together, where each object will
@@ -209,6 +252,46 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
         return false;
     }
 
+    /**
+     * Positions the reader at the next json object, stepping into and out of arrays of objects as needed, and flattens it
+     *
+     * @return true if there was another object
+     * @throws IOException
+     *             if the json cannot be read
+     */
+    protected boolean nextStreamingKeyValue() throws IOException {
+        while (true) {
+            if (inArray) {
+                if (reader.hasNext()) {
+                    break;
+                }
+                reader.endArray();
+                inArray = false;
+            }
+            // as above, files may contain multiple distinct json objects, or arrays of objects, concatenated together
+            JsonToken token = reader.peek();
+            if (token == JsonToken.END_DOCUMENT) {
+                return false;
+            } else if (token == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                inArray = true;
+            } else {
+                break;
+            }
+        }
+
+        StringWriter json = new StringWriter();
+        JsonWriter echo = new JsonWriter(json);
+        echo.setLenient(true);
+        parseCurrentValue(reader, echo);
+        echo.flush();
+        pos = countingInputStream.getByteCount();
+
+        currentJsonObj = null;
+        currentJson = json.toString();
+        return true;
+    }
+
     @Override
     public RawRecordContainer getEvent() {
         super.getEvent();
@@ -227,7 +310,7 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
 
         decorateEvent();
 
-        event.setRawData(currentJsonObj.toString().getBytes());
+        event.setRawData(getCurrentJson().getBytes());
 
         if (Long.MIN_VALUE == event.getDate()) {
             event.setDate(System.currentTimeMillis());
@@ -1,9 +1,15 @@
 package datawave.ingest.json.util;
 
+import java.io.IOException;
 import java.util.Set;
 
 import com.google.common.collect.Multimap;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * <p>
@@ -97,6 +103,33 @@ public interface JsonObjectFlattener {
      */
     void flatten(JsonObject object, Multimap<String,String> map) throws IllegalStateException, NullPointerException;
 
+    /**
+     * <p>
+     * Flattens the next json object from the specified reader. Implementations may flatten the object as it is read, without building a {@link JsonObject}
+     * first. By default, the object is read into a {@link JsonObject} and flattened via {@link #flatten(JsonObject, Multimap)}
+     *
+     * @param reader
+     *            {@link JsonReader} positioned at the start of a json object
+     * @param map
+     *            {@link com.google.common.collect.Multimap} instance to receive the flattened keys and associated values
+     * @param echo
+     *            (optional) {@link JsonWriter} to which the json object is written as it is read, in order to retain the raw json
+     * @throws IOException
+     *             if the json cannot be read or written
+     * @throws IllegalStateException
+     *             if the reader is not positioned at a json object, or if {@link FlattenMode#GROUPED} is used and {@link Builder#pathDelimiter} is found to
+     *             exist already within a json property name
+     * @throws NullPointerException
+     *             if map is null
+     */
+    default void flatten(JsonReader reader, Multimap<String,String> map, JsonWriter echo) throws IOException, IllegalStateException, NullPointerException {
+        JsonElement element = new JsonParser().parse(reader);
+        if (null != echo) {
+            new Gson().toJson(element, echo);
+        }
+        flatten(element.getAsJsonObject(), map);
+    }
+
     /**
      * <p>
      * Allows clients to specify custom normalization behavior per their needs to affect the final presentation of flattened keys and their values to the
@@ -1,5 +1,6 @@
 package datawave.ingest.json.util;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -13,11 +14,18 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * <p>
  * This flattener implementation should be thread-safe, as no changes to internal state are permitted post-construction. Defaults to
  * {@link JsonObjectFlattener.FlattenMode#NORMAL}
+ *
+ * <p>
+ * Json read from a {@link JsonReader} is flattened as it is parsed, producing the same keys and values as flattening the equivalent {@link JsonObject}, except
+ * that every occurrence of a duplicated property name is flattened, where a {@link JsonObject} would retain only the last
  */
 public class JsonObjectFlattenerImpl implements JsonObjectFlattener {
 
@@ -100,6 +108,19 @@ public class JsonObjectFlattenerImpl implements JsonObjectFlattener {
         addKeysToMap("", object, map, occurrenceCounts);
     }
 
+    @Override
+    public void flatten(JsonReader reader, Multimap<String,String> map, JsonWriter echo) throws IOException, IllegalStateException, NullPointerException {
+        Preconditions.checkNotNull(map, "'map' argument cannot be null");
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            throw new IllegalStateException("Expected a json object but found " + reader.peek() + " at " + reader.getPath());
+        }
+        Map<String,Integer> occurrenceCounts = null;
+        if (this.flattenMode == FlattenMode.GROUPED || this.flattenMode == FlattenMode.GROUPED_AND_NORMAL) {
+            occurrenceCounts = new HashMap<>();
+        }
+        addKeysToMap("", reader, echo, map, occurrenceCounts);
+    }
+
     @Override
     public FlattenMode getFlattenMode() {
         return this.flattenMode;
@@ -160,6 +181,172 @@ public class JsonObjectFlattenerImpl implements JsonObjectFlattener {
         }
     }
 
+    /**
+     * Streaming equivalent of {@link #addKeysToMap(String, JsonElement, Multimap, Map)}, consuming the next json value from the reader
+     *
+     * @param currentPath
+     *            path to the current value
+     * @param reader
+     *            reader positioned at the current value
+     * @param echo
+     *            (optional) writer to copy the consumed json to
+     * @param map
+     *            map to receive the flattened keys and values
+     * @param occurrenceCounts
+     *            occurrence counts, if a GROUPED mode is used
+     * @throws IOException
+     *             if the json cannot be read or written
+     */
+    protected void addKeysToMap(String currentPath, JsonReader reader, JsonWriter echo, Multimap<String,String> map, Map<String,Integer> occurrenceCounts)
+                    throws IOException {
+
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            // Don't add nulls
+            reader.nextNull();
+            if (null != echo) {
+                echo.nullValue();
+            }
+
+        } else if (token == JsonToken.BEGIN_OBJECT) {
+
+            switch (this.flattenMode) {
+                case SIMPLE:
+                    if (!currentPath.isEmpty()) {
+                        // No recursion in simple mode
+                        copyValue(reader, echo);
+                        return;
+                    }
+                    break;
+                case GROUPED:
+                case GROUPED_AND_NORMAL:
+                    if (!currentPath.isEmpty()) {
+                        // Append occurrence delimiter + ordinal suffix
+                        currentPath = currentPath + this.occurrenceDelimiter + incrementCount(currentPath, occurrenceCounts);
+                    }
+                    break;
+            }
+
+            String pathPrefix = currentPath.isEmpty() ? currentPath : currentPath + this.pathDelimiter;
+
+            reader.beginObject();
+            if (null != echo) {
+                echo.beginObject();
+            }
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (null != echo) {
+                    echo.name(name);
+                }
+                addKeysToMap(pathPrefix + this.nameNormalizer.normalizeElementName(name, currentPath), reader, echo, map, occurrenceCounts);
+            }
+            reader.endObject();
+            if (null != echo) {
+                echo.endObject();
+            }
+        } else if (token == JsonToken.BEGIN_ARRAY) {
+
+            reader.beginArray();
+            if (null != echo) {
+                echo.beginArray();
+            }
+            for (int i = 0; reader.hasNext(); i++) {
+
+                if (isPrimitive(reader.peek())) {
+                    mapPut(currentPath, nextPrimitive(reader, echo), map, occurrenceCounts);
+                } else {
+
+                    if (this.addArrayIndexToFieldName) {
+                        addKeysToMap(currentPath + this.pathDelimiter + i, reader, echo, map, occurrenceCounts);
+                    } else {
+                        addKeysToMap(currentPath, reader, echo, map, occurrenceCounts);
+                    }
+                }
+            }
+            reader.endArray();
+            if (null != echo) {
+                echo.endArray();
+            }
+        } else if (isPrimitive(token)) {
+
+            mapPut(currentPath, nextPrimitive(reader, echo), map, occurrenceCounts);
+        } else {
+            throw new IllegalStateException("Unexpected " + token + " at " + reader.getPath());
+        }
+    }
+
+    private static boolean isPrimitive(JsonToken token) {
+        return token == JsonToken.STRING || token == JsonToken.NUMBER || token == JsonToken.BOOLEAN;
+    }
+
+    private static String nextPrimitive(JsonReader reader, JsonWriter echo) throws IOException {
+        switch (reader.peek()) {
+            case BOOLEAN:
+                boolean bool = reader.nextBoolean();
+                if (null != echo) {
+                    echo.value(bool);
+                }
+                return Boolean.toString(bool);
+            case NUMBER:
+                // the number as written, as a JsonPrimitive would return it
+                String number = reader.nextString();
+                if (null != echo) {
+                    echo.jsonValue(number);
+                }
+                return number;
+            default:
+                String string = reader.nextString();
+                if (null != echo) {
+                    echo.value(string);
+                }
+                return string;
+        }
+    }
+
+    /**
+     * Consumes the next json value without flattening it, copying it to echo if needed
+     *
+     * @param reader
+     *            reader positioned at the value
+     * @param echo
+     *            (optional) writer to copy the value to
+     * @throws IOException
+     *             if the json cannot be read or written
+     */
+    private static void copyValue(JsonReader reader, JsonWriter echo) throws IOException {
+        if (null == echo) {
+            reader.skipValue();
+            return;
+        }
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                echo.beginObject();
+                while (reader.hasNext()) {
+                    echo.name(reader.nextName());
+                    copyValue(reader, echo);
+                }
+                reader.endObject();
+                echo.endObject();
+                break;
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                echo.beginArray();
+                while (reader.hasNext()) {
+                    copyValue(reader, echo);
+                }
+                reader.endArray();
+                echo.endArray();
+                break;
+            case NULL:
+                reader.nextNull();
+                echo.nullValue();
+                break;
+            default:
+                nextPrimitive(reader, echo);
+        }
+    }
+
     protected String defaultNormalizeJsonElementName(String name) {
         switch (this.flattenMode) {
             case GROUPED:
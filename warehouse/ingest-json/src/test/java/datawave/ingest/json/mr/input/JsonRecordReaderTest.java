@@ -20,6 +20,10 @@ import datawave.ingest.json.util.JsonObjectFlattener.FlattenMode;
 public class JsonRecordReaderTest {
 
     protected JsonRecordReader init(boolean parseHeaderOnly, FlattenMode mode) throws Exception {
+        return init(parseHeaderOnly, mode, false);
+    }
+
+    protected JsonRecordReader init(boolean parseHeaderOnly, FlattenMode mode, boolean streaming) throws Exception {
 
         Configuration conf = null;
         TaskAttemptContext ctx = null;
@@ -32,6 +36,7 @@ public class JsonRecordReaderTest {
 
         conf.set("myjson.data.json.flattener.mode", mode.name());
         conf.set("myjson.data.process.extra.fields", String.valueOf(!parseHeaderOnly));
+        conf.set("myjson.data.json.streaming", String.valueOf(streaming));
 
         URL data = JsonRecordReaderTest.class.getResource("/input/my.json");
         Assert.assertNotNull(data);
@@ -55,6 +60,29 @@ public class JsonRecordReaderTest {
         reader.close();
     }
 
+    @Test
+    public void testStreamingMatchesTree() throws Exception {
+        for (FlattenMode mode : FlattenMode.values()) {
+            JsonRecordReader expected = init(false, mode, false);
+            expected.setInputDate(0L);
+            JsonRecordReader actual = init(false, mode, true);
+            actual.setInputDate(0L);
+
+            while (expected.nextKeyValue()) {
+                Assert.assertTrue(actual.nextKeyValue());
+                RawRecordContainer expectedEvent = expected.getEvent();
+                RawRecordContainer actualEvent = actual.getEvent();
+                Assert.assertEquals(mode.name(), expected.getCurrentFields(), actual.getCurrentFields());
+                Assert.assertEquals(mode.name(), new String(expectedEvent.getRawData()), new String(actualEvent.getRawData()));
+                Assert.assertEquals(mode.name(), expectedEvent.getId(), actualEvent.getId());
+            }
+            Assert.assertFalse(actual.nextKeyValue());
+
+            expected.close();
+            actual.close();
+        }
+    }
+
     @Test
     public void testOneRecordAllFieldsNORMAL() throws Exception {
         JsonRecordReader reader = init(false, FlattenMode.NORMAL);
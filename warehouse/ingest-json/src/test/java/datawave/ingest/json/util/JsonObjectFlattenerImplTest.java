@@ -1,6 +1,8 @@
 package datawave.ingest.json.util;
 
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Files;
@@ -13,11 +15,14 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.TreeMultimap;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 import datawave.ingest.json.util.JsonObjectFlattener.FlattenMode;
 
@@ -163,6 +168,35 @@ public class JsonObjectFlattenerImplTest {
         Assert.assertTrue(fieldMap.containsKey("rootobject_sTrInG1"));
     }
 
+    @Test
+    public void testStreamingMatchesTree() throws Exception {
+        for (FlattenMode mode : FlattenMode.values()) {
+            for (boolean addArrayIndex : new boolean[] {true, false}) {
+                JsonObjectFlattener flattener = new JsonObjectFlattenerImpl.Builder().flattenMode(mode).addArrayIndexToFieldName(addArrayIndex)
+                                .mapKeyValueNormalizer(noOpNormalizer).build();
+
+                JsonObject jsonObject = new JsonParser().parse(json).getAsJsonObject();
+                Multimap<String,String> expected = flattener.flatten(jsonObject);
+
+                Multimap<String,String> actual = HashMultimap.create();
+                StringWriter raw = new StringWriter();
+                JsonWriter echo = new JsonWriter(raw);
+                echo.setLenient(true);
+                flattener.flatten(new JsonReader(new StringReader(json)), actual, echo);
+                echo.flush();
+
+                Assert.assertEquals(mode + " " + addArrayIndex, expected, actual);
+                Assert.assertEquals(mode + " " + addArrayIndex, jsonObject.toString(), raw.toString());
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStreamingRequiresObject() throws Exception {
+        JsonObjectFlattener flattener = new JsonObjectFlattenerImpl.Builder().build();
+        flattener.flatten(new JsonReader(new StringReader("[1, 2]")), HashMultimap.create(), null);
+    }
+
     @Test
     public void testFlattenModeSIMPLE() throws Exception {
         JsonObjectFlattener flattener = new JsonObjectFlattenerImpl.Builder().flattenMode(FlattenMode.SIMPLE).mapKeyValueNormalizer(noOpNormalizer).build();
@@ -0,0 +1,87 @@
+package datawave.ingest.json.benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import datawave.ingest.json.util.JsonObjectFlattener;
+import datawave.ingest.json.util.JsonObjectFlattener.FlattenMode;
+import datawave.ingest.json.util.JsonObjectFlattenerImpl;
+
+/**
+ * Compares the two ways the {@code JsonRecordReader} can flatten a json record and retain its raw json: parsing it into a tree, flattening the tree and
+ * writing the tree back out, or flattening it as it is parsed while writing it back out at the same time. Records have a configurable number of nested objects,
+ * each with a handful of fields and an array.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class JsonFlattenerBenchmark {
+
+    @Param({"10", "10000"})
+    public int objects;
+
+    @Param({"NORMAL", "GROUPED"})
+    public FlattenMode mode;
+
+    private String json;
+    private JsonObjectFlattener flattener;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        flattener = new JsonObjectFlattenerImpl.Builder().flattenMode(mode).addArrayIndexToFieldName(false).build();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"id\":\"ID0001\",\"date\":\"2017-01-01T01:00:00Z\",\"objects\":[");
+        for (int i = 0; i < objects; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"name\":\"name ").append(i).append("\",\"number\":").append(i).append(",\"flag\":").append(i % 2 == 0);
+            sb.append(",\"text\":\"some longer text value for object ").append(i).append("\",\"tags\":[\"a").append(i).append("\",\"b").append(i)
+                            .append("\"]}");
+        }
+        sb.append("]}");
+        json = sb.toString();
+    }
+
+    @Benchmark
+    public Multimap<String,String> tree() {
+        JsonElement element = new JsonParser().parse(new JsonReader(new StringReader(json)));
+        Multimap<String,String> fields = HashMultimap.create();
+        flattener.flatten(element.getAsJsonObject(), fields);
+        // the raw json retained for the event
+        element.toString();
+        return fields;
+    }
+
+    @Benchmark
+    public Multimap<String,String> streaming() throws IOException {
+        Multimap<String,String> fields = HashMultimap.create();
+        StringWriter raw = new StringWriter();
+        JsonWriter echo = new JsonWriter(raw);
+        echo.setLenient(true);
+        flattener.flatten(new JsonReader(new StringReader(json)), fields, echo);
+        echo.flush();
+        raw.toString();
+        return fields;
+    }
+}
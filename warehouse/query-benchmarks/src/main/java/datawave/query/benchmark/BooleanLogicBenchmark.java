@@ -0,0 +1,150 @@
+package datawave.query.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.Key;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import datawave.query.Constants;
+import datawave.query.attributes.Document;
+import datawave.query.iterator.NestedIterator;
+import datawave.query.iterator.logic.AndIterator;
+import datawave.query.iterator.logic.OrIterator;
+
+/**
+ * Measures the cost of the {@link AndIterator} and {@link OrIterator} document key intersection/union logic in isolation from the field index sources. Each
+ * term is a sorted array of document keys where every document matches a term with probability {@code selectivity}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BooleanLogicBenchmark {
+
+    @Param({"100000"})
+    public int documents;
+
+    @Param({"2", "8"})
+    public int terms;
+
+    @Param({"0.01", "0.5"})
+    public double selectivity;
+
+    private Key[][] termKeys;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(8675309L);
+        termKeys = new Key[terms][];
+        for (int t = 0; t < terms; t++) {
+            List<Key> keys = new ArrayList<>();
+            for (int i = 0; i < documents; i++) {
+                if (random.nextDouble() < selectivity) {
+                    keys.add(new Key(ShardDataGenerator.ROW, ShardDataGenerator.DATATYPE + Constants.NULL + ShardDataGenerator.uid(i)));
+                }
+            }
+            termKeys[t] = keys.toArray(new Key[0]);
+            Arrays.sort(termKeys[t]);
+        }
+    }
+
+    @Benchmark
+    public void intersection(Blackhole blackhole) {
+        drain(new AndIterator<>(sources()), blackhole);
+    }
+
+    @Benchmark
+    public void union(Blackhole blackhole) {
+        drain(new OrIterator<>(sources()), blackhole);
+    }
+
+    private List<NestedIterator<Key>> sources() {
+        List<NestedIterator<Key>> sources = new ArrayList<>(terms);
+        for (Key[] keys : termKeys) {
+            sources.add(new SortedArrayIterator(keys));
+        }
+        return sources;
+    }
+
+    private static void drain(NestedIterator<Key> iterator, Blackhole blackhole) {
+        iterator.initialize();
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next());
+        }
+    }
+
+    /**
+     * A leaf that behaves like a field index source, moving via binary search the same way a seek would
+     */
+    static class SortedArrayIterator implements NestedIterator<Key> {
+        private final Key[] keys;
+        private int position = 0;
+
+        SortedArrayIterator(Key[] keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public void initialize() {}
+
+        @Override
+        public boolean hasNext() {
+            return position < keys.length;
+        }
+
+        @Override
+        public Key next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return keys[position++];
+        }
+
+        @Override
+        public Key move(Key minimum) {
+            int index = Arrays.binarySearch(keys, position, keys.length, minimum);
+            position = index >= 0 ? index : -(index + 1);
+            return hasNext() ? next() : null;
+        }
+
+        @Override
+        public Collection<NestedIterator<Key>> leaves() {
+            return Collections.singleton(this);
+        }
+
+        @Override
+        public Collection<NestedIterator<Key>> children() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Document document() {
+            return new Document();
+        }
+
+        @Override
+        public boolean isContextRequired() {
+            return false;
+        }
+
+        @Override
+        public void setContext(Key context) {
+            // no-op
+        }
+    }
+}
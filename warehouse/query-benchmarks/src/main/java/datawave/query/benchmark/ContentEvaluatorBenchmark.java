@@ -0,0 +1,145 @@
+package datawave.query.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import datawave.ingest.protobuf.TermWeightPosition;
+import datawave.query.jexl.functions.ContentOrderedEvaluator;
+import datawave.query.jexl.functions.ContentUnorderedEvaluator;
+import datawave.query.jexl.functions.LegacyContentEvaluators;
+import datawave.query.jexl.functions.TermPositions;
+import datawave.query.postprocessing.tf.TermOffsetMap;
+
+/**
+ * Compares the content function evaluators, which walk {@link TermPositions} arrays, with the {@link LegacyContentEvaluators} they replaced. Each term occurs
+ * at random in a document of {@code length} words with probability {@code density}, and the terms never form the phrase, nor fall within {@code terms - 1}
+ * words of each other, except at the very end of the document, so that every evaluation walks all the positions before it matches. Both sides start from the
+ * sorted offsets of each term, as held by a {@code TermFrequencyList}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ContentEvaluatorBenchmark {
+
+    private static final String FIELD = "CONTENT";
+    private static final String EVENT_ID = ShardDataGenerator.ROW + "\0" + ShardDataGenerator.DATATYPE + "\0" + ShardDataGenerator.uid(0);
+
+    @Param({"1000", "100000"})
+    public int length;
+
+    @Param({"2", "4"})
+    public int terms;
+
+    @Param({"0.2"})
+    public double density;
+
+    private String[] termNames;
+    private List<SortedSet<TermWeightPosition>> offsets;
+
+    private PhraseEvaluator phraseEvaluator;
+    private WithinEvaluator withinEvaluator;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(8675309L);
+        termNames = new String[terms];
+        offsets = new ArrayList<>(terms);
+        for (int t = 0; t < terms; t++) {
+            termNames[t] = "term" + t;
+            offsets.add(new TreeSet<>());
+        }
+
+        // each term only occurs at even offsets that are distinct from the offsets of the other terms
+        int stride = 2 * terms;
+        for (int offset = 0; offset + stride <= length; offset += stride) {
+            for (int t = 0; t < terms; t++) {
+                if (random.nextDouble() < density) {
+                    offsets.get(t).add(position(offset + 2 * t));
+                }
+            }
+        }
+
+        // the phrase finally occurs at the end of the document
+        for (int t = 0; t < terms; t++) {
+            offsets.get(t).add(position(length + t));
+        }
+
+        phraseEvaluator = new PhraseEvaluator(termNames);
+        withinEvaluator = new WithinEvaluator(termNames, terms - 1);
+    }
+
+    private static TermWeightPosition position(int offset) {
+        return new TermWeightPosition.Builder().setOffset(offset).setZeroOffsetMatch(true).build();
+    }
+
+    @Benchmark
+    public boolean phrase() {
+        return phraseEvaluator.evaluate(positions());
+    }
+
+    @Benchmark
+    public boolean phraseLegacy() {
+        return LegacyContentEvaluators.phrase(lists(), termNames, 1, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public boolean within() {
+        return withinEvaluator.evaluate(positions());
+    }
+
+    @Benchmark
+    public boolean withinLegacy() {
+        return LegacyContentEvaluators.within(lists(), termNames, terms - 1, Integer.MAX_VALUE);
+    }
+
+    private TermPositions[] positions() {
+        TermPositions[] positions = new TermPositions[terms];
+        for (int t = 0; t < terms; t++) {
+            positions[t] = TermPositions.create(offsets.get(t), Integer.MAX_VALUE);
+        }
+        return positions;
+    }
+
+    private List<List<TermWeightPosition>> lists() {
+        List<List<TermWeightPosition>> lists = new ArrayList<>(terms);
+        for (int t = 0; t < terms; t++) {
+            lists.add(new ArrayList<>(offsets.get(t)));
+        }
+        return lists;
+    }
+
+    private static class PhraseEvaluator extends ContentOrderedEvaluator {
+        PhraseEvaluator(String[] terms) {
+            super(Collections.emptySet(), 1, Float.NEGATIVE_INFINITY, new TermOffsetMap(), terms);
+        }
+
+        boolean evaluate(TermPositions[] positions) {
+            return evaluate(FIELD, EVENT_ID, positions);
+        }
+    }
+
+    private static class WithinEvaluator extends ContentUnorderedEvaluator {
+        WithinEvaluator(String[] terms, int distance) {
+            super(Collections.emptySet(), distance, Float.NEGATIVE_INFINITY, new TermOffsetMap(), terms);
+        }
+
+        boolean evaluate(TermPositions[] positions) {
+            return evaluate(FIELD, EVENT_ID, positions);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package datawave.query.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.common.collect.Maps;
+
+import datawave.query.Constants;
+import datawave.query.DocumentSerialization;
+import datawave.query.DocumentSerialization.ReturnType;
+import datawave.query.attributes.Content;
+import datawave.query.attributes.Document;
+import datawave.query.attributes.Numeric;
+import datawave.query.function.deserializer.DocumentDeserializer;
+import datawave.query.function.serializer.DocumentSerializer;
+
+/**
+ * Measures the tablet server side serialization and web server side deserialization of a {@link Document}, e.g. the {@code KryoDocumentSerializer} and
+ * {@code KryoDocumentDeserializer} pair, for documents with a configurable number of small fields.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class DocumentSerializationBenchmark {
+
+    @Param({"10", "250"})
+    public int fields;
+
+    @Param({"kryo", "writable", "compact"})
+    public ReturnType returnType;
+
+    private Map.Entry<Key,Document> document;
+    private Map.Entry<Key,Value> serialized;
+    private DocumentSerializer serializer;
+    private DocumentDeserializer deserializer;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        serializer = DocumentSerialization.getDocumentSerializer(returnType);
+        deserializer = DocumentSerialization.getDocumentDeserializer(returnType);
+
+        Key docKey = new Key(ShardDataGenerator.ROW, ShardDataGenerator.DATATYPE + Constants.NULL + ShardDataGenerator.uid(0));
+        Document doc = new Document(docKey, true);
+        for (int i = 0; i < fields; i++) {
+            if (i % 4 == 0) {
+                doc.put("NUMERIC_FIELD_" + i, new Numeric(i, docKey, true));
+            } else {
+                doc.put("FIELD_" + i, new Content(ShardDataGenerator.term(i), docKey, true));
+            }
+        }
+
+        document = Maps.immutableEntry(docKey, doc);
+        serialized = serializer.apply(document);
+    }
+
+    @Benchmark
+    public Map.Entry<Key,Value> serialize() {
+        return serializer.apply(document);
+    }
+
+    @Benchmark
+    public Map.Entry<Key,Document> deserialize() {
+        return deserializer.apply(serialized);
+    }
+}
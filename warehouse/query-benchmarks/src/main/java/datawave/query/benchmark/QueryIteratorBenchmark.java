@@ -0,0 +1,114 @@
+package datawave.query.benchmark;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iteratorsImpl.system.SortedMapIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import datawave.query.iterator.QueryIterator;
+import datawave.query.iterator.QueryOptions;
+
+/**
+ * Drives the full tablet server {@link QueryIterator} stack (boolean logic, {@code PipelineIterator}, document aggregation, JEXL evaluation and
+ * serialization) over a generated shard held in a {@link SortedMapIterator}. Each invocation scans the entire shard and reports the time per scan, so the
+ * per-document cost is the score divided by the number of matching documents.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class QueryIteratorBenchmark {
+
+    @Param({"10000"})
+    public int documents;
+
+    @Param({"100"})
+    public int cardinality;
+
+    @Param({"16"})
+    public int tokensPerDocument;
+
+    // @formatter:off
+    @Param({
+            "INDEXED_FIELD == 'term1'",
+            "INDEXED_FIELD == 'term1' && RARE_FIELD == 'term2'",
+            "INDEXED_FIELD == 'term1' || INDEXED_FIELD == 'term2' || RARE_FIELD == 'term3'",
+            "INDEXED_FIELD == 'term1' && UNINDEXED_FIELD == 'term2'",
+            "INDEXED_FIELD == 'term1' && content:phrase(TOKENIZED_FIELD, termOffsetMap, 'term1', 'term2')"})
+    // @formatter:on
+    public String query;
+
+    @Param({"true", "false"})
+    public boolean serialEvaluationPipeline;
+
+    private SortedMap<Key,Value> data;
+    private Map<String,String> options;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        data = new ShardDataGenerator(documents, cardinality, tokensPerDocument).generate();
+
+        options = new HashMap<>();
+        options.put(QueryOptions.QUERY, query);
+        options.put(QueryOptions.QUERY_ID, "benchmark");
+        options.put(QueryOptions.SCAN_ID, "benchmark");
+        options.put(QueryOptions.START_TIME, "0");
+        options.put(QueryOptions.END_TIME, Long.toString(Long.MAX_VALUE));
+        options.put(QueryOptions.INDEXED_FIELDS, ShardDataGenerator.INDEXED_FIELDS);
+        options.put(QueryOptions.INDEX_ONLY_FIELDS, "");
+        options.put(QueryOptions.TERM_FREQUENCY_FIELDS, ShardDataGenerator.TOKENIZED_FIELD);
+        options.put(QueryOptions.TERM_FREQUENCIES_REQUIRED, Boolean.toString(query.contains("content:")));
+        options.put(QueryOptions.CONTENT_EXPANSION_FIELDS, ShardDataGenerator.TOKENIZED_FIELD);
+        options.put(QueryOptions.ALLOW_FIELD_INDEX_EVALUATION, "true");
+        options.put(QueryOptions.ALLOW_TERM_FREQUENCY_LOOKUP, "true");
+        options.put(QueryOptions.SERIAL_EVALUATION_PIPELINE, Boolean.toString(serialEvaluationPipeline));
+    }
+
+    @Benchmark
+    public void scanShard(Blackhole blackhole) throws IOException {
+        QueryIterator iterator = new QueryIterator();
+        iterator.setTypeMetadata(ShardDataGenerator.typeMetadata());
+        iterator.init(new SortedMapIterator(data), options, new BenchmarkIteratorEnvironment());
+        iterator.seek(ShardDataGenerator.shardRange(), Collections.emptyList(), false);
+
+        while (iterator.hasTop()) {
+            blackhole.consume(iterator.getTopKey());
+            blackhole.consume(iterator.getTopValue());
+            iterator.next();
+        }
+    }
+
+    /**
+     * A minimal environment, the query iterator only needs the system configuration
+     */
+    static class BenchmarkIteratorEnvironment implements IteratorEnvironment {
+        @Override
+        @SuppressWarnings("deprecation")
+        public AccumuloConfiguration getConfig() {
+            return DefaultConfiguration.getInstance();
+        }
+
+        @Override
+        public boolean isSamplingEnabled() {
+            return false;
+        }
+    }
+}
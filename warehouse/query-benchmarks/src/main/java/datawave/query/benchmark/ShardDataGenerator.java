@@ -0,0 +1,197 @@
+package datawave.query.benchmark;
+
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import datawave.data.type.LcNoDiacriticsType;
+import datawave.data.type.NumberType;
+import datawave.ingest.protobuf.TermWeight;
+import datawave.ingest.protobuf.TermWeightPosition;
+import datawave.query.Constants;
+import datawave.query.util.TypeMetadata;
+
+/**
+ * Generates a single, in-memory shard of event, field index and term frequency keys that mirrors the layout written by ingest. The generated data is
+ * deterministic for a given seed so that benchmark runs are comparable.
+ * <p>
+ * Every document contains the following fields:
+ * <ul>
+ * <li>{@link #INDEXED_FIELD}: indexed, values drawn from {@code cardinality} distinct terms</li>
+ * <li>{@link #RARE_FIELD}: indexed, values drawn from {@code cardinality * 10} distinct terms</li>
+ * <li>{@link #NUMERIC_FIELD}: indexed, a numeric value</li>
+ * <li>{@link #UNINDEXED_FIELD}: event only, values drawn from {@code cardinality} distinct terms</li>
+ * <li>{@link #TOKENIZED_FIELD}: indexed and tokenized, with a term frequency entry per token</li>
+ * </ul>
+ */
+public class ShardDataGenerator {
+
+    public static final String ROW = "20190314_0";
+    public static final String DATATYPE = "datatype";
+
+    public static final String INDEXED_FIELD = "INDEXED_FIELD";
+    public static final String RARE_FIELD = "RARE_FIELD";
+    public static final String NUMERIC_FIELD = "NUMERIC_FIELD";
+    public static final String UNINDEXED_FIELD = "UNINDEXED_FIELD";
+    public static final String TOKENIZED_FIELD = "TOKENIZED_FIELD";
+
+    public static final String INDEXED_FIELDS = INDEXED_FIELD + ',' + RARE_FIELD + ',' + NUMERIC_FIELD + ',' + TOKENIZED_FIELD;
+
+    // the timestamp of every generated key, falls inside the query date range configured by the benchmarks
+    public static final long TIMESTAMP = 50L;
+
+    private static final long DEFAULT_SEED = 8675309L;
+
+    private final int documents;
+    private final int cardinality;
+    private final int tokensPerDocument;
+    private final long seed;
+
+    public ShardDataGenerator(int documents, int cardinality, int tokensPerDocument) {
+        this(documents, cardinality, tokensPerDocument, DEFAULT_SEED);
+    }
+
+    public ShardDataGenerator(int documents, int cardinality, int tokensPerDocument, long seed) {
+        if (documents <= 0 || cardinality <= 0 || tokensPerDocument < 0) {
+            throw new IllegalArgumentException("documents and cardinality must be positive and tokensPerDocument must not be negative");
+        }
+        this.documents = documents;
+        this.cardinality = cardinality;
+        this.tokensPerDocument = tokensPerDocument;
+        this.seed = seed;
+    }
+
+    /**
+     * Generate the shard
+     *
+     * @return a sorted map of every key in the shard
+     */
+    public SortedMap<Key,Value> generate() {
+        SortedMap<Key,Value> data = new TreeMap<>();
+        Random random = new Random(seed);
+        Value empty = new Value(new byte[0]);
+
+        for (int i = 0; i < documents; i++) {
+            String uid = uid(i);
+
+            String indexed = term(random.nextInt(cardinality));
+            String rare = term(random.nextInt(cardinality * 10));
+            String numeric = Integer.toString(random.nextInt(1_000_000));
+            String unindexed = term(random.nextInt(cardinality));
+
+            addIndexedField(data, INDEXED_FIELD, indexed, indexed, uid, empty);
+            addIndexedField(data, RARE_FIELD, rare, rare, uid, empty);
+            addIndexedField(data, NUMERIC_FIELD, numeric, new NumberType().normalize(numeric), uid, empty);
+            data.put(event(uid, UNINDEXED_FIELD, unindexed), empty);
+
+            StringBuilder content = new StringBuilder();
+            for (int position = 0; position < tokensPerDocument; position++) {
+                String token = term(random.nextInt(cardinality));
+                if (position > 0) {
+                    content.append(' ');
+                }
+                content.append(token);
+
+                // accumulate offsets for tokens that appear more than once in the same document
+                Key tf = termFrequency(uid, TOKENIZED_FIELD, token);
+                Value existing = data.get(tf);
+                TermWeight.Info.Builder info = TermWeight.Info.newBuilder();
+                if (existing != null) {
+                    info.mergeFrom(parse(existing));
+                }
+                info.addTermOffset(position).addPrevSkips(0).addScore(TermWeightPosition.positionScoreToTermWeightScore(0.5f)).setZeroOffsetMatch(true);
+                data.put(tf, new Value(info.build().toByteArray()));
+                data.put(fieldIndex(uid, TOKENIZED_FIELD, token), empty);
+            }
+            if (tokensPerDocument > 0) {
+                data.put(event(uid, TOKENIZED_FIELD, content.toString()), empty);
+            }
+        }
+
+        return data;
+    }
+
+    /**
+     * The type metadata that matches the generated fields
+     *
+     * @return the type metadata
+     */
+    public static TypeMetadata typeMetadata() {
+        TypeMetadata typeMetadata = new TypeMetadata();
+        typeMetadata.put(INDEXED_FIELD, DATATYPE, LcNoDiacriticsType.class.getName());
+        typeMetadata.put(RARE_FIELD, DATATYPE, LcNoDiacriticsType.class.getName());
+        typeMetadata.put(NUMERIC_FIELD, DATATYPE, NumberType.class.getName());
+        typeMetadata.put(UNINDEXED_FIELD, DATATYPE, LcNoDiacriticsType.class.getName());
+        typeMetadata.put(TOKENIZED_FIELD, DATATYPE, LcNoDiacriticsType.class.getName());
+        return typeMetadata;
+    }
+
+    /**
+     * A range covering the entire generated shard
+     *
+     * @return the shard range
+     */
+    public static Range shardRange() {
+        Key start = new Key(ROW);
+        return new Range(start, true, start.followingKey(PartialKey.ROW), false);
+    }
+
+    /**
+     * A term that is guaranteed to exist in the generated data for any cardinality
+     *
+     * @param index
+     *            the term index, must be less than the cardinality
+     * @return the term
+     */
+    public static String term(int index) {
+        return "term" + index;
+    }
+
+    public static String uid(int index) {
+        return String.format("%08x.%08x.%08x", index, index * 31, index * 17);
+    }
+
+    public int getDocuments() {
+        return documents;
+    }
+
+    public int getCardinality() {
+        return cardinality;
+    }
+
+    public int getTokensPerDocument() {
+        return tokensPerDocument;
+    }
+
+    private void addIndexedField(SortedMap<Key,Value> data, String field, String value, String normalized, String uid, Value empty) {
+        data.put(event(uid, field, value), empty);
+        data.put(fieldIndex(uid, field, normalized), empty);
+    }
+
+    public static Key event(String uid, String field, String value) {
+        return new Key(ROW, DATATYPE + Constants.NULL + uid, field + Constants.NULL + value, TIMESTAMP);
+    }
+
+    public static Key fieldIndex(String uid, String field, String value) {
+        return new Key(ROW, "fi" + Constants.NULL + field, value + Constants.NULL + DATATYPE + Constants.NULL + uid, TIMESTAMP);
+    }
+
+    public static Key termFrequency(String uid, String field, String value) {
+        return new Key(ROW, "tf", DATATYPE + Constants.NULL + uid + Constants.NULL + value + Constants.NULL + field, TIMESTAMP);
+    }
+
+    private static TermWeight.Info parse(Value value) {
+        try {
+            return TermWeight.Info.parseFrom(value.get());
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalStateException("Unable to parse generated term frequency value", e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package datawave.query.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SortedMap;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Test;
+
+public class ShardDataGeneratorTest {
+
+    @Test
+    public void testKeyCounts() {
+        SortedMap<Key,Value> data = new ShardDataGenerator(100, 10, 0).generate();
+
+        int events = 0;
+        int fieldIndex = 0;
+        int termFrequency = 0;
+        for (Key key : data.keySet()) {
+            assertEquals(ShardDataGenerator.ROW, key.getRow().toString());
+            assertTrue(ShardDataGenerator.shardRange().contains(key));
+            String cf = key.getColumnFamily().toString();
+            if (cf.startsWith("fi\0")) {
+                fieldIndex++;
+            } else if (cf.equals("tf")) {
+                termFrequency++;
+            } else {
+                events++;
+            }
+        }
+
+        // four event fields and three field index entries per document without tokens
+        assertEquals(400, events);
+        assertEquals(300, fieldIndex);
+        assertEquals(0, termFrequency);
+    }
+
+    @Test
+    public void testDeterministic() {
+        assertEquals(new ShardDataGenerator(50, 5, 8).generate(), new ShardDataGenerator(50, 5, 8).generate());
+    }
+}
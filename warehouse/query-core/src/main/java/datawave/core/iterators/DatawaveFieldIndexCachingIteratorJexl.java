@@ -72,6 +72,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
 
     public abstract static class Builder<B extends Builder<B>> {
         private String queryId;
+        private int queryPriority = FairTaskScheduler.DEFAULT_PRIORITY;
         private Text fieldName;
         protected Text fieldValue;
         private Predicate<Key> datatypeFilter;
@@ -95,6 +96,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         protected TypeMetadata typeMetadata;
         private CompositeMetadata compositeMetadata;
         private int compositeSeekThreshold;
+        private int fiNextSeek = -1;
         private IteratorEnvironment env;
         private GenericObjectPool<SortedKeyValueIterator<Key,Value>> ivaratorSourcePool;
 
@@ -108,6 +110,11 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
             return self();
         }
 
+        public B withQueryPriority(int queryPriority) {
+            this.queryPriority = queryPriority;
+            return self();
+        }
+
         public B withFieldName(Text fieldName) {
             this.fieldName = fieldName;
             return self();
@@ -221,6 +228,11 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
             return self();
         }
 
+        public B withFiNextSeek(int fiNextSeek) {
+            this.fiNextSeek = fiNextSeek;
+            return self();
+        }
+
         public B withIteratorEnv(IteratorEnvironment env) {
             this.env = env;
             return self();
@@ -253,6 +265,8 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
 
     // This is the query id which is used for tracking purposes
     protected final String queryId;
+    // The priority of the query when scheduling the fill tasks against those of other queries
+    protected final int queryPriority;
     // This is the fieldname of interest
     private final Text fieldName;
     // part of the datawave shard structure: fi\0fieldname
@@ -355,6 +369,9 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     protected FieldIndexCompositeSeeker compositeSeeker;
     protected int compositeSeekThreshold;
 
+    // the number of next calls to try before seeking ahead to the key returned by getSeekAheadKey
+    protected int fiNextSeek = -1;
+
     protected GenericObjectPool<SortedKeyValueIterator<Key,Value>> ivaratorSourcePool = null;
 
     // -------------------------------------------------------------------------
@@ -363,6 +380,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     public DatawaveFieldIndexCachingIteratorJexl() {
         super();
         this.queryId = null;
+        this.queryPriority = FairTaskScheduler.DEFAULT_PRIORITY;
         this.fieldName = null;
         this.fieldValue = null;
         this.fiName = null;
@@ -397,6 +415,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     protected DatawaveFieldIndexCachingIteratorJexl(Builder builder) {
 
         this.queryId = builder.queryId;
+        this.queryPriority = builder.queryPriority;
         this.ivaratorSourcePool = builder.ivaratorSourcePool;
 
         if (builder.fieldName.toString().startsWith("fi" + NULL_BYTE)) {
@@ -449,12 +468,14 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         }
 
         this.compositeSeekThreshold = builder.compositeSeekThreshold;
+        this.fiNextSeek = builder.fiNextSeek;
         this.initEnv = builder.env;
     }
 
     public DatawaveFieldIndexCachingIteratorJexl(DatawaveFieldIndexCachingIteratorJexl other, IteratorEnvironment env) {
         setSource(other.getSource().deepCopy(env));
         this.queryId = other.queryId;
+        this.queryPriority = other.queryPriority;
         this.fieldName = other.fieldName;
         this.fiName = other.fiName;
         this.returnKeyType = other.returnKeyType;
@@ -482,6 +503,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         this.currentRow = other.currentRow;
         this.createdRowDir = other.createdRowDir;
         this.maxRangeSplit = other.maxRangeSplit;
+        this.fiNextSeek = other.fiNextSeek;
 
         this.sortedUIDs = other.sortedUIDs;
 
@@ -1198,6 +1220,18 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
                         if (!totalResults.increment()) {
                             throw new DatawaveIvaratorMaxResultsException("Exceeded the maximum set size");
                         }
+                    } else if (!negated) {
+                        // skip over the keys that cannot match if we can tell where the next match may be
+                        Key seekKey = getSeekAheadKey(top);
+                        if (seekKey != null && seekKey.compareTo(top) > 0) {
+                            if (boundingFiRange.afterEndKey(seekKey)) {
+                                break;
+                            }
+                            int nexts = seekAhead(source, boundingFiRange, seekKey);
+                            scanned += nexts;
+                            DatawaveFieldIndexCachingIteratorJexl.this.scannedKeys.addAndGet(nexts);
+                            continue;
+                        }
                     }
 
                     source.next();
@@ -1223,10 +1257,37 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
             }
         };
 
-        return IteratorThreadPoolManager.executeIvarator(runnable, DatawaveFieldIndexCachingIteratorJexl.this + " in " + boundingFiRange, this.initEnv);
+        String taskName = DatawaveFieldIndexCachingIteratorJexl.this + " in " + boundingFiRange;
+        return IteratorThreadPoolManager.executeIvarator(runnable, taskName, queryId, queryPriority, this.initEnv);
 
     }
 
+    /**
+     * Move the source to the seek key, first trying up to fiNextSeek next calls as they are cheaper than a seek when the seek key is close by.
+     *
+     * @param source
+     *            the source
+     * @param boundingFiRange
+     *            the bounding index range being scanned
+     * @param seekKey
+     *            the key to move to, which must be within the bounding index range
+     * @return the number of keys scanned
+     * @throws IOException
+     *             for issues with read/write
+     */
+    private int seekAhead(SortedKeyValueIterator<Key,Value> source, Range boundingFiRange, Key seekKey) throws IOException {
+        int nexts = 0;
+        while (nexts < fiNextSeek && source.hasTop() && source.getTopKey().compareTo(seekKey) < 0) {
+            source.next();
+            nexts++;
+        }
+        if (source.hasTop() && source.getTopKey().compareTo(seekKey) < 0) {
+            source.seek(new Range(seekKey, true, boundingFiRange.getEndKey(), boundingFiRange.isEndKeyInclusive()), EMPTY_CFS, false);
+            nexts++;
+        }
+        return nexts;
+    }
+
     /**
      * Get the unique directory for a specific row
      *
@@ -1291,6 +1352,8 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
 
             this.set = new HdfsBackedSortedSet<>(null, hdfsBackedSetBufferSize, ivaratorCacheDirs, row, maxOpenFiles, numRetries, persistOptions,
                             new FileKeySortedSet.Factory());
+            // read ahead in the persisted files on a separate pool when merging them
+            this.set.setMergeExecutor(IteratorThreadPoolManager.getIvaratorMergeExecutor(this.initEnv));
             this.threadSafeSet = Collections.synchronizedSortedSet(this.set);
             this.currentRow = row;
             this.setControl.takeOwnership(row, this);
@@ -1426,6 +1489,21 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
      */
     protected abstract boolean matches(Key k) throws IOException;
 
+    /**
+     * Get a key to seek ahead to after a field index key that did not match, such that no key between the two can match. This allows the scan to skip over
+     * whole ranges of field values that cannot match instead of evaluating each key. It is only used when the ivarator is not negated. NOTE: This method must
+     * be thread safe
+     *
+     * @param k
+     *            a field index key that did not match
+     * @return the key to seek ahead to, or null to simply move on to the next key
+     * @throws IOException
+     *             for issues with read/write
+     */
+    protected Key getSeekAheadKey(Key k) throws IOException {
+        return null;
+    }
+
     /**
      * A protected method to force persistence of the set. This can be used by test cases to verify tear down and rebuilding with reuse of the previous results.
      *
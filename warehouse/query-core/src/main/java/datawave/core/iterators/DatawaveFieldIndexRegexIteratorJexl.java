@@ -4,8 +4,10 @@ import java.io.IOException;
 import java.util.List;
 import java.util.regex.Pattern;
 
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Column;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
@@ -16,12 +18,16 @@ import datawave.data.ColumnFamilyConstants;
 import datawave.query.Constants;
 import datawave.query.parser.JavaRegexAnalyzer;
 import datawave.query.parser.JavaRegexAnalyzer.JavaRegexParseException;
+import datawave.query.util.regex.RegexAutomaton;
+import datawave.query.util.regex.RegexAutomaton.UnsupportedRegexException;
 
 /**
  *
  * An iterator for the Datawave shard table, it searches FieldIndex keys and returns Event keys (its topKey must be an Event key).
  *
- * This version takes a regex and will return sorted UIDs that match the supplied regex
+ * This version takes a regex and will return sorted UIDs that match the supplied regex. When the regex can be compiled into a {@link RegexAutomaton}, the field
+ * values are matched against it without being decoded, and the scan seeks past the values that sort before the next value that could possibly match.
+ * Otherwise the values are matched using a {@link Pattern}.
  *
  * FieldIndex keys: fi\0{fieldName}:{fieldValue}\0datatype\0uid
  *
@@ -56,11 +62,13 @@ public class DatawaveFieldIndexRegexIteratorJexl extends DatawaveFieldIndexCachi
         } catch (JavaRegexParseException ex) {
             throw new IllegalStateException("Unable to parse regex " + regex, ex);
         }
-
+        this.automaton = compileAutomaton(this.regex);
     }
 
     private String regex = null;
     private ThreadLocal<Pattern> pattern = ThreadLocal.withInitial(() -> Pattern.compile(regex));
+    // the automaton for the regex, or null if the regex is not supported by the automaton
+    private RegexAutomaton automaton = null;
 
     // -------------------------------------------------------------------------
     // ------------- Constructors
@@ -71,6 +79,7 @@ public class DatawaveFieldIndexRegexIteratorJexl extends DatawaveFieldIndexCachi
     public DatawaveFieldIndexRegexIteratorJexl(DatawaveFieldIndexRegexIteratorJexl other, IteratorEnvironment env) {
         super(other, env);
         this.regex = other.regex;
+        this.automaton = other.automaton;
     }
 
     // -------------------------------------------------------------------------
@@ -84,7 +93,8 @@ public class DatawaveFieldIndexRegexIteratorJexl extends DatawaveFieldIndexCachi
     public String toString() {
         StringBuilder builder = new StringBuilder();
         builder.append("DatawaveFieldIndexRegexIteratorJexl (").append(queryId).append(") fName=").append(getFieldName()).append(", fValue=")
-                        .append(getFieldValue()).append(", regex=").append(regex).append(", negated=").append(isNegated()).append("}");
+                        .append(getFieldValue()).append(", regex=").append(regex).append(", automaton=").append(automaton != null).append(", negated=")
+                        .append(isNegated()).append("}");
         return builder.toString();
     }
 
@@ -128,14 +138,72 @@ public class DatawaveFieldIndexRegexIteratorJexl extends DatawaveFieldIndexCachi
     @Override
     protected boolean matches(Key k) throws IOException {
         boolean matches = false;
-        String colq = k.getColumnQualifier().toString();
+        if (automaton != null) {
+            ByteSequence colq = k.getColumnQualifierData();
+            matches = automaton.matches(colq.getBackingArray(), colq.offset(), valueLength(colq));
+        } else {
+            String colq = k.getColumnQualifier().toString();
 
-        // search backwards for the null bytes to expose the value in value\0datatype\0UID
-        int index = colq.lastIndexOf('\0');
-        index = colq.lastIndexOf('\0', index - 1);
-        matches = (pattern.get().matcher(colq.substring(0, index)).matches());
+            // search backwards for the null bytes to expose the value in value\0datatype\0UID
+            int index = colq.lastIndexOf('\0');
+            index = colq.lastIndexOf('\0', index - 1);
+            matches = (pattern.get().matcher(colq.substring(0, index)).matches());
+        }
 
         return matches;
     }
 
+    /**
+     * Get the key of the next value that could possibly match the regex, as determined by the automaton. NOTE: This method must be thread safe
+     *
+     * @param k
+     *            a key that did not match
+     * @return the key to seek ahead to, or null if the regex is not supported by the automaton
+     * @throws IOException
+     *             for issues with read/write
+     */
+    @Override
+    protected Key getSeekAheadKey(Key k) throws IOException {
+        if (automaton == null) {
+            return null;
+        }
+        ByteSequence colq = k.getColumnQualifierData();
+        int length = valueLength(colq);
+        // the key may have been filtered for other reasons than its value
+        if (automaton.matches(colq.getBackingArray(), colq.offset(), length)) {
+            return null;
+        }
+        byte[] next = automaton.nextPossibleMatch(colq.getBackingArray(), colq.offset(), length);
+        if (next == null) {
+            // nothing else can match in this field
+            return k.followingKey(PartialKey.ROW_COLFAM);
+        }
+        return new Key(k.getRow(), k.getColumnFamily(), new Text(next));
+    }
+
+    /**
+     * @return the length of the value in a value\0datatype\0UID column qualifier
+     */
+    private static int valueLength(ByteSequence colq) {
+        // search backwards for the null bytes to expose the value in value\0datatype\0UID
+        int index = colq.length() - 1;
+        while (colq.byteAt(index) != 0) {
+            index--;
+        }
+        index--;
+        while (colq.byteAt(index) != 0) {
+            index--;
+        }
+        return index;
+    }
+
+    private static RegexAutomaton compileAutomaton(String regex) {
+        try {
+            return RegexAutomaton.compile(regex);
+        } catch (UnsupportedRegexException e) {
+            log.debug("Matching regex " + regex + " with a pattern: " + e.getMessage());
+            return null;
+        }
+    }
+
 }
@@ -0,0 +1,355 @@
+package datawave.core.iterators;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Shares the threads of a pool between queries. Tasks are tagged with the id and priority of their query and queued per query, and are only handed to the pool
+ * when it has an idle thread. The next task is taken from the query that has had the least service relative to its priority (start time fair queuing), so a
+ * query with priority 2 gets twice the tasks run of a query with priority 1 while both have tasks waiting, and a query that arrives later is not queued behind
+ * the backlog of tasks of another query. A query may also be capped to a number of concurrently running tasks.
+ * <p>
+ * The time each task spends queued is kept per query, see {@link #getStats(String)}.
+ */
+public class FairTaskScheduler {
+    private static final Logger log = Logger.getLogger(FairTaskScheduler.class);
+
+    public static final int DEFAULT_PRIORITY = 1;
+
+    // the virtual time a query is charged for a task is this divided by its priority
+    private static final long VIRTUAL_TIME_PER_TASK = 1_000_000L;
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+
+    // the queries with tasks queued or running, and those that were active within the stats retention
+    private final Map<String,QueryQueue> queries = new HashMap<>();
+    // the queries that have a task queued and are not at their cap, by virtual start time
+    private final PriorityQueue<QueryQueue> ready = new PriorityQueue<>(
+                    Comparator.<QueryQueue> comparingLong(q -> q.virtualTime).thenComparingLong(q -> q.readySequence));
+
+    private int maxTasksPerQuery = 0;
+    private int running = 0;
+    private long virtualTime = 0;
+    private long readySequence = 0;
+
+    /**
+     * @param name
+     *            a name for logging
+     * @param executor
+     *            the pool that runs the tasks. Its maximum pool size is the number of tasks run at once.
+     */
+    public FairTaskScheduler(String name, ThreadPoolExecutor executor) {
+        this.name = name;
+        this.executor = executor;
+    }
+
+    /**
+     * Queue a task
+     *
+     * @param task
+     *            the task
+     * @param queryId
+     *            the id of the query the task belongs to, or null
+     * @param priority
+     *            the priority of the query, a priority below 1 is treated as 1
+     * @return the future of the task
+     */
+    public synchronized Future<?> submit(Runnable task, String queryId, int priority) {
+        QueryQueue query = queries.computeIfAbsent(queryId == null ? "" : queryId, QueryQueue::new);
+        ScheduledTask scheduled = new ScheduledTask(task, query);
+        query.priority = Math.max(DEFAULT_PRIORITY, priority);
+        query.tasks.add(scheduled);
+        query.submitted++;
+        query.lastActive = System.currentTimeMillis();
+        makeReady(query);
+        dispatch();
+        return scheduled;
+    }
+
+    /**
+     * Set the number of threads of the pool, and run queued tasks on any new threads
+     *
+     * @param maxThreads
+     *            the number of threads
+     */
+    public synchronized void setMaxThreads(int maxThreads) {
+        if (executor.getMaximumPoolSize() != maxThreads) {
+            log.info("Changing " + name + " threads to " + maxThreads);
+            // the core size may never exceed the max size
+            if (maxThreads > executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(maxThreads);
+                executor.setCorePoolSize(maxThreads);
+            } else {
+                executor.setCorePoolSize(maxThreads);
+                executor.setMaximumPoolSize(maxThreads);
+            }
+            dispatch();
+        }
+    }
+
+    public int getMaxThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Cap the number of tasks of a single query that run at once
+     *
+     * @param maxTasksPerQuery
+     *            the cap, or 0 or less for no cap
+     */
+    public synchronized void setMaxTasksPerQuery(int maxTasksPerQuery) {
+        if (this.maxTasksPerQuery != maxTasksPerQuery) {
+            log.info("Changing " + name + " tasks per query to " + maxTasksPerQuery);
+            this.maxTasksPerQuery = maxTasksPerQuery;
+            for (QueryQueue query : queries.values()) {
+                makeReady(query);
+            }
+            dispatch();
+        }
+    }
+
+    public synchronized int getMaxTasksPerQuery() {
+        return maxTasksPerQuery;
+    }
+
+    /**
+     * @param queryId
+     *            the id of a query
+     * @return the stats of the query, or null if the query has not been active within the stats retention
+     */
+    public synchronized QueryStats getStats(String queryId) {
+        QueryQueue query = queries.get(queryId == null ? "" : queryId);
+        return (query == null ? null : new QueryStats(query));
+    }
+
+    /**
+     * @return the stats of all queries active within the stats retention
+     */
+    public synchronized List<QueryStats> getStats() {
+        List<QueryStats> stats = new ArrayList<>(queries.size());
+        for (QueryQueue query : queries.values()) {
+            stats.add(new QueryStats(query));
+        }
+        return stats;
+    }
+
+    /**
+     * Forget the stats of the queries without any tasks queued or running since the retention
+     *
+     * @param retention
+     *            how long to keep the stats of idle queries
+     * @param unit
+     *            the unit of the retention
+     */
+    public synchronized void evictIdleQueries(long retention, TimeUnit unit) {
+        long cutoff = System.currentTimeMillis() - unit.toMillis(retention);
+        queries.values().removeIf(query -> {
+            if (query.tasks.isEmpty() && query.running == 0 && query.lastActive < cutoff) {
+                if (log.isDebugEnabled()) {
+                    log.debug(name + " " + new QueryStats(query));
+                }
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Put a query in line for a thread if it has a task queued and is not at its cap
+     */
+    private void makeReady(QueryQueue query) {
+        if (!query.ready && !query.tasks.isEmpty() && (maxTasksPerQuery <= 0 || query.running < maxTasksPerQuery)) {
+            // a query that was idle starts at the current virtual time, so it can not claim the service it did not use while idle
+            query.virtualTime = Math.max(query.virtualTime, virtualTime);
+            query.readySequence = readySequence++;
+            query.ready = true;
+            ready.add(query);
+        }
+    }
+
+    /**
+     * Hand queued tasks to the pool while it has idle threads
+     */
+    private void dispatch() {
+        while (running < executor.getMaximumPoolSize() && !ready.isEmpty()) {
+            QueryQueue query = ready.poll();
+            query.ready = false;
+            ScheduledTask task = query.tasks.poll();
+
+            if (!task.isCancelled()) {
+                long queueNanos = System.nanoTime() - task.queuedAt;
+                query.queueNanos += queueNanos;
+                query.maxQueueNanos = Math.max(query.maxQueueNanos, queueNanos);
+
+                virtualTime = query.virtualTime;
+                query.virtualTime += VIRTUAL_TIME_PER_TASK / query.priority;
+                query.running++;
+                running++;
+                try {
+                    executor.execute(() -> {
+                        task.run();
+                        // a task cancelled after it was handed to the pool never runs its body
+                        complete(task);
+                    });
+                } catch (RejectedExecutionException e) {
+                    query.running--;
+                    running--;
+                    task.cancel(false);
+                    log.error(name + " rejected a task of query " + query.queryId, e);
+                }
+            }
+
+            makeReady(query);
+        }
+    }
+
+    /**
+     * Free the thread of a task that was handed to the pool, and hand it the next queued task
+     */
+    private synchronized void complete(ScheduledTask task) {
+        if (!task.completed) {
+            task.completed = true;
+            QueryQueue query = task.query;
+            query.running--;
+            running--;
+            query.completed++;
+            query.lastActive = System.currentTimeMillis();
+            makeReady(query);
+            dispatch();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return name + "(threads=" + executor.getMaximumPoolSize() + ", running=" + running + ", queries=" + queries.size() + ", tasksPerQuery="
+                        + maxTasksPerQuery + ')';
+    }
+
+    private class ScheduledTask extends FutureTask<Object> {
+        private final QueryQueue query;
+        private final long queuedAt = System.nanoTime();
+        // guarded by the scheduler
+        private boolean completed = false;
+
+        ScheduledTask(Runnable task, QueryQueue query) {
+            super(task, null);
+            this.query = query;
+        }
+
+        // free the thread before the future completes, so that the stats are current for whoever waits on it
+        @Override
+        protected void set(Object result) {
+            complete(this);
+            super.set(result);
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            complete(this);
+            super.setException(t);
+        }
+    }
+
+    private static class QueryQueue {
+        private final String queryId;
+        private final Queue<ScheduledTask> tasks = new ArrayDeque<>();
+        private int priority = DEFAULT_PRIORITY;
+        private int running = 0;
+        private boolean ready = false;
+        private long virtualTime = 0;
+        private long readySequence = 0;
+
+        private long submitted = 0;
+        private long completed = 0;
+        private long queueNanos = 0;
+        private long maxQueueNanos = 0;
+        private long lastActive;
+
+        QueryQueue(String queryId) {
+            this.queryId = queryId;
+        }
+    }
+
+    /**
+     * A snapshot of the tasks of a query
+     */
+    public static class QueryStats {
+        private final String queryId;
+        private final int priority;
+        private final int queued;
+        private final int running;
+        private final long submitted;
+        private final long completed;
+        private final long queueTime;
+        private final long maxQueueTime;
+
+        private QueryStats(QueryQueue query) {
+            this.queryId = query.queryId;
+            this.priority = query.priority;
+            this.queued = query.tasks.size();
+            this.running = query.running;
+            this.submitted = query.submitted;
+            this.completed = query.completed;
+            this.queueTime = TimeUnit.NANOSECONDS.toMillis(query.queueNanos);
+            this.maxQueueTime = TimeUnit.NANOSECONDS.toMillis(query.maxQueueNanos);
+        }
+
+        public String getQueryId() {
+            return queryId;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public int getQueued() {
+            return queued;
+        }
+
+        public int getRunning() {
+            return running;
+        }
+
+        public long getSubmitted() {
+            return submitted;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        /**
+         * @return the total time the started tasks spent queued, in milliseconds
+         */
+        public long getQueueTime() {
+            return queueTime;
+        }
+
+        /**
+         * @return the longest time a started task spent queued, in milliseconds
+         */
+        public long getMaxQueueTime() {
+            return maxQueueTime;
+        }
+
+        @Override
+        public String toString() {
+            return "QueryStats(queryId=" + queryId + ", priority=" + priority + ", queued=" + queued + ", running=" + running + ", submitted=" + submitted
+                            + ", completed=" + completed + ", queueTime=" + queueTime + "ms, maxQueueTime=" + maxQueueTime + "ms)";
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package datawave.core.iterators;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.OptionalInt;
@@ -17,17 +18,28 @@ import org.apache.accumulo.core.util.threads.ThreadPools;
 import org.apache.log4j.Logger;
 
 /**
- *
+ * The tserver wide thread pools of the ivarators and the evaluation pipelines. Tasks of the ivarator and evaluation pools are tagged with the id and priority
+ * of their query and run through a {@link FairTaskScheduler}, so that the threads are shared between the queries in proportion to their priority and a query
+ * can be capped to a number of threads with tserver.datawave.ivarator.threads.per.query and tserver.datawave.evaluation.threads.per.query.
  */
 public class IteratorThreadPoolManager {
     private static final Logger log = Logger.getLogger(IteratorThreadPoolManager.class);
     private static final String IVARATOR_THREAD_PROP = "tserver.datawave.ivarator.threads";
+    private static final String IVARATOR_THREADS_PER_QUERY_PROP = "tserver.datawave.ivarator.threads.per.query";
     private static final String IVARATOR_THREAD_NAME = "DATAWAVE Ivarator";
+    private static final String IVARATOR_MERGE_THREAD_PROP = "tserver.datawave.ivarator.merge.threads";
+    private static final String IVARATOR_MERGE_THREAD_NAME = "DATAWAVE Ivarator Merge";
     private static final String EVALUATOR_THREAD_PROP = "tserver.datawave.evaluation.threads";
+    private static final String EVALUATOR_THREADS_PER_QUERY_PROP = "tserver.datawave.evaluation.threads.per.query";
     private static final String EVALUATOR_THREAD_NAME = "DATAWAVE Evaluation";
     private static final int DEFAULT_THREAD_POOL_SIZE = 100;
+    // no cap on the threads of a single query
+    private static final int DEFAULT_THREADS_PER_QUERY = 0;
+    // how long the queue time stats of a query are kept after its last task
+    private static final long QUERY_STATS_RETENTION_MINUTES = 5;
 
     private Map<String,ExecutorService> threadPools = new TreeMap<>();
+    private Map<String,FairTaskScheduler> schedulers = new TreeMap<>();
 
     private static final Object instanceSemaphore = new Object();
     private static final String instanceId = Integer.toHexString(instanceSemaphore.hashCode());
@@ -35,22 +47,37 @@ public class IteratorThreadPoolManager {
 
     private IteratorThreadPoolManager(IteratorEnvironment env) {
         // create the thread pools
-        createExecutorService(IVARATOR_THREAD_PROP, IVARATOR_THREAD_NAME, env);
-        createExecutorService(EVALUATOR_THREAD_PROP, EVALUATOR_THREAD_NAME, env);
+        createScheduler(IVARATOR_THREAD_PROP, IVARATOR_THREADS_PER_QUERY_PROP, IVARATOR_THREAD_NAME, env);
+        createExecutorService(IVARATOR_MERGE_THREAD_PROP, IVARATOR_MERGE_THREAD_NAME, env);
+        createScheduler(EVALUATOR_THREAD_PROP, EVALUATOR_THREADS_PER_QUERY_PROP, EVALUATOR_THREAD_NAME, env);
+    }
+
+    private FairTaskScheduler createScheduler(final String prop, final String perQueryProp, final String name, IteratorEnvironment env) {
+        final AccumuloConfiguration accumuloConfiguration = getConfiguration(env);
+        final FairTaskScheduler scheduler = new FairTaskScheduler(name,
+                        createExecutorService(getMaxThreads(prop, DEFAULT_THREAD_POOL_SIZE, accumuloConfiguration), name + " (" + instanceId + ')'));
+        scheduler.setMaxTasksPerQuery(getMaxThreads(perQueryProp, DEFAULT_THREADS_PER_QUERY, accumuloConfiguration));
+        schedulers.put(name, scheduler);
+        ThreadPools.getServerThreadPools().createGeneralScheduledExecutorService(accumuloConfiguration).scheduleWithFixedDelay(() -> {
+            try {
+                scheduler.setMaxThreads(getMaxThreads(prop, DEFAULT_THREAD_POOL_SIZE, accumuloConfiguration));
+                scheduler.setMaxTasksPerQuery(getMaxThreads(perQueryProp, DEFAULT_THREADS_PER_QUERY, accumuloConfiguration));
+                scheduler.evictIdleQueries(QUERY_STATS_RETENTION_MINUTES, TimeUnit.MINUTES);
+            } catch (Throwable t) {
+                log.error(t, t);
+            }
+        }, 1, 10, TimeUnit.SECONDS);
+        return scheduler;
     }
 
     private ThreadPoolExecutor createExecutorService(final String prop, final String name, IteratorEnvironment env) {
-        final AccumuloConfiguration accumuloConfiguration;
-        if (env != null) {
-            accumuloConfiguration = env.getConfig();
-        } else {
-            accumuloConfiguration = DefaultConfiguration.getInstance();
-        }
-        final ThreadPoolExecutor service = createExecutorService(getMaxThreads(prop, accumuloConfiguration), name + " (" + instanceId + ')');
+        final AccumuloConfiguration accumuloConfiguration = getConfiguration(env);
+        final ThreadPoolExecutor service = createExecutorService(getMaxThreads(prop, DEFAULT_THREAD_POOL_SIZE, accumuloConfiguration),
+                        name + " (" + instanceId + ')');
         threadPools.put(name, service);
         ThreadPools.getServerThreadPools().createGeneralScheduledExecutorService(accumuloConfiguration).scheduleWithFixedDelay(() -> {
             try {
-                int max = getMaxThreads(prop, accumuloConfiguration);
+                int max = getMaxThreads(prop, DEFAULT_THREAD_POOL_SIZE, accumuloConfiguration);
                 if (service.getMaximumPoolSize() != max) {
                     log.info("Changing " + prop + " to " + max);
                     service.setMaximumPoolSize(max);
@@ -70,7 +97,15 @@ public class IteratorThreadPoolManager {
         return pool;
     }
 
-    private int getMaxThreads(final String prop, AccumuloConfiguration conf) {
+    private static AccumuloConfiguration getConfiguration(IteratorEnvironment env) {
+        if (env != null) {
+            return env.getConfig();
+        } else {
+            return DefaultConfiguration.getInstance();
+        }
+    }
+
+    private int getMaxThreads(final String prop, int defaultValue, AccumuloConfiguration conf) {
         if (conf != null) {
             Map<String,String> properties = new TreeMap<>();
             conf.getProperties(properties, k -> Objects.equals(k, prop));
@@ -78,7 +113,7 @@ public class IteratorThreadPoolManager {
                 return Integer.parseInt(properties.get(prop));
             }
         }
-        return DEFAULT_THREAD_POOL_SIZE;
+        return defaultValue;
     }
 
     private static IteratorThreadPoolManager instance(IteratorEnvironment env) {
@@ -92,8 +127,8 @@ public class IteratorThreadPoolManager {
         return instance;
     }
 
-    private Future<?> execute(String name, final Runnable task, final String taskName) {
-        return threadPools.get(name).submit(() -> {
+    private Future<?> execute(String name, final Runnable task, final String taskName, String queryId, int priority) {
+        return schedulers.get(name).submit(() -> {
             String oldName = Thread.currentThread().getName();
             Thread.currentThread().setName(oldName + " -> " + taskName);
             try {
@@ -101,15 +136,87 @@ public class IteratorThreadPoolManager {
             } finally {
                 Thread.currentThread().setName(oldName);
             }
-        });
+        }, queryId, priority);
     }
 
     public static Future<?> executeIvarator(Runnable task, String taskName, IteratorEnvironment env) {
-        return instance(env).execute(IVARATOR_THREAD_NAME, task, taskName);
+        return executeIvarator(task, taskName, null, FairTaskScheduler.DEFAULT_PRIORITY, env);
+    }
+
+    /**
+     * Run an ivarator task in its turn among the ivarator tasks of the other queries
+     *
+     * @param task
+     *            the task
+     * @param taskName
+     *            the name of the task, appended to the thread name while it runs
+     * @param queryId
+     *            the id of the query, or null
+     * @param priority
+     *            the priority of the query
+     * @param env
+     *            the iterator environment
+     * @return the future of the task
+     */
+    public static Future<?> executeIvarator(Runnable task, String taskName, String queryId, int priority, IteratorEnvironment env) {
+        return instance(env).execute(IVARATOR_THREAD_NAME, task, taskName, queryId, priority);
+    }
+
+    /**
+     * Get the pool used to read ahead in persisted ivarator files while they are merged. This is kept separate from the ivarator pool so that a merge is never
+     * queued behind the long running ivarator fill tasks.
+     *
+     * @param env
+     *            the iterator environment
+     * @return the ivarator merge executor
+     */
+    public static ExecutorService getIvaratorMergeExecutor(IteratorEnvironment env) {
+        return instance(env).threadPools.get(IVARATOR_MERGE_THREAD_NAME);
     }
 
     public static Future<?> executeEvaluation(Runnable task, String taskName, IteratorEnvironment env) {
-        return instance(env).execute(EVALUATOR_THREAD_NAME, task, taskName);
+        return executeEvaluation(task, taskName, null, FairTaskScheduler.DEFAULT_PRIORITY, env);
+    }
+
+    /**
+     * Run an evaluation task in its turn among the evaluation tasks of the other queries
+     *
+     * @param task
+     *            the task
+     * @param taskName
+     *            the name of the task, appended to the thread name while it runs
+     * @param queryId
+     *            the id of the query, or null
+     * @param priority
+     *            the priority of the query
+     * @param env
+     *            the iterator environment
+     * @return the future of the task
+     */
+    public static Future<?> executeEvaluation(Runnable task, String taskName, String queryId, int priority, IteratorEnvironment env) {
+        return instance(env).execute(EVALUATOR_THREAD_NAME, task, taskName, queryId, priority);
+    }
+
+    /**
+     * Get the ivarator task stats of the queries active within the last few minutes, including the time their tasks spent queued
+     *
+     * @param env
+     *            the iterator environment
+     * @return the stats per query
+     */
+    public static List<FairTaskScheduler.QueryStats> getIvaratorStats(IteratorEnvironment env) {
+        return instance(env).schedulers.get(IVARATOR_THREAD_NAME).getStats();
+    }
+
+    /**
+     * Get the evaluation task stats of the queries active within the last few minutes, including the time their tasks spent queued
+     *
+     * @param env
+     *            the iterator environment
+     * @return the stats per query
+     */
+    public static List<FairTaskScheduler.QueryStats> getEvaluationStats(IteratorEnvironment env) {
+        return instance(env).schedulers.get(EVALUATOR_THREAD_NAME).getStats();
     }
 
 }
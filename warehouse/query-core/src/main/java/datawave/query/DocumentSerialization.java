@@ -12,9 +12,11 @@ import java.util.zip.InflaterInputStream;
 
 import datawave.query.exceptions.InvalidDocumentHeader;
 import datawave.query.exceptions.NoSuchDeserializerException;
+import datawave.query.function.deserializer.CompactDocumentDeserializer;
 import datawave.query.function.deserializer.DocumentDeserializer;
 import datawave.query.function.deserializer.KryoDocumentDeserializer;
 import datawave.query.function.deserializer.WritableDocumentDeserializer;
+import datawave.query.function.serializer.CompactDocumentSerializer;
 import datawave.query.function.serializer.DocumentSerializer;
 import datawave.query.function.serializer.KryoDocumentSerializer;
 import datawave.query.function.serializer.WritableDocumentSerializer;
@@ -31,13 +33,15 @@ import datawave.webservice.query.exception.QueryException;
 public class DocumentSerialization {
 
     public enum ReturnType {
-        writable, kryo, tostring, noop
+        writable, kryo, tostring, noop, compact
     }
 
     public static final ReturnType DEFAULT_RETURN_TYPE = ReturnType.kryo;
 
     private static final int DOC_MAGIC = 0x8b2f;
 
+    public static final int HEADER_LENGTH = 3;
+
     public static final byte NONE = 0;
     public static final byte GZIP = 1;
 
@@ -68,6 +72,8 @@ public class DocumentSerialization {
             return new KryoDocumentDeserializer();
         } else if (ReturnType.writable.equals(rt)) {
             return new WritableDocumentDeserializer();
+        } else if (ReturnType.compact.equals(rt)) {
+            return new CompactDocumentDeserializer();
         } else {
             QueryException qe = new QueryException(DatawaveErrorCode.DESERIALIZER_CREATE_ERROR);
             throw new NoSuchDeserializerException(qe);
@@ -83,6 +89,8 @@ public class DocumentSerialization {
             return new KryoDocumentSerializer();
         } else if (ReturnType.writable.equals(rt)) {
             return new WritableDocumentSerializer(false);
+        } else if (ReturnType.compact.equals(rt)) {
+            return new CompactDocumentSerializer(false, false);
         } else {
             QueryException qe = new QueryException(DatawaveErrorCode.DESERIALIZER_CREATE_ERROR);
             throw new NoSuchDeserializerException(qe);
@@ -123,7 +131,30 @@ public class DocumentSerialization {
     }
 
     public static InputStream consumeHeader(byte[] data) throws InvalidDocumentHeader {
-        if (null == data || 3 > data.length) {
+        int compression = readHeader(data);
+
+        if (NONE == compression) {
+            return new ByteArrayInputStream(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
+        } else if (GZIP == compression) {
+            ByteArrayInputStream bytes = new ByteArrayInputStream(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
+            return new InflaterInputStream(bytes, new Inflater(), 1024);
+        } else {
+            BadRequestQueryException qe = new BadRequestQueryException(DatawaveErrorCode.UNKNOWN_COMPRESSION_SCHEME, MessageFormat.format("{0}", compression));
+            throw new InvalidDocumentHeader(qe);
+        }
+    }
+
+    /**
+     * Validate the header of a serialized document
+     *
+     * @param data
+     *            the serialized document, including the header
+     * @return the compression scheme of the body, which starts at {@link #HEADER_LENGTH}
+     * @throws InvalidDocumentHeader
+     *             if the header is missing or invalid
+     */
+    public static int readHeader(byte[] data) throws InvalidDocumentHeader {
+        if (null == data || HEADER_LENGTH > data.length) {
             QueryException qe = new QueryException(DatawaveErrorCode.DATA_INVALID_ERROR,
                             MessageFormat.format("Length: {0}", (null != data ? data.length : null)));
             throw new InvalidDocumentHeader(qe);
@@ -137,17 +168,7 @@ public class DocumentSerialization {
             throw new InvalidDocumentHeader(qe);
         }
 
-        int compression = readUByte(bais);
-
-        if (NONE == compression) {
-            return new ByteArrayInputStream(data, 3, data.length - 3);
-        } else if (GZIP == compression) {
-            ByteArrayInputStream bytes = new ByteArrayInputStream(data, 3, data.length - 3);
-            return new InflaterInputStream(bytes, new Inflater(), 1024);
-        } else {
-            BadRequestQueryException qe = new BadRequestQueryException(DatawaveErrorCode.UNKNOWN_COMPRESSION_SCHEME, MessageFormat.format("{0}", compression));
-            throw new InvalidDocumentHeader(qe);
-        }
+        return readUByte(bais);
     }
 
     /*
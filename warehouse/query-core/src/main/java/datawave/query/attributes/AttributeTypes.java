@@ -0,0 +1,92 @@
+package datawave.query.attributes;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A dictionary of the concrete {@link Attribute} types that the {@link DocumentCodec} writes as a small id instead of a class name. The ids are part of the
+ * wire format: once assigned, an id must never be reused for another type, and new types must be given new ids.
+ * <p>
+ * Types that are not registered are still written, by class name, and read back through reflection.
+ */
+public final class AttributeTypes {
+
+    /**
+     * The id written for a type that is not registered, followed by its class name
+     */
+    public static final int UNREGISTERED = 0;
+
+    private static final Map<Class<?>,Integer> ids = new ConcurrentHashMap<>();
+    private static final Map<Integer,Supplier<? extends Attribute<?>>> suppliers = new ConcurrentHashMap<>();
+
+    static {
+        register(1, Document.class, Document::new);
+        register(2, Attributes.class, Attributes::new);
+        register(3, Content.class, Content::new);
+        register(4, Numeric.class, Numeric::new);
+        register(5, DateContent.class, DateContent::new);
+        register(6, DiacriticContent.class, DiacriticContent::new);
+        register(7, TypeAttribute.class, () -> new TypeAttribute<String>());
+        register(8, PreNormalizedAttribute.class, PreNormalizedAttribute::new);
+        register(9, DocumentKey.class, DocumentKey::new);
+        register(10, Cardinality.class, Cardinality::new);
+        register(11, GeoPoint.class, GeoPoint::new);
+        register(12, Geometry.class, Geometry::new);
+        register(13, IpAddress.class, IpAddress::new);
+        register(14, Latitude.class, Latitude::new);
+        register(15, Longitude.class, Longitude::new);
+        register(16, Metadata.class, Metadata::new);
+        register(17, TimingMetadata.class, TimingMetadata::new);
+    }
+
+    private AttributeTypes() {}
+
+    /**
+     * Register an attribute type. Registering the same type with the same id again is allowed.
+     *
+     * @param id
+     *            the id, which must be positive and not used by another type
+     * @param type
+     *            the concrete attribute type
+     * @param supplier
+     *            creates an empty instance of the type to read into
+     * @throws IllegalArgumentException
+     *             if the id or the type is already registered differently
+     */
+    @SuppressWarnings("rawtypes")
+    public static synchronized void register(int id, Class<? extends Attribute> type, Supplier<? extends Attribute<?>> supplier) {
+        Preconditions.checkArgument(id > UNREGISTERED, "Attribute type ids must be positive: %s", id);
+        Integer existing = ids.get(type);
+        Preconditions.checkArgument(existing == null || existing == id, "%s is already registered as %s", type, existing);
+        Preconditions.checkArgument(existing != null || !suppliers.containsKey(id), "Attribute type id %s is already registered", id);
+        ids.put(type, id);
+        suppliers.put(id, supplier);
+    }
+
+    /**
+     * Get the id of an attribute type
+     *
+     * @param type
+     *            the concrete attribute type
+     * @return the id, or {@link #UNREGISTERED} if the type is not registered
+     */
+    public static int getId(Class<?> type) {
+        Integer id = ids.get(type);
+        return id == null ? UNREGISTERED : id;
+    }
+
+    /**
+     * Create an empty attribute of a registered type
+     *
+     * @param id
+     *            the id of the type
+     * @return an empty attribute, or null if the id is not registered
+     */
+    public static Attribute<?> newInstance(int id) {
+        Supplier<? extends Attribute<?>> supplier = suppliers.get(id);
+        return supplier == null ? null : supplier.get();
+    }
+}
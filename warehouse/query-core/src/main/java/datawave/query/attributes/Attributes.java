@@ -10,6 +10,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang.builder.HashCodeBuilder;
@@ -169,6 +170,50 @@ public class Attributes extends AttributeBag<Attributes> implements Serializable
         this.invalidateMetadata();
     }
 
+    /**
+     * Write these attributes in the encoding of the {@link DocumentCodec}
+     *
+     * @param out
+     *            the output
+     * @param reducedResponse
+     *            whether the attributes should write a reduced response
+     * @param fieldNames
+     *            the index of every field name in the codec's field name table, for nested documents
+     * @throws IOException
+     *             if the output cannot be written
+     */
+    void writeCompact(DataOutput out, boolean reducedResponse, Map<String,Integer> fieldNames) throws IOException {
+        WritableUtils.writeVInt(out, _count);
+        out.writeBoolean(trackSizes);
+        WritableUtils.writeVInt(out, this.attributes.size());
+
+        for (Attribute<? extends Comparable<?>> attr : this.attributes) {
+            DocumentCodec.writeAttribute(attr, out, reducedResponse, fieldNames);
+        }
+    }
+
+    /**
+     * Read these attributes from the encoding of the {@link DocumentCodec}
+     *
+     * @param in
+     *            the input
+     * @param fieldNames
+     *            the codec's field name table, for nested documents
+     * @throws IOException
+     *             if the input cannot be read
+     */
+    void readCompact(DataInput in, String[] fieldNames) throws IOException {
+        this._count = WritableUtils.readVInt(in);
+        this.trackSizes = in.readBoolean();
+        int numAttrs = WritableUtils.readVInt(in);
+        this.attributes = new LinkedHashSet<>();
+        for (int i = 0; i < numAttrs; i++) {
+            this.attributes.add(DocumentCodec.readAttribute(in, fieldNames));
+        }
+
+        this.invalidateMetadata();
+    }
+
     @Override
     public int compareTo(Attributes o) {
         if (_getAttributes().size() < o._getAttributes().size()) {
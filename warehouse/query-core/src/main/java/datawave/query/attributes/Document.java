@@ -637,6 +637,62 @@ public class Document extends AttributeBag<Document> implements Serializable {
         invalidateMetadata();
     }
 
+    /**
+     * Write this document in the encoding of the {@link DocumentCodec}
+     *
+     * @param out
+     *            the output
+     * @param reducedResponse
+     *            whether the attributes should write a reduced response
+     * @param fieldNames
+     *            the index of every field name in the codec's field name table
+     * @throws IOException
+     *             if the output cannot be written
+     */
+    void writeCompact(DataOutput out, boolean reducedResponse, Map<String,Integer> fieldNames) throws IOException {
+        WritableUtils.writeVInt(out, _count);
+        out.writeBoolean(trackSizes);
+        WritableUtils.writeVLong(out, _bytes);
+
+        WritableUtils.writeVInt(out, this.dict.size());
+
+        for (Entry<String,Attribute<? extends Comparable<?>>> entry : this.dict.entrySet()) {
+            WritableUtils.writeVInt(out, fieldNames.get(entry.getKey()));
+            DocumentCodec.writeAttribute(entry.getValue(), out, reducedResponse, fieldNames);
+        }
+
+        WritableUtils.writeVLong(out, shardTimestamp);
+    }
+
+    /**
+     * Read this document from the encoding of the {@link DocumentCodec}
+     *
+     * @param in
+     *            the input
+     * @param fieldNames
+     *            the codec's field name table
+     * @throws IOException
+     *             if the input cannot be read
+     */
+    void readCompact(DataInput in, String[] fieldNames) throws IOException {
+        this._count = WritableUtils.readVInt(in);
+        this.trackSizes = in.readBoolean();
+        this._bytes = WritableUtils.readVLong(in);
+
+        int numAttrs = WritableUtils.readVInt(in);
+
+        this.dict = new TreeMap<>();
+
+        for (int i = 0; i < numAttrs; i++) {
+            String fieldName = DocumentCodec.fieldName(fieldNames, WritableUtils.readVInt(in));
+            this.dict.put(fieldName, DocumentCodec.readAttribute(in, fieldNames));
+        }
+
+        this.shardTimestamp = WritableUtils.readVLong(in);
+
+        invalidateMetadata();
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public int compareTo(Document o) {
@@ -0,0 +1,172 @@
+package datawave.query.attributes;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A compact binary encoding of a {@link Document}. Unlike {@link Document#write(DataOutput)}, which writes the class name of every attribute and the name of
+ * every field as it goes, this writes
+ * <ul>
+ * <li>a version byte,</li>
+ * <li>a table of every field name in the document, including those of nested documents, each written once,</li>
+ * <li>the document, where each field is the varint index of its name in the table and each attribute starts with its {@link AttributeTypes} id.</li>
+ * </ul>
+ * All counts and lengths are varints. Attributes of types that are not registered are written with their class name, as they are by
+ * {@link Document#write(DataOutput)}. Leaf attributes write themselves with {@link Attribute#write(DataOutput, boolean)}, so their encoding is unchanged.
+ */
+public class DocumentCodec {
+
+    public static final byte VERSION = 1;
+
+    private DocumentCodec() {}
+
+    /**
+     * Write a document
+     *
+     * @param document
+     *            the document
+     * @param out
+     *            the output
+     * @param reducedResponse
+     *            whether the attributes should write a reduced response
+     * @throws IOException
+     *             if the output cannot be written
+     */
+    public static void write(Document document, DataOutput out, boolean reducedResponse) throws IOException {
+        Map<String,Integer> fieldNames = new LinkedHashMap<>();
+        collectFieldNames(document, fieldNames);
+
+        out.writeByte(VERSION);
+
+        WritableUtils.writeVInt(out, fieldNames.size());
+        for (String fieldName : fieldNames.keySet()) {
+            writeString(out, fieldName);
+        }
+
+        writeAttribute(document, out, reducedResponse, fieldNames);
+    }
+
+    /**
+     * Read a document written by {@link #write(Document, DataOutput, boolean)}
+     *
+     * @param in
+     *            the input
+     * @return the document
+     * @throws IOException
+     *             if the input cannot be read or was not written by a known version of this codec
+     */
+    public static Document read(DataInput in) throws IOException {
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unknown document encoding version " + version);
+        }
+
+        String[] fieldNames = new String[WritableUtils.readVInt(in)];
+        for (int i = 0; i < fieldNames.length; i++) {
+            fieldNames[i] = readString(in);
+        }
+
+        Attribute<?> document = readAttribute(in, fieldNames);
+        if (!(document instanceof Document)) {
+            throw new IOException("Expected a Document but found " + document.getClass().getName());
+        }
+        return (Document) document;
+    }
+
+    static void writeAttribute(Attribute<?> attr, DataOutput out, boolean reducedResponse, Map<String,Integer> fieldNames) throws IOException {
+        int id = AttributeTypes.getId(attr.getClass());
+        WritableUtils.writeVInt(out, id);
+        if (id == AttributeTypes.UNREGISTERED) {
+            writeString(out, attr.getClass().getName());
+        }
+
+        if (attr instanceof Document) {
+            ((Document) attr).writeCompact(out, reducedResponse, fieldNames);
+        } else if (attr instanceof Attributes) {
+            ((Attributes) attr).writeCompact(out, reducedResponse, fieldNames);
+        } else {
+            attr.write(out, reducedResponse);
+        }
+    }
+
+    static Attribute<?> readAttribute(DataInput in, String[] fieldNames) throws IOException {
+        int id = WritableUtils.readVInt(in);
+
+        Attribute<?> attr;
+        if (id == AttributeTypes.UNREGISTERED) {
+            attr = newInstance(readString(in));
+        } else {
+            attr = AttributeTypes.newInstance(id);
+            if (attr == null) {
+                throw new IOException("Unknown attribute type id " + id);
+            }
+        }
+
+        if (attr instanceof Document) {
+            ((Document) attr).readCompact(in, fieldNames);
+        } else if (attr instanceof Attributes) {
+            ((Attributes) attr).readCompact(in, fieldNames);
+        } else {
+            attr.readFields(in);
+        }
+        return attr;
+    }
+
+    static String fieldName(String[] fieldNames, int index) throws IOException {
+        if (index < 0 || index >= fieldNames.length) {
+            throw new IOException("Field name index " + index + " is not in the table of " + fieldNames.length + " field names");
+        }
+        return fieldNames[index];
+    }
+
+    private static void collectFieldNames(Attribute<?> attr, Map<String,Integer> fieldNames) {
+        if (attr instanceof Document) {
+            for (Map.Entry<String,Attribute<? extends Comparable<?>>> entry : ((Document) attr).dict.entrySet()) {
+                fieldNames.putIfAbsent(entry.getKey(), fieldNames.size());
+                collectFieldNames(entry.getValue(), fieldNames);
+            }
+        } else if (attr instanceof Attributes) {
+            for (Attribute<?> child : ((Attributes) attr).getAttributes()) {
+                collectFieldNames(child, fieldNames);
+            }
+        }
+    }
+
+    private static Attribute<?> newInstance(String attrClassName) throws IOException {
+        Class<?> clz;
+        try {
+            clz = Class.forName(attrClassName);
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+
+        if (!Attribute.class.isAssignableFrom(clz)) {
+            throw new ClassCastException("Found class that was not an instance of Attribute");
+        }
+
+        try {
+            return (Attribute<?>) clz.getDeclaredConstructor().newInstance();
+        } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void writeString(DataOutput out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        WritableUtils.writeVInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[WritableUtils.readVInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
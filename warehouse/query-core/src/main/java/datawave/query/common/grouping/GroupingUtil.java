@@ -10,7 +10,6 @@ import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.IntStream;
 
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.security.ColumnVisibility;
@@ -125,7 +124,7 @@ public class GroupingUtil {
                         count = 1;
                     // see above comment about the COUNT field
                     log.trace("adding {} of {} to counting map", count, fieldCollection);
-                    IntStream.range(0, count).forEach(j -> countingMap.add(fieldCollection));
+                    countingMap.add(fieldCollection, count);
                     fieldVisibilities.put(fieldCollection, entry.getValue().getColumnVisibility());
                     log.trace("put {} to {} into fieldVisibilities {}", fieldCollection, entry.getValue().getColumnVisibility(), fieldVisibilities);
                 } else {
@@ -245,13 +244,24 @@ public class GroupingUtil {
         }
 
         public int add(Collection<GroupingTypeAttribute<?>> in) {
-            int count = 0;
+            return add(in, 1);
+        }
+
+        /**
+         * Add a partial count for a group, e.g. one computed by the {@code GroupingIterator} on a tserver, in a single step.
+         *
+         * @param in
+         *            the group
+         * @param count
+         *            the number of times the group was seen
+         * @return the aggregated count for the group
+         */
+        public int add(Collection<GroupingTypeAttribute<?>> in, int count) {
             if (super.containsKey(in)) {
-                count = super.get(in);
+                count += super.get(in);
                 // aggregate the visibilities
                 combine(this.keySet(), in);
             }
-            count++;
             super.put(in, count);
             return count;
         }
@@ -187,7 +187,17 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
     // BatchScanner and query results options
     private Integer numQueryThreads = 8;
     private Integer numLookupThreads = 8;
+    // run index lookups on the executor shared by all queries, see SharedIndexLookupExecutor
+    private boolean sharedIndexLookupExecutor = false;
+    private boolean cacheIndexLookups = false;
+    private int indexLookupCacheSize = 10000;
+    private long indexLookupCacheExpirationMillis = 600000L;
     private Integer numDateIndexThreads = 8;
+    // draw scanner resources from the scheduler shared by all queries on this webserver, see ScannerResourceScheduler
+    private boolean sharedScannerPool = false;
+    private int maxScannersPerUser = 100;
+    private int maxScannersPerLogic = Integer.MAX_VALUE;
+    private int scannerPriority = 0;
     private Integer maxDocScanTimeout = -1;
     // A counter used to uniquely identify FSTs generated in the
     // PushdownLargeFieldedListsVisitor
@@ -340,6 +350,10 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
     private long maxIvaratorResults = -1;
     private int maxEvaluationPipelines = 25;
     private int maxPipelineCachedResults = 25;
+    private boolean ringBufferEvaluationPipeline = false;
+    private boolean compiledEvaluation = false;
+    // the share of the tserver ivarator and evaluation threads relative to other queries
+    private int queryPriority = 1;
     private boolean expandAllTerms = false;
     // Adding the ability to pre-cache the query model for performance sake. If this is null
     // then the query model will be pulled from the MetadataHelper
@@ -356,7 +370,10 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
     private boolean indexOnlyFilterFunctionsEnabled = false;
     private boolean compositeFilterFunctionsEnabled = false;
 
-    private int groupFieldsBatchSize;
+    // the number of documents to group on the tserver before returning partial counts, 0 groups on the webserver only
+    private int groupFieldsBatchSize = Integer.MAX_VALUE;
+    private boolean exactUnique = false;
+    private int uniqueCacheBufferSize = 100000;
     private boolean accrueStats = false;
     private Set<String> groupFields = new HashSet<>(0);
     private UniqueFields uniqueFields = new UniqueFields();
@@ -506,7 +523,15 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setCleanupShardsAndDaysQueryHints(other.isCleanupShardsAndDaysQueryHints());
         this.setNumQueryThreads(other.getNumQueryThreads());
         this.setNumIndexLookupThreads(other.getNumIndexLookupThreads());
+        this.setSharedIndexLookupExecutor(other.isSharedIndexLookupExecutor());
+        this.setCacheIndexLookups(other.isCacheIndexLookups());
+        this.setIndexLookupCacheSize(other.getIndexLookupCacheSize());
+        this.setIndexLookupCacheExpirationMillis(other.getIndexLookupCacheExpirationMillis());
         this.setNumDateIndexThreads(other.getNumDateIndexThreads());
+        this.setSharedScannerPool(other.isSharedScannerPool());
+        this.setMaxScannersPerUser(other.getMaxScannersPerUser());
+        this.setMaxScannersPerLogic(other.getMaxScannersPerLogic());
+        this.setScannerPriority(other.getScannerPriority());
         this.setMaxDocScanTimeout(other.getMaxDocScanTimeout());
         this.setFstCount(other.getFstCount());
         this.setCollapseDatePercentThreshold(other.getCollapseDatePercentThreshold());
@@ -600,6 +625,9 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setMaxIvaratorResults(other.getMaxIvaratorResults());
         this.setMaxEvaluationPipelines(other.getMaxEvaluationPipelines());
         this.setMaxPipelineCachedResults(other.getMaxPipelineCachedResults());
+        this.setRingBufferEvaluationPipeline(other.isRingBufferEvaluationPipeline());
+        this.setCompiledEvaluation(other.isCompiledEvaluation());
+        this.setQueryPriority(other.getQueryPriority());
         this.setExpandAllTerms(other.isExpandAllTerms());
         this.setQueryModel(null == other.getQueryModel() ? null : new QueryModel(other.getQueryModel()));
         this.setModelName(other.getModelName());
@@ -611,6 +639,8 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setIndexOnlyFilterFunctionsEnabled(other.isIndexOnlyFilterFunctionsEnabled());
         this.setCompositeFilterFunctionsEnabled(other.isCompositeFilterFunctionsEnabled());
         this.setGroupFieldsBatchSize(other.getGroupFieldsBatchSize());
+        this.setExactUnique(other.isExactUnique());
+        this.setUniqueCacheBufferSize(other.getUniqueCacheBufferSize());
         this.setAccrueStats(other.getAccrueStats());
         this.setGroupFields(null == other.getGroupFields() ? null : Sets.newHashSet(other.getGroupFields()));
         this.setUniqueFields(UniqueFields.copyOf(other.getUniqueFields()));
@@ -816,6 +846,38 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.numLookupThreads = numIndexLookupThreads;
     }
 
+    public boolean isSharedIndexLookupExecutor() {
+        return sharedIndexLookupExecutor;
+    }
+
+    public void setSharedIndexLookupExecutor(boolean sharedIndexLookupExecutor) {
+        this.sharedIndexLookupExecutor = sharedIndexLookupExecutor;
+    }
+
+    public boolean isCacheIndexLookups() {
+        return cacheIndexLookups;
+    }
+
+    public void setCacheIndexLookups(boolean cacheIndexLookups) {
+        this.cacheIndexLookups = cacheIndexLookups;
+    }
+
+    public int getIndexLookupCacheSize() {
+        return indexLookupCacheSize;
+    }
+
+    public void setIndexLookupCacheSize(int indexLookupCacheSize) {
+        this.indexLookupCacheSize = indexLookupCacheSize;
+    }
+
+    public long getIndexLookupCacheExpirationMillis() {
+        return indexLookupCacheExpirationMillis;
+    }
+
+    public void setIndexLookupCacheExpirationMillis(long indexLookupCacheExpirationMillis) {
+        this.indexLookupCacheExpirationMillis = indexLookupCacheExpirationMillis;
+    }
+
     public Integer getNumDateIndexThreads() {
         return numDateIndexThreads;
     }
@@ -824,6 +886,38 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.numDateIndexThreads = numDateIndexThreads;
     }
 
+    public boolean isSharedScannerPool() {
+        return sharedScannerPool;
+    }
+
+    public void setSharedScannerPool(boolean sharedScannerPool) {
+        this.sharedScannerPool = sharedScannerPool;
+    }
+
+    public int getMaxScannersPerUser() {
+        return maxScannersPerUser;
+    }
+
+    public void setMaxScannersPerUser(int maxScannersPerUser) {
+        this.maxScannersPerUser = maxScannersPerUser;
+    }
+
+    public int getMaxScannersPerLogic() {
+        return maxScannersPerLogic;
+    }
+
+    public void setMaxScannersPerLogic(int maxScannersPerLogic) {
+        this.maxScannersPerLogic = maxScannersPerLogic;
+    }
+
+    public int getScannerPriority() {
+        return scannerPriority;
+    }
+
+    public void setScannerPriority(int scannerPriority) {
+        this.scannerPriority = scannerPriority;
+    }
+
     public Integer getMaxDocScanTimeout() {
         return maxDocScanTimeout;
     }
@@ -1421,6 +1515,30 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.maxPipelineCachedResults = maxCachedResults;
     }
 
+    public boolean isRingBufferEvaluationPipeline() {
+        return ringBufferEvaluationPipeline;
+    }
+
+    public void setRingBufferEvaluationPipeline(boolean ringBufferEvaluationPipeline) {
+        this.ringBufferEvaluationPipeline = ringBufferEvaluationPipeline;
+    }
+
+    public boolean isCompiledEvaluation() {
+        return compiledEvaluation;
+    }
+
+    public void setCompiledEvaluation(boolean compiledEvaluation) {
+        this.compiledEvaluation = compiledEvaluation;
+    }
+
+    public int getQueryPriority() {
+        return queryPriority;
+    }
+
+    public void setQueryPriority(int queryPriority) {
+        this.queryPriority = queryPriority;
+    }
+
     public boolean isExpandAllTerms() {
         return expandAllTerms;
     }
@@ -1659,6 +1777,22 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.groupFieldsBatchSize = groupFieldsBatchSize;
     }
 
+    public boolean isExactUnique() {
+        return exactUnique;
+    }
+
+    public void setExactUnique(boolean exactUnique) {
+        this.exactUnique = exactUnique;
+    }
+
+    public int getUniqueCacheBufferSize() {
+        return uniqueCacheBufferSize;
+    }
+
+    public void setUniqueCacheBufferSize(int uniqueCacheBufferSize) {
+        this.uniqueCacheBufferSize = uniqueCacheBufferSize;
+    }
+
     public String getGroupFieldsBatchSizeAsString() {
         return "" + groupFieldsBatchSize;
     }
@@ -18,6 +18,7 @@ import datawave.query.attributes.Content;
 import datawave.query.attributes.Document;
 import datawave.query.attributes.ValueTuple;
 import datawave.query.jexl.ArithmeticJexlEngines;
+import datawave.query.jexl.CompiledJexlScript;
 import datawave.query.jexl.DatawaveJexlContext;
 import datawave.query.jexl.DatawaveJexlEngine;
 import datawave.query.jexl.DefaultArithmetic;
@@ -48,6 +49,11 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
      */
     protected DatawaveJexlScript script;
 
+    /**
+     * The script compiled for evaluation without the interpreter, if requested
+     */
+    protected CompiledJexlScript compiledScript;
+
     public JexlEvaluation(String query) {
         this(query, new DefaultArithmetic());
     }
@@ -90,7 +96,7 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
         }
 
         // now evaluate
-        Object o = script.execute(input.third());
+        Object o = compiledScript != null ? compiledScript.execute(input.third()) : script.execute(input.third());
         if (log.isTraceEnabled()) {
             log.trace("Evaluation of " + query + " against " + input.third() + " returned " + o);
         }
@@ -161,6 +167,27 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
         return matched;
     }
 
+    public boolean isCompiled() {
+        return compiledScript != null;
+    }
+
+    /**
+     * Evaluate documents with the query compiled into a tree of evaluators instead of interpreting it. The result of evaluation is the same either way.
+     *
+     * @param compiled
+     *            whether to evaluate with the compiled query
+     */
+    public void setCompiled(boolean compiled) {
+        if (!compiled) {
+            compiledScript = null;
+        } else if (compiledScript == null) {
+            compiledScript = CompiledJexlScript.compile(engine, arithmetic, script.getScript());
+            if (compiledScript == null) {
+                log.debug("Unable to compile " + query + ", it will be interpreted");
+            }
+        }
+    }
+
     public boolean isGatherPhraseOffsets() {
         return gatherPhraseOffsets;
     }
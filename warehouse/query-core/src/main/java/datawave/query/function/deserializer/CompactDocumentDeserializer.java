@@ -0,0 +1,27 @@
+package datawave.query.function.deserializer;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+
+import datawave.query.attributes.Document;
+import datawave.query.attributes.DocumentCodec;
+
+/**
+ * Convert a Value to a Document through the {@link DocumentCodec}. Ordering of Attributes is <b>not</b> guaranteed across serialization.
+ */
+public class CompactDocumentDeserializer extends DocumentDeserializer implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Document deserialize(InputStream data) {
+        try {
+            return DocumentCodec.read(new DataInputStream(data));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not convert Document through the DocumentCodec.", e);
+        }
+    }
+
+}
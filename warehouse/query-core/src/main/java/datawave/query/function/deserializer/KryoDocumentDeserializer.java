@@ -2,40 +2,72 @@ package datawave.query.function.deserializer;
 
 import java.io.InputStream;
 import java.io.Serializable;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
+import com.google.common.collect.Maps;
 
+import datawave.query.DocumentSerialization;
 import datawave.query.attributes.Attribute;
 import datawave.query.attributes.Document;
 import datawave.query.function.KryoCVAwareSerializableSerializer;
 
 /**
  * Transform Kryo-serialized bytes back into a Document. Ordering of Attributes is <b>not</b> guaranteed across serialization.
- *
- *
- *
+ * <p>
+ * An uncompressed document is read in place from the bytes of its {@link Value} using a single reused {@link Input}, instead of through a new stream and read
+ * buffer for every document. As with the {@link Kryo} instance, an instance of this class must not be shared across threads.
  */
 public class KryoDocumentDeserializer extends DocumentDeserializer implements Serializable {
     private static final long serialVersionUID = 1L;
+    private static final byte[] EMPTY = new byte[0];
 
     final transient Kryo kryo = new Kryo();
+    private transient Input input;
 
     public KryoDocumentDeserializer() {
         kryo.addDefaultSerializer(Attribute.class, new KryoCVAwareSerializableSerializer(true));
     }
 
+    @Override
+    public Entry<Key,Document> apply(Entry<Key,Value> from) {
+        byte[] data = from.getValue().get();
+        if (DocumentSerialization.NONE != DocumentSerialization.readHeader(data)) {
+            return super.apply(from);
+        }
+
+        if (input == null) {
+            input = new Input();
+        }
+        input.setBuffer(data, DocumentSerialization.HEADER_LENGTH, data.length - DocumentSerialization.HEADER_LENGTH);
+        Document document = read(input);
+        // do not hold on to the last document's bytes
+        input.setBuffer(EMPTY);
+
+        return Maps.immutableEntry(from.getKey(), document);
+    }
+
     @Override
     public Document deserialize(InputStream data) {
         Input input = new Input(data);
+        Document document = read(input);
+
+        input.close();
+
+        return document;
+    }
+
+    private Document read(Input input) {
         Document document = kryo.readObject(input, Document.class);
 
         if (null == document) {
             throw new RuntimeException("Deserialized null Document");
         }
 
-        input.close();
-
         return document;
     }
 
@@ -0,0 +1,36 @@
+package datawave.query.function.serializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import datawave.query.attributes.Document;
+import datawave.query.attributes.DocumentCodec;
+
+/**
+ * Convert a Document to a Value through the {@link DocumentCodec}, which writes attribute types as registered ids and each field name once. Ordering of
+ * Attributes is <b>not</b> guaranteed across serialization.
+ */
+public class CompactDocumentSerializer extends DocumentSerializer {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream(4096);
+    final DataOutputStream dos = new DataOutputStream(baos);
+
+    public CompactDocumentSerializer(boolean reducedResponse, boolean allowCompression) {
+        super(reducedResponse, allowCompression);
+    }
+
+    @Override
+    public byte[] serialize(Document doc) {
+        baos.reset();
+
+        try {
+            DocumentCodec.write(doc, dos, reducedResponse);
+            dos.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not convert Document through the DocumentCodec.", e);
+        }
+
+        return baos.toByteArray();
+    }
+
+}
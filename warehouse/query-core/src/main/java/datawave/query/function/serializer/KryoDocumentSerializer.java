@@ -1,26 +1,36 @@
 package datawave.query.function.serializer;
 
-import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Map.Entry;
 
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
 import org.apache.log4j.Logger;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Output;
+import com.google.common.collect.Maps;
 
+import datawave.query.DocumentSerialization;
 import datawave.query.attributes.Attribute;
 import datawave.query.attributes.Document;
 import datawave.query.function.KryoCVAwareSerializableSerializer;
 
 /**
  * Transform the Document into a Kryo-serialized version. Ordering of Attributes is <b>not</b> guaranteed across serialization.
- *
- *
- *
+ * <p>
+ * A single {@link Output} buffer is reused for every document and the document header is written into it ahead of the document, so an uncompressed document is
+ * copied exactly once, into its {@link Value}. A buffer that grew past {@link #MAX_RETAINED_BUFFER_SIZE} for a large document is released after use. As with
+ * the {@link Kryo} instance, an instance of this class must not be shared across threads.
  */
 public class KryoDocumentSerializer extends DocumentSerializer {
     private static final Logger log = Logger.getLogger(KryoDocumentSerializer.class);
+    private static final byte[] UNCOMPRESSED_HEADER = DocumentSerialization.getHeader();
+    protected static final int INITIAL_BUFFER_SIZE = 4096;
+    protected static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
     final Kryo kryo = new Kryo();
-    final ByteArrayOutputStream baos = new ByteArrayOutputStream(4096);
+    Output output = new Output(INITIAL_BUFFER_SIZE, -1);
 
     public KryoDocumentSerializer() {
         this(false, false);
@@ -36,16 +46,39 @@ public class KryoDocumentSerializer extends DocumentSerializer {
     }
 
     @Override
-    public byte[] serialize(Document doc) {
-        baos.reset();
+    public Entry<Key,Value> apply(Entry<Key,Document> from) {
+        output.clear();
+        output.writeBytes(UNCOMPRESSED_HEADER);
+        kryo.writeObject(output, from.getValue());
 
-        Output output = new Output(baos);
+        Value value;
+        int length = output.position();
+        if (DocumentSerialization.NONE != this.compression && length - UNCOMPRESSED_HEADER.length > minCompressionSize) {
+            value = getValue(Arrays.copyOfRange(output.getBuffer(), UNCOMPRESSED_HEADER.length, length));
+        } else {
+            value = new Value(output.getBuffer(), 0, length);
+        }
+        releaseLargeBuffer();
 
-        kryo.writeObject(output, doc);
+        return Maps.immutableEntry(from.getKey(), value);
+    }
 
-        output.close();
+    @Override
+    public byte[] serialize(Document doc) {
+        output.clear();
+        kryo.writeObject(output, doc);
+        byte[] bytes = output.toBytes();
+        releaseLargeBuffer();
+        return bytes;
+    }
 
-        return baos.toByteArray();
+    private void releaseLargeBuffer() {
+        if (output.getBuffer().length > MAX_RETAINED_BUFFER_SIZE) {
+            if (log.isTraceEnabled()) {
+                log.trace("Releasing serialization buffer of " + output.getBuffer().length + " bytes");
+            }
+            output = new Output(INITIAL_BUFFER_SIZE, -1);
+        }
     }
 
 }
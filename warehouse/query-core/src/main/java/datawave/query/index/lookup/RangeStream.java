@@ -144,10 +144,16 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
         this.scanners = scanners;
         this.metadataHelper = metadataHelper;
         int maxLookup = (int) Math.max(config.getNumIndexLookupThreads(), 1);
-        executor = Executors.newFixedThreadPool(maxLookup);
-        runnables = new LinkedBlockingDeque<>();
         int executeLookupMin = Math.max(maxLookup / 2, 1);
-        streamExecutor = new ThreadPoolExecutor(executeLookupMin, maxLookup, 100, TimeUnit.MILLISECONDS, runnables);
+        if (config.isSharedIndexLookupExecutor()) {
+            executor = SharedIndexLookupExecutor.newExecutor("RangeStream lookup", 1, maxLookup);
+            // scanner sessions hold their thread until consumed, so never drop below the number the fixed pool would have run
+            streamExecutor = SharedIndexLookupExecutor.newExecutor("RangeStream scanner", executeLookupMin, maxLookup);
+        } else {
+            executor = Executors.newFixedThreadPool(maxLookup);
+            runnables = new LinkedBlockingDeque<>();
+            streamExecutor = new ThreadPoolExecutor(executeLookupMin, maxLookup, 100, TimeUnit.MILLISECONDS, runnables);
+        }
         fieldDataTypes = config.getQueryFieldsDatatypes();
         collapseUids = config.getCollapseUids();
         try {
@@ -0,0 +1,245 @@
+package datawave.query.index.lookup;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs the global index lookups of every query on one pool of threads, instead of each {@link RangeStream} starting and stopping pools of its own.
+ * <p>
+ * Each query gets an {@link ExecutorService} from {@link #newExecutor(String, int, int)} that runs its tasks on the shared threads, with no more than its own
+ * concurrency limit running at once. That limit adapts to load between the given bounds: the {@link #getTargetThreads() target number of threads} is divided
+ * among the executors that are open, so a lone query with a wide OR-tree can use all of its threads while many concurrent queries are each held to a share.
+ * The shared threads are created on demand, up to the number in the {@value #MAX_THREADS_PROPERTY} system property, and retire after being idle for a minute.
+ * Once they are all busy, up to the number of tasks in the {@value #MAX_QUEUED_PROPERTY} system property wait for them, and any task beyond that runs on the
+ * thread that hands it to its executor. Shutting down a query's executor only affects that query's tasks.
+ */
+public class SharedIndexLookupExecutor {
+
+    private static final Logger log = Logger.getLogger(SharedIndexLookupExecutor.class);
+
+    public static final int DEFAULT_TARGET_THREADS = 256;
+    public static final String MAX_THREADS_PROPERTY = "datawave.query.index.lookup.threads";
+    public static final int DEFAULT_MAX_THREADS = 512;
+    public static final String MAX_QUEUED_PROPERTY = "datawave.query.index.lookup.queue";
+    public static final int DEFAULT_MAX_QUEUED = 4096;
+
+    private static final ThreadPoolExecutor threads = newThreadPool(Integer.getInteger(MAX_THREADS_PROPERTY, DEFAULT_MAX_THREADS),
+                    Integer.getInteger(MAX_QUEUED_PROPERTY, DEFAULT_MAX_QUEUED));
+
+    private static final AtomicInteger openExecutors = new AtomicInteger();
+
+    private static volatile int targetThreads = DEFAULT_TARGET_THREADS;
+
+    private SharedIndexLookupExecutor() {}
+
+    /**
+     * Create an executor for one query's lookups
+     *
+     * @param name
+     *            a name for the executor, used in logging
+     * @param minConcurrency
+     *            the number of tasks this executor may always run at once, however loaded the shared threads are
+     * @param maxConcurrency
+     *            the most tasks this executor will run at once
+     * @return the executor, which must be shut down when the query is done with it
+     */
+    public static ExecutorService newExecutor(String name, int minConcurrency, int maxConcurrency) {
+        return new QueryExecutor(name, minConcurrency, maxConcurrency, threads);
+    }
+
+    /**
+     * Create the shared threads. Tasks beyond the queue are rejected, and then run by the {@link QueryExecutor} on the calling thread.
+     *
+     * @param maxThreads
+     *            the number of threads, which retire after being idle for a minute
+     * @param maxQueued
+     *            the number of tasks that may wait for a thread
+     * @return the pool
+     */
+    static ThreadPoolExecutor newThreadPool(int maxThreads, int maxQueued) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(maxQueued),
+                        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("index-lookup-%d").build(), new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    public static int getTargetThreads() {
+        return targetThreads;
+    }
+
+    public static void setTargetThreads(int targetThreads) {
+        Preconditions.checkArgument(targetThreads > 0);
+        SharedIndexLookupExecutor.targetThreads = targetThreads;
+    }
+
+    public static int getOpenExecutors() {
+        return openExecutors.get();
+    }
+
+    public static int getPoolSize() {
+        return threads.getPoolSize();
+    }
+
+    static class QueryExecutor extends AbstractExecutorService {
+        private final String name;
+        private final int minConcurrency;
+        private final int maxConcurrency;
+        private final ThreadPoolExecutor pool;
+        private final Object lock = new Object();
+        private final Deque<Runnable> pending = new ArrayDeque<>();
+        private final Set<Thread> workers = new HashSet<>();
+        private int active = 0;
+        private boolean shutdown = false;
+
+        QueryExecutor(String name, int minConcurrency, int maxConcurrency, ThreadPoolExecutor pool) {
+            Preconditions.checkArgument(minConcurrency > 0 && minConcurrency <= maxConcurrency);
+            this.name = name;
+            this.minConcurrency = minConcurrency;
+            this.maxConcurrency = maxConcurrency;
+            this.pool = pool;
+            openExecutors.incrementAndGet();
+        }
+
+        /**
+         * @return the number of tasks this executor may run at once given the current number of open executors
+         */
+        int getConcurrency() {
+            return Math.max(minConcurrency, Math.min(maxConcurrency, targetThreads / Math.max(1, openExecutors.get())));
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            synchronized (lock) {
+                if (shutdown) {
+                    throw new RejectedExecutionException(name + " has been shut down");
+                }
+                pending.add(command);
+            }
+            dispatch();
+        }
+
+        private void dispatch() {
+            while (true) {
+                Runnable next;
+                synchronized (lock) {
+                    if (pending.isEmpty() || active >= getConcurrency()) {
+                        return;
+                    }
+                    next = pending.poll();
+                    active++;
+                }
+                try {
+                    pool.execute(() -> {
+                        run(next);
+                        // an interrupt from shutdownNow was meant for this task, not the next one to use the thread
+                        Thread.interrupted();
+                        dispatch();
+                    });
+                } catch (RejectedExecutionException e) {
+                    // the shared threads and their queue are full, so the caller runs the task itself, which also holds back what it submits next
+                    run(next);
+                }
+            }
+        }
+
+        private void run(Runnable task) {
+            Thread thread = Thread.currentThread();
+            synchronized (lock) {
+                workers.add(thread);
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.error("Unexpected failure in " + name, t);
+            } finally {
+                synchronized (lock) {
+                    workers.remove(thread);
+                    active--;
+                    lock.notifyAll();
+                }
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            synchronized (lock) {
+                if (!shutdown) {
+                    shutdown = true;
+                    openExecutors.decrementAndGet();
+                    lock.notifyAll();
+                }
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            List<Runnable> notRun;
+            synchronized (lock) {
+                shutdown();
+                notRun = new ArrayList<>(pending);
+                pending.clear();
+                for (Thread worker : workers) {
+                    worker.interrupt();
+                }
+            }
+            // do not leave anyone waiting on a task that will never run
+            for (Runnable runnable : notRun) {
+                if (runnable instanceof Future) {
+                    ((Future<?>) runnable).cancel(false);
+                }
+            }
+            return notRun;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            synchronized (lock) {
+                return shutdown;
+            }
+        }
+
+        @Override
+        public boolean isTerminated() {
+            synchronized (lock) {
+                return shutdown && active == 0 && pending.isEmpty();
+            }
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (lock) {
+                while (!(shutdown && active == 0 && pending.isEmpty())) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                }
+                return true;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name + " (concurrency=" + minConcurrency + '-' + maxConcurrency + ')';
+        }
+    }
+}
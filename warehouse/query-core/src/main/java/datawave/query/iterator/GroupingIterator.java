@@ -37,6 +37,9 @@ import datawave.query.jexl.JexlASTHelper;
 /**
  * Because the t-server may tear down and start a new iterator at any time after a next() call, there can be no saved state in this class. For that reason, each
  * next call on the t-server will flatten the aggregated data into a single Entry&gt;Key,Document&lt; to return to the web server.
+ * <p>
+ * Each flattened document holds the partial counts for the groups seen since the previous one, and the web server's {@code GroupingTransform} merges the
+ * partial counts from every shard and scan session. Only one document per group per batch is serialized and returned instead of every matching document.
  */
 public class GroupingIterator implements Iterator<Map.Entry<Key,Document>> {
 
@@ -107,7 +110,7 @@ public class GroupingIterator implements Iterator<Map.Entry<Key,Document>> {
                     keys.add(entry.getKey());
                     GroupingUtil.GroupingInfo groupingInfo = groupingUtil.getGroupingInfo(entry, groupFieldsSet, this.countingMap);
                     this.countingMap = groupingInfo.getCountsMap();
-                    this.fieldVisibilities = groupingInfo.getFieldVisibilities();
+                    this.fieldVisibilities.putAll(groupingInfo.getFieldVisibilities());
                 }
             } else if (yieldCallback != null && yieldCallback.hasYielded()) {
                 log.trace("hasNext is false because yield was called");
@@ -165,7 +168,10 @@ public class GroupingIterator implements Iterator<Map.Entry<Key,Document>> {
             }
             next = Maps.immutableEntry(key, document);
             log.trace("hasNext {}", next);
+            // the partial counts have been handed off, start the next batch from scratch so they are not returned again
             countingMap.clear();
+            fieldVisibilities.clear();
+            documents.clear();
             return true;
         }
 
@@ -250,7 +256,6 @@ public class GroupingIterator implements Iterator<Map.Entry<Key,Document>> {
         ColumnVisibility combinedVisibility = groupingUtil.combine(visibilities, markingFunctions);
         log.trace("combined visibilities: {} to {}", visibilities, combinedVisibility);
         theDocument.setColumnVisibility(combinedVisibility);
-        // documents.clear();
         log.trace("flattened document: {}", theDocument);
         return theDocument;
     }
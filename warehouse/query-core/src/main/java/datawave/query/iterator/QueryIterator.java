@@ -80,10 +80,12 @@ import datawave.query.function.MaskedValueFilterInterface;
 import datawave.query.function.RangeProvider;
 import datawave.query.function.RemoveGroupingContext;
 import datawave.query.function.deserializer.KryoDocumentDeserializer;
+import datawave.query.function.serializer.CompactDocumentSerializer;
 import datawave.query.function.serializer.KryoDocumentSerializer;
 import datawave.query.function.serializer.ToStringDocumentSerializer;
 import datawave.query.function.serializer.WritableDocumentSerializer;
 import datawave.query.iterator.aggregation.DocumentData;
+import datawave.query.iterator.ivarator.IvaratorCacheDir;
 import datawave.query.iterator.ivarator.IvaratorCacheDirConfig;
 import datawave.query.iterator.pipeline.PipelineFactory;
 import datawave.query.iterator.pipeline.PipelineIterator;
@@ -442,8 +444,8 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
             // Create the pipeline iterator for document aggregation and
             // evaluation within a thread pool
             PipelineIterator pipelineIter = PipelineFactory.createIterator(this.seekKeySource, getMaxEvaluationPipelines(), getMaxPipelineCachedResults(),
-                            getSerialPipelineRequest(), querySpanCollector, trackingSpan, this, sourceForDeepCopies.deepCopy(myEnvironment), myEnvironment,
-                            yield, yieldThresholdMs, columnFamilies, inclusive);
+                            getSerialPipelineRequest(), isRingBufferEvaluationPipeline(), querySpanCollector, trackingSpan, this,
+                            sourceForDeepCopies.deepCopy(myEnvironment), myEnvironment, yield, yieldThresholdMs, columnFamilies, inclusive);
 
             pipelineIter.setCollectTimingDetails(collectTimingDetails);
             // TODO pipelineIter.setStatsdHostAndPort(statsdHostAndPort);
@@ -496,6 +498,9 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
             } else if (this.getReturnType() == ReturnType.writable) {
                 // Use the Writable interface to serialize the Document
                 this.serializedDocuments = Iterators.transform(pipelineDocuments, new WritableDocumentSerializer(isReducedResponse()));
+            } else if (this.getReturnType() == ReturnType.compact) {
+                // Use the DocumentCodec to serialize the Document
+                this.serializedDocuments = Iterators.transform(pipelineDocuments, new CompactDocumentSerializer(isReducedResponse(), isCompressResults()));
             } else if (this.getReturnType() == ReturnType.tostring) {
                 // Just return a toString() representation of the document
                 this.serializedDocuments = Iterators.transform(pipelineDocuments, new ToStringDocumentSerializer(isReducedResponse()));
@@ -565,6 +570,9 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
      *             for read/write issues
      */
     private void handleException(Exception e) throws IOException {
+        // the scan is over, so any signatures the unique transform flushed to disk will not be needed
+        closeUniqueTransform();
+
         Throwable reason = e;
 
         // We need to pass IOException, IteratorInterruptedException, and TabletClosedExceptions up to the Tablet as they are
@@ -933,6 +941,9 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
         if (!this.disableEvaluation) {
 
             JexlEvaluation jexlEvaluationFunction = getJexlEvaluation(documentSource);
+            if (isCompiledEvaluation()) {
+                jexlEvaluationFunction.setCompiled(true);
+            }
             Collection<String> variables = null;
             if (null != documentSource && null != documentSource.getQuery()) {
 
@@ -1163,6 +1174,9 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
             }
             this.key = null;
             this.value = null;
+
+            // the scan is complete or has yielded, either way this iterator will not be used again
+            closeUniqueTransform();
         }
     }
 
@@ -1435,6 +1449,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                 .setQueryLock(this.getQueryLock())
                 .setIvaratorCacheDirConfigs(this.getIvaratorCacheDirConfigs())
                 .setQueryId(this.getQueryId())
+                .setQueryPriority(this.getQueryPriority())
                 .setScanId(this.getScanId())
                 .setIvaratorCacheSubDirPrefix(this.getHdfsCacheSubDirPrefix())
                 .setHdfsFileCompressionCodec(this.getHdfsFileCompressionCodec())
@@ -1564,17 +1579,34 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
         return new ValueComparator(from.second().getMetadata());
     }
 
-    protected UniqueTransform getUniqueTransform() {
+    protected UniqueTransform getUniqueTransform() throws IOException {
         if (uniqueTransform == null && getUniqueFields() != null && !getUniqueFields().isEmpty()) {
             synchronized (getUniqueFields()) {
                 if (uniqueTransform == null) {
-                    uniqueTransform = new UniqueTransform(getUniqueFields());
+                    List<IvaratorCacheDir> cacheDirs = Collections.emptyList();
+                    if (isExactUnique()) {
+                        // flush the signatures under the ivarator cache dirs of this scan
+                        String subPath = queryId + (scanId == null ? "" : "/" + scanId) + "/unique";
+                        cacheDirs = IvaratorCacheDir.create(getIvaratorCacheDirConfigs(), getFileSystemCache(), subPath);
+                    }
+                    uniqueTransform = new UniqueTransform(getUniqueFields(), isExactUnique(), getUniqueCacheBufferSize(), cacheDirs);
                 }
             }
         }
         return uniqueTransform;
     }
 
+    /**
+     * Close the unique transform, deleting any signatures it flushed to disk. When the scan is torn down before this is called, the signatures are deleted once
+     * the transform is garbage collected, and by the query logic when the query is closed.
+     */
+    protected void closeUniqueTransform() {
+        if (uniqueTransform != null) {
+            uniqueTransform.close();
+            uniqueTransform = null;
+        }
+    }
+
     protected GroupingIterator getGroupingIteratorInstance(Iterator<Entry<Key,Document>> in) {
         if (groupingIterator == null && getGroupFields() != null && !getGroupFields().isEmpty()) {
             synchronized (getGroupFields()) {
@@ -53,6 +53,7 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 
 import datawave.core.iterators.DatawaveFieldIndexCachingIteratorJexl.HdfsBackedControl;
+import datawave.core.iterators.FairTaskScheduler;
 import datawave.core.iterators.filesystem.FileSystemCache;
 import datawave.core.iterators.querylock.QueryLock;
 import datawave.data.type.Type;
@@ -87,6 +88,7 @@ import datawave.query.statsd.QueryStatsDClient;
 import datawave.query.tables.async.Scan;
 import datawave.query.tracking.ActiveQueryLog;
 import datawave.query.util.TypeMetadata;
+import datawave.query.util.sortedset.BufferedFileBackedByteSet;
 import datawave.query.util.sortedset.FileSortedSet;
 import datawave.util.StringUtils;
 import datawave.util.UniversalSet;
@@ -140,6 +142,8 @@ public class QueryOptions implements OptionDescriber {
     public static final String GROUP_FIELDS = "group.fields";
     public static final String GROUP_FIELDS_BATCH_SIZE = "group.fields.batch.size";
     public static final String UNIQUE_FIELDS = "unique.fields";
+    public static final String EXACT_UNIQUE = "exact.unique";
+    public static final String UNIQUE_CACHE_BUFFER_SIZE = "unique.cache.buffer.size";
     public static final String HITS_ONLY = "hits.only";
     public static final String HIT_LIST = "hit.list";
     public static final String START_TIME = "start.time";
@@ -231,6 +235,12 @@ public class QueryOptions implements OptionDescriber {
 
     public static final String SERIAL_EVALUATION_PIPELINE = "serial.evaluation.pipeline";
 
+    public static final String RING_BUFFER_EVALUATION_PIPELINE = "ring.buffer.evaluation.pipeline";
+
+    public static final String COMPILED_EVALUATION = "compiled.evaluation";
+
+    public static final String QUERY_PRIORITY = "query.priority";
+
     public static final String MAX_PIPELINE_CACHED_RESULTS = "max.pipeline.cached.results";
     public static final String DATE_INDEX_TIME_TRAVEL = "date.index.time.travel";
 
@@ -291,6 +301,8 @@ public class QueryOptions implements OptionDescriber {
     protected Set<String> groupFields = Sets.newHashSet();
     protected int groupFieldsBatchSize = Integer.MAX_VALUE;
     protected UniqueFields uniqueFields = new UniqueFields();
+    protected boolean exactUnique = false;
+    protected int uniqueCacheBufferSize = BufferedFileBackedByteSet.DEFAULT_BUFFER_PERSIST_THRESHOLD;
 
     protected Set<String> hitsOnlySet = new HashSet<>();
 
@@ -385,6 +397,12 @@ public class QueryOptions implements OptionDescriber {
 
     protected boolean serialEvaluationPipeline = false;
 
+    protected boolean ringBufferEvaluationPipeline = false;
+
+    protected boolean compiledEvaluation = false;
+
+    protected int queryPriority = FairTaskScheduler.DEFAULT_PRIORITY;
+
     protected String metadataTableName;
 
     protected boolean dateIndexTimeTravel = false;
@@ -494,6 +512,8 @@ public class QueryOptions implements OptionDescriber {
         this.limitFieldsField = other.limitFieldsField;
         this.groupFields = other.groupFields;
         this.groupFieldsBatchSize = other.groupFieldsBatchSize;
+        this.exactUnique = other.exactUnique;
+        this.uniqueCacheBufferSize = other.uniqueCacheBufferSize;
         this.hitsOnlySet = other.hitsOnlySet;
 
         this.compressedMappings = other.compressedMappings;
@@ -504,6 +524,9 @@ public class QueryOptions implements OptionDescriber {
         this.contentExpansionFields = other.contentExpansionFields;
 
         this.maxEvaluationPipelines = other.maxEvaluationPipelines;
+        this.ringBufferEvaluationPipeline = other.ringBufferEvaluationPipeline;
+        this.compiledEvaluation = other.compiledEvaluation;
+        this.queryPriority = other.queryPriority;
 
         this.dateIndexTimeTravel = other.dateIndexTimeTravel;
 
@@ -1035,6 +1058,22 @@ public class QueryOptions implements OptionDescriber {
         this.uniqueFields = uniqueFields;
     }
 
+    public boolean isExactUnique() {
+        return exactUnique;
+    }
+
+    public void setExactUnique(boolean exactUnique) {
+        this.exactUnique = exactUnique;
+    }
+
+    public int getUniqueCacheBufferSize() {
+        return uniqueCacheBufferSize;
+    }
+
+    public void setUniqueCacheBufferSize(int uniqueCacheBufferSize) {
+        this.uniqueCacheBufferSize = uniqueCacheBufferSize;
+    }
+
     public Set<String> getHitsOnlySet() {
         return hitsOnlySet;
     }
@@ -1134,6 +1173,8 @@ public class QueryOptions implements OptionDescriber {
         options.put(GROUP_FIELDS, "group fields");
         options.put(GROUP_FIELDS_BATCH_SIZE, "group fields.batch.size");
         options.put(UNIQUE_FIELDS, "unique fields");
+        options.put(EXACT_UNIQUE, "Use an exact, file backed set instead of a bloom filter to filter documents on the unique fields");
+        options.put(UNIQUE_CACHE_BUFFER_SIZE, "The number of unique signatures to hold in memory before flushing to disk when using exact unique filtering");
         options.put(HIT_LIST, "hit list");
         options.put(NON_INDEXED_DATATYPES, "Normalizers to apply only at aggregation time");
         options.put(CONTAINS_INDEX_ONLY_TERMS, "Does the query being evaluated contain any terms which are index-only");
@@ -1165,6 +1206,10 @@ public class QueryOptions implements OptionDescriber {
         options.put(COMPRESS_SERVER_SIDE_RESULTS, "GZIP compress the serialized Documents before returning to the webserver");
         options.put(MAX_EVALUATION_PIPELINES, "The max number of evaluation pipelines");
         options.put(SERIAL_EVALUATION_PIPELINE, "Forces us to use the serial pipeline. Allows us to still have a single thread for evaluation");
+        options.put(RING_BUFFER_EVALUATION_PIPELINE,
+                        "Use the ring buffer pipeline, with pre-allocated slots and completion signalling, for parallel evaluation");
+        options.put(COMPILED_EVALUATION, "Evaluate documents with the query compiled into a tree of evaluators instead of interpreting it");
+        options.put(QUERY_PRIORITY, "The share of the tserver ivarator and evaluation threads this query gets relative to other queries, default 1");
         options.put(MAX_PIPELINE_CACHED_RESULTS, "The max number of non-null evaluated results to cache beyond the evaluation pipelines in queue");
         options.put(DATE_INDEX_TIME_TRAVEL, "Whether the shards from before the event should be gathered from the dateIndex");
 
@@ -1495,6 +1540,14 @@ public class QueryOptions implements OptionDescriber {
             this.setUniqueFields(UniqueFields.from(options.get(UNIQUE_FIELDS)));
         }
 
+        if (options.containsKey(EXACT_UNIQUE)) {
+            this.setExactUnique(Boolean.parseBoolean(options.get(EXACT_UNIQUE)));
+        }
+
+        if (options.containsKey(UNIQUE_CACHE_BUFFER_SIZE)) {
+            this.setUniqueCacheBufferSize(Integer.parseInt(options.get(UNIQUE_CACHE_BUFFER_SIZE)));
+        }
+
         if (options.containsKey(HIT_LIST)) {
             log.debug("Adding hitList to QueryOptions? " + options.get(HIT_LIST));
             if (Boolean.parseBoolean(options.get(HIT_LIST))) {
@@ -1628,6 +1681,18 @@ public class QueryOptions implements OptionDescriber {
             this.setSerialEvaluationPipeline(Boolean.parseBoolean(options.get(SERIAL_EVALUATION_PIPELINE)));
         }
 
+        if (options.containsKey(RING_BUFFER_EVALUATION_PIPELINE)) {
+            this.setRingBufferEvaluationPipeline(Boolean.parseBoolean(options.get(RING_BUFFER_EVALUATION_PIPELINE)));
+        }
+
+        if (options.containsKey(COMPILED_EVALUATION)) {
+            this.setCompiledEvaluation(Boolean.parseBoolean(options.get(COMPILED_EVALUATION)));
+        }
+
+        if (options.containsKey(QUERY_PRIORITY)) {
+            this.setQueryPriority(Integer.parseInt(options.get(QUERY_PRIORITY)));
+        }
+
         if (options.containsKey(MAX_PIPELINE_CACHED_RESULTS)) {
             this.setMaxPipelineCachedResults(Integer.parseInt(options.get(MAX_PIPELINE_CACHED_RESULTS)));
         }
@@ -2003,6 +2068,30 @@ public class QueryOptions implements OptionDescriber {
         this.maxEvaluationPipelines = maxEvaluationPipelines;
     }
 
+    public boolean isRingBufferEvaluationPipeline() {
+        return ringBufferEvaluationPipeline;
+    }
+
+    public void setRingBufferEvaluationPipeline(boolean ringBufferEvaluationPipeline) {
+        this.ringBufferEvaluationPipeline = ringBufferEvaluationPipeline;
+    }
+
+    public boolean isCompiledEvaluation() {
+        return compiledEvaluation;
+    }
+
+    public void setCompiledEvaluation(boolean compiledEvaluation) {
+        this.compiledEvaluation = compiledEvaluation;
+    }
+
+    public int getQueryPriority() {
+        return queryPriority;
+    }
+
+    public void setQueryPriority(int queryPriority) {
+        this.queryPriority = queryPriority;
+    }
+
     public int getMaxPipelineCachedResults() {
         return maxPipelineCachedResults;
     }
@@ -83,6 +83,8 @@ public class IndexFilterIteratorBuilder extends IvaratorBuilder implements Itera
                         .withNumRetries(ivaratorNumRetries)
                         .withPersistOptions(ivaratorPersistOptions)
                         .withQueryLock(queryLock)
+                        .withQueryId(queryId)
+                        .withQueryPriority(queryPriority)
                         .allowDirResuse(true)
                         .withReturnKeyType(PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME)
                         .withSortedUUIDs(sortedUIDs)
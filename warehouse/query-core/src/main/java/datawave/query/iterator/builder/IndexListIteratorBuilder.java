@@ -90,6 +90,8 @@ public class IndexListIteratorBuilder extends IvaratorBuilder implements Iterato
                         .withPersistOptions(ivaratorPersistOptions)
                         .withMaxResults(maxIvaratorResults)
                         .withQueryLock(queryLock)
+                        .withQueryId(queryId)
+                        .withQueryPriority(queryPriority)
                         .allowDirResuse(true)
                         .withReturnKeyType(PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME)
                         .withSortedUUIDs(sortedUIDs)
@@ -85,6 +85,8 @@ public class IndexRangeIteratorBuilder extends IvaratorBuilder implements Iterat
                         .withPersistOptions(ivaratorPersistOptions)
                         .withMaxResults(maxIvaratorResults)
                         .withQueryLock(queryLock)
+                        .withQueryId(queryId)
+                        .withQueryPriority(queryPriority)
                         .allowDirResuse(true)
                         .withReturnKeyType(PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME)
                         .withSortedUUIDs(sortedUIDs)
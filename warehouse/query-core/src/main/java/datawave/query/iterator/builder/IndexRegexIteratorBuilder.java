@@ -66,11 +66,14 @@ public class IndexRegexIteratorBuilder extends IvaratorBuilder implements Iterat
                         .withNumRetries(ivaratorNumRetries)
                         .withPersistOptions(ivaratorPersistOptions)
                         .withQueryLock(queryLock)
+                        .withQueryId(queryId)
+                        .withQueryPriority(queryPriority)
                         .allowDirResuse(true)
                         .withReturnKeyType(PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME)
                         .withSortedUUIDs(sortedUIDs)
                         .withCompositeMetadata(compositeMetadata)
                         .withCompositeSeekThreshold(compositeSeekThreshold)
+                        .withFiNextSeek(fiNextSeek)
                         .withTypeMetadata(typeMetadata)
                         .withIteratorEnv(env)
                         .withIvaratorSourcePool(ivaratorSourcePool)
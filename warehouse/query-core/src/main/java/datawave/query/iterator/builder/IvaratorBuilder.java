@@ -13,6 +13,7 @@ import org.apache.commons.pool.impl.GenericObjectPool;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 
+import datawave.core.iterators.FairTaskScheduler;
 import datawave.core.iterators.querylock.QueryLock;
 import datawave.query.composite.CompositeMetadata;
 import datawave.query.iterator.ivarator.IvaratorCacheDir;
@@ -39,6 +40,8 @@ public abstract class IvaratorBuilder extends IndexIteratorBuilder {
     protected QuerySpanCollector querySpanCollector = null;
     protected CompositeMetadata compositeMetadata;
     protected int compositeSeekThreshold;
+    protected int fiNextSeek = -1;
+    protected int queryPriority = FairTaskScheduler.DEFAULT_PRIORITY;
     protected GenericObjectPool<SortedKeyValueIterator<Key,Value>> ivaratorSourcePool;
 
     protected void validateIvaratorControlDir(IvaratorCacheDir ivaratorCacheDir) {
@@ -170,6 +173,22 @@ public abstract class IvaratorBuilder extends IndexIteratorBuilder {
         this.compositeSeekThreshold = compositeSeekThreshold;
     }
 
+    public int getFiNextSeek() {
+        return fiNextSeek;
+    }
+
+    public void setFiNextSeek(int fiNextSeek) {
+        this.fiNextSeek = fiNextSeek;
+    }
+
+    public int getQueryPriority() {
+        return queryPriority;
+    }
+
+    public void setQueryPriority(int queryPriority) {
+        this.queryPriority = queryPriority;
+    }
+
     public GenericObjectPool<SortedKeyValueIterator<Key,Value>> getIvaratorSourcePool() {
         return ivaratorSourcePool;
     }
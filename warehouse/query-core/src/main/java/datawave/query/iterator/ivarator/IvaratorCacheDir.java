@@ -1,6 +1,14 @@
 package datawave.query.iterator.ivarator;
 
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import datawave.core.iterators.filesystem.FileSystemCache;
 
 public class IvaratorCacheDir {
 
@@ -29,4 +37,34 @@ public class IvaratorCacheDir {
     public String getPathURI() {
         return pathURI;
     }
+
+    /**
+     * Create a cache dir for a path under each of the valid ivarator cache dir configs
+     *
+     * @param configs
+     *            the ivarator cache dir configs
+     * @param fsCache
+     *            the file system cache
+     * @param subPath
+     *            the path under the base path of each config
+     * @return the cache dirs
+     * @throws IOException
+     *             if none of the configs are valid
+     */
+    public static List<IvaratorCacheDir> create(List<IvaratorCacheDirConfig> configs, FileSystemCache fsCache, String subPath) throws IOException {
+        List<IvaratorCacheDir> cacheDirs = new ArrayList<>();
+        if (configs != null && fsCache != null) {
+            for (IvaratorCacheDirConfig config : configs) {
+                if (config.isValid()) {
+                    URI uri = new Path(config.getBasePathURI(), subPath).toUri();
+                    cacheDirs.add(new IvaratorCacheDir(config, fsCache.getFileSystem(uri), uri.toString()));
+                }
+            }
+        }
+
+        if (cacheDirs.isEmpty()) {
+            throw new IOException("Unable to find a usable cache dir out of " + configs);
+        }
+        return cacheDirs;
+    }
 }
@@ -51,7 +51,51 @@ public class PipelineFactory {
                     QuerySpanCollector querySpanCollector, QuerySpan querySpan, QueryIterator sourceIterator,
                     SortedKeyValueIterator<Key,Value> sourceForDeepCopy, IteratorEnvironment env, YieldCallback<Key> yield, long yieldThresholdMs,
                     Collection<ByteSequence> columnFamilies, boolean inclusive) {
-        if (maxPipelines > 1 && !requestSerialPipeline) {
+        return createIterator(documents, maxPipelines, maxCachedResults, requestSerialPipeline, false, querySpanCollector, querySpan, sourceIterator,
+                        sourceForDeepCopy, env, yield, yieldThresholdMs, columnFamilies, inclusive);
+    }
+
+    /**
+     * Create a pipeline iterator.
+     *
+     * @param documents
+     *            Document Iterator.
+     * @param maxPipelines
+     *            maximum number of requested pipelines.
+     * @param maxCachedResults
+     *            maximum cached results.
+     * @param requestSerialPipeline
+     *            request for a serial pipeline. In the future this choice may not be honored
+     * @param requestRingBufferPipeline
+     *            request for the ring buffer pipeline when evaluating in parallel
+     * @param querySpanCollector
+     *            query span collector
+     * @param querySpan
+     *            query span
+     * @param sourceIterator
+     *            source iterator.
+     * @param sourceForDeepCopy
+     *            source used for deep copies.
+     * @param env
+     *            iterator environment
+     * @param columnFamilies
+     *            column families
+     * @param inclusive
+     *            inclusive flag
+     * @param yield
+     *            the yield
+     * @param yieldThresholdMs
+     *            the yield threshold
+     * @return an iterator
+     */
+    public static PipelineIterator createIterator(NestedIterator<Key> documents, int maxPipelines, int maxCachedResults, boolean requestSerialPipeline,
+                    boolean requestRingBufferPipeline, QuerySpanCollector querySpanCollector, QuerySpan querySpan, QueryIterator sourceIterator,
+                    SortedKeyValueIterator<Key,Value> sourceForDeepCopy, IteratorEnvironment env, YieldCallback<Key> yield, long yieldThresholdMs,
+                    Collection<ByteSequence> columnFamilies, boolean inclusive) {
+        if (maxPipelines > 1 && !requestSerialPipeline && requestRingBufferPipeline) {
+            return new RingBufferPipelineIterator(documents, maxPipelines, maxCachedResults, querySpanCollector, querySpan, sourceIterator, sourceForDeepCopy,
+                            env, yield, yieldThresholdMs, columnFamilies, inclusive);
+        } else if (maxPipelines > 1 && !requestSerialPipeline) {
             return new PipelineIterator(documents, maxPipelines, maxCachedResults, querySpanCollector, querySpan, sourceIterator, sourceForDeepCopy, env, yield,
                             yieldThresholdMs, columnFamilies, inclusive);
         } else {
@@ -50,6 +50,9 @@ public class PipelineIterator implements Iterator<Entry<Key,Document>> {
     protected IteratorEnvironment env;
     protected Collection<ByteSequence> columnFamilies;
     protected boolean inclusive;
+    // the query the evaluation tasks are scheduled for
+    protected final String queryId;
+    protected final int queryPriority;
 
     public PipelineIterator(NestedIterator<Key> documents, int maxPipelines, int maxCachedResults, QuerySpanCollector querySpanCollector, QuerySpan querySpan,
                     QueryIterator sourceIterator, SortedKeyValueIterator<Key,Value> sourceForDeepCopy, IteratorEnvironment env,
@@ -66,6 +69,8 @@ public class PipelineIterator implements Iterator<Entry<Key,Document>> {
         this.yieldThresholdMs = yieldThresholdMs;
         this.columnFamilies = columnFamilies;
         this.inclusive = inclusive;
+        this.queryId = sourceIterator.getQueryId();
+        this.queryPriority = sourceIterator.getQueryPriority();
     }
 
     public void setCollectTimingDetails(boolean collectTimingDetails) {
@@ -348,7 +353,7 @@ public class PipelineIterator implements Iterator<Entry<Key,Document>> {
         }
         Pipeline pipeline = pipelines.checkOut(key, document, nestedQuery, columnFamilies, inclusive);
 
-        evaluationQueue.add(new Tuple2<>(IteratorThreadPoolManager.executeEvaluation(pipeline, pipeline.toString(), env), pipeline));
+        evaluationQueue.add(new Tuple2<>(IteratorThreadPoolManager.executeEvaluation(pipeline, pipeline.toString(), queryId, queryPriority, env), pipeline));
     }
 
     /*
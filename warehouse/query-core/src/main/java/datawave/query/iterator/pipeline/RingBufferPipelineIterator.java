@@ -0,0 +1,367 @@
+package datawave.query.iterator.pipeline;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.YieldCallback;
+import org.apache.accumulo.core.iteratorsImpl.system.IterationInterruptedException;
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.Maps;
+
+import datawave.core.iterators.IteratorThreadPoolManager;
+import datawave.query.attributes.Document;
+import datawave.query.iterator.NestedIterator;
+import datawave.query.iterator.NestedQuery;
+import datawave.query.iterator.NestedQueryIterator;
+import datawave.query.iterator.QueryIterator;
+import datawave.query.iterator.profile.QuerySpan;
+import datawave.query.iterator.profile.QuerySpanCollector;
+
+/**
+ * A {@link PipelineIterator} that keeps its in-flight evaluations in a fixed ring of pre-allocated slots instead of a linked queue of futures. Each slot owns
+ * a {@link Pipeline} for the life of the iterator, evaluations signal their completion directly to the iterator thread instead of being polled, and results
+ * are handed off strictly in the order the documents were submitted.
+ * <p>
+ * All ring bookkeeping (head, size and the result cache) is only touched by the iterator thread. The only state shared with the evaluation threads is the
+ * per-slot claim and completion flags and the waiting thread.
+ */
+public class RingBufferPipelineIterator extends PipelineIterator {
+
+    private static final Logger log = Logger.getLogger(RingBufferPipelineIterator.class);
+
+    private final Slot[] slots;
+    // index of the oldest in-flight slot
+    private int head = 0;
+    // number of in-flight slots
+    private int size = 0;
+    private final ArrayDeque<Entry<Key,Document>> ready;
+
+    // the iterator thread, set only while it is waiting on a slot to complete
+    private volatile Thread waiter = null;
+
+    public RingBufferPipelineIterator(NestedIterator<Key> documents, int maxPipelines, int maxCachedResults, QuerySpanCollector querySpanCollector,
+                    QuerySpan querySpan, QueryIterator sourceIterator, SortedKeyValueIterator<Key,Value> sourceForDeepCopy, IteratorEnvironment env,
+                    YieldCallback<Key> yieldCallback, long yieldThresholdMs, Collection<ByteSequence> columnFamilies, boolean inclusive) {
+        super(documents, maxPipelines, maxCachedResults, querySpanCollector, querySpan, sourceIterator, sourceForDeepCopy, env, yieldCallback, yieldThresholdMs,
+                        columnFamilies, inclusive);
+        this.slots = new Slot[maxPipelines];
+        for (int i = 0; i < maxPipelines; i++) {
+            this.slots[i] = new Slot();
+        }
+        this.ready = new ArrayDeque<>(Math.max(1, maxCachedResults));
+    }
+
+    @Override
+    public boolean hasNext() {
+        // if we had already yielded, then leave gracefully
+        if (yield != null && yield.hasYielded()) {
+            return false;
+        }
+
+        Entry<Key,Document> next = getNext(false);
+        if (log.isTraceEnabled()) {
+            log.trace("QueryIterator.hasNext() -> " + (next == null ? null : next.getKey()));
+        }
+        return (next != null);
+    }
+
+    @Override
+    public Entry<Key,Document> next() {
+        // if we had already yielded, then leave gracefully
+        if (yield != null && yield.hasYielded()) {
+            return null;
+        }
+
+        Entry<Key,Document> next = getNext(true);
+        if (log.isTraceEnabled()) {
+            log.trace("QueryIterator.next() -> " + (next == null ? null : next.getKey()));
+        }
+        return next;
+    }
+
+    private Entry<Key,Document> getNext(boolean remove) {
+        try {
+            // wait for the next non-null result if we do not already have one
+            if (ready.isEmpty()) {
+                cacheNextResult();
+            }
+
+            // hand off any evaluations that have already completed, in order, up to the max number of cached results
+            while (size > 0 && slots[head].done && ready.size() < maxResults) {
+                complete();
+            }
+
+            return remove ? ready.poll() : ready.peek();
+        } catch (Exception e) {
+            // cancel out existing executions
+            cancel();
+
+            // if we yielded, then leave gracefully
+            if (yield != null && yield.hasYielded()) {
+                return null;
+            }
+
+            log.error("Failed to retrieve evaluation pipeline result", e);
+            throw new RuntimeException("Failed to retrieve evaluation pipeline result", e);
+        }
+    }
+
+    /**
+     * Wait on the head of the ring until a non-null result is available or there are no more evaluations in flight
+     *
+     * @throws ExecutionException
+     *             if an evaluation failed
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    private void cacheNextResult() throws ExecutionException, InterruptedException {
+        long startNanos = System.nanoTime();
+        while (size > 0 && ready.isEmpty()) {
+            // we must have at least evaluated one thing in order to yield, otherwise we will have not progressed at all
+            if (yield != null && lastKeyEvaluated != null) {
+                long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(yieldThresholdMs);
+                try {
+                    await(slots[head], deadline);
+                } catch (TimeoutException e) {
+                    yield.yield(lastKeyEvaluated);
+                    if (log.isDebugEnabled()) {
+                        log.debug("Yielding at " + lastKeyEvaluated);
+                    }
+                    throw new IterationInterruptedException("Yielding at " + lastKeyEvaluated);
+                }
+            } else {
+                awaitIndefinitely(slots[head]);
+            }
+            if (slots[head].done) {
+                complete();
+            }
+        }
+    }
+
+    private void awaitIndefinitely(Slot slot) throws InterruptedException {
+        try {
+            await(slot, Long.MAX_VALUE);
+        } catch (TimeoutException e) {
+            // should be impossible without a deadline, the loop in cacheNextResult will wait again
+            log.error("Timed out waiting without a deadline, trying again");
+        }
+    }
+
+    /**
+     * Park the iterator thread until the slot signals completion
+     *
+     * @param slot
+     *            the slot to wait on
+     * @param deadlineNanos
+     *            the {@link System#nanoTime()} to give up at, or {@link Long#MAX_VALUE} to wait indefinitely
+     * @throws TimeoutException
+     *             if the deadline passed before the slot completed
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    private void await(Slot slot, long deadlineNanos) throws TimeoutException, InterruptedException {
+        if (slot.done) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        waiter = Thread.currentThread();
+        try {
+            while (!slot.done) {
+                if (deadlineNanos == Long.MAX_VALUE) {
+                    LockSupport.park(this);
+                } else {
+                    long remaining = deadlineNanos - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new TimeoutException();
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            waiter = null;
+        }
+
+        if (log.isDebugEnabled()) {
+            long wait = System.currentTimeMillis() - start;
+            log.debug("Waited " + wait + "ms for the top evaluation in a ring of " + size + " pipelines");
+        }
+    }
+
+    /**
+     * Take the completed result from the head of the ring, refill the slot with the next document and cache the result if non-null. This assumes the head slot
+     * is done.
+     *
+     * @throws ExecutionException
+     *             if the evaluation failed
+     */
+    private void complete() throws ExecutionException {
+        Slot slot = slots[head];
+        Entry<Key,Document> result;
+        try {
+            if (slot.failure != null) {
+                throw new ExecutionException(slot.failure);
+            }
+            result = slot.pipeline.getResult();
+            lastKeyEvaluated = slot.pipeline.getSource().getKey();
+
+            if (log.isTraceEnabled()) {
+                log.trace("Evaluation of " + lastKeyEvaluated + " was " + (result == null ? "empty" : "successful"));
+            }
+        } catch (ExecutionException e) {
+            log.error("Failed evaluating " + slot.pipeline.getSource().getKey() + "; cancelling remaining evaluations and flushing results", e);
+            throw e;
+        } finally {
+            slot.reset();
+            head = (head + 1) % slots.length;
+            size--;
+        }
+
+        // start a new evaluation in the freed slot if we can
+        if (docSource.hasNext()) {
+            submit(docSource.next());
+            if (collectTimingDetails) {
+                querySpanCollector.addQuerySpan(querySpan);
+            }
+        }
+
+        if (result != null) {
+            ready.add(result);
+        }
+    }
+
+    /**
+     * Cancel all of the in-flight evaluations. A slot is only reset once its evaluation can no longer run, as its pipeline is reused by the next evaluation.
+     */
+    private void cancel() {
+        while (size > 0) {
+            Slot slot = slots[head];
+            if (!slot.claimed.compareAndSet(false, true)) {
+                // the evaluation has started, interrupt it and wait for it to finish with the pipeline
+                if (slot.future != null) {
+                    slot.future.cancel(true);
+                }
+                awaitUninterruptibly(slot);
+            } else if (slot.future != null) {
+                // the evaluation will never start
+                slot.future.cancel(false);
+            }
+            slot.reset();
+            head = (head + 1) % slots.length;
+            size--;
+        }
+        ready.clear();
+    }
+
+    /**
+     * Park the iterator thread until the slot signals completion, preserving the interrupt status of the thread
+     *
+     * @param slot
+     *            the slot to wait on
+     */
+    private void awaitUninterruptibly(Slot slot) {
+        boolean interrupted = false;
+        waiter = Thread.currentThread();
+        try {
+            while (!slot.done) {
+                LockSupport.park(this);
+                interrupted |= Thread.interrupted();
+            }
+        } finally {
+            waiter = null;
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void startPipeline() {
+        // fill the ring
+        while (size < slots.length && docSource.hasNext()) {
+            submit(docSource.next());
+        }
+    }
+
+    private void submit(Key key) {
+        if (log.isTraceEnabled()) {
+            log.trace("Adding evaluation of " + key + " to pipeline");
+        }
+
+        NestedQuery<Key> nestedQuery = null;
+        if (docSource instanceof NestedQueryIterator) {
+            nestedQuery = ((NestedQueryIterator<Key>) docSource).getNestedQuery();
+        }
+
+        Slot slot = slots[(head + size) % slots.length];
+        Document document = docSource.document();
+        if (slot.pipeline == null || nestedQuery != null) {
+            // the pool builds the document pipeline for the nested query, a plain document can reuse the slot's pipeline as is
+            if (slot.pipeline != null) {
+                pipelines.checkIn(slot.pipeline);
+            }
+            slot.pipeline = pipelines.checkOut(key, document, nestedQuery, columnFamilies, inclusive);
+        } else {
+            slot.pipeline.setSource(Maps.immutableEntry(key, document));
+        }
+
+        size++;
+        slot.future = IteratorThreadPoolManager.executeEvaluation(slot, slot.pipeline.toString(), queryId, queryPriority, env);
+    }
+
+    /**
+     * A reusable position in the ring. The evaluation thread claims the slot, runs the pipeline, records any failure and then signals the iterator thread. A
+     * slot that was claimed by {@link #cancel()} first is never run.
+     */
+    private final class Slot implements Runnable {
+        private Pipeline pipeline;
+        private Future<?> future;
+        private final AtomicBoolean claimed = new AtomicBoolean(false);
+        private volatile Throwable failure;
+        private volatile boolean done;
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                pipeline.run();
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                done = true;
+                Thread thread = waiter;
+                if (thread != null) {
+                    LockSupport.unpark(thread);
+                }
+            }
+        }
+
+        private void reset() {
+            if (pipeline != null) {
+                pipeline.clear();
+            }
+            future = null;
+            failure = null;
+            done = false;
+            claimed.set(false);
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package datawave.query.jexl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+
+import org.apache.commons.jexl2.Interpreter;
+import org.apache.commons.jexl2.JexlArithmetic;
+import org.apache.commons.jexl2.JexlContext;
+import org.apache.commons.jexl2.JexlException;
+import org.apache.commons.jexl2.MapContext;
+import org.apache.commons.jexl2.parser.ASTAndNode;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTERNode;
+import org.apache.commons.jexl2.parser.ASTFalseNode;
+import org.apache.commons.jexl2.parser.ASTGENode;
+import org.apache.commons.jexl2.parser.ASTGTNode;
+import org.apache.commons.jexl2.parser.ASTIdentifier;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.ASTLENode;
+import org.apache.commons.jexl2.parser.ASTLTNode;
+import org.apache.commons.jexl2.parser.ASTNENode;
+import org.apache.commons.jexl2.parser.ASTNRNode;
+import org.apache.commons.jexl2.parser.ASTNotNode;
+import org.apache.commons.jexl2.parser.ASTNullLiteral;
+import org.apache.commons.jexl2.parser.ASTNumberLiteral;
+import org.apache.commons.jexl2.parser.ASTOrNode;
+import org.apache.commons.jexl2.parser.ASTReference;
+import org.apache.commons.jexl2.parser.ASTReferenceExpression;
+import org.apache.commons.jexl2.parser.ASTStringLiteral;
+import org.apache.commons.jexl2.parser.ASTTrueNode;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.log4j.Logger;
+
+import datawave.query.jexl.nodes.ExceededOrThresholdMarkerJexlNode;
+import datawave.query.jexl.nodes.QueryPropertyMarker;
+
+/**
+ * A query compiled once into a tree of evaluators, so that each document is evaluated without walking the query tree through the {@link DatawaveInterpreter}.
+ * <p>
+ * The boolean structure of the query and the comparisons of a field with a literal are compiled into direct calls on the {@link JexlArithmetic}, so that hits
+ * are gathered by a {@link HitListArithmetic} just as they are when interpreting. Everything else (functions, bounded ranges, exceeded value markers,
+ * assignments and the like) is evaluated by handing that part of the tree to a {@link DatawaveInterpreter}, which is only created for a document if one is
+ * needed. The result of evaluating a document is the same as interpreting the query: a part of the tree that does not contribute to the result evaluates to
+ * null, as it does in the interpreter.
+ */
+public class CompiledJexlScript {
+    private static final Logger log = Logger.getLogger(CompiledJexlScript.class);
+
+    private final DatawaveJexlEngine engine;
+    private final Evaluator root;
+    private final int compiledNodes;
+    private final int interpretedNodes;
+
+    private CompiledJexlScript(DatawaveJexlEngine engine, Evaluator root, int compiledNodes, int interpretedNodes) {
+        this.engine = engine;
+        this.root = root;
+        this.compiledNodes = compiledNodes;
+        this.interpretedNodes = interpretedNodes;
+    }
+
+    /**
+     * Compile a script
+     *
+     * @param engine
+     *            the engine the script was created with
+     * @param arithmetic
+     *            the arithmetic of the engine
+     * @param script
+     *            the flattened script
+     * @return the compiled script, or null if the script cannot be compiled
+     */
+    public static CompiledJexlScript compile(DatawaveJexlEngine engine, JexlArithmetic arithmetic, ASTJexlScript script) {
+        // queries are a single expression, without any local variables
+        if (script.jjtGetNumChildren() != 1 || script.createFrame((Object[]) null) != null) {
+            return null;
+        }
+        Compiler compiler = new Compiler(engine, arithmetic);
+        Evaluator root = compiler.compile(script.jjtGetChild(0));
+        CompiledJexlScript compiled = new CompiledJexlScript(engine, root, compiler.compiledNodes, compiler.interpretedNodes);
+        if (log.isDebugEnabled()) {
+            log.debug("Compiled " + compiled.compiledNodes + " nodes of the query, leaving " + compiled.interpretedNodes + " to the interpreter");
+        }
+        return compiled;
+    }
+
+    /**
+     * Evaluate the script against a context
+     *
+     * @param context
+     *            the context
+     * @return the result, to be tested with {@link ArithmeticJexlEngines#isMatched(Object)}
+     */
+    public Object execute(JexlContext context) {
+        return root.evaluate(new Evaluation(engine, context));
+    }
+
+    /**
+     * @return the number of nodes evaluated without the interpreter
+     */
+    public int getCompiledNodes() {
+        return compiledNodes;
+    }
+
+    /**
+     * @return the number of subtrees left to the interpreter
+     */
+    public int getInterpretedNodes() {
+        return interpretedNodes;
+    }
+
+    /**
+     * The state of evaluating one document
+     */
+    private static class Evaluation {
+        private final DatawaveJexlEngine engine;
+        private final JexlContext context;
+        private Interpreter interpreter;
+
+        private Evaluation(DatawaveJexlEngine engine, JexlContext context) {
+            this.engine = engine;
+            this.context = context;
+        }
+
+        private Interpreter getInterpreter() {
+            if (interpreter == null) {
+                interpreter = engine.createInterpreter(context);
+            }
+            return interpreter;
+        }
+    }
+
+    private interface Evaluator {
+        Object evaluate(Evaluation evaluation);
+    }
+
+    private interface Comparison {
+        boolean compare(Object left, Object right);
+    }
+
+    private static class Compiler {
+        private final DatawaveJexlEngine engine;
+        private final JexlArithmetic arithmetic;
+        private final Interpreter literalInterpreter;
+        private int compiledNodes = 0;
+        private int interpretedNodes = 0;
+
+        private Compiler(DatawaveJexlEngine engine, JexlArithmetic arithmetic) {
+            this.engine = engine;
+            this.arithmetic = arithmetic;
+            this.literalInterpreter = engine.createInterpreter(new MapContext());
+        }
+
+        private Evaluator compile(JexlNode node) {
+            Class<?> type = node.getClass();
+            Evaluator evaluator = null;
+            if (type == ASTReference.class || type == ASTReferenceExpression.class) {
+                if (node.jjtGetNumChildren() == 1 && !isExceededOrMarker(node)) {
+                    return compile(node.jjtGetChild(0));
+                }
+            } else if (type == ASTAndNode.class) {
+                evaluator = compileAnd(node);
+            } else if (type == ASTOrNode.class) {
+                evaluator = compileOr(node);
+            } else if (type == ASTNotNode.class) {
+                Evaluator child = compile(node.jjtGetChild(0));
+                evaluator = evaluation -> arithmetic.toBoolean(child.evaluate(evaluation)) ? Boolean.FALSE : Boolean.TRUE;
+            } else if (type == ASTTrueNode.class) {
+                evaluator = evaluation -> Boolean.TRUE;
+            } else if (type == ASTFalseNode.class) {
+                evaluator = evaluation -> Boolean.FALSE;
+            } else if (type == ASTEQNode.class) {
+                evaluator = compileComparison(node, false, arithmetic::equals);
+            } else if (type == ASTNENode.class) {
+                evaluator = compileComparison(node, true, arithmetic::equals);
+            } else if (type == ASTERNode.class) {
+                evaluator = compileRegex(node, false);
+            } else if (type == ASTNRNode.class) {
+                evaluator = compileRegex(node, true);
+            } else if (type == ASTLTNode.class) {
+                evaluator = compileComparison(node, false, arithmetic::lessThan);
+            } else if (type == ASTLENode.class) {
+                evaluator = compileComparison(node, false, arithmetic::lessThanOrEqual);
+            } else if (type == ASTGTNode.class) {
+                evaluator = compileComparison(node, false, arithmetic::greaterThan);
+            } else if (type == ASTGENode.class) {
+                evaluator = compileComparison(node, false, arithmetic::greaterThanOrEqual);
+            }
+
+            if (evaluator == null) {
+                return interpret(node);
+            }
+            compiledNodes++;
+            return evaluator;
+        }
+
+        private Evaluator interpret(JexlNode node) {
+            interpretedNodes++;
+            return evaluation -> node.jjtAccept(evaluation.getInterpreter(), null);
+        }
+
+        private Evaluator compileAnd(JexlNode node) {
+            // the interpreter evaluates these specially
+            if (isExceededOrMarker(node)) {
+                return null;
+            }
+            try {
+                if (JexlASTHelper.findRange().getRange(node) != null) {
+                    return null;
+                }
+            } catch (RuntimeException e) {
+                // leave it to the interpreter to fail on
+                return null;
+            }
+
+            List<JexlNode> nodes = new ArrayList<>();
+            List<Evaluator> children = new ArrayList<>();
+            for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+                nodes.add(node.jjtGetChild(i));
+                children.add(compile(node.jjtGetChild(i)));
+            }
+
+            return evaluation -> {
+                boolean evaluated = false;
+                for (int i = 0; i < children.size(); i++) {
+                    Object o = children.get(i).evaluate(evaluation);
+                    // null means there was no actual evaluation
+                    if (o == null) {
+                        continue;
+                    }
+                    evaluated = true;
+                    if (!toBoolean(nodes.get(i), o)) {
+                        return Boolean.FALSE;
+                    }
+                }
+                return evaluated ? Boolean.TRUE : null;
+            };
+        }
+
+        private Evaluator compileOr(JexlNode node) {
+            // flatten the same way the interpreter does
+            List<JexlNode> nodes = new ArrayList<>();
+            Deque<JexlNode> stack = new ArrayDeque<>();
+            stack.push(node);
+            boolean allIdentifiers = true;
+            while (!stack.isEmpty()) {
+                JexlNode current = stack.pop();
+                if (current instanceof ASTOrNode) {
+                    for (int i = current.jjtGetNumChildren() - 1; i >= 0; i--) {
+                        stack.push(JexlASTHelper.dereference(current.jjtGetChild(i)));
+                    }
+                } else {
+                    nodes.add(current);
+                    allIdentifiers &= current instanceof ASTIdentifier;
+                }
+            }
+
+            // a list of identifiers is an argument to a function, where every value matters
+            if (allIdentifiers) {
+                return null;
+            }
+
+            List<Evaluator> children = new ArrayList<>();
+            for (JexlNode child : nodes) {
+                children.add(compile(child));
+            }
+
+            return evaluation -> {
+                Boolean result = null;
+                for (int i = 0; i < children.size() && result != Boolean.TRUE; i++) {
+                    Object o = children.get(i).evaluate(evaluation);
+                    // null means there was no actual evaluation
+                    if (o != null) {
+                        result = (o instanceof Collection ? !((Collection<?>) o).isEmpty() : arithmetic.toBoolean(o)) ? Boolean.TRUE : Boolean.FALSE;
+                    }
+                }
+                return result;
+            };
+        }
+
+        private Evaluator compileComparison(JexlNode node, boolean negated, Comparison comparison) {
+            if (node.jjtGetNumChildren() != 2) {
+                return null;
+            }
+            Evaluator left = compileOperand(node.jjtGetChild(0));
+            Evaluator right = compileOperand(node.jjtGetChild(1));
+            if (left == null || right == null) {
+                return null;
+            }
+            return evaluation -> {
+                boolean result;
+                try {
+                    result = comparison.compare(left.evaluate(evaluation), right.evaluate(evaluation));
+                } catch (ArithmeticException e) {
+                    throw new JexlException(node, "comparison error", e);
+                }
+                return result != negated ? Boolean.TRUE : Boolean.FALSE;
+            };
+        }
+
+        private Evaluator compileRegex(JexlNode node, boolean negated) {
+            // the interpreter only pattern matches against a string, anything else is a containment test
+            if (node.jjtGetNumChildren() != 2 || !(literalValue(node.jjtGetChild(1)) instanceof String)) {
+                return null;
+            }
+            return compileComparison(node, negated, arithmetic::matches);
+        }
+
+        /**
+         * @return an evaluator for a field or literal operand, or null if it is neither
+         */
+        private Evaluator compileOperand(JexlNode node) {
+            JexlNode identifier = node;
+            if (identifier.getClass() == ASTReference.class && identifier.jjtGetNumChildren() == 1) {
+                identifier = identifier.jjtGetChild(0);
+            }
+            if (identifier.getClass() == ASTIdentifier.class) {
+                String name = identifier.image;
+                // an unknown variable is null
+                return evaluation -> evaluation.context.get(name);
+            }
+
+            if (isLiteral(node)) {
+                Object value = literalValue(node);
+                return evaluation -> value;
+            }
+            return null;
+        }
+
+        private boolean isLiteral(JexlNode node) {
+            Class<?> type = node.getClass();
+            return type == ASTStringLiteral.class || type == ASTNumberLiteral.class || type == ASTTrueNode.class || type == ASTFalseNode.class
+                            || type == ASTNullLiteral.class;
+        }
+
+        private Object literalValue(JexlNode node) {
+            return isLiteral(node) ? node.jjtAccept(literalInterpreter, null) : null;
+        }
+
+        private boolean toBoolean(JexlNode node, Object o) {
+            if (o instanceof Collection) {
+                return !((Collection<?>) o).isEmpty();
+            }
+            try {
+                return arithmetic.toBoolean(o);
+            } catch (RuntimeException xrt) {
+                throw new JexlException(node, "boolean coercion error", xrt);
+            }
+        }
+
+        private static boolean isExceededOrMarker(JexlNode node) {
+            return QueryPropertyMarker.findInstance(node).isType(ExceededOrThresholdMarkerJexlNode.class);
+        }
+    }
+}
@@ -30,6 +30,11 @@ public class DatawaveJexlEngine extends JexlEngine {
         this.setFunctions(ArithmeticJexlEngines.functions());
     }
 
+    @Override
+    public Interpreter createInterpreter(JexlContext context) {
+        return super.createInterpreter(context);
+    }
+
     @Override
     protected Interpreter createInterpreter(JexlContext context, boolean strictFlag, boolean silentFlag) {
         return new DatawaveInterpreter(this, context, strictFlag, silentFlag);
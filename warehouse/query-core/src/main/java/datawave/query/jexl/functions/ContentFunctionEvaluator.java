@@ -4,15 +4,13 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
 
-import com.google.common.collect.LinkedListMultimap;
-import com.google.common.collect.ListMultimap;
-import com.google.common.collect.Lists;
-
 import datawave.ingest.protobuf.TermWeightPosition;
 import datawave.query.postprocessing.tf.TermOffsetMap;
 
@@ -76,7 +74,33 @@ public abstract class ContentFunctionEvaluator {
      *            the offset lists
      * @return List of offset matching the query, often just the first match for efficiency
      */
-    protected abstract boolean evaluate(String field, String eventId, List<List<TermWeightPosition>> offsets);
+    protected boolean evaluate(String field, String eventId, List<List<TermWeightPosition>> offsets) {
+        if (offsets.size() < terms.length) {
+            return false;
+        } else if (offsets.size() > terms.length) {
+            throw new IllegalArgumentException("Less terms than the number of offset lists received");
+        }
+
+        TermPositions[] positions = new TermPositions[offsets.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = TermPositions.create(offsets.get(i), maxScore);
+        }
+        return evaluate(field, eventId, positions);
+    }
+
+    /**
+     * Evaluate the function based on the positions of each term. There is one {@link TermPositions} per term, and positions scoring above the max score have
+     * already been skipped.
+     *
+     * @param field
+     *            the field where the offsets were found
+     * @param eventId
+     *            the event id (see @TermFrequencyList.getEventId(Key))
+     * @param positions
+     *            the positions of each term
+     * @return true if the positions satisfy the function
+     */
+    protected abstract boolean evaluate(String field, String eventId, TermPositions[] positions);
 
     /**
      * Validate and initialize this class. This will validate the arguments and setup other members.
@@ -161,13 +185,16 @@ public abstract class ContentFunctionEvaluator {
 
             // now for each event, lets process the terms
             for (String eventId : eventIds) {
-                ListMultimap<String,List<TermWeightPosition>> offsetsByField = LinkedListMultimap.create();
-                for (String term : terms) {
-                    TermFrequencyList tfList = termOffsetMap.getTermFrequencyList(term);
+                Map<String,TermPositions[]> positionsByField = new LinkedHashMap<>();
+                for (int i = 0; i < terms.length; i++) {
+                    TermFrequencyList tfList = termOffsetMap.getTermFrequencyList(terms[i]);
 
                     // Invert the map to take all the offsets for a term within a field
-                    // and group the lists together
+                    // and group the positions together
                     for (String field : tfList.fields()) {
+                        if (fields != null && !fields.isEmpty() && !fields.contains(field)) {
+                            continue;
+                        }
                         TermFrequencyList.Zone zone = new TermFrequencyList.Zone(field, true, eventId);
                         Collection<TermWeightPosition> offsets = tfList.fetchOffsets().get(zone);
                         // if no offsets, but we are explicitly looking for this field (i.e. not unfielded), then check for a non-content expansion zone
@@ -177,26 +204,21 @@ public abstract class ContentFunctionEvaluator {
                         }
                         // not all field/event pairs will have offsets
                         if (offsets != null && !offsets.isEmpty()) {
-                            offsetsByField.put(field, Lists.newArrayList(offsets));
+                            positionsByField.computeIfAbsent(field, f -> new TermPositions[terms.length])[i] = TermPositions.create(offsets, maxScore);
                         }
                     }
                 }
 
                 // If we have no offset lists, we can't match anything for this event
                 // (shouldn't happen because we are using an intersection of event ids...but just in case)
-                if (offsetsByField.isEmpty()) {
+                if (positionsByField.isEmpty()) {
                     continue;
                 }
 
-                // Iterate over each collection of offsets (grouped by field) and try to find one that satisfies the phrase/adjacency
-                for (String field : offsetsByField.keySet()) {
-                    if (!fields.isEmpty() && !fields.contains(field)) {
-                        continue;
-                    }
-                    List<List<TermWeightPosition>> offsets = offsetsByField.get(field);
-                    if (offsets == null || offsets.isEmpty()) {
-                        continue;
-                    }
+                // Iterate over the positions of each field and try to find one that satisfies the phrase/adjacency
+                for (Map.Entry<String,TermPositions[]> entry : positionsByField.entrySet()) {
+                    String field = entry.getKey();
+                    TermPositions[] positions = entry.getValue();
 
                     String logPrefix = "";
                     if (log.isTraceEnabled()) {
@@ -205,7 +227,7 @@ public abstract class ContentFunctionEvaluator {
                         int length = terms.length;
                         for (int i = 0; i < length; i++) {
                             String term = terms[i];
-                            String offset = i < offsets.size() ? offsets.get(i).toString() : "[]";
+                            String offset = positions[i] != null ? positions[i].toString() : "[]";
 
                             sb.append(term).append(":").append(offset);
                             if (i < length - 1) {
@@ -217,13 +239,13 @@ public abstract class ContentFunctionEvaluator {
                         logPrefix = sb.toString();
                     }
 
-                    // fail quick if we did not find enough offsets
-                    if (offsets.size() < terms.length) {
+                    // fail quick if we did not find offsets for every term
+                    if (Arrays.asList(positions).contains(null)) {
                         continue;
                     }
 
                     // evaluate the offsets
-                    if (evaluate(field, eventId, offsets)) {
+                    if (evaluate(field, eventId, positions)) {
                         if (log.isTraceEnabled()) {
                             log.trace(logPrefix + " satisfied the content function");
                         }
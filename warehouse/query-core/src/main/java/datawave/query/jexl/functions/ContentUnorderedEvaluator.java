@@ -1,19 +1,10 @@
 package datawave.query.jexl.functions;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.PriorityQueue;
+import java.util.Objects;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
 
-import datawave.ingest.protobuf.TermWeightPosition;
 import datawave.query.postprocessing.tf.TermOffsetMap;
 
 /**
@@ -50,224 +41,161 @@ public class ContentUnorderedEvaluator extends ContentFunctionEvaluator {
     }
 
     /**
-     * Evaluate a list of offsets in an unordered kind of way.
+     * Evaluate the positions in an unordered kind of way. Each term has a current position, starting with its first, and the term with the lowest current
+     * position is repeatedly moved to its next position until the lowest and highest current positions are within the distance. A term repeated in the function
+     * shares its positions with the first occurrence of the term, each occurrence taking the next position not yet taken.
      *
-     * @param offsets
-     *            a list of offsets
      * @param field
      *            the field string
      * @param eventId
      *            the eventid string
+     * @param positions
+     *            the positions of each term
      * @return true if we found an unordered list within the specified distance for the specified set of offsets.
      */
     @Override
-    public boolean evaluate(String field, String eventId, List<List<TermWeightPosition>> offsets) {
-        filterOffsets(offsets);
-        MultiOffsetMatcher mlIter = new MultiOffsetMatcher(distance, terms, offsets, field, eventId, termOffsetMap);
-        return mlIter.findMatch();
-    }
-
-    private void filterOffsets(List<List<TermWeightPosition>> offsets) {
-        // if max score is maximum possible value short circuit
-        if (maxScore == DEFAULT_MAX_SCORE) {
-            return;
+    protected boolean evaluate(String field, String eventId, TermPositions[] positions) {
+        // Quick short-circuit -- if we have fewer offsets than terms in the phrase/adjacency/within
+        // we're evaluating, we know there are no results
+        int length = positions.length;
+        if (length == 0 || length < terms.length) {
+            return false;
         }
 
-        for (List<TermWeightPosition> offset : offsets) {
-            Iterator<TermWeightPosition> twpIter = offset.iterator();
-            while (twpIter.hasNext()) {
-                Integer score = twpIter.next().getScore();
-                if (null == score || score > maxScore) {
-                    twpIter.remove();
+        // the term whose positions each term takes from, and the next position to take from those positions
+        int[] source = new int[length];
+        int[] next = new int[length];
+        // the positions, current position and the highest offset any term can still move to
+        TermPositions[] termPositions = new TermPositions[length];
+        int[] current = new int[length];
+        int[] maxOffset = new int[length];
+
+        TermHeap heap = new TermHeap(termPositions, current);
+        // the term with the highest current position
+        int highest = -1;
+
+        for (int i = 0; i < length; i++) {
+            source[i] = i;
+            for (int j = 0; j < i; j++) {
+                if (Objects.equals(terms[j], terms[i])) {
+                    source[i] = j;
+                    break;
                 }
             }
-        }
-    }
+            termPositions[i] = positions[source[i]];
 
-    private static class OffsetList implements Comparable<OffsetList> {
-        private final String term;
-        private final List<TermWeightPosition> offsets;
-        private TermWeightPosition minOffset;
-        private TermWeightPosition maxOffset = null;
-
-        public OffsetList(String term, List<TermWeightPosition> o) {
-            this.term = term;
-            this.offsets = o;
-
-            // as long as there is at least one term, grab the last item for a max
-            if (!o.isEmpty()) {
-                // offsets with skip words will sort based on min so for max we need to loop over all offsets
-                maxOffset = Collections.max(offsets, new TermWeightPosition.MaxOffsetComparator());
+            if (next[source[i]] == termPositions[i].size()) {
+                if (log.isTraceEnabled()) {
+                    log.trace("The offset list for " + terms[i] + " has no more elements: " + termPositions[i] + ". Exiting");
+                }
+                return false;
             }
 
-            nextOffset();
-        }
-
-        public TermWeightPosition getMinOffset() {
-            return minOffset;
-        }
-
-        /**
-         *
-         * @return the highest value in this list
-         */
-        public TermWeightPosition getMaxOffset() {
-            return maxOffset;
-        }
-
-        public Optional<TermWeightPosition> nextOffset() {
-            if (offsets.isEmpty()) {
-                return Optional.empty();
-            } else {
-                minOffset = offsets.remove(0);
-                return Optional.of(minOffset);
+            maxOffset[i] = termPositions[i].getMaxOffset(next[source[i]]);
+            current[i] = next[source[i]]++;
+            if (highest == -1 || heap.compare(i, highest) > 0) {
+                highest = i;
             }
+            heap.add(i);
         }
 
-        @Override
-        public int compareTo(OffsetList o) {
-            return this.getMinOffset().compareTo(o.getMinOffset());
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            return minOffset == ((OffsetList) o).minOffset;
-        }
-
-        @Override
-        public String toString() {
-            return term + ";" + minOffset + ":" + maxOffset;
-        }
-    }
-
-    private static class MultiOffsetMatcher {
-        int distance = 0;
-
-        final String[] terms;
-
-        final PriorityQueue<OffsetList> offsetQueue = new PriorityQueue<>();
-        Optional<TermWeightPosition> maxOffset = Optional.empty();
-        final String field;
-        final String eventId;
-        final TermOffsetMap termOffsetMap;
-
-        /**
-         * At the end of this method, terms will contain the query terms. currentOffsets will contain the minimum offset for each term and offsetLists will
-         * contain the remaining offsets for each term.
-         *
-         * The indexes of terms, offsetLists and currentOffsets are parallel in that the i'th item in currentOffsets corresponds to the i'th item in offsetLists
-         * and term[i].
-         *
-         * @param distance
-         *            the maximum acceptable distance between terms.
-         * @param terms
-         *            the query terms.
-         * @param field
-         *            the field
-         * @param eventId
-         *            the event id (see @TermFrequencyList.getEventId(Key))
-         * @param termOffsets
-         *            the offsets for the specified terms, these lists will not be modified in any way.
-         * @param termOffsetMap
-         *            the term offset map
-         * @throws IllegalArgumentException
-         *             if the number of terms does not match the number of offset lists.
-         */
-        public MultiOffsetMatcher(int distance, String[] terms, Collection<List<TermWeightPosition>> termOffsets, String field, String eventId,
-                        TermOffsetMap termOffsetMap) {
-            this.distance = distance;
-            this.terms = terms;
-            this.field = field;
-            this.eventId = eventId;
-            this.termOffsetMap = termOffsetMap;
-            if (terms.length > termOffsets.size()) {
-                // more terms than offsets, no match, falls through to quick short-circuit in findMatch.
-                return;
-            } else if (terms.length < termOffsets.size()) {
-                throw new IllegalArgumentException("Less terms than the number of offset lists received");
-            }
-
-            int termPos = 0;
-
-            // holds the (canonical) offset list for of each term
-            final Map<String,List<TermWeightPosition>> termsSeen = new HashMap<>();
-
-            for (List<TermWeightPosition> offsetList : termOffsets) {
-                String term = terms[termPos++];
-
-                if (offsetList != null) {
-                    if (!termsSeen.containsKey(term)) {
-                        // new term, create a defensive copy that's safe to modify.
-                        offsetList = new LinkedList<>(offsetList);
-                        termsSeen.put(term, offsetList);
-                    } else {
-                        // already seen term, all matching terms should reference the same list.
-                        offsetList = termsSeen.get(term);
-                    }
-                }
-
-                if (offsetList == null || offsetList.isEmpty()) {
+        TermPositions highestPositions = termPositions[highest];
+        int highestIndex = current[highest];
+
+        while (true) {
+            // the term with the lowest current position
+            int lowest = heap.remove();
+            TermPositions lowestPositions = termPositions[lowest];
+            int lowestOffset = lowestPositions.getOffset(current[lowest]);
+            int highestLowOffset = highestPositions.getLowOffset(highestIndex);
+
+            if (highestLowOffset - lowestOffset <= distance) {
+                // Only record the phrase index if this is a targeted excerpt field.
+                if (termOffsetMap.shouldRecordPhraseIndex(field)) {
+                    // Track the start and end offset for the phrase.
+                    termOffsetMap.addPhraseIndexTriplet(field, eventId, lowestOffset, highestLowOffset);
                     if (log.isTraceEnabled()) {
-                        log.trace("The offset list for " + term + " is null or has no elements: " + offsetList + ". Exiting");
+                        log.trace("Adding phrase indexes [" + lowestOffset + "," + highestLowOffset + "] for field " + field + " to jexl context");
                     }
-
-                    offsetQueue.clear();
-                    return;
                 }
+                return true;
+            }
 
-                OffsetList entry = new OffsetList(term, offsetList);
-                if ((!maxOffset.isPresent()) || (entry.getMinOffset().compareTo(maxOffset.get()) > 0)) {
-                    maxOffset = Optional.of(entry.getMinOffset());
-                }
-                offsetQueue.add(entry);
+            // if the highest position is more than distance from the largest offset of this term, there is no way to satisfy
+            if (highestLowOffset - maxOffset[lowest] > distance) {
+                return false;
             }
-        }
 
-        public boolean findMatch() {
-            // Quick short-circuit -- if we have fewer offsets than terms in the phrase/adjacency/within
-            // we're evaluating, we know there are no results
-            if (terms.length > offsetQueue.size() || (!maxOffset.isPresent())) {
+            // no more offsets for this term
+            if (next[source[lowest]] == lowestPositions.size()) {
                 return false;
             }
 
-            while (true) {
-                OffsetList o = offsetQueue.remove();
+            current[lowest] = next[source[lowest]]++;
+            if (lowestPositions.compare(current[lowest], highestPositions, highestIndex) > 0) {
+                highestPositions = lowestPositions;
+                highestIndex = current[lowest];
+            }
 
-                if (maxOffset.get().getLowOffset() - o.getMinOffset().getOffset() <= distance) {
-                    // Only record the phrase index if this is a targeted excerpt field.
-                    if (termOffsetMap.shouldRecordPhraseIndex(field)) {
-                        // Track the start and end offset for the phrase.
-                        int startOffset = o.getMinOffset().getOffset();
-                        int endOffset = maxOffset.get().getLowOffset();
-                        termOffsetMap.addPhraseIndexTriplet(field, eventId, startOffset, endOffset);
-                        if (log.isTraceEnabled()) {
-                            log.trace("Adding phrase indexes [" + startOffset + "," + endOffset + "] for field " + field + " to jexl context");
-                        }
-                    }
-                    return true;
-                }
+            heap.add(lowest);
+        }
+    }
 
-                // if the maxOffset is more than distance from the largest value in this list, there is no way to satisfy
-                if (maxOffset.get().getLowOffset() - o.getMaxOffset().getOffset() > distance) {
-                    return false;
-                }
+    /**
+     * A binary heap of terms ordered by their current position. The heap is ordered the way a {@link java.util.PriorityQueue} would order it, so that terms at
+     * the same position are moved in the same order as they always have been.
+     */
+    private static class TermHeap {
+        private final TermPositions[] positions;
+        private final int[] current;
+        private final int[] heap;
+        private int size = 0;
+
+        TermHeap(TermPositions[] positions, int[] current) {
+            this.positions = positions;
+            this.current = current;
+            this.heap = new int[positions.length];
+        }
 
-                Optional<TermWeightPosition> nextOffset = o.nextOffset();
-                if (!nextOffset.isPresent()) { // no more offsets from this list
-                    return false;
-                }
+        int compare(int term, int otherTerm) {
+            return positions[term].compare(current[term], positions[otherTerm], current[otherTerm]);
+        }
 
-                if (nextOffset.get().compareTo(maxOffset.get()) > 0) {
-                    maxOffset = nextOffset;
+        void add(int term) {
+            int k = size++;
+            while (k > 0) {
+                int parent = (k - 1) >>> 1;
+                if (compare(term, heap[parent]) >= 0) {
+                    break;
                 }
-
-                offsetQueue.add(o);
+                heap[k] = heap[parent];
+                k = parent;
             }
+            heap[k] = term;
         }
 
-        @Override
-        public String toString() {
-            return "MultiOffsetMatcher; dis:" + distance + " max: " + maxOffset + " queue: " + offsetQueue;
+        int remove() {
+            int result = heap[0];
+            int n = --size;
+            if (n > 0) {
+                int term = heap[n];
+                int k = 0;
+                int half = n >>> 1;
+                while (k < half) {
+                    int child = (k << 1) + 1;
+                    int right = child + 1;
+                    if (right < n && compare(heap[child], heap[right]) > 0) {
+                        child = right;
+                    }
+                    if (compare(term, heap[child]) <= 0) {
+                        break;
+                    }
+                    heap[k] = heap[child];
+                    k = child;
+                }
+                heap[k] = term;
+            }
+            return result;
         }
     }
 }
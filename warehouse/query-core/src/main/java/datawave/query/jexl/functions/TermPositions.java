@@ -0,0 +1,223 @@
+package datawave.query.jexl.functions;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import datawave.ingest.protobuf.TermWeightPosition;
+
+/**
+ * The positions of a term within a field of a document, held in parallel primitive arrays for the content function evaluators. Positions are sorted the way
+ * {@link TermWeightPosition#compareTo(TermWeightPosition)} sorts them, by low offset and then by offset, and positions comparing equal are kept only once.
+ * Evaluators walk the positions with int cursors instead of copying or removing elements.
+ */
+public class TermPositions {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final int[] offsets;
+    private final int[] lowOffsets;
+    private final boolean[] zeroOffsetMatch;
+    private final int size;
+
+    // the largest offset of the positions from an index onwards, computed on first use
+    private int[] maxOffsets;
+
+    private TermPositions(int[] offsets, int[] lowOffsets, boolean[] zeroOffsetMatch, int size) {
+        this.offsets = offsets;
+        this.lowOffsets = lowOffsets;
+        this.zeroOffsetMatch = zeroOffsetMatch;
+        this.size = size;
+    }
+
+    /**
+     * Create the positions of a term, skipping any position scoring above the max score
+     *
+     * @param positions
+     *            the term weight positions
+     * @param maxScore
+     *            the max score, as a term weight score
+     * @return the term positions
+     */
+    public static TermPositions create(Collection<TermWeightPosition> positions, int maxScore) {
+        int capacity = positions.size();
+        int[] offsets = new int[capacity];
+        int[] lowOffsets = new int[capacity];
+        boolean[] zeroOffsetMatch = new boolean[capacity];
+
+        int size = 0;
+        boolean sorted = true;
+        for (TermWeightPosition position : positions) {
+            if (position.getScore() > maxScore) {
+                continue;
+            }
+            offsets[size] = position.getOffset();
+            lowOffsets[size] = position.getLowOffset();
+            zeroOffsetMatch[size] = position.getZeroOffsetMatch();
+            if (size > 0 && compare(lowOffsets[size - 1], offsets[size - 1], lowOffsets[size], offsets[size]) >= 0) {
+                sorted = false;
+            }
+            size++;
+        }
+
+        TermPositions termPositions = new TermPositions(offsets, lowOffsets, zeroOffsetMatch, size);
+        if (!sorted) {
+            termPositions = termPositions.sort();
+        }
+        return termPositions;
+    }
+
+    /**
+     * Term weight positions are normally sorted and unique already, so only sort when they are not. The first of several equal positions is kept, as a
+     * {@link java.util.TreeSet} would.
+     */
+    private TermPositions sort() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        // a stable sort, so equal positions stay in the order they were added
+        Arrays.sort(order, (a, b) -> compare(lowOffsets[a], offsets[a], lowOffsets[b], offsets[b]));
+
+        int[] sortedOffsets = new int[size];
+        int[] sortedLowOffsets = new int[size];
+        boolean[] sortedZeroOffsetMatch = new boolean[size];
+        int sortedSize = 0;
+        for (int i : order) {
+            if (sortedSize > 0 && compare(sortedLowOffsets[sortedSize - 1], sortedOffsets[sortedSize - 1], lowOffsets[i], offsets[i]) == 0) {
+                continue;
+            }
+            sortedOffsets[sortedSize] = offsets[i];
+            sortedLowOffsets[sortedSize] = lowOffsets[i];
+            sortedZeroOffsetMatch[sortedSize] = zeroOffsetMatch[i];
+            sortedSize++;
+        }
+        return new TermPositions(sortedOffsets, sortedLowOffsets, sortedZeroOffsetMatch, sortedSize);
+    }
+
+    private static int compare(int lowOffset, int offset, int otherLowOffset, int otherOffset) {
+        int result = Integer.compare(lowOffset, otherLowOffset);
+        if (result != 0) {
+            return result;
+        }
+        return Integer.compare(offset, otherOffset);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param index
+     *            the index of a position
+     * @return the offset of the position, the highest it can be with respect to skips
+     */
+    public int getOffset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * @param index
+     *            the index of a position
+     * @return the lowest offset of the position with respect to skips
+     */
+    public int getLowOffset(int index) {
+        return lowOffsets[index];
+    }
+
+    public boolean getZeroOffsetMatch(int index) {
+        return zeroOffsetMatch[index];
+    }
+
+    /**
+     * @param index
+     *            the index of a position
+     * @return the largest offset of the positions from the index onwards
+     */
+    public int getMaxOffset(int index) {
+        if (maxOffsets == null) {
+            maxOffsets = (size == 0 ? EMPTY : new int[size]);
+            int max = Integer.MIN_VALUE;
+            for (int i = size - 1; i >= 0; i--) {
+                max = Math.max(max, offsets[i]);
+                maxOffsets[i] = max;
+            }
+        }
+        return maxOffsets[index];
+    }
+
+    /**
+     * Compare a position of this term to a position of another term, the way {@link TermWeightPosition#compareTo(TermWeightPosition)} does
+     *
+     * @param index
+     *            the index of a position of this term
+     * @param other
+     *            the other term
+     * @param otherIndex
+     *            the index of a position of the other term
+     * @return a negative number, zero or a positive number as the position is less than, equal to, or greater than the other position
+     */
+    public int compare(int index, TermPositions other, int otherIndex) {
+        return compare(lowOffsets[index], offsets[index], other.lowOffsets[otherIndex], other.offsets[otherIndex]);
+    }
+
+    /**
+     * Find the first position at or after an index that is not less than a position of another term. The positions are galloped over, doubling the step until
+     * it overshoots and then searching back, so that skipping k positions costs O(log k) comparisons.
+     *
+     * @param from
+     *            the index to start from
+     * @param other
+     *            the other term
+     * @param otherIndex
+     *            the index of a position of the other term
+     * @return the index of the first position not less than the other position, or {@link #size()} if there is none
+     */
+    public int advanceTo(int from, TermPositions other, int otherIndex) {
+        if (from >= size || compare(from, other, otherIndex) >= 0) {
+            return from;
+        }
+
+        // positions[low] is less than the target, find a high bound that is not
+        int low = from;
+        int step = 1;
+        int high = from + step;
+        while (high < size && compare(high, other, otherIndex) < 0) {
+            low = high;
+            step <<= 1;
+            high = low + step;
+        }
+        if (high > size) {
+            high = size;
+        }
+
+        // positions[low] is less than the target and positions[high], if any, is not
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (compare(mid, other, otherIndex) < 0) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return high;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(lowOffsets[i]).append('-').append(offsets[i]);
+            if (!zeroOffsetMatch[i]) {
+                sb.append('!');
+            }
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -25,6 +25,9 @@ public abstract class AsyncIndexLookup extends IndexLookup {
 
     protected ExecutorService execService;
 
+    // set while a lookup that missed the cache is running, so its result can be cached
+    protected IndexLookupCache.Key cacheKey;
+
     public AsyncIndexLookup(ShardQueryConfiguration config, ScannerFactory scannerFactory, boolean unfieldedLookup, ExecutorService execService) {
         super(config, scannerFactory);
         this.unfieldedLookup = unfieldedLookup;
@@ -37,6 +40,54 @@ public abstract class AsyncIndexLookup extends IndexLookup {
      */
     public abstract void submit();
 
+    /**
+     * Use the cached result of this lookup if there is one. Otherwise, remember the key so that {@link #saveToCache(Future...)} can cache the result.
+     *
+     * @param key
+     *            the cache key for this lookup
+     * @return true if the cached result is now the {@link #indexLookupMap}
+     */
+    protected boolean loadFromCache(IndexLookupCache.Key key) {
+        IndexLookupMap cached = IndexLookupCache.getInstance(config).get(key);
+        if (cached != null) {
+            indexLookupMap = cached;
+            return true;
+        }
+        cacheKey = key;
+        return false;
+    }
+
+    /**
+     * Cache the result of this lookup if it missed the cache and each of the scans ran to completion
+     *
+     * @param futures
+     *            the scans that populated the {@link #indexLookupMap}, any of which may be null if not run
+     */
+    protected void saveToCache(Future<?>... futures) {
+        if (cacheKey == null) {
+            return;
+        }
+        IndexLookupCache.Key key = cacheKey;
+        cacheKey = null;
+        for (Future<?> future : futures) {
+            if (future != null && !succeeded(future)) {
+                return;
+            }
+        }
+        IndexLookupCache.getInstance(config).put(key, indexLookupMap);
+    }
+
+    private static boolean succeeded(Future<?> future) {
+        if (!future.isDone() || future.isCancelled()) {
+            return false;
+        }
+        try {
+            return Boolean.TRUE.equals(future.get());
+        } catch (InterruptedException | ExecutionException e) {
+            return false;
+        }
+    }
+
     protected long getRemainingTimeMillis(long startTimeMillis) {
         return Math.max(0L, config.getMaxIndexScanTimeMillis() - (System.currentTimeMillis() - startTimeMillis));
     }
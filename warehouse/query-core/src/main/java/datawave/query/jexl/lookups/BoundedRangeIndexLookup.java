@@ -83,6 +83,11 @@ public class BoundedRangeIndexLookup extends AsyncIndexLookup {
             // CQ->shard_id\x00datatype
             indexLookupMap = new IndexLookupMap(config.getMaxUnfieldedExpansionThreshold(), config.getMaxValueExpansionThreshold());
 
+            if (config.isCacheIndexLookups() && loadFromCache(IndexLookupCache.key(config, getClass().getSimpleName(), fields, Collections.emptySet(),
+                            Collections.singleton(literalRange.toString()), unfieldedLookup))) {
+                return;
+            }
+
             IteratorSetting fairnessIterator = null;
             if (config.getMaxIndexScanTimeMillis() > 0) {
                 // The fairness iterator solves the problem whereby we have runaway iterators as a result of an evaluation that never finds anything
@@ -195,6 +200,7 @@ public class BoundedRangeIndexLookup extends AsyncIndexLookup {
                 scannerFactory.close(bs);
                 bs = null;
             }
+            saveToCache(timedScanFuture);
 
             if (log.isDebugEnabled()) {
                 log.debug("Found " + indexLookupMap.size() + " matching terms for range: " + indexLookupMap);
@@ -0,0 +1,246 @@
+package datawave.query.jexl.lookups;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.util.time.DateHelper;
+
+/**
+ * A cache of the values that regex and bounded range lookups expand to, shared by every query planned on this webserver so that popular terms are not
+ * expanded against the global index over and over again.
+ * <p>
+ * Results are cached by everything that determines what the scan would return: the lookup, the fields, the authorizations, the days of the date range, the
+ * datatype filter, the index tables and the expansion thresholds. Users with different authorizations therefore never share a result. Only complete results are
+ * cached; a lookup that timed out, failed or exceeded a threshold is looked up again next time.
+ * <p>
+ * The cache holds a bounded number of results, each for a bounded time. A result whose date range reaches the day it was cached on may still grow as that day
+ * is ingested, so it is also dropped once the day is over.
+ */
+public class IndexLookupCache {
+
+    private static final Logger log = Logger.getLogger(IndexLookupCache.class);
+
+    // one cache for each distinct size and expiration, so that logics configured differently do not empty each other's cache
+    private static final Map<List<Long>,IndexLookupCache> instances = new ConcurrentHashMap<>();
+
+    private final LongSupplier clock;
+    private final Cache<Key,CachedLookup> cache;
+
+    IndexLookupCache(long maxSize, long expirationMillis, LongSupplier clock) {
+        Preconditions.checkArgument(maxSize > 0);
+        Preconditions.checkArgument(expirationMillis > 0);
+        this.clock = clock;
+        this.cache = CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(expirationMillis, TimeUnit.MILLISECONDS).ticker(new Ticker() {
+            @Override
+            public long read() {
+                return TimeUnit.MILLISECONDS.toNanos(IndexLookupCache.this.clock.getAsLong());
+            }
+        }).recordStats().build();
+    }
+
+    /**
+     * Get the cache shared by all queries configured with the same size and expiration
+     *
+     * @param config
+     *            the query configuration
+     * @return the cache
+     */
+    public static IndexLookupCache getInstance(ShardQueryConfiguration config) {
+        long maxSize = config.getIndexLookupCacheSize();
+        long expirationMillis = config.getIndexLookupCacheExpirationMillis();
+        return instances.computeIfAbsent(Arrays.asList(maxSize, expirationMillis), k -> {
+            log.info("Creating an index lookup cache with size " + maxSize + " and expiration " + expirationMillis + "ms");
+            return new IndexLookupCache(maxSize, expirationMillis, System::currentTimeMillis);
+        });
+    }
+
+    /**
+     * Create the cache key for a lookup
+     *
+     * @param config
+     *            the query configuration
+     * @param lookupType
+     *            the kind of lookup, so that different lookups of the same terms are not confused
+     * @param fields
+     *            the fields looked up in the forward index
+     * @param reverseFields
+     *            the fields looked up in the reverse index
+     * @param terms
+     *            the patterns or range looked up
+     * @param unfieldedLookup
+     *            whether this is an unfielded lookup
+     * @return the key
+     */
+    public static Key key(ShardQueryConfiguration config, String lookupType, Collection<String> fields, Collection<String> reverseFields,
+                    Collection<String> terms, boolean unfieldedLookup) {
+        return new Key(config, lookupType, fields, reverseFields, terms, unfieldedLookup);
+    }
+
+    /**
+     * Get a cached result
+     *
+     * @param key
+     *            the key of the lookup
+     * @return a copy of the cached result, which the caller may modify, or null if there is none
+     */
+    public IndexLookupMap get(Key key) {
+        CachedLookup cached = cache.getIfPresent(key);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.open && !cached.day.equals(today())) {
+            cache.invalidate(key);
+            return null;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Using cached index lookup for " + key);
+        }
+        return new IndexLookupMap(cached.map);
+    }
+
+    /**
+     * Cache the result of a lookup, unless a threshold was exceeded
+     *
+     * @param key
+     *            the key of the lookup
+     * @param map
+     *            the result, of which a copy is cached
+     */
+    public void put(Key key, IndexLookupMap map) {
+        if (!isComplete(map)) {
+            return;
+        }
+        String day = today();
+        cache.put(key, new CachedLookup(new IndexLookupMap(map), day, key.endDay.compareTo(day) >= 0));
+    }
+
+    /**
+     * Drop every cached result, for example after a bulk load of historical data
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private String today() {
+        return DateHelper.format(new Date(clock.getAsLong()));
+    }
+
+    private static boolean isComplete(IndexLookupMap map) {
+        if (map.isKeyThresholdExceeded()) {
+            return false;
+        }
+        for (ValueSet values : map.values()) {
+            if (values.isThresholdExceeded()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class CachedLookup {
+        private final IndexLookupMap map;
+        private final String day;
+        private final boolean open;
+
+        private CachedLookup(IndexLookupMap map, String day, boolean open) {
+            this.map = map;
+            this.day = day;
+            this.open = open;
+        }
+    }
+
+    /**
+     * Identifies a lookup by everything that determines its result
+     */
+    public static final class Key {
+        private final String lookupType;
+        private final Set<String> fields;
+        private final Set<String> reverseFields;
+        private final Set<String> terms;
+        private final Set<Authorizations> authorizations;
+        private final String beginDay;
+        private final String endDay;
+        private final Set<String> datatypes;
+        private final String indexTable;
+        private final String reverseIndexTable;
+        private final int keyThreshold;
+        private final int valueThreshold;
+        private final boolean unfieldedLookup;
+        private final int hashCode;
+
+        private Key(ShardQueryConfiguration config, String lookupType, Collection<String> fields, Collection<String> reverseFields, Collection<String> terms,
+                        boolean unfieldedLookup) {
+            this.lookupType = lookupType;
+            this.fields = new TreeSet<>(fields);
+            this.reverseFields = new TreeSet<>(reverseFields);
+            this.terms = new TreeSet<>(terms);
+            this.authorizations = new HashSet<>(config.getAuthorizations());
+            this.beginDay = DateHelper.format(config.getBeginDate());
+            this.endDay = DateHelper.format(config.getEndDate());
+            this.datatypes = config.getDatatypeFilter() == null ? Collections.emptySet() : new TreeSet<>(config.getDatatypeFilter());
+            this.indexTable = config.getIndexTableName();
+            this.reverseIndexTable = config.getReverseIndexTableName();
+            this.keyThreshold = config.getMaxUnfieldedExpansionThreshold();
+            this.valueThreshold = config.getMaxValueExpansionThreshold();
+            this.unfieldedLookup = unfieldedLookup;
+            this.hashCode = Objects.hash(lookupType, this.fields, this.reverseFields, this.terms, authorizations, beginDay, endDay, datatypes, indexTable,
+                            reverseIndexTable, keyThreshold, valueThreshold, unfieldedLookup);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hashCode == other.hashCode && keyThreshold == other.keyThreshold && valueThreshold == other.valueThreshold
+                            && unfieldedLookup == other.unfieldedLookup && lookupType.equals(other.lookupType) && fields.equals(other.fields)
+                            && reverseFields.equals(other.reverseFields) && terms.equals(other.terms) && authorizations.equals(other.authorizations)
+                            && beginDay.equals(other.beginDay) && endDay.equals(other.endDay) && datatypes.equals(other.datatypes)
+                            && Objects.equals(indexTable, other.indexTable) && Objects.equals(reverseIndexTable, other.reverseIndexTable);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return lookupType + " " + terms + " in " + fields + (reverseFields.isEmpty() ? "" : " (reverse " + reverseFields + ")") + " from " + beginDay
+                            + " to " + endDay;
+        }
+    }
+}
@@ -23,6 +23,21 @@ public class IndexLookupMap implements Map<String,ValueSet>, Serializable {
         this.valueThreshold = valueThreshold;
     }
 
+    /**
+     * A deep copy of another map, which may then be modified independently of it
+     *
+     * @param other
+     *            the map to copy
+     */
+    public IndexLookupMap(IndexLookupMap other) {
+        this(other.keyThreshold, other.valueThreshold);
+        this.patterns = new HashSet<>(other.patterns);
+        this.exceededKeyThreshold = other.exceededKeyThreshold;
+        for (Entry<String,ValueSet> entry : other.index.entrySet()) {
+            index.put(entry.getKey(), new ValueSet(entry.getValue()));
+        }
+    }
+
     public boolean isKeyThresholdExceeded() {
         return this.exceededKeyThreshold;
     }
@@ -155,6 +155,11 @@ public class RegexIndexLookup extends AsyncIndexLookup {
                 }
             }
 
+            if (config.isCacheIndexLookups()
+                            && loadFromCache(IndexLookupCache.key(config, getClass().getSimpleName(), fields, reverseFields, patterns, unfieldedLookup))) {
+                return;
+            }
+
             if (!fields.isEmpty() && !forwardMap.isEmpty()) {
                 for (String key : forwardMap.keySet()) {
                     Collection<Range> ranges = forwardMap.get(key);
@@ -245,6 +250,8 @@ public class RegexIndexLookup extends AsyncIndexLookup {
             }
         }
 
+        saveToCache(forwardLookupData.getTimedScanFuture(), reverseLookupData.getTimedScanFuture());
+
         return indexLookupMap;
     }
 
@@ -63,6 +63,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import datawave.core.iterators.DatawaveFieldIndexListIteratorJexl;
+import datawave.core.iterators.FairTaskScheduler;
 import datawave.core.iterators.filesystem.FileSystemCache;
 import datawave.core.iterators.querylock.QueryLock;
 import datawave.data.type.NoOpType;
@@ -148,6 +149,7 @@ public class IteratorBuildingVisitor extends BaseVisitor {
     protected QueryLock queryLock;
     protected List<IvaratorCacheDirConfig> ivaratorCacheDirConfigs;
     protected String queryId;
+    protected int queryPriority = FairTaskScheduler.DEFAULT_PRIORITY;
     protected String scanId;
     protected String ivaratorCacheSubDirPrefix = "";
     protected long ivaratorCacheScanPersistThreshold = 100000L;
@@ -1410,11 +1412,13 @@ public class IteratorBuildingVisitor extends BaseVisitor {
      */
     public void ivarate(IvaratorBuilder builder, JexlNode rootNode, JexlNode sourceNode, Object data) throws IOException {
         builder.setQueryId(queryId);
+        builder.setQueryPriority(queryPriority);
         builder.setSource(unsortedIvaratorSource);
         builder.setTimeFilter(timeFilter);
         builder.setTypeMetadata(typeMetadata);
         builder.setCompositeMetadata(compositeMetadata);
         builder.setCompositeSeekThreshold(compositeSeekThreshold);
+        builder.setFiNextSeek(fiNextSeek);
         builder.setFieldsToAggregate(fieldsToAggregate);
         builder.setDatatypeFilter(getDatatypeFilter());
         builder.setKeyTransform(getFiAggregator());
@@ -1678,6 +1682,11 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         return this;
     }
 
+    public IteratorBuildingVisitor setQueryPriority(int queryPriority) {
+        this.queryPriority = queryPriority;
+        return this;
+    }
+
     public IteratorBuildingVisitor setScanId(String scanId) {
         this.scanId = scanId;
         return this;
@@ -5,6 +5,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
@@ -20,6 +21,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -50,6 +52,7 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
@@ -291,6 +294,29 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
      */
     protected boolean showReducedQueryPrune = true;
 
+    /**
+     * Reuse the plans of queries that were planned before, see {@link QueryPlanCache}
+     */
+    protected boolean queryPlanCacheEnabled = false;
+
+    /**
+     * The max number of cached plans
+     */
+    protected long queryPlanCacheSize = 100;
+
+    /**
+     * How long a cached plan is reused after it was made
+     */
+    protected long queryPlanCacheTtlMillis = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * The max number of query plans (ranges) of a plan to cache it
+     */
+    protected int queryPlanCacheMaxPlans = 10000;
+
+    // shared by all planners, as a planner is created for each query, with one cache for each distinct size, ttl and max plans
+    private static final Map<List<Number>,QueryPlanCache> queryPlanCaches = new ConcurrentHashMap<>();
+
     // handles boilerplate operations that surround a visitor's execution (e.g., timers, logging, validating)
     private TimedVisitorManager visitorManager = new TimedVisitorManager();
 
@@ -327,6 +353,10 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         setSourceLimit(other.sourceLimit);
         setPushdownThreshold(other.getPushdownThreshold());
         setVisitorManager(other.getVisitorManager());
+        setQueryPlanCacheEnabled(other.isQueryPlanCacheEnabled());
+        setQueryPlanCacheSize(other.getQueryPlanCacheSize());
+        setQueryPlanCacheTtlMillis(other.getQueryPlanCacheTtlMillis());
+        setQueryPlanCacheMaxPlans(other.getQueryPlanCacheMaxPlans());
     }
 
     public void setMetadataHelper(final MetadataHelper metadataHelper) {
@@ -404,29 +434,52 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
             cfg = getQueryIterator(metadataHelper, config, settings, "", false, true);
         }
 
-        try {
-            config.setQueryTree(updateQueryTree(scannerFactory, metadataHelper, dateIndexHelper, config, query, queryData, settings));
-        } catch (StackOverflowError e) {
-            if (log.isTraceEnabled()) {
-                log.trace("Stack trace for overflow " + e);
-            }
-            PreConditionFailedQueryException qe = new PreConditionFailedQueryException(DatawaveErrorCode.QUERY_DEPTH_OR_TERM_THRESHOLD_EXCEEDED, e);
-            log.warn(qe);
-            throw new DatawaveFatalQueryException(qe);
-        } catch (NoResultsException e) {
-            if (log.isTraceEnabled()) {
-                log.trace("Definitively determined that no results exist from the indexes");
+        QueryPlanCache planCache = null;
+        String planCacheKey = null;
+        QueryPlanCache.CachedPlan cachedPlan = null;
+        if (queryPlanCacheEnabled && !config.isGeneratePlanOnly()) {
+            planCache = getQueryPlanCache();
+            planCacheKey = QueryPlanCache.createKey(query, config, settings);
+            if (planCacheKey != null) {
+                cachedPlan = planCache.get(planCacheKey);
             }
-
-            return DefaultQueryPlanner.emptyCloseableIterator();
         }
 
         boolean isFullTable = false;
         Tuple2<CloseableIterable<QueryPlan>,Boolean> queryRanges = null;
 
-        if (!config.isGeneratePlanOnly()) {
-            queryRanges = getQueryRanges(scannerFactory, metadataHelper, config, config.getQueryTree());
+        if (cachedPlan != null) {
+            TraceStopwatch stopwatch = config.getTimers().newStartedStopwatch("DefaultQueryPlanner - Reuse cached query plan");
+            cachedPlan.restore(config);
+            queryRanges = new Tuple2<>(cachedPlan.getQueryPlans(), cachedPlan.isFullTable());
+            stopwatch.stop();
+        } else {
+            try {
+                config.setQueryTree(updateQueryTree(scannerFactory, metadataHelper, dateIndexHelper, config, query, queryData, settings));
+            } catch (StackOverflowError e) {
+                if (log.isTraceEnabled()) {
+                    log.trace("Stack trace for overflow " + e);
+                }
+                PreConditionFailedQueryException qe = new PreConditionFailedQueryException(DatawaveErrorCode.QUERY_DEPTH_OR_TERM_THRESHOLD_EXCEEDED, e);
+                log.warn(qe);
+                throw new DatawaveFatalQueryException(qe);
+            } catch (NoResultsException e) {
+                if (log.isTraceEnabled()) {
+                    log.trace("Definitively determined that no results exist from the indexes");
+                }
+
+                return DefaultQueryPlanner.emptyCloseableIterator();
+            }
+
+            if (!config.isGeneratePlanOnly()) {
+                queryRanges = getQueryRanges(scannerFactory, metadataHelper, config, config.getQueryTree());
+                if (planCacheKey != null) {
+                    queryRanges = new Tuple2<>(planCache.record(planCacheKey, config, queryRanges.first(), queryRanges.second()), queryRanges.second());
+                }
+            }
+        }
 
+        if (!config.isGeneratePlanOnly()) {
             // a full table scan is required if
             isFullTable = queryRanges.second();
 
@@ -525,6 +578,8 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         addOption(cfg, QueryOptions.GROUP_FIELDS, config.getGroupFieldsAsString(), false);
         addOption(cfg, QueryOptions.GROUP_FIELDS_BATCH_SIZE, config.getGroupFieldsBatchSizeAsString(), false);
         addOption(cfg, QueryOptions.UNIQUE_FIELDS, config.getUniqueFields().toString(), false);
+        addOption(cfg, QueryOptions.EXACT_UNIQUE, Boolean.toString(config.isExactUnique()), false);
+        addOption(cfg, QueryOptions.UNIQUE_CACHE_BUFFER_SIZE, Integer.toString(config.getUniqueCacheBufferSize()), false);
         addOption(cfg, QueryOptions.HIT_LIST, Boolean.toString(config.isHitList()), false);
         addOption(cfg, QueryOptions.TERM_FREQUENCY_FIELDS, Joiner.on(',').join(config.getQueryTermFrequencyFields()), false);
         addOption(cfg, QueryOptions.TERM_FREQUENCIES_REQUIRED, Boolean.toString(config.isTermFrequenciesRequired()), false);
@@ -2087,6 +2142,9 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
             addOption(cfg, QueryOptions.IVARATOR_PERSIST_VERIFY_COUNT, Integer.toString(config.getIvaratorPersistVerifyCount()), false);
             addOption(cfg, QueryOptions.MAX_EVALUATION_PIPELINES, Integer.toString(config.getMaxEvaluationPipelines()), false);
             addOption(cfg, QueryOptions.MAX_PIPELINE_CACHED_RESULTS, Integer.toString(config.getMaxPipelineCachedResults()), false);
+            addOption(cfg, QueryOptions.RING_BUFFER_EVALUATION_PIPELINE, Boolean.toString(config.isRingBufferEvaluationPipeline()), false);
+            addOption(cfg, QueryOptions.COMPILED_EVALUATION, Boolean.toString(config.isCompiledEvaluation()), false);
+            addOption(cfg, QueryOptions.QUERY_PRIORITY, Integer.toString(config.getQueryPriority()), false);
             addOption(cfg, QueryOptions.MAX_IVARATOR_SOURCES, Integer.toString(config.getMaxIvaratorSources()), false);
 
             if (config.getYieldThresholdMs() != Long.MAX_VALUE && config.getYieldThresholdMs() > 0) {
@@ -2578,6 +2636,14 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         }
         if (needsFullTable) {
             if (config.getFullTableScanEnabled()) {
+                // release the lookup threads of the range stream being replaced
+                if (ranges != null) {
+                    try {
+                        ranges.close();
+                    } catch (IOException e) {
+                        log.warn("Unable to close range stream", e);
+                    }
+                }
                 ranges = this.getFullScanRange(config, queryTree);
             } else {
                 if (log.isTraceEnabled())
@@ -2667,6 +2733,59 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         this.cacheDataTypes = cacheDataTypes;
     }
 
+    public boolean isQueryPlanCacheEnabled() {
+        return queryPlanCacheEnabled;
+    }
+
+    public void setQueryPlanCacheEnabled(boolean queryPlanCacheEnabled) {
+        this.queryPlanCacheEnabled = queryPlanCacheEnabled;
+    }
+
+    public long getQueryPlanCacheSize() {
+        return queryPlanCacheSize;
+    }
+
+    public void setQueryPlanCacheSize(long queryPlanCacheSize) {
+        this.queryPlanCacheSize = queryPlanCacheSize;
+    }
+
+    public long getQueryPlanCacheTtlMillis() {
+        return queryPlanCacheTtlMillis;
+    }
+
+    public void setQueryPlanCacheTtlMillis(long queryPlanCacheTtlMillis) {
+        this.queryPlanCacheTtlMillis = queryPlanCacheTtlMillis;
+    }
+
+    public int getQueryPlanCacheMaxPlans() {
+        return queryPlanCacheMaxPlans;
+    }
+
+    public void setQueryPlanCacheMaxPlans(int queryPlanCacheMaxPlans) {
+        this.queryPlanCacheMaxPlans = queryPlanCacheMaxPlans;
+    }
+
+    /**
+     * Get the query plan cache for the size, ttl and max plans of this planner, so that planners configured differently do not evict each other's plans
+     *
+     * @return the query plan cache
+     */
+    protected QueryPlanCache getQueryPlanCache() {
+        List<Number> settings = Arrays.asList(queryPlanCacheSize, queryPlanCacheTtlMillis, queryPlanCacheMaxPlans);
+        return queryPlanCaches.computeIfAbsent(settings, k -> new QueryPlanCache(queryPlanCacheSize, queryPlanCacheTtlMillis, queryPlanCacheMaxPlans));
+    }
+
+    /**
+     * @return the hit, miss and eviction counts of the query plan caches combined, or null if no query used them yet
+     */
+    public static CacheStats getQueryPlanCacheStats() {
+        CacheStats stats = null;
+        for (QueryPlanCache cache : queryPlanCaches.values()) {
+            stats = stats == null ? cache.getStats() : stats.plus(cache.getStats());
+        }
+        return stats;
+    }
+
     private Multimap<String,String> invertMultimap(Map<String,String> multi) {
         Multimap<String,String> inverse = HashMultimap.create();
         for (Entry<String,String> entry : multi.entrySet()) {
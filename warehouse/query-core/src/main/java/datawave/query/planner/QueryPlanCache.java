@@ -0,0 +1,439 @@
+package datawave.query.planner;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.ParseException;
+import org.apache.log4j.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+
+import datawave.data.type.DiscreteIndexType;
+import datawave.data.type.Type;
+import datawave.query.CloseableIterable;
+import datawave.query.attributes.ExcerptFields;
+import datawave.query.attributes.UniqueFields;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.iterator.CloseableListIterable;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
+import datawave.query.jexl.visitors.RebuildingVisitor;
+import datawave.query.model.QueryModel;
+import datawave.webservice.common.logging.ThreadConfigurableLogger;
+import datawave.webservice.query.Query;
+import datawave.webservice.query.QueryImpl.Parameter;
+
+/**
+ * A cache of the plans made by the {@link DefaultQueryPlanner}, so that a query that is issued again, as dashboards do every few minutes, reuses the planned
+ * query tree and query plans instead of running the visitors and index lookups again.
+ * <p>
+ * Plans are keyed by the query, normalized by parsing and rebuilding it, together with the query logic, the query parameters, the query model, the date range,
+ * the datatype filter and the authorizations. The rest of the configuration comes from the query logic, so any option that may differ between two queries of
+ * the same logic is part of the key. A plan is reused until it expires, which bounds how long data that was ingested since it was made can be missed, and the
+ * least recently used plans are evicted once the cache is full.
+ * <p>
+ * The query plans are recorded as the range stream is consumed, and a plan is only cached once all of its query plans were read, and only when there are no
+ * more than the max plans.
+ */
+public class QueryPlanCache {
+    private static final Logger log = ThreadConfigurableLogger.getLogger(QueryPlanCache.class);
+
+    private final Cache<String,CachedPlan> cache;
+    private final long maxSize;
+    private final long ttlMillis;
+    private final int maxPlans;
+
+    /**
+     * @param maxSize
+     *            the max number of cached plans
+     * @param ttlMillis
+     *            how long a plan is reused after it was made, in milliseconds
+     * @param maxPlans
+     *            the max number of query plans (ranges) of a cached plan
+     */
+    public QueryPlanCache(long maxSize, long ttlMillis, int maxPlans) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.maxPlans = maxPlans;
+        this.cache = CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS).recordStats().build();
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public int getMaxPlans() {
+        return maxPlans;
+    }
+
+    /**
+     * Create the key of the plan of a query
+     *
+     * @param query
+     *            the query string
+     * @param config
+     *            the configuration, before the query is planned
+     * @param settings
+     *            the query
+     * @return the key, or null if the query can not be parsed
+     */
+    public static String createKey(String query, ShardQueryConfiguration config, Query settings) {
+        String normalizedQuery;
+        try {
+            normalizedQuery = JexlStringBuildingVisitor.buildQuery(JexlASTHelper.parseJexlQuery(query));
+        } catch (ParseException e) {
+            // leave it to the planner to report
+            return null;
+        }
+
+        Set<String> auths = new TreeSet<>();
+        if (config.getAuthorizations() != null) {
+            for (Authorizations authorizations : config.getAuthorizations()) {
+                Set<String> sorted = new TreeSet<>();
+                for (byte[] auth : authorizations.getAuthorizations()) {
+                    sorted.add(new String(auth, UTF_8));
+                }
+                auths.add(String.join(",", sorted));
+            }
+        }
+
+        Set<String> parameters = new TreeSet<>();
+        if (settings.getParameters() != null) {
+            for (Parameter parameter : settings.getParameters()) {
+                parameters.add(parameter.getParameterName() + '=' + parameter.getParameterValue());
+            }
+        }
+
+        StringBuilder key = new StringBuilder(normalizedQuery);
+        key.append('\0').append(settings.getQueryLogicName());
+        key.append('\0').append(parameters);
+        key.append('\0').append(config.getModelName()).append('@').append(config.getModelTableName());
+        key.append('\0').append(config.getBeginDate() == null ? null : config.getBeginDate().getTime());
+        key.append('\0').append(config.getEndDate() == null ? null : config.getEndDate().getTime());
+        key.append('\0').append(config.getDatatypeFilter() == null ? null : new TreeSet<>(config.getDatatypeFilter()));
+        key.append('\0').append(auths);
+        return key.toString();
+    }
+
+    /**
+     * Get a cached plan
+     *
+     * @param key
+     *            the key of the plan
+     * @return the plan, or null if it is not cached or has expired
+     */
+    public CachedPlan get(String key) {
+        CachedPlan plan = cache.getIfPresent(key);
+        if (log.isDebugEnabled()) {
+            log.debug((plan == null ? "Query plan cache miss, " : "Query plan cache hit, ") + cache.stats());
+        }
+        return plan;
+    }
+
+    /**
+     * Record the plan of a query as its query plans are read, caching it once they all were
+     *
+     * @param key
+     *            the key of the plan
+     * @param config
+     *            the configuration, after the query is planned
+     * @param queryPlans
+     *            the query plans
+     * @param isFullTable
+     *            whether the query is a full table scan
+     * @return the query plans, to be read in their place
+     */
+    public CloseableIterable<QueryPlan> record(String key, ShardQueryConfiguration config, CloseableIterable<QueryPlan> queryPlans, boolean isFullTable) {
+        return new RecordingIterable(key, new PlannedConfiguration(config), isFullTable, queryPlans);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * @return the hit, miss and eviction counts
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Copies the query plans as they are read, and caches the plan once they all were. Each iterator records its own copies, so that iterating more than once
+     * does not record the query plans twice.
+     */
+    private class RecordingIterable implements CloseableIterable<QueryPlan> {
+        private final String key;
+        private final PlannedConfiguration configuration;
+        private final boolean isFullTable;
+        private final CloseableIterable<QueryPlan> delegate;
+
+        RecordingIterable(String key, PlannedConfiguration configuration, boolean isFullTable, CloseableIterable<QueryPlan> delegate) {
+            this.key = key;
+            this.configuration = configuration;
+            this.isFullTable = isFullTable;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Iterator<QueryPlan> iterator() {
+            final Iterator<QueryPlan> iterator = delegate.iterator();
+            return new Iterator<QueryPlan>() {
+                private final Map<JexlNode,JexlNode> copies = new IdentityHashMap<>();
+                private List<QueryPlan> recorded = new ArrayList<>();
+
+                @Override
+                public boolean hasNext() {
+                    boolean hasNext = iterator.hasNext();
+                    if (!hasNext && recorded != null) {
+                        cache.put(key, new CachedPlan(configuration, isFullTable, recorded));
+                        recorded = null;
+                    }
+                    return hasNext;
+                }
+
+                @Override
+                public QueryPlan next() {
+                    QueryPlan queryPlan = iterator.next();
+                    if (recorded != null) {
+                        if (recorded.size() < maxPlans) {
+                            recorded.add(copy(queryPlan, copies));
+                        } else {
+                            if (log.isDebugEnabled()) {
+                                log.debug("Not caching the plan of a query with more than " + maxPlans + " query plans");
+                            }
+                            recorded = null;
+                        }
+                    }
+                    return queryPlan;
+                }
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    /**
+     * Copy a query plan, copying each distinct query tree once so that plans sharing a tree still share its copy
+     */
+    private static QueryPlan copy(QueryPlan queryPlan, Map<JexlNode,JexlNode> copies) {
+        JexlNode queryTree = copies.computeIfAbsent(queryPlan.getQueryTree(), RebuildingVisitor::copy);
+        return new QueryPlan(queryTree, queryPlan.getRanges(), queryPlan.getColumnFamilies());
+    }
+
+    /**
+     * The planned query tree and query plans of a query, and the configuration the planner derived while planning it
+     */
+    public static class CachedPlan {
+        private final PlannedConfiguration configuration;
+        private final boolean isFullTable;
+        private final List<QueryPlan> queryPlans;
+
+        CachedPlan(PlannedConfiguration configuration, boolean isFullTable, List<QueryPlan> queryPlans) {
+            this.configuration = configuration;
+            this.isFullTable = isFullTable;
+            this.queryPlans = Collections.unmodifiableList(new ArrayList<>(queryPlans));
+        }
+
+        /**
+         * Set the configuration a query would have after planning it, on copies of the cached state
+         *
+         * @param config
+         *            the configuration, before the query is planned
+         */
+        public void restore(ShardQueryConfiguration config) {
+            configuration.restore(config);
+        }
+
+        public boolean isFullTable() {
+            return isFullTable;
+        }
+
+        /**
+         * @return copies of the cached query plans
+         */
+        public CloseableIterable<QueryPlan> getQueryPlans() {
+            Map<JexlNode,JexlNode> copies = new IdentityHashMap<>();
+            List<QueryPlan> plans = new ArrayList<>(queryPlans.size());
+            for (QueryPlan queryPlan : queryPlans) {
+                plans.add(QueryPlanCache.copy(queryPlan, copies));
+            }
+            return new CloseableListIterable<>(plans);
+        }
+
+        public int size() {
+            return queryPlans.size();
+        }
+    }
+
+    /**
+     * The configuration the planner derived while planning a query, copied when the query was planned
+     */
+    static class PlannedConfiguration {
+        private final ASTJexlScript queryTree;
+        private final Date beginDate;
+        private final Date endDate;
+        private final QueryModel queryModel;
+        private final Set<String> indexedFields;
+        private final Set<String> reverseIndexedFields;
+        private final Multimap<String,Type<?>> queryFieldsDatatypes;
+        private final Multimap<String,Type<?>> normalizedFieldsDatatypes;
+        private final Map<String,DiscreteIndexType<?>> fieldToDiscreteIndexTypes;
+        private final Multimap<String,String> compositeToFieldMap;
+        private final Map<String,Date> compositeTransitionDates;
+        private final Map<String,String> compositeFieldSeparators;
+        private final Map<String,Date> whindexCreationDates;
+        private final boolean containsCompositeTerms;
+        private final boolean containsIndexOnlyTerms;
+        private final boolean sortedUIDs;
+        private final boolean collapseUids;
+        private final boolean expandAllTerms;
+        private final boolean bypassExecutabilityCheck;
+        private final Set<String> queryTermFrequencyFields;
+        private final boolean termFrequenciesRequired;
+        // options that may be set through the query function
+        private final Set<String> projectFields;
+        private final Set<String> blacklistedFields;
+        private final Set<String> limitFields;
+        private final Set<String> matchingFieldSets;
+        private final Set<String> groupFields;
+        private final int groupFieldsBatchSize;
+        private final UniqueFields uniqueFields;
+        private final ExcerptFields excerptFields;
+        private final Set<String> noExpansionFields;
+        private final Set<String> lenientFields;
+        private final Set<String> strictFields;
+        private final boolean hitList;
+        private final boolean includeGroupingContext;
+
+        PlannedConfiguration(ShardQueryConfiguration config) {
+            this.queryTree = copy(config.getQueryTree());
+            this.beginDate = copy(config.getBeginDate());
+            this.endDate = copy(config.getEndDate());
+            this.queryModel = copy(config.getQueryModel());
+            this.indexedFields = copy(config.getIndexedFields());
+            this.reverseIndexedFields = copy(config.getReverseIndexedFields());
+            this.queryFieldsDatatypes = copy(config.getQueryFieldsDatatypes());
+            this.normalizedFieldsDatatypes = copy(config.getNormalizedFieldsDatatypes());
+            this.fieldToDiscreteIndexTypes = copy(config.getFieldToDiscreteIndexTypes());
+            this.compositeToFieldMap = config.getCompositeToFieldMap() == null ? null : ArrayListMultimap.create(config.getCompositeToFieldMap());
+            this.compositeTransitionDates = copy(config.getCompositeTransitionDates());
+            this.compositeFieldSeparators = copy(config.getCompositeFieldSeparators());
+            this.whindexCreationDates = copy(config.getWhindexCreationDates());
+            this.containsCompositeTerms = config.isContainsCompositeTerms();
+            this.containsIndexOnlyTerms = config.isContainsIndexOnlyTerms();
+            this.sortedUIDs = config.isSortedUIDs();
+            this.collapseUids = config.getCollapseUids();
+            this.expandAllTerms = config.isExpandAllTerms();
+            this.bypassExecutabilityCheck = config.isBypassExecutabilityCheck();
+            this.queryTermFrequencyFields = copy(config.getQueryTermFrequencyFields());
+            this.termFrequenciesRequired = config.isTermFrequenciesRequired();
+            this.projectFields = copy(config.getProjectFields());
+            this.blacklistedFields = copy(config.getBlacklistedFields());
+            this.limitFields = copy(config.getLimitFields());
+            this.matchingFieldSets = copy(config.getMatchingFieldSets());
+            this.groupFields = copy(config.getGroupFields());
+            this.groupFieldsBatchSize = config.getGroupFieldsBatchSize();
+            this.uniqueFields = UniqueFields.copyOf(config.getUniqueFields());
+            this.excerptFields = ExcerptFields.copyOf(config.getExcerptFields());
+            this.noExpansionFields = copy(config.getNoExpansionFields());
+            this.lenientFields = copy(config.getLenientFields());
+            this.strictFields = copy(config.getStrictFields());
+            this.hitList = config.isHitList();
+            this.includeGroupingContext = config.getIncludeGroupingContext();
+        }
+
+        void restore(ShardQueryConfiguration config) {
+            config.setQueryTree(copy(queryTree));
+            config.setBeginDate(copy(beginDate));
+            config.setEndDate(copy(endDate));
+            config.setQueryModel(copy(queryModel));
+            config.setIndexedFields(copy(indexedFields));
+            config.setReverseIndexedFields(copy(reverseIndexedFields));
+            config.setQueryFieldsDatatypes(copy(queryFieldsDatatypes));
+            config.setNormalizedFieldsDatatypes(copy(normalizedFieldsDatatypes));
+            config.setFieldToDiscreteIndexTypes(copy(fieldToDiscreteIndexTypes));
+            config.setCompositeToFieldMap(compositeToFieldMap == null ? null : ArrayListMultimap.create(compositeToFieldMap));
+            config.setCompositeTransitionDates(copy(compositeTransitionDates));
+            config.setCompositeFieldSeparators(copy(compositeFieldSeparators));
+            config.setWhindexCreationDates(copy(whindexCreationDates));
+            config.setContainsCompositeTerms(containsCompositeTerms);
+            config.setContainsIndexOnlyTerms(containsIndexOnlyTerms);
+            config.setSortedUIDs(sortedUIDs);
+            config.setCollapseUids(collapseUids);
+            config.setExpandAllTerms(expandAllTerms);
+            config.setBypassExecutabilityCheck(bypassExecutabilityCheck);
+            config.setQueryTermFrequencyFields(copy(queryTermFrequencyFields));
+            config.setTermFrequenciesRequired(termFrequenciesRequired);
+            config.setProjectFields(copy(projectFields));
+            config.setBlacklistedFields(copy(blacklistedFields));
+            config.setLimitFields(copy(limitFields));
+            config.setMatchingFieldSets(copy(matchingFieldSets));
+            config.setGroupFields(copy(groupFields));
+            config.setGroupFieldsBatchSize(groupFieldsBatchSize);
+            config.setUniqueFields(UniqueFields.copyOf(uniqueFields));
+            config.setExcerptFields(ExcerptFields.copyOf(excerptFields));
+            config.setNoExpansionFields(copy(noExpansionFields));
+            config.setLenientFields(copy(lenientFields));
+            config.setStrictFields(copy(strictFields));
+            config.setHitList(hitList);
+            config.setIncludeGroupingContext(includeGroupingContext);
+        }
+
+        private static ASTJexlScript copy(ASTJexlScript script) {
+            return script == null ? null : (ASTJexlScript) RebuildingVisitor.copy(script);
+        }
+
+        private static Date copy(Date date) {
+            return date == null ? null : new Date(date.getTime());
+        }
+
+        private static QueryModel copy(QueryModel model) {
+            return model == null ? null : new QueryModel(model);
+        }
+
+        private static <T> Set<T> copy(Set<T> set) {
+            return set == null ? null : new HashSet<>(set);
+        }
+
+        private static <K,V> Map<K,V> copy(Map<K,V> map) {
+            return map == null ? null : new HashMap<>(map);
+        }
+
+        private static <K,V> Multimap<K,V> copy(Multimap<K,V> multimap) {
+            return multimap == null ? null : HashMultimap.create(multimap);
+        }
+    }
+}
@@ -357,31 +357,7 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
             Scan scan = null;
 
             if (speculativeScanning) {
-
-                if (log.isTraceEnabled()) {
-                    log.trace("Using speculative execution");
-                }
-
-                chunk.setQueryId(settings.getId().toString());
-
-                scan = new SpeculativeScan(localTableName, localAuths, chunk, delegatorReference, delegatedResourceInitializer, resultQueue, service);
-
-                scan.setVisitors(visitorFunctions);
-
-                Scan childScan = new Scan(localTableName, localAuths, new ScannerChunk(chunk), delegatorReference, BatchResource.class,
-                                ((SpeculativeScan) scan).getQueue(), service);
-
-                childScan.setVisitors(visitorFunctions);
-
-                ((SpeculativeScan) scan).addScan(childScan);
-
-                childScan = new Scan(localTableName, localAuths, new ScannerChunk(chunk), delegatorReference, delegatedResourceInitializer,
-                                ((SpeculativeScan) scan).getQueue(), service);
-
-                childScan.setVisitors(visitorFunctions);
-
-                ((SpeculativeScan) scan).addScan(childScan);
-
+                scan = createSpeculativeScan(chunk);
             } else {
                 scan = new Scan(localTableName, localAuths, chunk, delegatorReference, delegatedResourceInitializer, resultQueue, service);
             }
@@ -420,18 +396,7 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
             Scan scan = null;
 
             if (speculativeScanning) {
-
-                if (log.isTraceEnabled()) {
-                    log.trace("Using speculative execution");
-                }
-                scan = new SpeculativeScan(localTableName, localAuths, chunk, delegatorReference, delegatedResourceInitializer, resultQueue, service);
-
-                ((SpeculativeScan) scan).addScan(new Scan(localTableName, localAuths, new ScannerChunk(chunk), delegatorReference, BatchResource.class,
-                                ((SpeculativeScan) scan).getQueue(), service));
-
-                ((SpeculativeScan) scan).addScan(new Scan(localTableName, localAuths, new ScannerChunk(chunk), delegatorReference, delegatedResourceInitializer,
-                                ((SpeculativeScan) scan).getQueue(), service));
-
+                scan = createSpeculativeScan(chunk);
             } else {
                 scan = new Scan(localTableName, localAuths, chunk, delegatorReference, delegatedResourceInitializer, resultQueue, service);
             }
@@ -449,6 +414,44 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
 
     }
 
+    /**
+     * Create a scan that races a scan through a batch resource against a scan through the delegated resource. Each branch buffers its results in its own
+     * queue, and only the results of the branch that returns first are passed on.
+     *
+     * @param chunk
+     *            the chunk to scan
+     * @return the speculative scan
+     */
+    protected Scan createSpeculativeScan(ScannerChunk chunk) {
+        if (log.isTraceEnabled()) {
+            log.trace("Using speculative execution");
+        }
+
+        if (settings != null) {
+            chunk.setQueryId(settings.getId().toString());
+        }
+
+        SpeculativeScan scan = new SpeculativeScan(localTableName, localAuths, chunk, delegatorReference, delegatedResourceInitializer, resultQueue, service);
+
+        scan.setVisitors(visitorFunctions);
+
+        Scan childScan = new Scan(localTableName, localAuths, new ScannerChunk(chunk), delegatorReference, BatchResource.class, Queues.newLinkedBlockingDeque(),
+                        service);
+
+        childScan.setVisitors(visitorFunctions);
+
+        scan.addScan(childScan);
+
+        childScan = new Scan(localTableName, localAuths, new ScannerChunk(chunk), delegatorReference, delegatedResourceInitializer,
+                        Queues.newLinkedBlockingDeque(), service);
+
+        childScan.setVisitors(visitorFunctions);
+
+        scan.addScan(childScan);
+
+        return scan;
+    }
+
     protected void submitScan(Scan scan, boolean increment) {
         ListenableFuture<Scan> future = (ListenableFuture<Scan>) service.submit(scan);
         if (increment)
@@ -3,6 +3,8 @@ package datawave.query.tables;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.accumulo.core.client.AccumuloClient;
 import org.apache.commons.pool.PoolableObjectFactory;
@@ -22,6 +24,13 @@ public final class ResourceQueue implements Closeable {
 
     private final byte type;
 
+    private final ScannerResourceScheduler scheduler;
+
+    private final ScannerResourceScheduler.Quota quota;
+
+    // resources currently charged against the scheduler
+    private final Set<AccumuloResource> scheduled = ConcurrentHashMap.newKeySet();
+
     /**
      * Constructor for the queue that accepts the capacity and the connector. Defaults to the block when exhausted queue option
      *
@@ -45,10 +54,34 @@ public final class ResourceQueue implements Closeable {
      *            type of pool
      */
     public ResourceQueue(int capacity, AccumuloClient client, byte type) {
+        this(capacity, client, type, null, null);
+    }
+
+    /**
+     * Constructor for a queue that additionally checks each resource out of a scheduler shared with other queries, charged against the supplied quota.
+     * Defaults to the block when exhausted queue option
+     *
+     * @param capacity
+     *            the capacity
+     * @param client
+     *            a client
+     * @param scheduler
+     *            the shared scheduler
+     * @param quota
+     *            the quota to charge resources against
+     */
+    public ResourceQueue(int capacity, AccumuloClient client, ScannerResourceScheduler scheduler, ScannerResourceScheduler.Quota quota) {
+        this(capacity, client, GenericObjectPool.WHEN_EXHAUSTED_BLOCK, scheduler, quota);
+    }
+
+    private ResourceQueue(int capacity, AccumuloClient client, byte type, ScannerResourceScheduler scheduler, ScannerResourceScheduler.Quota quota) {
         Preconditions.checkNotNull(client);
         Preconditions.checkArgument(capacity > 0);
+        Preconditions.checkArgument((scheduler == null) == (quota == null));
 
         this.type = type;
+        this.scheduler = scheduler;
+        this.quota = quota;
 
         PoolableObjectFactory<AccumuloResource> factory = new AccumuloResourceFactory(client);
 
@@ -73,6 +106,17 @@ public final class ResourceQueue implements Closeable {
                 }
             }
         }
+
+        // then wait for our share of the scanners across all queries
+        if (scheduler != null) {
+            try {
+                scheduler.acquire(quota);
+            } catch (Exception e) {
+                scannerPool.returnObject(resource);
+                throw e;
+            }
+            scheduled.add(resource);
+        }
         return resource;
     }
 
@@ -85,8 +129,18 @@ public final class ResourceQueue implements Closeable {
      *             if there are issues
      */
     public void close(final AccumuloResource resource) throws Exception {
-        resource.close();
-        scannerPool.returnObject(resource);
+        try {
+            resource.close();
+            scannerPool.returnObject(resource);
+        } finally {
+            release(resource);
+        }
+    }
+
+    private void release(final AccumuloResource resource) {
+        if (scheduled.remove(resource)) {
+            scheduler.release(quota);
+        }
     }
 
     public int getCapacity() {
@@ -101,6 +155,9 @@ public final class ResourceQueue implements Closeable {
     @Override
     public synchronized void close() throws IOException {
         // let the currently running scanners go
+        for (AccumuloResource resource : scheduled) {
+            release(resource);
+        }
         try {
             scannerPool.close();
         } catch (Exception e) {
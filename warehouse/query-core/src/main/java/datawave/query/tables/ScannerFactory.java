@@ -3,9 +3,10 @@ package datawave.query.tables;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.accumulo.core.client.AccumuloClient;
 import org.apache.accumulo.core.client.BatchScanner;
@@ -33,10 +34,12 @@ import datawave.webservice.query.configuration.GenericQueryConfiguration;
 public class ScannerFactory {
 
     protected int maxQueue = 1000;
-    protected HashSet<ScannerBase> instances = new HashSet<>();
-    protected HashSet<ScannerSession> sessionInstances = new HashSet<>();
+    protected Set<ScannerBase> instances = ConcurrentHashMap.newKeySet();
+    protected Set<ScannerSession> sessionInstances = ConcurrentHashMap.newKeySet();
     protected AccumuloClient cxn;
-    protected boolean open = true;
+    protected volatile boolean open = true;
+    // scanners are created under the read lock, so that lockdown waits for them to be added before the caller closes the current scanners
+    protected final ReentrantReadWriteLock lockdownLock = new ReentrantReadWriteLock();
     protected boolean accrueStats = false;
     protected Query settings;
     protected ResourceQueue scanQueue = null;
@@ -59,13 +62,24 @@ public class ScannerFactory {
             maxQueue = ((ShardQueryConfiguration) queryConfiguration).getMaxScannerBatchSize();
             this.settings = ((ShardQueryConfiguration) queryConfiguration).getQuery();
             try {
-                scanQueue = new ResourceQueue(((ShardQueryConfiguration) queryConfiguration).getNumQueryThreads(), this.cxn);
+                if (config.isSharedScannerPool()) {
+                    scanQueue = new ResourceQueue(config.getNumQueryThreads(), this.cxn, ScannerResourceScheduler.getInstance(), getQuota(config));
+                } else {
+                    scanQueue = new ResourceQueue(config.getNumQueryThreads(), this.cxn);
+                }
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
         }
     }
 
+    private static ScannerResourceScheduler.Quota getQuota(ShardQueryConfiguration config) {
+        Query query = config.getQuery();
+        String user = (query == null ? null : query.getOwner());
+        String logic = (query == null ? null : query.getQueryLogicName());
+        return new ScannerResourceScheduler.Quota(user, config.getMaxScannersPerUser(), logic, config.getMaxScannersPerLogic(), config.getScannerPriority());
+    }
+
     public ScannerFactory(AccumuloClient client) {
         this(client, 100);
 
@@ -80,46 +94,61 @@ public class ScannerFactory {
         }
     }
 
-    public synchronized Scanner newSingleScanner(String tableName, Set<Authorizations> auths, Query query) throws TableNotFoundException {
-        if (open) {
-            Scanner bs = QueryScannerHelper.createScannerWithoutInfo(cxn, tableName, auths, query);
-            log.debug("Created scanner " + System.identityHashCode(bs));
-            if (log.isTraceEnabled()) {
-                log.trace("Adding instance " + bs.hashCode());
+    public Scanner newSingleScanner(String tableName, Set<Authorizations> auths, Query query) throws TableNotFoundException {
+        lockdownLock.readLock().lock();
+        try {
+            if (open) {
+                Scanner bs = QueryScannerHelper.createScannerWithoutInfo(cxn, tableName, auths, query);
+                log.debug("Created scanner " + System.identityHashCode(bs));
+                if (log.isTraceEnabled()) {
+                    log.trace("Adding instance " + bs.hashCode());
+                }
+
+                return bs;
+            } else {
+                throw new IllegalStateException("Factory has been locked. No new scanners can be created.");
             }
-
-            return bs;
-        } else {
-            throw new IllegalStateException("Factory has been locked. No new scanners can be created.");
+        } finally {
+            lockdownLock.readLock().unlock();
         }
     }
 
-    public synchronized BatchScanner newScanner(String tableName, Set<Authorizations> auths, int threads, Query query) throws TableNotFoundException {
-        if (open) {
-            BatchScanner bs = QueryScannerHelper.createBatchScanner(cxn, tableName, auths, threads, query);
-            log.debug("Created scanner " + System.identityHashCode(bs));
-            if (log.isTraceEnabled()) {
-                log.trace("Adding instance " + bs.hashCode());
+    public BatchScanner newScanner(String tableName, Set<Authorizations> auths, int threads, Query query) throws TableNotFoundException {
+        lockdownLock.readLock().lock();
+        try {
+            if (open) {
+                BatchScanner bs = QueryScannerHelper.createBatchScanner(cxn, tableName, auths, threads, query);
+                log.debug("Created scanner " + System.identityHashCode(bs));
+                if (log.isTraceEnabled()) {
+                    log.trace("Adding instance " + bs.hashCode());
+                }
+                instances.add(bs);
+                return bs;
+            } else {
+                throw new IllegalStateException("Factory has been locked. No new scanners can be created.");
             }
-            instances.add(bs);
-            return bs;
-        } else {
-            throw new IllegalStateException("Factory has been locked. No new scanners can be created.");
+        } finally {
+            lockdownLock.readLock().unlock();
         }
     }
 
-    public synchronized BatchScanner newScanner(String tableName, Set<Authorizations> auths, int threads, Query query, boolean reportErrors)
+    public BatchScanner newScanner(String tableName, Set<Authorizations> auths, int threads, Query query, boolean reportErrors)
                     throws TableNotFoundException {
-        if (open) {
-            BatchScanner bs = QueryScannerHelper.createBatchScanner(cxn, tableName, auths, threads, query, reportErrors);
-            log.debug("Created scanner " + System.identityHashCode(bs));
-            if (log.isTraceEnabled()) {
-                log.trace("Adding instance " + bs.hashCode());
+        lockdownLock.readLock().lock();
+        try {
+            if (open) {
+                BatchScanner bs = QueryScannerHelper.createBatchScanner(cxn, tableName, auths, threads, query, reportErrors);
+                log.debug("Created scanner " + System.identityHashCode(bs));
+                if (log.isTraceEnabled()) {
+                    log.trace("Adding instance " + bs.hashCode());
+                }
+                instances.add(bs);
+                return bs;
+            } else {
+                throw new IllegalStateException("Factory has been locked. No new scanners can be created.");
             }
-            instances.add(bs);
-            return bs;
-        } else {
-            throw new IllegalStateException("Factory has been locked. No new scanners can be created.");
+        } finally {
+            lockdownLock.readLock().unlock();
         }
     }
 
@@ -145,7 +174,7 @@ public class ScannerFactory {
      * @throws Exception
      *             if there are issues
      */
-    public synchronized BatchScannerSession newQueryScanner(final String tableName, final Set<Authorizations> auths, Query settings) throws Exception {
+    public BatchScannerSession newQueryScanner(final String tableName, final Set<Authorizations> auths, Query settings) throws Exception {
 
         return newLimitedScanner(BatchScannerSession.class, tableName, auths, settings).setThreads(scanQueue.getCapacity());
     }
@@ -169,34 +198,39 @@ public class ScannerFactory {
      *             if there are issues
      *
      */
-    public synchronized <T extends ScannerSession> T newLimitedScanner(Class<T> wrapper, final String tableName, final Set<Authorizations> auths,
+    public <T extends ScannerSession> T newLimitedScanner(Class<T> wrapper, final String tableName, final Set<Authorizations> auths,
                     final Query settings) throws Exception {
         Preconditions.checkNotNull(scanQueue);
         Preconditions.checkNotNull(wrapper);
-        Preconditions.checkArgument(open, "Factory has been locked. No New scanners can be created");
+        lockdownLock.readLock().lock();
+        try {
+            Preconditions.checkArgument(open, "Factory has been locked. No New scanners can be created");
 
-        log.debug("Creating limited scanner whose max threads is is " + scanQueue.getCapacity() + " and max capacity is " + maxQueue);
+            log.debug("Creating limited scanner whose max threads is is " + scanQueue.getCapacity() + " and max capacity is " + maxQueue);
 
-        ScanSessionStats stats = null;
-        if (accrueStats) {
-            stats = new ScanSessionStats();
-        }
+            ScanSessionStats stats = null;
+            if (accrueStats) {
+                stats = new ScanSessionStats();
+            }
 
-        T session = null;
-        if (wrapper == ScannerSession.class) {
-            session = (T) new ScannerSession(tableName, auths, scanQueue, maxQueue, settings).applyStats(stats);
-        } else {
-            session = wrapper.getConstructor(ScannerSession.class)
-                            .newInstance(new ScannerSession(tableName, auths, scanQueue, maxQueue, settings).applyStats(stats));
-        }
+            T session = null;
+            if (wrapper == ScannerSession.class) {
+                session = (T) new ScannerSession(tableName, auths, scanQueue, maxQueue, settings).applyStats(stats);
+            } else {
+                session = wrapper.getConstructor(ScannerSession.class)
+                                .newInstance(new ScannerSession(tableName, auths, scanQueue, maxQueue, settings).applyStats(stats));
+            }
 
-        log.debug("Created session " + System.identityHashCode(session));
-        if (log.isTraceEnabled()) {
-            log.trace("Adding instance " + session.hashCode());
-        }
-        sessionInstances.add(session);
+            log.debug("Created session " + System.identityHashCode(session));
+            if (log.isTraceEnabled()) {
+                log.trace("Adding instance " + session.hashCode());
+            }
+            sessionInstances.add(session);
 
-        return session;
+            return session;
+        } finally {
+            lockdownLock.readLock().unlock();
+        }
     }
 
     /**
@@ -213,7 +247,7 @@ public class ScannerFactory {
      * @throws Exception
      *             if there are issues
      */
-    public synchronized RangeStreamScanner newRangeScanner(final String tableName, final Set<Authorizations> auths, final Query settings) throws Exception {
+    public RangeStreamScanner newRangeScanner(final String tableName, final Set<Authorizations> auths, final Query settings) throws Exception {
         return newRangeScanner(tableName, auths, settings, Integer.MAX_VALUE);
     }
 
@@ -221,7 +255,7 @@ public class ScannerFactory {
         return newLimitedScanner(RangeStreamScanner.class, tableName, auths, settings).setShardsPerDayThreshold(shardsPerDayThreshold).setScannerFactory(this);
     }
 
-    public synchronized boolean close(ScannerBase bs) {
+    public boolean close(ScannerBase bs) {
         boolean removed = instances.remove(bs);
         if (removed) {
             log.debug("Closed scanner " + System.identityHashCode(bs));
@@ -238,7 +272,7 @@ public class ScannerFactory {
      *
      * @return a NEW collection of scanners
      */
-    public synchronized Collection<ScannerBase> currentScanners() {
+    public Collection<ScannerBase> currentScanners() {
         return new ArrayList<>(instances);
     }
 
@@ -247,21 +281,26 @@ public class ScannerFactory {
      *
      * @return a NEW collection of scanner session instances
      */
-    public synchronized Collection<ScannerSession> currentSessions() {
+    public Collection<ScannerSession> currentSessions() {
         return new ArrayList<>(sessionInstances);
     }
 
-    public synchronized boolean lockdown() {
+    public boolean lockdown() {
         log.debug("Locked scanner factory " + System.identityHashCode(this));
         if (log.isTraceEnabled()) {
             log.trace("Locked down with following stacktrace", new Exception("stacktrace for debugging"));
         }
 
-        open = false;
-        return open;
+        lockdownLock.writeLock().lock();
+        try {
+            open = false;
+            return open;
+        } finally {
+            lockdownLock.writeLock().unlock();
+        }
     }
 
-    public synchronized void close(ScannerSession bs) {
+    public void close(ScannerSession bs) {
         try {
             log.debug("Closed session " + System.identityHashCode(bs));
             sessionInstances.remove(bs);
@@ -279,30 +318,36 @@ public class ScannerFactory {
         this.maxQueue = size;
     }
 
-    public synchronized ScannerBase newRfileScanner(String tableName, Set<Authorizations> auths, Query setting) {
-        Configuration conf = new Configuration();
+    public ScannerBase newRfileScanner(String tableName, Set<Authorizations> auths, Query setting) {
+        lockdownLock.readLock().lock();
+        try {
+            Preconditions.checkState(open, "Factory has been locked. No new scanners can be created.");
+            Configuration conf = new Configuration();
 
-        AccumuloClient con = cxn;
+            AccumuloClient con = cxn;
 
-        Properties clientProps = con.properties();
-        final String instanceName = clientProps.getProperty(ClientProperty.INSTANCE_NAME.getKey());
-        final String zookeepers = clientProps.getProperty(ClientProperty.INSTANCE_ZOOKEEPERS.getKey());
+            Properties clientProps = con.properties();
+            final String instanceName = clientProps.getProperty(ClientProperty.INSTANCE_NAME.getKey());
+            final String zookeepers = clientProps.getProperty(ClientProperty.INSTANCE_ZOOKEEPERS.getKey());
 
-        AccumuloHelper.setInstanceName(conf, instanceName);
-        AccumuloHelper.setUsername(conf, con.whoami());
+            AccumuloHelper.setInstanceName(conf, instanceName);
+            AccumuloHelper.setUsername(conf, con.whoami());
 
-        AccumuloHelper.setZooKeepers(conf, zookeepers);
-        BulkInputFormat.setZooKeeperInstance(conf, instanceName, zookeepers);
+            AccumuloHelper.setZooKeepers(conf, zookeepers);
+            BulkInputFormat.setZooKeeperInstance(conf, instanceName, zookeepers);
 
-        AccumuloHelper.setPassword(conf, config.getAccumuloPassword().getBytes());
-        BulkInputFormat.setMemoryInput(conf, con.whoami(), config.getAccumuloPassword().getBytes(), tableName, auths.iterator().next());
+            AccumuloHelper.setPassword(conf, config.getAccumuloPassword().getBytes());
+            BulkInputFormat.setMemoryInput(conf, con.whoami(), config.getAccumuloPassword().getBytes(), tableName, auths.iterator().next());
 
-        conf.set(MultiRfileInputformat.CACHE_METADATA, "true");
+            conf.set(MultiRfileInputformat.CACHE_METADATA, "true");
 
-        ScannerBase baseScanner = new RfileScanner(con, conf, tableName, auths, 1);
+            ScannerBase baseScanner = new RfileScanner(con, conf, tableName, auths, 1);
 
-        instances.add(baseScanner);
+            instances.add(baseScanner);
 
-        return baseScanner;
+            return baseScanner;
+        } finally {
+            lockdownLock.readLock().unlock();
+        }
     }
 }
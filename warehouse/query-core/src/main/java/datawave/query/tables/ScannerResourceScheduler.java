@@ -0,0 +1,334 @@
+package datawave.query.tables;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Purpose: Schedules scanner resources across every query running on this webserver, so that the total number of concurrently running scanners is bounded
+ * regardless of how many queries are running, and so that no single user or query logic can hold all of them.
+ *
+ * Design: A scanner resource is checked out with a {@link Quota}, which names the user and query logic it is charged against along with the limits for each.
+ * Checkout is a compare-and-set on the global, user and logic counters, without any lock. When no resource is available the caller waits in order of priority
+ * and then arrival; a waiter whose user or logic is at its limit does not hold up the waiters behind it. The time spent waiting is recorded.
+ */
+public class ScannerResourceScheduler {
+
+    private static final Logger log = Logger.getLogger(ScannerResourceScheduler.class);
+
+    public static final String MAX_SCANNERS_PROPERTY = "datawave.query.shared.scanners";
+    public static final int DEFAULT_MAX_SCANNERS = 1000;
+
+    // waiters also poll, in case a release raced with them parking
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // the total is a webserver-wide setting, so it is read once at startup rather than taken from the query logics
+    private static final ScannerResourceScheduler instance = new ScannerResourceScheduler(Integer.getInteger(MAX_SCANNERS_PROPERTY, DEFAULT_MAX_SCANNERS));
+
+    private volatile int maxScanners;
+    private final AtomicInteger active = new AtomicInteger();
+    // only the users and logics with resources checked out have an entry
+    private final ConcurrentMap<String,Integer> activeByUser = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String,Integer> activeByLogic = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Waiter> waiters = new ConcurrentSkipListSet<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    ScannerResourceScheduler(int maxScanners) {
+        setMaxScanners(maxScanners);
+    }
+
+    /**
+     * Get the scheduler shared by all queries
+     *
+     * @return the scheduler
+     */
+    public static ScannerResourceScheduler getInstance() {
+        return instance;
+    }
+
+    /**
+     * Set the total number of scanner resources that may be checked out at once. Lowering the limit does not revoke resources that are already checked out.
+     *
+     * @param maxScanners
+     *            the limit
+     */
+    public void setMaxScanners(int maxScanners) {
+        Preconditions.checkArgument(maxScanners > 0);
+        if (this.maxScanners != maxScanners) {
+            this.maxScanners = maxScanners;
+            signal();
+        }
+    }
+
+    public int getMaxScanners() {
+        return maxScanners;
+    }
+
+    public int getActiveScanners() {
+        return active.get();
+    }
+
+    public int getActiveScannersForUser(String user) {
+        return activeByUser.getOrDefault(String.valueOf(user), 0);
+    }
+
+    public int getActiveScannersForLogic(String logic) {
+        return activeByLogic.getOrDefault(String.valueOf(logic), 0);
+    }
+
+    /**
+     * @return the users that have scanner resources checked out
+     */
+    public Set<String> getActiveUsers() {
+        return new HashSet<>(activeByUser.keySet());
+    }
+
+    /**
+     * @return the query logics that have scanner resources checked out
+     */
+    public Set<String> getActiveLogics() {
+        return new HashSet<>(activeByLogic.keySet());
+    }
+
+    public int getWaitingCount() {
+        return waiters.size();
+    }
+
+    /**
+     * Check out a scanner resource, waiting until one is available within the limits of the quota
+     *
+     * @param quota
+     *            the quota to charge the resource against
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public void acquire(Quota quota) throws InterruptedException {
+        if (waiters.isEmpty() && tryAcquire(quota)) {
+            checkouts.increment();
+            return;
+        }
+
+        long start = System.nanoTime();
+        Waiter waiter = new Waiter(quota, Thread.currentThread(), sequence.incrementAndGet());
+        waiters.add(waiter);
+        try {
+            while (!(isFirstEligible(waiter) && tryAcquire(quota))) {
+                LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException("Interrupted while waiting for a scanner resource for " + quota);
+                }
+            }
+        } finally {
+            waiters.remove(waiter);
+            // let the next waiter have a look, whether or not we got a resource
+            signal();
+        }
+
+        long waited = System.nanoTime() - start;
+        checkouts.increment();
+        waits.increment();
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        if (log.isDebugEnabled()) {
+            log.debug("Waited " + TimeUnit.NANOSECONDS.toMillis(waited) + "ms for a scanner resource for " + quota);
+        }
+    }
+
+    /**
+     * Return a scanner resource checked out with {@link #acquire(Quota)}
+     *
+     * @param quota
+     *            the quota the resource was charged against
+     */
+    public void release(Quota quota) {
+        decrement(activeByLogic, quota.getLogic());
+        decrement(activeByUser, quota.getUser());
+        active.decrementAndGet();
+        signal();
+    }
+
+    private boolean tryAcquire(Quota quota) {
+        if (!increment(active, maxScanners)) {
+            return false;
+        }
+        if (!increment(activeByUser, quota.getUser(), quota.getMaxPerUser())) {
+            active.decrementAndGet();
+            return false;
+        }
+        if (!increment(activeByLogic, quota.getLogic(), quota.getMaxPerLogic())) {
+            decrement(activeByUser, quota.getUser());
+            active.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean canAcquire(Quota quota) {
+        return active.get() < maxScanners && activeByUser.getOrDefault(quota.getUser(), 0) < quota.getMaxPerUser()
+                        && activeByLogic.getOrDefault(quota.getLogic(), 0) < quota.getMaxPerLogic();
+    }
+
+    private boolean isFirstEligible(Waiter waiter) {
+        for (Waiter other : waiters) {
+            if (other == waiter) {
+                return true;
+            } else if (canAcquire(other.quota)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void signal() {
+        for (Waiter waiter : waiters) {
+            if (canAcquire(waiter.quota)) {
+                LockSupport.unpark(waiter.thread);
+                return;
+            }
+        }
+    }
+
+    private static boolean increment(AtomicInteger counter, int max) {
+        while (true) {
+            int current = counter.get();
+            if (current >= max) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private static boolean increment(ConcurrentMap<String,Integer> counters, String key, int max) {
+        AtomicBoolean incremented = new AtomicBoolean();
+        counters.compute(key, (k, count) -> {
+            int current = (count == null ? 0 : count);
+            if (current >= max) {
+                return count;
+            }
+            incremented.set(true);
+            return current + 1;
+        });
+        return incremented.get();
+    }
+
+    private static void decrement(ConcurrentMap<String,Integer> counters, String key) {
+        // drop the key with its last resource, so that the map does not keep every user and logic ever seen
+        counters.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * @return the number of scanner resources checked out
+     */
+    public long getCheckoutCount() {
+        return checkouts.sum();
+    }
+
+    /**
+     * @return the number of checkouts that had to wait for a scanner resource
+     */
+    public long getWaitCount() {
+        return waits.sum();
+    }
+
+    public long getTotalWaitTime(TimeUnit unit) {
+        return unit.convert(totalWaitNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxWaitTime(TimeUnit unit) {
+        return unit.convert(maxWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "ScannerResourceScheduler [active=" + active.get() + ", max=" + maxScanners + ", waiting=" + waiters.size() + ", checkouts="
+                        + checkouts.sum() + ", waits=" + waits.sum() + ", totalWaitMs=" + getTotalWaitTime(TimeUnit.MILLISECONDS) + ", maxWaitMs="
+                        + getMaxWaitTime(TimeUnit.MILLISECONDS) + "]";
+    }
+
+    /**
+     * The user and query logic that scanner resources are charged against, along with the limits for each and the priority of the caller when waiting.
+     */
+    public static class Quota {
+        private final String user;
+        private final int maxPerUser;
+        private final String logic;
+        private final int maxPerLogic;
+        private final int priority;
+
+        public Quota(String user, int maxPerUser, String logic, int maxPerLogic, int priority) {
+            Preconditions.checkArgument(maxPerUser > 0);
+            Preconditions.checkArgument(maxPerLogic > 0);
+            this.user = String.valueOf(user);
+            this.maxPerUser = maxPerUser;
+            this.logic = String.valueOf(logic);
+            this.maxPerLogic = maxPerLogic;
+            this.priority = priority;
+        }
+
+        public String getUser() {
+            return user;
+        }
+
+        public int getMaxPerUser() {
+            return maxPerUser;
+        }
+
+        public String getLogic() {
+            return logic;
+        }
+
+        public int getMaxPerLogic() {
+            return maxPerLogic;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public String toString() {
+            return "user=" + user + ", logic=" + logic + ", priority=" + priority;
+        }
+    }
+
+    private static final class Waiter implements Comparable<Waiter> {
+        private final Quota quota;
+        private final Thread thread;
+        private final long sequence;
+
+        private Waiter(Quota quota, Thread thread, long sequence) {
+            this.quota = quota;
+            this.thread = thread;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            // higher priority first, then in order of arrival
+            int result = Integer.compare(other.quota.getPriority(), quota.getPriority());
+            if (result == 0) {
+                result = Long.compare(sequence, other.sequence);
+            }
+            return result;
+        }
+    }
+}
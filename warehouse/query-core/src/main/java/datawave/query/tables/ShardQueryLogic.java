@@ -1157,6 +1157,16 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
             }
         }
 
+        if (this.transformerInstance instanceof DocumentTransformer) {
+            DocumentTransform uniqueTransform = ((DocumentTransformer) this.transformerInstance).containsTransform(UniqueTransform.class);
+            if (uniqueTransform != null) {
+                log.debug("Closing ShardQueryLogic unique transform: " + System.identityHashCode(this));
+                ((UniqueTransform) uniqueTransform).close();
+            }
+        }
+        // the scans of the query may have been torn down before they could delete their signatures
+        UniqueTransform.deleteCacheDirs(this);
+
         if (null != this.queries) {
             try {
                 log.debug("Closing ShardQueryLogic queries: " + System.identityHashCode(this));
@@ -1318,6 +1328,22 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setGroupFieldsBatchSize(groupFieldsBatchSize);
     }
 
+    public boolean isExactUnique() {
+        return getConfig().isExactUnique();
+    }
+
+    public void setExactUnique(boolean exactUnique) {
+        getConfig().setExactUnique(exactUnique);
+    }
+
+    public int getUniqueCacheBufferSize() {
+        return getConfig().getUniqueCacheBufferSize();
+    }
+
+    public void setUniqueCacheBufferSize(int uniqueCacheBufferSize) {
+        getConfig().setUniqueCacheBufferSize(uniqueCacheBufferSize);
+    }
+
     public int getGroupFieldsBatchSize() {
         return getConfig().getGroupFieldsBatchSize();
     }
@@ -1650,6 +1676,38 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setNumIndexLookupThreads(indexLookupThreads);
     }
 
+    public boolean isSharedIndexLookupExecutor() {
+        return getConfig().isSharedIndexLookupExecutor();
+    }
+
+    public void setSharedIndexLookupExecutor(boolean sharedIndexLookupExecutor) {
+        getConfig().setSharedIndexLookupExecutor(sharedIndexLookupExecutor);
+    }
+
+    public boolean isCacheIndexLookups() {
+        return getConfig().isCacheIndexLookups();
+    }
+
+    public void setCacheIndexLookups(boolean cacheIndexLookups) {
+        getConfig().setCacheIndexLookups(cacheIndexLookups);
+    }
+
+    public int getIndexLookupCacheSize() {
+        return getConfig().getIndexLookupCacheSize();
+    }
+
+    public void setIndexLookupCacheSize(int indexLookupCacheSize) {
+        getConfig().setIndexLookupCacheSize(indexLookupCacheSize);
+    }
+
+    public long getIndexLookupCacheExpirationMillis() {
+        return getConfig().getIndexLookupCacheExpirationMillis();
+    }
+
+    public void setIndexLookupCacheExpirationMillis(long indexLookupCacheExpirationMillis) {
+        getConfig().setIndexLookupCacheExpirationMillis(indexLookupCacheExpirationMillis);
+    }
+
     public int getDateIndexThreads() {
         return getConfig().getNumDateIndexThreads();
     }
@@ -1658,6 +1716,38 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setNumDateIndexThreads(indexThreads);
     }
 
+    public boolean isSharedScannerPool() {
+        return getConfig().isSharedScannerPool();
+    }
+
+    public void setSharedScannerPool(boolean sharedScannerPool) {
+        getConfig().setSharedScannerPool(sharedScannerPool);
+    }
+
+    public int getMaxScannersPerUser() {
+        return getConfig().getMaxScannersPerUser();
+    }
+
+    public void setMaxScannersPerUser(int maxScannersPerUser) {
+        getConfig().setMaxScannersPerUser(maxScannersPerUser);
+    }
+
+    public int getMaxScannersPerLogic() {
+        return getConfig().getMaxScannersPerLogic();
+    }
+
+    public void setMaxScannersPerLogic(int maxScannersPerLogic) {
+        getConfig().setMaxScannersPerLogic(maxScannersPerLogic);
+    }
+
+    public int getScannerPriority() {
+        return getConfig().getScannerPriority();
+    }
+
+    public void setScannerPriority(int scannerPriority) {
+        getConfig().setScannerPriority(scannerPriority);
+    }
+
     public int getMaxDocScanTimeout() {
         return getConfig().getMaxDocScanTimeout();
     }
@@ -1919,6 +2009,30 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setMaxPipelineCachedResults(maxCachedResults);
     }
 
+    public boolean isRingBufferEvaluationPipeline() {
+        return getConfig().isRingBufferEvaluationPipeline();
+    }
+
+    public void setRingBufferEvaluationPipeline(boolean ringBufferEvaluationPipeline) {
+        getConfig().setRingBufferEvaluationPipeline(ringBufferEvaluationPipeline);
+    }
+
+    public boolean isCompiledEvaluation() {
+        return getConfig().isCompiledEvaluation();
+    }
+
+    public void setCompiledEvaluation(boolean compiledEvaluation) {
+        getConfig().setCompiledEvaluation(compiledEvaluation);
+    }
+
+    public int getQueryPriority() {
+        return getConfig().getQueryPriority();
+    }
+
+    public void setQueryPriority(int queryPriority) {
+        getConfig().setQueryPriority(queryPriority);
+    }
+
     public void setQueryExecutionForPageTimeout(long queryExecutionForPageTimeout) {
         getConfig().setQueryExecutionForPageTimeout(queryExecutionForPageTimeout);
     }
@@ -1,19 +1,20 @@
 package datawave.query.tables.async;
 
-import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingDeque;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
@@ -22,6 +23,7 @@ import org.apache.accumulo.core.security.Authorizations;
 import org.apache.log4j.Logger;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.eventbus.Subscribe;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
@@ -33,82 +35,103 @@ import datawave.query.tables.ResourceQueue;
 import datawave.query.tables.stats.ScanSessionStats;
 
 /**
- * Intended for a single lookup
- *
+ * Intended for a single lookup. The same chunk is scanned by several branches, e.g. through different resources, and the results of the first branch to
+ * return are used. The branches run on the webserver wide {@link SpeculativeScanExecutor}, and once a branch has won the others are cancelled. Each branch
+ * must write its results to its own queue.
+ * <p>
+ * The results of the winning branch are moved to the results of this scan by {@link #call()}, on the thread of the scan session, so that a slow consumer never
+ * holds a thread of the shared executor.
  */
-public class SpeculativeScan extends Scan implements FutureCallback<Scan>, UncaughtExceptionHandler {
+public class SpeculativeScan extends Scan {
     private static final Logger log = Logger.getLogger(SpeculativeScan.class);
 
-    protected AtomicInteger successCount = new AtomicInteger(0);
-
     protected AtomicInteger failureCount = new AtomicInteger(0);
 
     protected List<Scan> scans;
 
-    protected List<Future<Scan>> scanFutures;
+    protected Map<Scan,Future<Scan>> scanFutures;
 
     protected AtomicBoolean finished = new AtomicBoolean(false);
 
-    protected ExecutorService service = null;
-
-    protected LinkedBlockingDeque<Entry<Key,Value>> myResultQueue;
-
-    protected ReentrantLock writeControl = new ReentrantLock();
+    // the branch whose results are used
+    protected AtomicReference<Scan> winner = new AtomicReference<>();
 
-    protected Throwable failure = null;
+    protected SpeculativeScanExecutor executor;
 
-    private class SpeculativeScanThreadFactory implements ThreadFactory {
+    protected CountDownLatch done = new CountDownLatch(1);
 
-        private ThreadFactory dtf = Executors.defaultThreadFactory();
-        private int threadNum = 1;
-        private StringBuilder threadIdentifier;
-        private UncaughtExceptionHandler handler;
+    protected volatile Throwable failure = null;
 
-        public SpeculativeScanThreadFactory(StringBuilder threadName, UncaughtExceptionHandler handler)
-
-        {
-            this.handler = handler;
-            this.threadIdentifier = threadName;
-        }
-
-        public Thread newThread(Runnable r) {
-            Thread thread = dtf.newThread(r);
-            thread.setName("Speculative Scan " + threadIdentifier + " -" + threadNum++);
-            thread.setDaemon(true);
-            thread.setUncaughtExceptionHandler(handler);
-            return thread;
-        }
+    // the completed runs of the winning branch, waiting for their results to be moved by call()
+    protected BlockingQueue<Scan> completed = new LinkedBlockingQueue<>();
 
+    public SpeculativeScan(String localTableName, Set<Authorizations> localAuths, ScannerChunk chunk, ResourceQueue delegatorReference,
+                    Class<? extends AccumuloResource> delegatedResourceInitializer, ArrayBlockingQueue<Entry<Key,Value>> results,
+                    ExecutorService callingService) {
+        this(localTableName, localAuths, chunk, delegatorReference, delegatedResourceInitializer, results, callingService,
+                        SpeculativeScanExecutor.getInstance());
     }
 
     public SpeculativeScan(String localTableName, Set<Authorizations> localAuths, ScannerChunk chunk, ResourceQueue delegatorReference,
                     Class<? extends AccumuloResource> delegatedResourceInitializer, ArrayBlockingQueue<Entry<Key,Value>> results,
-                    ExecutorService callingService) {
+                    ExecutorService callingService, SpeculativeScanExecutor executor) {
         super(localTableName, localAuths, chunk, delegatorReference, delegatedResourceInitializer, results, callingService);
         scans = Lists.newArrayList();
-        scanFutures = Lists.newArrayList();
-        myResultQueue = new LinkedBlockingDeque<>();
-        service = Executors.newFixedThreadPool(2, new SpeculativeScanThreadFactory(new StringBuilder(chunk.getQueryId()), this));
-        service = MoreExecutors.listeningDecorator(service);
+        scanFutures = Maps.newHashMap();
+        this.executor = executor;
         disableStats();
     }
 
+    /**
+     * Add a branch to the race. The first branch is always run, but the others are only run if the {@link SpeculativeScanExecutor} has an idle thread.
+     *
+     * @param scan
+     *            a branch, writing its results to a queue of its own
+     * @return true if the branch was added
+     */
     public boolean addScan(Scan scan) {
 
         synchronized (scanFutures) {
 
-            if (finished.get())
+            if (finished.get() || winner.get() != null)
+                return false;
+
+            boolean speculative = !scans.isEmpty();
+            ListenableFuture<Scan> future = speculative ? executor.trySubmit(scan) : executor.submit(scan);
+            if (future == null) {
+                if (log.isTraceEnabled()) {
+                    log.trace("Not speculating on " + myScan + " as no speculative scan threads are idle");
+                }
                 return false;
+            }
 
             scan.disableStats();
             scans.add(scan);
-            ListenableFuture<Scan> future = (ListenableFuture<Scan>) service.submit(scan);
-            scanFutures.add(future);
-            Futures.addCallback(future, this, MoreExecutors.newDirectExecutorService());
+            if (scans.size() == 2) {
+                executor.recordSpeculation();
+            }
+            scanFutures.put(scan, future);
+            Futures.addCallback(future, new Branch(scan), MoreExecutors.directExecutor());
         }
         return true;
     }
 
+    /**
+     * Run the winning branch again after it was time sliced
+     */
+    protected boolean resubmit(Scan scan) {
+        synchronized (scanFutures) {
+            if (finished.get())
+                return false;
+
+            ListenableFuture<Scan> future = executor.submit(scan);
+            scanFutures.put(scan, future);
+            Futures.addCallback(future, new Branch(scan), MoreExecutors.directExecutor());
+        }
+        return true;
+    }
+
+    @Override
     public boolean finished() {
         return finished.get();
     }
@@ -126,14 +149,18 @@ public class SpeculativeScan extends Scan implements FutureCallback<Scan>, Uncau
     @Override
     public Scan call() throws Exception {
 
-        while (!finished.get() && !caller.isShutdown() && !service.isShutdown()) {
-            if (log.isTraceEnabled()) {
-                log.trace("here with " + myResultQueue.size() + " " + " " + finished.get() + " " + service.isShutdown());
-            }
-            Thread.sleep(10);
-            if (Thread.interrupted()) {
-                throw new InterruptedException("Interrupted while parking");
+        try {
+            while (done.getCount() > 0) {
+                Scan result = completed.poll(10, TimeUnit.MILLISECONDS);
+                if (result != null) {
+                    drain(result);
+                } else if (caller.isShutdown()) {
+                    close();
+                }
             }
+        } catch (InterruptedException e) {
+            close();
+            throw e;
         }
 
         if (failure != null) {
@@ -160,79 +187,90 @@ public class SpeculativeScan extends Scan implements FutureCallback<Scan>, Uncau
         return myStats;
     }
 
-    @Override
-    public void onSuccess(Scan result) {
+    /**
+     * Pick the winner when a branch completes. This runs on the thread of the shared executor, so it must not block; the results are moved by {@link #call()}.
+     */
+    protected void onSuccess(Scan result) {
         if (log.isTraceEnabled()) {
             log.trace("got result for " + result);
         }
 
-        successCount.incrementAndGet();
-
         if (finished.get())
             return;
-        /**
-         * If we can't acquire the semaphore this means that another thread succeeded and our results are to be ignored.
-         */
-        if (!writeControl.tryLock()) {
 
+        if (winner.compareAndSet(null, result)) {
+            cancelLosers(result);
+        } else if (winner.get() != result) {
+            // another branch has already won
             return;
         }
 
-        try {
+        completed.offer(result);
+    }
 
-            while (!myResultQueue.isEmpty()) {
-                results.put(myResultQueue.poll(2, TimeUnit.MILLISECONDS));
+    /**
+     * Move the results of a completed run of the winning branch to the results of this scan, and run the branch again if it was time sliced
+     */
+    protected void drain(Scan result) throws InterruptedException {
+        Entry<Key,Value> entry;
+        while ((entry = result.results.poll()) != null) {
+            results.put(entry);
+            if (Thread.currentThread().isInterrupted() || caller.isShutdown() || finished.get()) {
                 if (log.isTraceEnabled())
-                    log.trace("status" + Thread.interrupted() + " " + caller.isShutdown() + " " + service.isShutdown());
-                if (Thread.interrupted() || caller.isShutdown() || service.isShutdown() || finished.get()) {
-                    if (log.isTraceEnabled())
-                        log.trace("closing" + Thread.interrupted() + " " + caller.isShutdown() + " " + service.isShutdown());
-                    close();
-                    break;
-                }
-            }
-
-            // only consider us finished if our scan
-            // shows that we are finished.
-            if (result.finished()) {
-                // if we are finished, go ahead and close ourselves
+                    log.trace("closing " + Thread.currentThread().isInterrupted() + " " + caller.isShutdown() + " " + finished.get());
                 close();
-            } else {
-                if (!addScan(result)) {
-                    close();
-                }
+                return;
             }
+        }
 
-        } catch (InterruptedException e) {
+        // only consider us finished if our scan
+        // shows that we are finished.
+        if (result.finished() || !resubmit(result)) {
             close();
-            throw new RuntimeException(e);
-        } finally {
-            writeControl.unlock();
         }
-
     }
 
-    protected void closeScans() {
-        for (Scan scan : scans) {
-            scan.close();
+    protected void onFailure(Scan scan, Throwable t) {
+        // a cancelled branch lost the race
+        if (finished.get() || t instanceof CancellationException) {
+            return;
         }
 
-    }
-
-    @Override
-    public void onFailure(Throwable t) {
-
-        // if all failed, then return failure
-        if (failureCount.incrementAndGet() >= scans.size()) {
-            close();
+        // fail if the winner failed, or if every branch failed
+        if (winner.get() == scan || failureCount.incrementAndGet() >= scans.size()) {
             failure = t;
-            throw new RuntimeException(t);
+            close();
         }
+    }
 
+    /**
+     * Cancel every branch but the winner
+     */
+    protected void cancelLosers(Scan won) {
+        synchronized (scanFutures) {
+            if (scans.size() > 1) {
+                executor.recordWin(won != scans.get(0));
+            }
+            for (Scan scan : scans) {
+                if (scan != won) {
+                    if (scanFutures.get(scan).cancel(true)) {
+                        executor.recordCancelled();
+                    }
+                    scan.close();
+                }
+            }
+        }
     }
 
-    public LinkedBlockingDeque<Entry<Key,Value>> getQueue() {
-        return myResultQueue;
+    protected void closeScans() {
+        synchronized (scanFutures) {
+            for (Future<Scan> future : scanFutures.values()) {
+                future.cancel(true);
+            }
+            for (Scan scan : scans) {
+                scan.close();
+            }
+        }
     }
 
     protected void setClose() {
@@ -245,16 +283,28 @@ public class SpeculativeScan extends Scan implements FutureCallback<Scan>, Uncau
     public void close() {
         setClose();
         closeScans();
-        service.shutdownNow();
+        done.countDown();
     }
 
-    @Override
-    public void uncaughtException(Thread t, Throwable e) {
-        if (failure == null) {
-            failure = e;
+    /**
+     * Receives the outcome of a single branch
+     */
+    private class Branch implements FutureCallback<Scan> {
+        private final Scan scan;
+
+        private Branch(Scan scan) {
+            this.scan = scan;
         }
 
-        close();
+        @Override
+        public void onSuccess(Scan result) {
+            SpeculativeScan.this.onSuccess(result);
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            SpeculativeScan.this.onFailure(scan, t);
+        }
     }
 
 }
@@ -0,0 +1,181 @@
+package datawave.query.tables.async;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * A webserver wide executor for the branches raced by {@link SpeculativeScan}s, so that speculating on a chunk does not create threads of its own. The number
+ * of threads is bounded by the {@value #MAX_THREADS_PROPERTY} system property, and can be changed at runtime with {@link #setMaxThreads(int)}.
+ * <p>
+ * The first branch of a speculative scan is always run, waiting for a thread if need be. The other branches are only run when a thread is idle, so that
+ * speculation never delays the scans of other queries. The executor keeps count of how often speculation happens and which branch wins.
+ */
+public class SpeculativeScanExecutor {
+    private static final Logger log = Logger.getLogger(SpeculativeScanExecutor.class);
+
+    public static final String MAX_THREADS_PROPERTY = "datawave.query.speculative.scan.threads";
+    public static final int DEFAULT_MAX_THREADS = 32;
+    public static final String MAX_QUEUED_PROPERTY = "datawave.query.speculative.scan.queue";
+    public static final int DEFAULT_MAX_QUEUED = 1024;
+
+    // how often to log the speculation metrics, in number of races decided
+    private static final long LOG_INTERVAL = 1000;
+
+    private static final Object instanceSemaphore = new Object();
+    private static volatile SpeculativeScanExecutor instance;
+
+    private final ThreadPoolExecutor executor;
+    private final ListeningExecutorService service;
+
+    // the number of scans that raced more than one branch
+    private final AtomicLong speculations = new AtomicLong(0);
+    // the number of speculative branches that were not run because no thread was idle
+    private final AtomicLong skippedBranches = new AtomicLong(0);
+    // the number of races won by the first branch
+    private final AtomicLong primaryWins = new AtomicLong(0);
+    // the number of races won by another branch
+    private final AtomicLong speculativeWins = new AtomicLong(0);
+    // the number of losing branches that were cancelled
+    private final AtomicLong cancelledBranches = new AtomicLong(0);
+
+    private static class SpeculativeScanThreadFactory implements ThreadFactory {
+
+        private final ThreadFactory dtf = Executors.defaultThreadFactory();
+        private final AtomicInteger threadNum = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = dtf.newThread(r);
+            thread.setName("Speculative Scan -" + threadNum.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    SpeculativeScanExecutor(int maxThreads) {
+        this(maxThreads, DEFAULT_MAX_QUEUED);
+    }
+
+    SpeculativeScanExecutor(int maxThreads, int maxQueued) {
+        // once the queue is full the first branch of a scan runs on the thread of its scan session, which slows that session down instead of queueing more
+        executor = new ThreadPoolExecutor(maxThreads, maxThreads, 5, TimeUnit.MINUTES, new LinkedBlockingQueue<>(maxQueued), new SpeculativeScanThreadFactory(),
+                        new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        service = MoreExecutors.listeningDecorator(executor);
+    }
+
+    /**
+     * @return the executor shared by all speculative scans
+     */
+    public static SpeculativeScanExecutor getInstance() {
+        if (instance == null) {
+            synchronized (instanceSemaphore) {
+                if (instance == null) {
+                    int maxThreads = Integer.getInteger(MAX_THREADS_PROPERTY, DEFAULT_MAX_THREADS);
+                    int maxQueued = Integer.getInteger(MAX_QUEUED_PROPERTY, DEFAULT_MAX_QUEUED);
+                    log.info("Creating the speculative scan executor with " + maxThreads + " threads and " + maxQueued + " queued branches");
+                    instance = new SpeculativeScanExecutor(maxThreads, maxQueued);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public int getMaxThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public synchronized void setMaxThreads(int maxThreads) {
+        if (maxThreads != executor.getMaximumPoolSize()) {
+            log.info("Changing the speculative scan threads to " + maxThreads);
+            // the core size may never exceed the max size
+            if (maxThreads > executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(maxThreads);
+                executor.setCorePoolSize(maxThreads);
+            } else {
+                executor.setCorePoolSize(maxThreads);
+                executor.setMaximumPoolSize(maxThreads);
+            }
+        }
+    }
+
+    /**
+     * Run the first branch of a speculative scan, waiting for a thread if none is idle
+     *
+     * @param scan
+     *            the branch
+     * @return the future of the branch
+     */
+    public ListenableFuture<Scan> submit(Scan scan) {
+        return service.submit(scan);
+    }
+
+    /**
+     * Run a speculative branch of a scan if a thread is idle
+     *
+     * @param scan
+     *            the branch
+     * @return the future of the branch, or null if the branch was not run
+     */
+    public synchronized ListenableFuture<Scan> trySubmit(Scan scan) {
+        if (executor.getActiveCount() + executor.getQueue().size() >= executor.getMaximumPoolSize()) {
+            skippedBranches.incrementAndGet();
+            return null;
+        }
+        return service.submit(scan);
+    }
+
+    void recordSpeculation() {
+        speculations.incrementAndGet();
+    }
+
+    void recordWin(boolean speculative) {
+        long races = (speculative ? speculativeWins.incrementAndGet() + primaryWins.get() : primaryWins.incrementAndGet() + speculativeWins.get());
+        if (races % LOG_INTERVAL == 0 && log.isInfoEnabled()) {
+            log.info(this);
+        }
+    }
+
+    void recordCancelled() {
+        cancelledBranches.incrementAndGet();
+    }
+
+    public long getSpeculations() {
+        return speculations.get();
+    }
+
+    public long getSkippedBranches() {
+        return skippedBranches.get();
+    }
+
+    public long getPrimaryWins() {
+        return primaryWins.get();
+    }
+
+    public long getSpeculativeWins() {
+        return speculativeWins.get();
+    }
+
+    public long getCancelledBranches() {
+        return cancelledBranches.get();
+    }
+
+    @Override
+    public String toString() {
+        return "SpeculativeScanExecutor(threads=" + executor.getMaximumPoolSize() + ", active=" + executor.getActiveCount() + ", queued="
+                        + executor.getQueue().size() + ", speculations=" + speculations.get() + ", skippedBranches=" + skippedBranches.get()
+                        + ", primaryWins=" + primaryWins.get() + ", speculativeWins=" + speculativeWins.get() + ", cancelledBranches="
+                        + cancelledBranches.get() + ")";
+    }
+}
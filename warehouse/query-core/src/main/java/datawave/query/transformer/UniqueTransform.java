@@ -1,6 +1,7 @@
 package datawave.query.transformer;
 
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
@@ -10,12 +11,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeSet;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.log4j.Logger;
 
 import com.google.common.base.Predicate;
@@ -25,31 +30,67 @@ import com.google.common.hash.BloomFilter;
 import com.google.common.hash.Funnel;
 import com.google.common.hash.PrimitiveSink;
 
+import datawave.core.iterators.filesystem.FileSystemCache;
 import datawave.query.attributes.Attribute;
 import datawave.query.attributes.Attributes;
 import datawave.query.attributes.Document;
 import datawave.query.attributes.UniqueFields;
+import datawave.query.iterator.ivarator.IvaratorCacheDir;
+import datawave.query.iterator.ivarator.IvaratorCacheDirConfig;
 import datawave.query.iterator.profile.FinalDocumentTrackingIterator;
 import datawave.query.model.QueryModel;
 import datawave.query.tables.ShardQueryLogic;
+import datawave.query.util.sortedset.BufferedFileBackedByteSet;
+import datawave.webservice.query.Query;
 import datawave.webservice.query.logic.BaseQueryLogic;
 
 /**
  * This iterator will filter documents based on uniqueness across a set of configured fields. Only the first instance of an event with a unique set of those
  * fields will be returned. This transform is thread safe.
+ * <p>
+ * By default the signatures seen are tracked in a bloom filter, which is cheap but may drop a unique document on a false positive. In exact mode the signatures
+ * are tracked in a {@link BufferedFileBackedByteSet} instead, which holds a bounded number of signatures in memory and spills the rest to sorted files in the
+ * ivarator cache dirs. Those files are deleted when the transform is closed.
  */
-public class UniqueTransform extends DocumentTransform.DefaultDocumentTransform {
+public class UniqueTransform extends DocumentTransform.DefaultDocumentTransform implements Closeable {
 
     private static final Logger log = Logger.getLogger(UniqueTransform.class);
 
     private BloomFilter<byte[]> bloom;
+    private BufferedFileBackedByteSet signatures;
+    private final boolean exact;
+    private final int bufferSize;
+    private final List<IvaratorCacheDir> cacheDirs;
+    private int signaturesCount = 0;
     private UniqueFields uniqueFields;
     private Multimap<String,String> modelMapping;
 
     public UniqueTransform(UniqueFields uniqueFields) {
+        this(uniqueFields, false, BufferedFileBackedByteSet.DEFAULT_BUFFER_PERSIST_THRESHOLD, Collections.emptyList());
+    }
+
+    /**
+     * Create a new {@link UniqueTransform}
+     *
+     * @param uniqueFields
+     *            the set of fields to find unique values for
+     * @param exact
+     *            if true, track the signatures seen in a file backed set instead of a bloom filter
+     * @param bufferSize
+     *            the number of signatures to hold in memory before flushing to disk when exact
+     * @param cacheDirs
+     *            the ivarator cache dirs to flush the signatures to when exact
+     */
+    public UniqueTransform(UniqueFields uniqueFields, boolean exact, int bufferSize, List<IvaratorCacheDir> cacheDirs) {
+        if (exact && cacheDirs.isEmpty()) {
+            throw new IllegalArgumentException("Exact uniqueness requires ivarator cache dirs to flush signatures to");
+        }
         this.uniqueFields = uniqueFields;
         this.uniqueFields.deconstructIdentifierFields();
-        this.bloom = BloomFilter.create(new ByteFunnel(), 500000, 1e-15);
+        this.exact = exact;
+        this.bufferSize = bufferSize;
+        this.cacheDirs = cacheDirs;
+        resetSignatures();
         if (log.isTraceEnabled()) {
             log.trace("unique fields: " + this.uniqueFields.getFields());
         }
@@ -64,7 +105,8 @@ public class UniqueTransform extends DocumentTransform.DefaultDocumentTransform
      *            the set of fields to find unique values for
      */
     public UniqueTransform(BaseQueryLogic<Entry<Key,Value>> logic, UniqueFields uniqueFields) {
-        this(uniqueFields);
+        this(uniqueFields, ((ShardQueryLogic) logic).isExactUnique(), ((ShardQueryLogic) logic).getUniqueCacheBufferSize(),
+                        getCacheDirs((ShardQueryLogic) logic));
         QueryModel model = ((ShardQueryLogic) logic).getQueryModel();
         if (model != null) {
             modelMapping = HashMultimap.create();
@@ -81,7 +123,7 @@ public class UniqueTransform extends DocumentTransform.DefaultDocumentTransform
             if (!this.uniqueFields.equals(uniqueFields)) {
                 this.uniqueFields = uniqueFields;
                 log.info("Resetting unique fields on the unique transform");
-                this.bloom = BloomFilter.create(new ByteFunnel(), 500000, 1e-15);
+                resetSignatures();
                 if (log.isTraceEnabled()) {
                     log.trace("unique fields: " + this.uniqueFields.getFields());
                 }
@@ -96,6 +138,89 @@ public class UniqueTransform extends DocumentTransform.DefaultDocumentTransform
         }
     }
 
+    /**
+     * Get the ivarator cache dirs to flush signatures to on the webserver, under a directory for the query
+     */
+    private static List<IvaratorCacheDir> getCacheDirs(ShardQueryLogic logic) {
+        if (!logic.isExactUnique()) {
+            return Collections.emptyList();
+        }
+        try {
+            String hdfsSiteConfigURLs = logic.getHdfsSiteConfigURLs();
+            FileSystemCache fsCache = new FileSystemCache(hdfsSiteConfigURLs == null ? "" : hdfsSiteConfigURLs);
+            Query query = logic.getConfig().getQuery();
+            String queryId = (query == null || query.getId() == null) ? UUID.randomUUID().toString() : query.getId().toString();
+            return IvaratorCacheDir.create(logic.getIvaratorCacheDirConfigs(), fsCache, queryId + "/unique");
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to create the cache dirs for exact uniqueness", e);
+        }
+    }
+
+    /**
+     * Delete the signatures that the webserver and the scans of a query flushed under the ivarator cache dirs. This includes those of scans that were torn down
+     * without their transform being closed, as when a scan session ends early.
+     *
+     * @param logic
+     *            the query logic
+     */
+    public static void deleteCacheDirs(ShardQueryLogic logic) {
+        Query query = logic.getConfig().getQuery();
+        if (!logic.isExactUnique() || query == null || query.getId() == null || logic.getIvaratorCacheDirConfigs() == null) {
+            return;
+        }
+        FileSystemCache fsCache;
+        try {
+            String hdfsSiteConfigURLs = logic.getHdfsSiteConfigURLs();
+            fsCache = new FileSystemCache(hdfsSiteConfigURLs == null ? "" : hdfsSiteConfigURLs);
+        } catch (IOException e) {
+            log.warn("Unable to delete the unique signatures of " + query.getId(), e);
+            return;
+        }
+        for (IvaratorCacheDirConfig config : logic.getIvaratorCacheDirConfigs()) {
+            if (config.isValid()) {
+                Path queryDir = new Path(config.getBasePathURI(), query.getId().toString());
+                try {
+                    FileSystem fs = fsCache.getFileSystem(queryDir.toUri());
+                    // <queryId>/unique on the webserver, and <queryId>/<scanId>/unique for each scan
+                    FileStatus[] dirs = fs.globStatus(new Path(queryDir, "{unique,*/unique}"));
+                    if (dirs != null) {
+                        for (FileStatus dir : dirs) {
+                            fs.delete(dir.getPath(), true);
+                        }
+                    }
+                } catch (IOException e) {
+                    log.warn("Unable to delete the unique signatures under " + queryDir, e);
+                }
+            }
+        }
+    }
+
+    private void resetSignatures() {
+        if (exact) {
+            if (signatures != null) {
+                synchronized (signatures) {
+                    signatures.close();
+                }
+            }
+            // a new directory for each set, so that the files of a closed set are not confused with those of its replacement
+            this.signatures = new BufferedFileBackedByteSet(bufferSize, cacheDirs, "signatures" + (++signaturesCount));
+        } else {
+            this.bloom = BloomFilter.create(new ByteFunnel(), 500000, 1e-15);
+        }
+    }
+
+    /**
+     * Delete any signatures flushed to disk
+     */
+    @Override
+    public void close() {
+        if (signatures != null) {
+            synchronized (signatures) {
+                signatures.close();
+            }
+        }
+    }
+
     /**
      * Get a predicate that will apply this transform.
      *
@@ -142,6 +267,11 @@ public class UniqueTransform extends DocumentTransform.DefaultDocumentTransform
      */
     private boolean isDuplicate(Document document) throws IOException {
         byte[] bytes = getBytes(document);
+        if (exact) {
+            synchronized (signatures) {
+                return !signatures.add(bytes);
+            }
+        }
         synchronized (bloom) {
             if (bloom.mightContain(bytes)) {
                 return true;
@@ -0,0 +1,955 @@
+package datawave.query.util.regex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A deterministic automaton compiled from a java regex. It matches the UTF-8 encoded values of the field index without decoding them into strings, and it can
+ * find the next value that could possibly match the regex. The automaton runs over code points, which sort in the same order as their UTF-8 encodings, so
+ * every value between a value that does not match and the next possible match can be skipped by seeking.
+ * <p>
+ * Only a subset of the java regex syntax is supported: literals and escaped literals, character classes without nesting or intersections, the predefined
+ * classes \d, \w, \s and their negations, '.', groups, alternation, greedy and reluctant quantifiers, and '^' and '$' at the ends of the regex. A regex that
+ * uses anything else, e.g. flags, lookarounds, backreferences or possessive quantifiers, or that needs too many states, fails to compile with an
+ * {@link UnsupportedRegexException} and should be evaluated with a {@link java.util.regex.Pattern} instead. Like {@link java.util.regex.Matcher#matches()},
+ * the automaton only accepts values that match the regex in their entirety.
+ */
+public class RegexAutomaton {
+
+    public static final int DEFAULT_MAX_STATES = 10000;
+
+    private static final int MAX_CODE_POINT = Character.MAX_CODE_POINT;
+    private static final int MAX_REPEAT = 1000;
+    private static final int MAX_NFA_STATES = 100000;
+    private static final int MAX_TABLE_SIZE = 1 << 22;
+    // the number of code points the next possible match may extend past the common prefix
+    private static final int MAX_EXTENSION = 256;
+
+    private static final int[] DIGITS = {'0', '9'};
+    private static final int[] WORD = normalize(new int[] {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'});
+    private static final int[] SPACE = normalize(new int[] {'\t', '\r', ' ', ' '});
+    // '.' matches anything but a line terminator
+    private static final int[] DOT = complement(normalize(new int[] {'\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029}));
+
+    /**
+     * Thrown when a regex uses constructs that the automaton does not support
+     */
+    public static class UnsupportedRegexException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public UnsupportedRegexException(String message) {
+            super(message);
+        }
+    }
+
+    private final String regex;
+
+    // the first code point of each interval of code points that the automaton does not distinguish between
+    private final int[] intervalStarts;
+    // the interval of each ascii code point
+    private final int[] asciiIntervals = new int[128];
+    // the next state by state and interval, or -1 if no match is possible from there
+    private final int[] transitions;
+    private final boolean[] accept;
+    // the initial state, or -1 if nothing can match
+    private final int initial;
+
+    private RegexAutomaton(String regex, int[] intervalStarts, int[] transitions, boolean[] accept, int initial) {
+        this.regex = regex;
+        this.intervalStarts = intervalStarts;
+        this.transitions = transitions;
+        this.accept = accept;
+        this.initial = initial;
+        for (int c = 0; c < asciiIntervals.length; c++) {
+            asciiIntervals[c] = interval(c);
+        }
+    }
+
+    /**
+     * Compile a regex into an automaton with at most {@link #DEFAULT_MAX_STATES} states
+     *
+     * @param regex
+     *            a java regex
+     * @return the automaton
+     * @throws UnsupportedRegexException
+     *             if the regex cannot be compiled into an automaton
+     */
+    public static RegexAutomaton compile(String regex) throws UnsupportedRegexException {
+        return compile(regex, DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * Compile a regex into an automaton
+     *
+     * @param regex
+     *            a java regex
+     * @param maxStates
+     *            the max number of states of the automaton
+     * @return the automaton
+     * @throws UnsupportedRegexException
+     *             if the regex cannot be compiled into an automaton
+     */
+    public static RegexAutomaton compile(String regex, int maxStates) throws UnsupportedRegexException {
+        Node node = new Parser(regex).parse();
+        Nfa nfa = new Nfa();
+        int start = nfa.newState();
+        nfa.accept = node.build(nfa, start);
+        return determinize(regex, nfa, start, maxStates);
+    }
+
+    public String getRegex() {
+        return regex;
+    }
+
+    /**
+     * @return the number of states of the automaton
+     */
+    public int getNumStates() {
+        return accept.length;
+    }
+
+    /**
+     * Does a UTF-8 encoded value match the regex in its entirety
+     *
+     * @param bytes
+     *            the bytes
+     * @param offset
+     *            the offset of the value
+     * @param length
+     *            the length of the value
+     * @return true if the value matches
+     */
+    public boolean matches(byte[] bytes, int offset, int length) {
+        int state = initial;
+        int end = offset + length;
+        int i = offset;
+        while (state >= 0 && i < end) {
+            int c = bytes[i] & 0xff;
+            if (c < 0x80) {
+                state = transitions[state * intervalStarts.length + asciiIntervals[c]];
+                i++;
+            } else {
+                int decoded = decode(bytes, i, end);
+                if (decoded < 0) {
+                    // an invalid sequence decodes to the replacement character
+                    state = step(state, 0xFFFD);
+                    i++;
+                } else {
+                    state = step(state, decoded & 0xFFFFFF);
+                    i += decoded >>> 24;
+                }
+            }
+        }
+        return state >= 0 && accept[state];
+    }
+
+    /**
+     * Does a value match the regex in its entirety
+     *
+     * @param value
+     *            the value
+     * @return true if the value matches
+     */
+    public boolean matches(CharSequence value) {
+        int state = initial;
+        for (int i = 0; state >= 0 && i < value.length();) {
+            int cp = Character.codePointAt(value, i);
+            state = step(state, cp);
+            i += Character.charCount(cp);
+        }
+        return state >= 0 && accept[state];
+    }
+
+    /**
+     * Find the next value, in UTF-8 byte order, that could match the regex. The value returned is greater than the value passed in, and no value between the
+     * two matches the regex. The value returned may or may not match the regex itself.
+     *
+     * @param bytes
+     *            the bytes
+     * @param offset
+     *            the offset of the value
+     * @param length
+     *            the length of the value
+     * @return the UTF-8 encoded next possible match, or null if no value greater than the value passed in can match
+     */
+    public byte[] nextPossibleMatch(byte[] bytes, int offset, int length) {
+        if (initial < 0) {
+            return null;
+        }
+
+        int[] codePoints = new int[length];
+        int numCodePoints = 0;
+        int end = offset + length;
+        for (int i = offset; i < end;) {
+            int decoded = decode(bytes, i, end);
+            if (decoded < 0) {
+                // we cannot reason about invalid values, so simply move to the value that immediately follows this one
+                byte[] next = Arrays.copyOfRange(bytes, offset, end + 1);
+                next[length] = 0;
+                return next;
+            }
+            codePoints[numCodePoints++] = decoded & 0xFFFFFF;
+            i += decoded >>> 24;
+        }
+
+        // follow the value for as long as a match is still possible
+        int[] states = new int[numCodePoints + 1];
+        states[0] = initial;
+        int live = 0;
+        while (live < numCodePoints) {
+            int next = step(states[live], codePoints[live]);
+            if (next < 0) {
+                break;
+            }
+            states[++live] = next;
+        }
+
+        // find the last position at which the value can be followed by a greater code point that can still match
+        for (int position = live; position >= 0; position--) {
+            int min = (position == numCodePoints ? 0 : codePoints[position] + 1);
+            int cp = smallestTransition(states[position], min);
+            if (cp >= 0) {
+                return extend(codePoints, position, cp, step(states[position], cp));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Build the next possible match from a prefix of the value and the code point that follows it, extended by the smallest code points that lead towards a
+     * match until a match is reached or the extension loops.
+     */
+    private byte[] extend(int[] codePoints, int prefixLength, int cp, int state) {
+        int[] next = Arrays.copyOf(codePoints, Math.max(codePoints.length, prefixLength + 1) + 16);
+        int length = prefixLength;
+        next[length++] = cp;
+
+        boolean[] visited = new boolean[accept.length];
+        while (!accept[state] && !visited[state] && length - prefixLength < MAX_EXTENSION) {
+            visited[state] = true;
+            cp = smallestTransition(state, 0);
+            if (length == next.length) {
+                next = Arrays.copyOf(next, length * 2);
+            }
+            next[length++] = cp;
+            state = step(state, cp);
+        }
+        return encode(next, length);
+    }
+
+    /**
+     * @return the smallest code point at or above min that leads from the state towards a match, or -1 if there is none
+     */
+    private int smallestTransition(int state, int min) {
+        if (min > MAX_CODE_POINT) {
+            return -1;
+        }
+        int base = state * intervalStarts.length;
+        for (int i = interval(min); i < intervalStarts.length; i++) {
+            if (transitions[base + i] >= 0) {
+                return Math.max(intervalStarts[i], min);
+            }
+        }
+        return -1;
+    }
+
+    private int step(int state, int cp) {
+        return transitions[state * intervalStarts.length + interval(cp)];
+    }
+
+    private int interval(int cp) {
+        int index = Arrays.binarySearch(intervalStarts, cp);
+        return (index >= 0 ? index : -index - 2);
+    }
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    /**
+     * Decode a UTF-8 sequence
+     *
+     * @return the code point in the lower 24 bits and the number of bytes in the upper 8 bits, or -1 if the sequence is not valid
+     */
+    private static int decode(byte[] bytes, int i, int end) {
+        int b0 = bytes[i] & 0xff;
+        if (b0 < 0x80) {
+            return b0 | (1 << 24);
+        } else if (b0 >= 0xC2 && b0 < 0xE0) {
+            if (i + 1 < end && isContinuation(bytes[i + 1])) {
+                return (((b0 & 0x1F) << 6) | (bytes[i + 1] & 0x3F)) | (2 << 24);
+            }
+        } else if (b0 >= 0xE0 && b0 < 0xF0) {
+            if (i + 2 < end && isContinuation(bytes[i + 1]) && isContinuation(bytes[i + 2])) {
+                int cp = ((b0 & 0x0F) << 12) | ((bytes[i + 1] & 0x3F) << 6) | (bytes[i + 2] & 0x3F);
+                if (cp >= 0x800) {
+                    return cp | (3 << 24);
+                }
+            }
+        } else if (b0 >= 0xF0 && b0 < 0xF5) {
+            if (i + 3 < end && isContinuation(bytes[i + 1]) && isContinuation(bytes[i + 2]) && isContinuation(bytes[i + 3])) {
+                int cp = ((b0 & 0x07) << 18) | ((bytes[i + 1] & 0x3F) << 12) | ((bytes[i + 2] & 0x3F) << 6) | (bytes[i + 3] & 0x3F);
+                if (cp >= 0x10000 && cp <= MAX_CODE_POINT) {
+                    return cp | (4 << 24);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Encode code points as UTF-8. Unlike {@link String#getBytes(java.nio.charset.Charset)}, surrogate code points are encoded as is so that the encoding
+     * preserves the order of all code points.
+     */
+    private static byte[] encode(int[] codePoints, int length) {
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            int cp = codePoints[i];
+            size += (cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4);
+        }
+        byte[] bytes = new byte[size];
+        int j = 0;
+        for (int i = 0; i < length; i++) {
+            int cp = codePoints[i];
+            if (cp < 0x80) {
+                bytes[j++] = (byte) cp;
+            } else if (cp < 0x800) {
+                bytes[j++] = (byte) (0xC0 | (cp >> 6));
+                bytes[j++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (cp < 0x10000) {
+                bytes[j++] = (byte) (0xE0 | (cp >> 12));
+                bytes[j++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                bytes[j++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                bytes[j++] = (byte) (0xF0 | (cp >> 18));
+                bytes[j++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                bytes[j++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                bytes[j++] = (byte) (0x80 | (cp & 0x3F));
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "RegexAutomaton(" + regex + ", " + accept.length + " states)";
+    }
+
+    // -------------------------------------------------------------------------
+    // ------------- Code point sets, as sorted and merged pairs of inclusive bounds
+
+    private static int[] normalize(int[] ranges) {
+        int[][] pairs = new int[ranges.length / 2][];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = new int[] {ranges[2 * i], ranges[2 * i + 1]};
+        }
+        Arrays.sort(pairs, (a, b) -> Integer.compare(a[0], b[0]));
+        int[] merged = new int[ranges.length];
+        int size = 0;
+        for (int[] pair : pairs) {
+            if (size > 0 && pair[0] <= merged[size - 1] + 1) {
+                merged[size - 1] = Math.max(merged[size - 1], pair[1]);
+            } else {
+                merged[size++] = pair[0];
+                merged[size++] = pair[1];
+            }
+        }
+        return Arrays.copyOf(merged, size);
+    }
+
+    private static int[] complement(int[] ranges) {
+        int[] complement = new int[ranges.length + 2];
+        int size = 0;
+        int next = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (ranges[i] > next) {
+                complement[size++] = next;
+                complement[size++] = ranges[i] - 1;
+            }
+            next = ranges[i + 1] + 1;
+        }
+        if (next <= MAX_CODE_POINT) {
+            complement[size++] = next;
+            complement[size++] = MAX_CODE_POINT;
+        }
+        return Arrays.copyOf(complement, size);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] ranges = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, ranges, a.length, b.length);
+        return normalize(ranges);
+    }
+
+    // -------------------------------------------------------------------------
+    // ------------- The parsed regex
+
+    private abstract static class Node {
+        /**
+         * Add the states for this node to the nfa
+         *
+         * @return the state reached once this node has matched
+         */
+        abstract int build(Nfa nfa, int from) throws UnsupportedRegexException;
+    }
+
+    private static class Chars extends Node {
+        private final int[] ranges;
+
+        private Chars(int[] ranges) {
+            this.ranges = ranges;
+        }
+
+        @Override
+        int build(Nfa nfa, int from) throws UnsupportedRegexException {
+            int to = nfa.newState();
+            for (int i = 0; i < ranges.length; i += 2) {
+                nfa.edges.get(from).add(new int[] {ranges[i], ranges[i + 1], to});
+            }
+            return to;
+        }
+    }
+
+    private static class Concat extends Node {
+        private final List<Node> nodes;
+
+        private Concat(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        int build(Nfa nfa, int from) throws UnsupportedRegexException {
+            int state = from;
+            for (Node node : nodes) {
+                state = node.build(nfa, state);
+            }
+            return state;
+        }
+    }
+
+    private static class Alternation extends Node {
+        private final List<Node> nodes;
+
+        private Alternation(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        int build(Nfa nfa, int from) throws UnsupportedRegexException {
+            int to = nfa.newState();
+            for (Node node : nodes) {
+                int start = nfa.newState();
+                nfa.epsilons.get(from).add(start);
+                nfa.epsilons.get(node.build(nfa, start)).add(to);
+            }
+            return to;
+        }
+    }
+
+    private static class Repeat extends Node {
+        private final Node node;
+        private final int min;
+        // -1 if unbounded
+        private final int max;
+
+        private Repeat(Node node, int min, int max) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        int build(Nfa nfa, int from) throws UnsupportedRegexException {
+            int state = from;
+            for (int i = 0; i < min; i++) {
+                state = node.build(nfa, state);
+            }
+            if (max < 0) {
+                int loop = nfa.newState();
+                nfa.epsilons.get(state).add(loop);
+                nfa.epsilons.get(node.build(nfa, loop)).add(loop);
+                return loop;
+            }
+            for (int i = min; i < max; i++) {
+                int to = nfa.newState();
+                nfa.epsilons.get(state).add(to);
+                nfa.epsilons.get(node.build(nfa, state)).add(to);
+                state = to;
+            }
+            return state;
+        }
+    }
+
+    private static class Parser {
+        private final String regex;
+        private int pos = 0;
+
+        private Parser(String regex) {
+            this.regex = regex;
+        }
+
+        private Node parse() throws UnsupportedRegexException {
+            Node node = parseAlternation();
+            if (pos < regex.length()) {
+                throw unsupported("unexpected '" + regex.charAt(pos) + "'");
+            }
+            return node;
+        }
+
+        private UnsupportedRegexException unsupported(String message) {
+            return new UnsupportedRegexException(message + " at index " + pos + " of " + regex);
+        }
+
+        private boolean more() {
+            return pos < regex.length();
+        }
+
+        private boolean peek(char c) {
+            return pos < regex.length() && regex.charAt(pos) == c;
+        }
+
+        private int next() throws UnsupportedRegexException {
+            if (!more()) {
+                throw unsupported("unexpected end of regex");
+            }
+            int cp = regex.codePointAt(pos);
+            pos += Character.charCount(cp);
+            return cp;
+        }
+
+        private Node parseAlternation() throws UnsupportedRegexException {
+            List<Node> nodes = new ArrayList<>();
+            nodes.add(parseConcat());
+            while (peek('|')) {
+                pos++;
+                nodes.add(parseConcat());
+            }
+            return (nodes.size() == 1 ? nodes.get(0) : new Alternation(nodes));
+        }
+
+        private Node parseConcat() throws UnsupportedRegexException {
+            List<Node> nodes = new ArrayList<>();
+            while (more() && !peek('|') && !peek(')')) {
+                nodes.add(parseRepeat());
+            }
+            return (nodes.size() == 1 ? nodes.get(0) : new Concat(nodes));
+        }
+
+        private Node parseRepeat() throws UnsupportedRegexException {
+            Node node = parseAtom();
+            int min;
+            int max;
+            if (peek('*')) {
+                min = 0;
+                max = -1;
+            } else if (peek('+')) {
+                min = 1;
+                max = -1;
+            } else if (peek('?')) {
+                min = 0;
+                max = 1;
+            } else if (peek('{')) {
+                int close = regex.indexOf('}', pos);
+                if (close < 0) {
+                    throw unsupported("illegal repetition");
+                }
+                String[] bounds = regex.substring(pos + 1, close).split(",", -1);
+                try {
+                    min = Integer.parseInt(bounds[0]);
+                    max = (bounds.length == 1 ? min : bounds[1].isEmpty() ? -1 : Integer.parseInt(bounds[1]));
+                } catch (NumberFormatException e) {
+                    throw unsupported("illegal repetition");
+                }
+                if (bounds.length > 2 || min < 0 || (max >= 0 && max < min) || Math.max(min, max) > MAX_REPEAT) {
+                    throw unsupported("illegal repetition");
+                }
+                pos = close;
+            } else {
+                return node;
+            }
+            pos++;
+
+            // a reluctant quantifier matches the same values, but a possessive one may not
+            if (peek('?')) {
+                pos++;
+            } else if (peek('+')) {
+                throw unsupported("possessive quantifier");
+            }
+            if (peek('*') || peek('+') || peek('?') || peek('{')) {
+                throw unsupported("repeated quantifier");
+            }
+            return new Repeat(node, min, max);
+        }
+
+        private Node parseAtom() throws UnsupportedRegexException {
+            int cp = regex.codePointAt(pos);
+            switch (cp) {
+                case '(':
+                    pos++;
+                    if (regex.startsWith("?:", pos)) {
+                        pos += 2;
+                    } else if (peek('?')) {
+                        throw unsupported("special group");
+                    }
+                    Node node = parseAlternation();
+                    if (!peek(')')) {
+                        throw unsupported("unclosed group");
+                    }
+                    pos++;
+                    return node;
+                case '[':
+                    pos++;
+                    return new Chars(parseClass());
+                case '.':
+                    pos++;
+                    return new Chars(DOT);
+                case '\\':
+                    pos++;
+                    if (peek('Q')) {
+                        pos++;
+                        int end = regex.indexOf("\\E", pos);
+                        String quoted = regex.substring(pos, end < 0 ? regex.length() : end);
+                        pos = (end < 0 ? regex.length() : end + 2);
+                        List<Node> nodes = new ArrayList<>();
+                        quoted.codePoints().forEach(c -> nodes.add(new Chars(new int[] {c, c})));
+                        return new Concat(nodes);
+                    }
+                    return new Chars(parseEscape());
+                case '^':
+                    // the start of the value is only supported at the start of the regex
+                    if (pos != 0) {
+                        throw unsupported("'^' within the regex");
+                    }
+                    pos++;
+                    return new Concat(new ArrayList<>());
+                case '$':
+                    // the end of the value is only supported at the end of the regex
+                    if (pos != regex.length() - 1) {
+                        throw unsupported("'$' within the regex");
+                    }
+                    pos++;
+                    return new Concat(new ArrayList<>());
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    throw unsupported("dangling quantifier");
+                default:
+                    next();
+                    return new Chars(new int[] {cp, cp});
+            }
+        }
+
+        /**
+         * Parse an escape following a '\'
+         *
+         * @return the code points it matches
+         */
+        private int[] parseEscape() throws UnsupportedRegexException {
+            int cp = next();
+            switch (cp) {
+                case 'd':
+                    return DIGITS;
+                case 'D':
+                    return complement(DIGITS);
+                case 'w':
+                    return WORD;
+                case 'W':
+                    return complement(WORD);
+                case 's':
+                    return SPACE;
+                case 'S':
+                    return complement(SPACE);
+                case 't':
+                    return new int[] {'\t', '\t'};
+                case 'n':
+                    return new int[] {'\n', '\n'};
+                case 'r':
+                    return new int[] {'\r', '\r'};
+                case 'f':
+                    return new int[] {'\f', '\f'};
+                case 'a':
+                    return new int[] {0x07, 0x07};
+                case 'e':
+                    return new int[] {0x1B, 0x1B};
+                case '0':
+                    return single(parseOctal());
+                case 'x':
+                    if (peek('{')) {
+                        int close = regex.indexOf('}', pos);
+                        if (close < 0) {
+                            throw unsupported("unclosed hexadecimal escape");
+                        }
+                        int value = parseHex(pos + 1, close);
+                        pos = close + 1;
+                        return single(value);
+                    } else {
+                        int value = parseHex(pos, pos + 2);
+                        pos += 2;
+                        return single(value);
+                    }
+                case 'u':
+                    int unicode = parseHex(pos, pos + 4);
+                    pos += 4;
+                    if (Character.isSurrogate((char) unicode)) {
+                        throw unsupported("surrogate escape");
+                    }
+                    return single(unicode);
+                default:
+                    // escaped ascii letters and digits have special meanings, anything else is a literal
+                    if (cp < 0x80 && Character.isLetterOrDigit(cp)) {
+                        throw unsupported("escape \\" + (char) cp);
+                    }
+                    return single(cp);
+            }
+        }
+
+        private int[] single(int cp) {
+            return new int[] {cp, cp};
+        }
+
+        private int parseOctal() throws UnsupportedRegexException {
+            int value = 0;
+            int digits = 0;
+            int maxDigits = (more() && regex.charAt(pos) <= '3' ? 3 : 2);
+            while (digits < maxDigits && more() && regex.charAt(pos) >= '0' && regex.charAt(pos) <= '7') {
+                value = value * 8 + (regex.charAt(pos++) - '0');
+                digits++;
+            }
+            if (digits == 0) {
+                throw unsupported("illegal octal escape");
+            }
+            return value;
+        }
+
+        private int parseHex(int start, int end) throws UnsupportedRegexException {
+            if (start >= end || end > regex.length() || end - start > 6) {
+                throw unsupported("illegal hexadecimal escape");
+            }
+            int value = 0;
+            for (int i = start; i < end; i++) {
+                int digit = Character.digit(regex.charAt(i), 16);
+                if (digit < 0) {
+                    throw unsupported("illegal hexadecimal escape");
+                }
+                value = value * 16 + digit;
+            }
+            if (value > MAX_CODE_POINT) {
+                throw unsupported("illegal hexadecimal escape");
+            }
+            return value;
+        }
+
+        /**
+         * Parse a character class following a '['
+         *
+         * @return the code points it matches
+         */
+        private int[] parseClass() throws UnsupportedRegexException {
+            boolean negated = false;
+            if (peek('^')) {
+                negated = true;
+                pos++;
+            }
+            if (peek(']')) {
+                throw unsupported("leading ']' in class");
+            }
+
+            int[] ranges = new int[0];
+            while (!peek(']')) {
+                if (peek('[') || regex.startsWith("&&", pos)) {
+                    throw unsupported("nested class");
+                }
+                int[] item = parseClassItem();
+                if (item.length == 2 && item[0] == item[1] && peek('-') && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                    pos++;
+                    if (peek('[')) {
+                        throw unsupported("nested class");
+                    }
+                    int[] end = parseClassItem();
+                    if (end.length != 2 || end[0] != end[1] || end[0] < item[0]) {
+                        throw unsupported("illegal class range");
+                    }
+                    item = new int[] {item[0], end[0]};
+                }
+                ranges = union(ranges, item);
+            }
+            pos++;
+            return (negated ? complement(ranges) : ranges);
+        }
+
+        private int[] parseClassItem() throws UnsupportedRegexException {
+            int cp = next();
+            if (cp == '\\') {
+                if (peek('Q') || peek('E')) {
+                    throw unsupported("quote in class");
+                }
+                int[] item = parseEscape();
+                // a predefined class can neither start nor end a range
+                if ((item.length != 2 || item[0] != item[1]) && peek('-') && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                    throw unsupported("illegal class range");
+                }
+                return item;
+            }
+            return single(cp);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // ------------- Compilation
+
+    private static class Nfa {
+        private final List<List<Integer>> epsilons = new ArrayList<>();
+        // the edges of each state as {min, max, target}
+        private final List<List<int[]>> edges = new ArrayList<>();
+        private int accept;
+
+        private int newState() throws UnsupportedRegexException {
+            if (edges.size() == MAX_NFA_STATES) {
+                throw new UnsupportedRegexException("Too many states for regex");
+            }
+            epsilons.add(new ArrayList<>());
+            edges.add(new ArrayList<>());
+            return edges.size() - 1;
+        }
+
+        private BitSet closure(BitSet states) {
+            ArrayDeque<Integer> stack = new ArrayDeque<>();
+            states.stream().forEach(stack::push);
+            while (!stack.isEmpty()) {
+                for (int next : epsilons.get(stack.pop())) {
+                    if (!states.get(next)) {
+                        states.set(next);
+                        stack.push(next);
+                    }
+                }
+            }
+            return states;
+        }
+    }
+
+    private static RegexAutomaton determinize(String regex, Nfa nfa, int start, int maxStates) throws UnsupportedRegexException {
+        // split the code points into intervals that no edge of the nfa splits
+        TreeSet<Integer> bounds = new TreeSet<>();
+        bounds.add(0);
+        for (List<int[]> edges : nfa.edges) {
+            for (int[] edge : edges) {
+                bounds.add(edge[0]);
+                if (edge[1] < MAX_CODE_POINT) {
+                    bounds.add(edge[1] + 1);
+                }
+            }
+        }
+        int[] starts = bounds.stream().mapToInt(Integer::intValue).toArray();
+
+        // the subset construction
+        List<BitSet> sets = new ArrayList<>();
+        List<int[]> table = new ArrayList<>();
+        Map<BitSet,Integer> ids = new HashMap<>();
+        BitSet initial = new BitSet();
+        initial.set(start);
+        nfa.closure(initial);
+        sets.add(initial);
+        ids.put(initial, 0);
+        for (int state = 0; state < sets.size(); state++) {
+            BitSet set = sets.get(state);
+            int[] row = new int[starts.length];
+            for (int i = 0; i < starts.length; i++) {
+                BitSet target = new BitSet();
+                for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+                    for (int[] edge : nfa.edges.get(s)) {
+                        if (edge[0] <= starts[i] && starts[i] <= edge[1]) {
+                            target.set(edge[2]);
+                        }
+                    }
+                }
+                if (target.isEmpty()) {
+                    row[i] = -1;
+                } else {
+                    nfa.closure(target);
+                    Integer id = ids.get(target);
+                    if (id == null) {
+                        if (sets.size() == maxStates || (long) (sets.size() + 1) * starts.length > MAX_TABLE_SIZE) {
+                            throw new UnsupportedRegexException("Too many states for regex " + regex);
+                        }
+                        id = sets.size();
+                        sets.add(target);
+                        ids.put(target, id);
+                    }
+                    row[i] = id;
+                }
+            }
+            table.add(row);
+        }
+
+        int numStates = sets.size();
+        boolean[] accept = new boolean[numStates];
+        for (int state = 0; state < numStates; state++) {
+            accept[state] = sets.get(state).get(nfa.accept);
+        }
+
+        // find the states from which a match can still be reached
+        List<List<Integer>> reverse = new ArrayList<>();
+        for (int state = 0; state < numStates; state++) {
+            reverse.add(new ArrayList<>());
+        }
+        for (int state = 0; state < numStates; state++) {
+            for (int target : table.get(state)) {
+                if (target >= 0) {
+                    reverse.get(target).add(state);
+                }
+            }
+        }
+        boolean[] live = new boolean[numStates];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int state = 0; state < numStates; state++) {
+            if (accept[state]) {
+                live[state] = true;
+                queue.add(state);
+            }
+        }
+        while (!queue.isEmpty()) {
+            for (int previous : reverse.get(queue.poll())) {
+                if (!live[previous]) {
+                    live[previous] = true;
+                    queue.add(previous);
+                }
+            }
+        }
+        for (int[] row : table) {
+            for (int i = 0; i < row.length; i++) {
+                if (row[i] >= 0 && !live[row[i]]) {
+                    row[i] = -1;
+                }
+            }
+        }
+
+        // merge the neighboring intervals that every state treats the same
+        List<Integer> merged = new ArrayList<>();
+        for (int i = 0; i < starts.length; i++) {
+            boolean same = i > 0;
+            for (int state = 0; same && state < numStates; state++) {
+                same = table.get(state)[i] == table.get(state)[i - 1];
+            }
+            if (!same) {
+                merged.add(i);
+            }
+        }
+        int[] intervalStarts = new int[merged.size()];
+        int[] transitions = new int[numStates * merged.size()];
+        for (int i = 0; i < merged.size(); i++) {
+            intervalStarts[i] = starts[merged.get(i)];
+            for (int state = 0; state < numStates; state++) {
+                transitions[state * merged.size() + i] = table.get(state)[merged.get(i)];
+            }
+        }
+
+        return new RegexAutomaton(regex, intervalStarts, transitions, accept, live[0] ? 0 : -1);
+    }
+}
@@ -0,0 +1,485 @@
+package datawave.query.util.sortedset;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PositionedReadable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.log4j.Logger;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import datawave.query.iterator.ivarator.IvaratorCacheDir;
+import datawave.query.util.sortedset.BufferedFileBackedSortedSet.SortedSetFileHandlerFactory;
+import datawave.query.util.sortedset.HdfsBackedSortedSet.SortedSetHdfsFileHandlerFactory;
+
+/**
+ * An exact set of byte arrays that holds up to a specified number of entries in memory before flushing them to disk as a sorted run. This set is optimized for
+ * the "add if absent" pattern used when de-duplicating a stream: every run is guarded by a small bloom filter so that most membership checks never touch the
+ * disk, and a bloom filter hit is confirmed against the run itself so the answer is always exact. When the number of runs exceeds the max open files, all of
+ * the runs are compacted into one.
+ * <p>
+ * A run is written as a sequence of blocks of length prefixed entries, and the first entry and offset of each block are kept in memory. A membership check
+ * therefore reads a single block, found by a binary search of the first entries, regardless of the size of the run.
+ * <p>
+ * The runs are written to the ivarator cache dirs, and are deleted when the set is cleared or closed. A set that is dropped without being closed, as when a
+ * scan session is torn down early, deletes its directories once it is garbage collected. This set is not thread safe.
+ * <p>
+ * The runs do not use the {@link FileSortedSet} file format, which is a stream of serialized entries that can only be read from the start; a run has to be
+ * seekable to a single block. They are created, placed and deleted through the same {@link SortedSetFileHandlerFactory} machinery though.
+ */
+public class BufferedFileBackedByteSet implements Closeable {
+    private static final Logger log = Logger.getLogger(BufferedFileBackedByteSet.class);
+    public static final int DEFAULT_BUFFER_PERSIST_THRESHOLD = 100000;
+    public static final int DEFAULT_MAX_OPEN_FILES = 20;
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    // the false positive probability of the bloom filter guarding each run, a false positive only costs a read of one block
+    protected static final double FILE_BLOOM_FPP = 0.01;
+    // deletes the directories of sets that were never closed
+    private static final Cleaner cleaner = Cleaner.create();
+
+    protected final Comparator<byte[]> comparator = new ByteArrayComparator();
+    protected final List<SortedSetFileHandlerFactory> handlerFactories;
+    protected final int bufferPersistThreshold;
+    protected final int maxOpenFiles;
+    protected final int blockSize;
+
+    protected TreeSet<byte[]> buffer = new TreeSet<>(comparator);
+    protected List<Run> runs = new ArrayList<>();
+    protected long size = 0;
+
+    private final Cleaner.Cleanable cleanable;
+
+    /**
+     * Create a set that flushes to files under the first valid ivarator cache dir
+     *
+     * @param bufferPersistThreshold
+     *            the number of entries to hold in memory before flushing to disk
+     * @param ivaratorCacheDirs
+     *            the ivarator cache dirs
+     * @param uniqueSubPath
+     *            the path under each ivarator cache dir to write the files to
+     */
+    public BufferedFileBackedByteSet(int bufferPersistThreshold, List<IvaratorCacheDir> ivaratorCacheDirs, String uniqueSubPath) {
+        this(bufferPersistThreshold, DEFAULT_MAX_OPEN_FILES, DEFAULT_BLOCK_SIZE, createFileHandlerFactories(ivaratorCacheDirs, uniqueSubPath));
+    }
+
+    /**
+     * Create a set that flushes to files created by the first valid handler factory
+     *
+     * @param bufferPersistThreshold
+     *            the number of entries to hold in memory before flushing to disk
+     * @param maxOpenFiles
+     *            the number of runs to accumulate before compacting them into one
+     * @param blockSize
+     *            the number of bytes of entries in each block of a run
+     * @param handlerFactories
+     *            the file handler factories
+     */
+    public BufferedFileBackedByteSet(int bufferPersistThreshold, int maxOpenFiles, int blockSize, List<SortedSetFileHandlerFactory> handlerFactories) {
+        if (bufferPersistThreshold <= 0) {
+            throw new IllegalArgumentException("The buffer persist threshold must be positive: " + bufferPersistThreshold);
+        }
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("The block size must be positive: " + blockSize);
+        }
+        this.bufferPersistThreshold = bufferPersistThreshold;
+        this.maxOpenFiles = maxOpenFiles;
+        this.blockSize = blockSize;
+        this.handlerFactories = handlerFactories;
+        this.cleanable = cleaner.register(this, new DirectoryCleanup(new ArrayList<>(handlerFactories)));
+    }
+
+    private static List<SortedSetFileHandlerFactory> createFileHandlerFactories(List<IvaratorCacheDir> ivaratorCacheDirs, String uniqueSubPath) {
+        List<SortedSetFileHandlerFactory> fileHandlerFactories = new ArrayList<>();
+        for (IvaratorCacheDir ivaratorCacheDir : ivaratorCacheDirs) {
+            fileHandlerFactories.add(new SortedSetHdfsFileHandlerFactory(ivaratorCacheDir, uniqueSubPath, new FileSortedSet.PersistOptions()));
+        }
+        return fileHandlerFactories;
+    }
+
+    /**
+     * Add an entry to this set
+     *
+     * @param bytes
+     *            the entry
+     * @return true if the entry was not already in the set
+     * @throws IOException
+     *             for issues with read/write
+     */
+    public boolean add(byte[] bytes) throws IOException {
+        if (contains(bytes)) {
+            return false;
+        }
+        buffer.add(bytes);
+        size++;
+        if (buffer.size() >= bufferPersistThreshold) {
+            persist();
+        }
+        return true;
+    }
+
+    /**
+     * Determine if an entry is in this set. The in-memory buffer is checked first, then the runs from newest to oldest.
+     *
+     * @param bytes
+     *            the entry
+     * @return true if the entry is in the set
+     * @throws IOException
+     *             for issues with read/write
+     */
+    public boolean contains(byte[] bytes) throws IOException {
+        if (buffer.contains(bytes)) {
+            return true;
+        }
+        for (int i = runs.size() - 1; i >= 0; i--) {
+            if (runs.get(i).contains(bytes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getBufferSize() {
+        return buffer.size();
+    }
+
+    public int getFileCount() {
+        return runs.size();
+    }
+
+    /**
+     * Flush the in-memory buffer to a new run, compacting the runs if there are too many
+     *
+     * @throws IOException
+     *             for issues with read/write
+     */
+    public void persist() throws IOException {
+        if (!buffer.isEmpty()) {
+            runs.add(writeRun(buffer, buffer.size(), true));
+            buffer = new TreeSet<>(comparator);
+        }
+        if (maxOpenFiles > 0 && runs.size() > maxOpenFiles) {
+            compact();
+        }
+    }
+
+    /**
+     * Merge all of the runs into one. The entries in the runs are disjoint, so the merged size is simply the sum of their sizes.
+     *
+     * @throws IOException
+     *             for issues with read/write
+     */
+    protected void compact() throws IOException {
+        long start = System.currentTimeMillis();
+        long compactedSize = 0;
+        List<RunReader> readers = new ArrayList<>(runs.size());
+        try {
+            for (Run run : runs) {
+                readers.add(new RunReader(run));
+                compactedSize += run.size;
+            }
+            MergeIterator merged = new MergeIterator(readers);
+            Run compacted = writeRun(() -> merged, compactedSize, false);
+
+            // remove the compacted runs and their files
+            int compactedFiles = runs.size();
+            for (Run run : runs) {
+                run.delete();
+            }
+            runs = new ArrayList<>();
+            runs.add(compacted);
+
+            if (log.isDebugEnabled()) {
+                log.debug("Compacted " + compactedFiles + " files with " + compactedSize + " entries in " + (System.currentTimeMillis() - start) + "ms");
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Remove all entries, deleting any files
+     */
+    public void clear() {
+        buffer = new TreeSet<>(comparator);
+        for (Run run : runs) {
+            run.delete();
+        }
+        runs = new ArrayList<>();
+        size = 0;
+    }
+
+    /**
+     * Remove all entries, deleting any files and the directories they were written to
+     */
+    @Override
+    public void close() {
+        clear();
+        cleanable.clean();
+    }
+
+    /**
+     * Deletes the directories the runs of a set were written to. This must not reference the set, so that it can run once the set is unreachable.
+     */
+    private static class DirectoryCleanup implements Runnable {
+        private final List<SortedSetFileHandlerFactory> handlerFactories;
+
+        private DirectoryCleanup(List<SortedSetFileHandlerFactory> handlerFactories) {
+            this.handlerFactories = handlerFactories;
+        }
+
+        @Override
+        public void run() {
+            for (SortedSetFileHandlerFactory handlerFactory : handlerFactories) {
+                if (handlerFactory instanceof SortedSetHdfsFileHandlerFactory && ((SortedSetHdfsFileHandlerFactory) handlerFactory).getFileCount() > 0) {
+                    SortedSetHdfsFileHandlerFactory hdfsHandlerFactory = (SortedSetHdfsFileHandlerFactory) handlerFactory;
+                    FileSystem fs = hdfsHandlerFactory.getFs();
+                    Path dir = hdfsHandlerFactory.getUniqueDir();
+                    try {
+                        if (fs.exists(dir) && !fs.delete(dir, true)) {
+                            log.error("Failed to delete " + dir + ": delete returned false");
+                        }
+                    } catch (IOException e) {
+                        log.error("Failed to delete " + dir, e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Write sorted entries to a new run with the first valid handler factory, falling back to the next on failure if the entries can be read again
+     */
+    private Run writeRun(Iterable<byte[]> entries, long count, boolean replayable) throws IOException {
+        IOException failure = null;
+        for (SortedSetFileHandlerFactory handlerFactory : handlerFactories) {
+            if (handlerFactory.isValid()) {
+                FileSortedSet.SortedSetFileHandler handler = handlerFactory.createHandler();
+                try {
+                    return new Run(handler, entries.iterator(), count);
+                } catch (IOException | RuntimeException e) {
+                    handler.deleteFile();
+                    if (!replayable) {
+                        throw new IOException("Unable to write " + handler, e);
+                    }
+                    log.warn("Failed to write " + handler + ", trying the next handler factory", e);
+                    failure = (e instanceof IOException ? (IOException) e : new IOException(e));
+                }
+            }
+        }
+        throw new IOException("Unable to write a file using the handler factories: " + handlerFactories, failure);
+    }
+
+    /**
+     * A sorted run of entries on disk, the sparse index of its blocks and the bloom filter guarding it
+     */
+    protected class Run {
+        private final FileSortedSet.SortedSetFileHandler handler;
+        private final long size;
+        private final BloomFilter<byte[]> bloom;
+        private final List<byte[]> blockFirstEntries = new ArrayList<>();
+        private final List<Long> blockOffsets = new ArrayList<>();
+        private final long length;
+        private InputStream input;
+
+        Run(FileSortedSet.SortedSetFileHandler handler, Iterator<byte[]> entries, long size) throws IOException {
+            this.handler = handler;
+            this.size = size;
+            this.bloom = BloomFilter.create(Funnels.byteArrayFunnel(), Math.max(size, 1), FILE_BLOOM_FPP);
+
+            long offset = 0;
+            long blockStart = -1;
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(handler.getOutputStream()))) {
+                while (entries.hasNext()) {
+                    byte[] entry = entries.next();
+                    if (blockStart < 0 || offset - blockStart >= blockSize) {
+                        blockStart = offset;
+                        blockOffsets.add(offset);
+                        blockFirstEntries.add(entry);
+                    }
+                    WritableUtils.writeVInt(output, entry.length);
+                    output.write(entry);
+                    offset += WritableUtils.getVIntSize(entry.length) + entry.length;
+                    bloom.put(entry);
+                }
+            }
+            this.length = offset;
+        }
+
+        boolean contains(byte[] bytes) throws IOException {
+            if (!bloom.mightContain(bytes)) {
+                return false;
+            }
+
+            // find the last block that starts at or before the entry
+            int low = 0;
+            int high = blockFirstEntries.size() - 1;
+            int block = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int comparison = comparator.compare(blockFirstEntries.get(mid), bytes);
+                if (comparison == 0) {
+                    return true;
+                } else if (comparison < 0) {
+                    block = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            if (block < 0) {
+                return false;
+            }
+
+            DataInputStream entries = new DataInputStream(new ByteArrayInputStream(readBlock(block)));
+            while (entries.available() > 0) {
+                byte[] entry = new byte[WritableUtils.readVInt(entries)];
+                entries.readFully(entry);
+                int comparison = comparator.compare(entry, bytes);
+                if (comparison >= 0) {
+                    return comparison == 0;
+                }
+            }
+            return false;
+        }
+
+        private byte[] readBlock(int block) throws IOException {
+            long offset = blockOffsets.get(block);
+            long end = (block + 1 < blockOffsets.size() ? blockOffsets.get(block + 1) : length);
+            byte[] data = new byte[(int) (end - offset)];
+
+            InputStream stream = (input != null ? input : handler.getInputStream());
+            if (stream instanceof PositionedReadable) {
+                // keep the file open and read the block in place
+                input = stream;
+                ((PositionedReadable) stream).readFully(offset, data);
+            } else {
+                // the stream can not seek, so read up to the block and close it
+                try (DataInputStream in = new DataInputStream(stream)) {
+                    skipFully(in, offset);
+                    in.readFully(data);
+                }
+            }
+            return data;
+        }
+
+        private void delete() {
+            closeInput();
+            handler.deleteFile();
+        }
+
+        private void closeInput() {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close " + handler, e);
+                }
+                input = null;
+            }
+        }
+    }
+
+    private static void skipFully(InputStream stream, long bytes) throws IOException {
+        while (bytes > 0) {
+            long skipped = stream.skip(bytes);
+            if (skipped <= 0) {
+                throw new EOFException("Unable to skip to the block");
+            }
+            bytes -= skipped;
+        }
+    }
+
+    /**
+     * Reads the entries of a run in order
+     */
+    private static class RunReader implements Closeable {
+        private final DataInputStream input;
+        private long remaining;
+        private byte[] next;
+
+        RunReader(Run run) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(run.handler.getInputStream()));
+            this.remaining = run.size;
+            advance();
+        }
+
+        private void advance() throws IOException {
+            if (remaining > 0) {
+                next = new byte[WritableUtils.readVInt(input)];
+                input.readFully(next);
+                remaining--;
+            } else {
+                next = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+
+    /**
+     * Merges the entries of several runs in order
+     */
+    private class MergeIterator implements Iterator<byte[]> {
+        private final PriorityQueue<RunReader> readers = new PriorityQueue<>((a, b) -> comparator.compare(a.next, b.next));
+
+        MergeIterator(List<RunReader> readers) {
+            for (RunReader reader : readers) {
+                if (reader.next != null) {
+                    this.readers.add(reader);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !readers.isEmpty();
+        }
+
+        @Override
+        public byte[] next() {
+            RunReader reader = readers.poll();
+            byte[] next = reader.next;
+            try {
+                reader.advance();
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to read " + reader, e);
+            }
+            if (reader.next != null) {
+                readers.add(reader);
+            }
+            return next;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.SortedSet;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -63,6 +64,7 @@ public class BufferedFileBackedSortedSet<E> implements SortedSet<E> {
         }
         this.sizeModified = other.sizeModified;
         this.size = other.size;
+        setMergeExecutor(other.getMergeExecutor());
     }
 
     public BufferedFileBackedSortedSet(List<SortedSetFileHandlerFactory> handlerFactories) {
@@ -151,6 +153,21 @@ public class BufferedFileBackedSortedSet<E> implements SortedSet<E> {
         }
     }
 
+    /**
+     * Set the executor used to read ahead in the persisted files when iterating over, and compacting, this set.
+     *
+     * @param mergeExecutor
+     *            the executor, or null to merge on the calling thread
+     * @see MultiSetBackedSortedSet#setMergeExecutor(ExecutorService)
+     */
+    public void setMergeExecutor(ExecutorService mergeExecutor) {
+        set.setMergeExecutor(mergeExecutor);
+    }
+
+    public ExecutorService getMergeExecutor() {
+        return set.getMergeExecutor();
+    }
+
     protected List<FileSortedSet<E>> getSets() {
         List<FileSortedSet<E>> sets = new ArrayList<>();
         for (SortedSet<E> subSet : set.getSets()) {
@@ -265,9 +282,11 @@ public class BufferedFileBackedSortedSet<E> implements SortedSet<E> {
 
             // newSet will be the final multiset
             MultiSetBackedSortedSet<E> newSet = new MultiSetBackedSortedSet<>();
+            newSet.setMergeExecutor(getMergeExecutor());
 
             // create a set for those sets to be compacted into one file
             MultiSetBackedSortedSet<E> setToCompact = new MultiSetBackedSortedSet<>();
+            setToCompact.setMergeExecutor(getMergeExecutor());
             for (int i = 0; i < setsPerCompaction; i++) {
                 setToCompact.addSet(sets.remove(sets.size() - 1));
             }
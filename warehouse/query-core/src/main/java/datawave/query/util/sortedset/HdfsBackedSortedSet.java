@@ -1,5 +1,6 @@
 package datawave.query.util.sortedset;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -9,6 +10,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.SortedSet;
 
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.FsStatus;
@@ -210,6 +212,8 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
     }
 
     public static class SortedSetHdfsFileHandler implements FileSortedSet.SortedSetFileHandler {
+        private static final String LOCAL_SCHEME = "file";
+
         private FileSystem fs;
         private Path file;
         private FileSortedSet.PersistOptions persistOptions;
@@ -233,6 +237,10 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
             if (log.isDebugEnabled()) {
                 log.debug("Reading " + file);
             }
+            // map local cache files directly so that the reader can seek to its blocks without going through the checksummed local filesystem
+            if (LOCAL_SCHEME.equals(getScheme())) {
+                return new FSDataInputStream(new MappedFileInputStream(new File(Path.getPathWithoutSchemeAndAuthority(file).toString())));
+            }
             return fs.open(file);
         }
 
@@ -0,0 +1,169 @@
+package datawave.query.util.sortedset;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.hadoop.fs.PositionedReadable;
+import org.apache.hadoop.fs.Seekable;
+
+/**
+ * A seekable input stream over a memory mapped local file. Wrapped in an {@link org.apache.hadoop.fs.FSDataInputStream}, this lets the RFile reader seek to
+ * and read individual blocks of a local ivarator cache file directly from the page cache, instead of streaming them through the checksummed local filesystem.
+ * The file is mapped in segments of at most {@link #SEGMENT_SIZE} bytes so that files larger than 2GB can be mapped.
+ */
+public class MappedFileInputStream extends InputStream implements Seekable, PositionedReadable {
+    protected static final int SEGMENT_SIZE = 1 << 30;
+
+    private final File file;
+    private final long length;
+    private final int segmentSize;
+    private MappedByteBuffer[] segments;
+    private long position = 0;
+
+    public MappedFileInputStream(File file) throws IOException {
+        this(file, SEGMENT_SIZE);
+    }
+
+    protected MappedFileInputStream(File file, int segmentSize) throws IOException {
+        this.file = file;
+        this.segmentSize = segmentSize;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            this.length = channel.size();
+            int numSegments = (int) ((length + segmentSize - 1) / segmentSize);
+            this.segments = new MappedByteBuffer[numSegments];
+            for (int i = 0; i < numSegments; i++) {
+                long start = (long) i * segmentSize;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, length - start));
+            }
+        }
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkOpen();
+        if (position >= length) {
+            return -1;
+        }
+        int b = segment(position).get(offset(position)) & 0xff;
+        position++;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int len) throws IOException {
+        int read = read(position, buffer, offset, len);
+        if (read > 0) {
+            position += read;
+        }
+        return read;
+    }
+
+    @Override
+    public int read(long pos, byte[] buffer, int offset, int len) throws IOException {
+        checkOpen();
+        if (offset < 0 || len < 0 || len > buffer.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (pos >= length) {
+            return -1;
+        }
+
+        int toRead = (int) Math.min(len, length - pos);
+        int read = 0;
+        while (read < toRead) {
+            MappedByteBuffer segment = segment(pos + read);
+            int segmentOffset = offset(pos + read);
+            int count = Math.min(toRead - read, segment.capacity() - segmentOffset);
+            // a duplicate keeps the shared segment's position untouched
+            ByteBuffer view = segment.duplicate();
+            view.position(segmentOffset);
+            view.get(buffer, offset + read, count);
+            read += count;
+        }
+        return read;
+    }
+
+    @Override
+    public void readFully(long pos, byte[] buffer, int offset, int len) throws IOException {
+        if (pos + len > length) {
+            throw new EOFException("Cannot read " + len + " bytes at position " + pos + " of " + file + " (length " + length + ')');
+        }
+        read(pos, buffer, offset, len);
+    }
+
+    @Override
+    public void readFully(long pos, byte[] buffer) throws IOException {
+        readFully(pos, buffer, 0, buffer.length);
+    }
+
+    @Override
+    public void seek(long pos) throws IOException {
+        checkOpen();
+        if (pos < 0 || pos > length) {
+            throw new EOFException("Cannot seek to position " + pos + " of " + file + " (length " + length + ')');
+        }
+        this.position = pos;
+    }
+
+    @Override
+    public long getPos() {
+        return position;
+    }
+
+    @Override
+    public boolean seekToNewSource(long targetPos) {
+        return false;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        checkOpen();
+        long skipped = Math.max(0, Math.min(n, length - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        checkOpen();
+        return (int) Math.min(Integer.MAX_VALUE, length - position);
+    }
+
+    @Override
+    public void close() {
+        // the mappings are released once the buffers are garbage collected
+        segments = null;
+    }
+
+    private MappedByteBuffer segment(long pos) {
+        return segments[(int) (pos / segmentSize)];
+    }
+
+    private int offset(long pos) {
+        return (int) (pos % segmentSize);
+    }
+
+    private void checkOpen() throws IOException {
+        if (segments == null) {
+            throw new IOException("Stream is closed: " + file);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+}
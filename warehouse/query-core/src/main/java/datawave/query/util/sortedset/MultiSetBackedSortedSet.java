@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
 
 /*
  * This is a sorted set that is backed by multiple underlying sorted sets.  It is assumed that the underlying
@@ -17,6 +18,7 @@ import java.util.TreeSet;
  */
 public class MultiSetBackedSortedSet<E> extends AbstractSet<E> implements SortedSet<E> {
     protected List<SortedSet<E>> sets = new ArrayList<>();
+    protected ExecutorService mergeExecutor = null;
 
     /**
      * Add a set to the underlying sets
@@ -37,6 +39,21 @@ public class MultiSetBackedSortedSet<E> extends AbstractSet<E> implements Sorted
         return sets;
     }
 
+    /**
+     * Set the executor used to read ahead in the persisted sets while iterating. When set, iteration over more than one set uses a
+     * {@link ParallelMergeSortIterator}, otherwise a {@link MergeSortIterator} is used.
+     *
+     * @param mergeExecutor
+     *            the executor, or null to merge on the calling thread
+     */
+    public void setMergeExecutor(ExecutorService mergeExecutor) {
+        this.mergeExecutor = mergeExecutor;
+    }
+
+    public ExecutorService getMergeExecutor() {
+        return mergeExecutor;
+    }
+
     /**
      * Return the size of this set. NOTE that this is somewhat expensive as we require iterating over the sets to determine the true value (see
      * MergeSortIterator);
@@ -76,6 +93,9 @@ public class MultiSetBackedSortedSet<E> extends AbstractSet<E> implements Sorted
 
     @Override
     public Iterator<E> iterator() {
+        if (mergeExecutor != null && sets.size() > 1) {
+            return new ParallelMergeSortIterator<>(sets, mergeExecutor);
+        }
         return new MergeSortIterator<>(sets);
     }
 
@@ -120,6 +140,7 @@ public class MultiSetBackedSortedSet<E> extends AbstractSet<E> implements Sorted
     @Override
     public SortedSet<E> subSet(E fromElement, E toElement) {
         MultiSetBackedSortedSet<E> subSet = new MultiSetBackedSortedSet<>();
+        subSet.setMergeExecutor(mergeExecutor);
         for (SortedSet<E> set : sets) {
             subSet.addSet(set.subSet(fromElement, toElement));
         }
@@ -129,6 +150,7 @@ public class MultiSetBackedSortedSet<E> extends AbstractSet<E> implements Sorted
     @Override
     public SortedSet<E> headSet(E toElement) {
         MultiSetBackedSortedSet<E> subSet = new MultiSetBackedSortedSet<>();
+        subSet.setMergeExecutor(mergeExecutor);
         for (SortedSet<E> set : sets) {
             subSet.addSet(set.headSet(toElement));
         }
@@ -138,6 +160,7 @@ public class MultiSetBackedSortedSet<E> extends AbstractSet<E> implements Sorted
     @Override
     public SortedSet<E> tailSet(E fromElement) {
         MultiSetBackedSortedSet<E> subSet = new MultiSetBackedSortedSet<>();
+        subSet.setMergeExecutor(mergeExecutor);
         for (SortedSet<E> set : sets) {
             subSet.addSet(set.tailSet(fromElement));
         }
@@ -0,0 +1,222 @@
+package datawave.query.util.sortedset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import datawave.webservice.query.exception.DatawaveErrorCode;
+import datawave.webservice.query.exception.QueryException;
+
+/**
+ * This is an iterator that will return a sorted set of items (no dups) from an underlying set of sorted sets, like the {@link MergeSortIterator}. The
+ * difference is that the elements of each persisted {@link FileSortedSet} are read and decoded in batches on the supplied executor, one batch ahead of the
+ * merge, and the merge itself uses a loser tree so that each element costs log(n) comparisons against the other sets instead of a TreeSet insertion. This keeps
+ * the merge of many persisted sets from being bound by a single thread reading the files one element at a time. This will support null contained in the
+ * underlying sets iff the underlying sets use a comparator that can handle null values.
+ * <p>
+ * The remove operation is not supported.
+ *
+ * @param <T>
+ *            type for the iterator
+ */
+public class ParallelMergeSortIterator<T> implements Iterator<T> {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final Comparator<? super T> comparator;
+    private final List<Iterator<T>> iterators = new ArrayList<>();
+    private final List<T> heads = new ArrayList<>();
+    private final boolean[] finished;
+    // tree[0] holds the index of the smallest head, the remaining nodes hold the loser of the match played at that node
+    private final int[] tree;
+
+    public ParallelMergeSortIterator(Collection<? extends SortedSet<T>> sets, ExecutorService executor) {
+        this(sets, executor, DEFAULT_BATCH_SIZE);
+    }
+
+    public ParallelMergeSortIterator(Collection<? extends SortedSet<T>> sets, ExecutorService executor, int batchSize) {
+        Comparator<? super T> comparator = null;
+        for (SortedSet<T> set : sets) {
+            comparator = set.comparator();
+            // only the persisted sets are worth reading ahead, an in-memory set is iterated directly
+            if (set instanceof FileSortedSet && ((FileSortedSet<T>) set).isPersisted()) {
+                iterators.add(new PrefetchingIterator<>(set.iterator(), executor, batchSize));
+            } else {
+                iterators.add(set.iterator());
+            }
+            heads.add(null);
+        }
+        this.comparator = comparator;
+        this.finished = new boolean[iterators.size()];
+        this.tree = new int[Math.max(1, iterators.size())];
+
+        for (int i = 0; i < iterators.size(); i++) {
+            advance(i);
+        }
+        // initialize the tree with a virtual minimum in every node, and then play each set into it
+        Arrays.fill(tree, -1);
+        for (int i = iterators.size() - 1; i >= 0; i--) {
+            replay(i);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !iterators.isEmpty() && !finished[tree[0]];
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            QueryException qe = new QueryException(DatawaveErrorCode.FETCH_NEXT_ELEMENT_ERROR);
+            throw (NoSuchElementException) (new NoSuchElementException().initCause(qe));
+        }
+        int winner = tree[0];
+        T next = heads.get(winner);
+
+        // advance every set that is positioned on the returned value
+        do {
+            advance(winner);
+            replay(winner);
+            winner = tree[0];
+        } while (!finished[winner] && equals(next, heads.get(winner)));
+
+        return next;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove is not supported by the parallel merge");
+    }
+
+    private void advance(int i) {
+        Iterator<T> it = iterators.get(i);
+        if (it.hasNext()) {
+            heads.set(i, it.next());
+        } else {
+            heads.set(i, null);
+            finished[i] = true;
+        }
+    }
+
+    /**
+     * Play the set at leaf i up the tree after its head changed, leaving the loser at each node and the overall winner in tree[0]
+     *
+     * @param i
+     *            the index of the set
+     */
+    private void replay(int i) {
+        int winner = i;
+        for (int node = (i + iterators.size()) / 2; node > 0; node /= 2) {
+            if (beats(tree[node], winner)) {
+                int loser = winner;
+                winner = tree[node];
+                tree[node] = loser;
+            }
+        }
+        tree[0] = winner;
+    }
+
+    private boolean beats(int a, int b) {
+        if (a < 0) {
+            return true;
+        } else if (b < 0) {
+            return false;
+        } else if (finished[a]) {
+            return false;
+        } else if (finished[b]) {
+            return true;
+        }
+        return compare(heads.get(a), heads.get(b)) < 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(T o1, T o2) {
+        if (comparator != null) {
+            return comparator.compare(o1, o2);
+        }
+        return ((Comparable<? super T>) o1).compareTo(o2);
+    }
+
+    private boolean equals(T o1, T o2) {
+        if (o1 == null) {
+            return o2 == null;
+        } else if (o2 == null) {
+            return false;
+        } else if (comparator == null) {
+            return o1.equals(o2);
+        } else {
+            return comparator.compare(o1, o2) == 0;
+        }
+    }
+
+    /**
+     * An iterator that reads the next batch of elements from its delegate on an executor while the current batch is being consumed. At most one batch is being
+     * read at a time, so the delegate is never accessed concurrently.
+     *
+     * @param <T>
+     *            type for the iterator
+     */
+    static class PrefetchingIterator<T> implements Iterator<T> {
+        private final Iterator<T> delegate;
+        private final ExecutorService executor;
+        private final int batchSize;
+        private Future<List<T>> pending;
+        private List<T> batch = Collections.emptyList();
+        private int index = 0;
+
+        PrefetchingIterator(Iterator<T> delegate, ExecutorService executor, int batchSize) {
+            this.delegate = delegate;
+            this.executor = executor;
+            this.batchSize = batchSize;
+            this.pending = fetch();
+        }
+
+        private Future<List<T>> fetch() {
+            return executor.submit(() -> {
+                List<T> next = new ArrayList<>(batchSize);
+                while (next.size() < batchSize && delegate.hasNext()) {
+                    next.add(delegate.next());
+                }
+                return next;
+            });
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (index >= batch.size()) {
+                if (pending == null) {
+                    return false;
+                }
+                try {
+                    batch = pending.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while reading ahead in sorted set", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Unable to read ahead in sorted set", e.getCause());
+                }
+                index = 0;
+                // a short batch means the delegate is exhausted
+                pending = (batch.size() == batchSize ? fetch() : null);
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.get(index++);
+        }
+    }
+}
@@ -56,6 +56,13 @@ public class DatawaveJexlScript implements Expression, Script {
         return interpreter.interpret(script.jjtGetChild(0));
     }
 
+    /**
+     * @return the flattened script
+     */
+    public ASTJexlScript getScript() {
+        return script;
+    }
+
     /**
      * {@inheritDoc}
      */
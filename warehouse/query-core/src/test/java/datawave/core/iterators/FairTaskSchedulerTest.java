@@ -0,0 +1,171 @@
+package datawave.core.iterators;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FairTaskSchedulerTest {
+
+    private ThreadPoolExecutor executor;
+
+    @After
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private FairTaskScheduler scheduler(int threads) {
+        executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>());
+        return new FairTaskScheduler("test", executor);
+    }
+
+    @Test
+    public void testPriorityShare() throws Exception {
+        FairTaskScheduler scheduler = scheduler(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit(() -> await(release), "blocker", 1);
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(scheduler.submit(() -> order.add("low"), "low", 1));
+        }
+        for (int i = 0; i < 10; i++) {
+            futures.add(scheduler.submit(() -> order.add("high"), "high", 2));
+        }
+        release.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        // while both queries have tasks queued, the query with priority 2 gets two tasks run for each task of the query with priority 1
+        Assert.assertEquals(List.of("low", "high", "high", "low", "high", "high", "low", "high", "high"), order.subList(0, 9));
+        Assert.assertEquals(20, order.size());
+    }
+
+    @Test
+    public void testLateQueryIsNotStarved() throws Exception {
+        FairTaskScheduler scheduler = scheduler(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> futures = new ArrayList<>();
+        futures.add(scheduler.submit(() -> await(release), "backlog", 1));
+        for (int i = 0; i < 100; i++) {
+            futures.add(scheduler.submit(() -> order.add("backlog"), "backlog", 1));
+        }
+        futures.add(scheduler.submit(() -> order.add("late"), "late", 1));
+        release.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        // the late query is not queued behind the whole backlog of the other query
+        Assert.assertTrue(order.indexOf("late") <= 1);
+    }
+
+    @Test
+    public void testMaxTasksPerQuery() throws Exception {
+        FairTaskScheduler scheduler = scheduler(4);
+        scheduler.setMaxTasksPerQuery(2);
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(scheduler.submit(() -> {
+                started.countDown();
+                await(release);
+            }, "capped", 1));
+        }
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // another query still gets a thread while the first is at its cap
+        scheduler.submit(() -> {}, "other", 1).get(10, TimeUnit.SECONDS);
+
+        FairTaskScheduler.QueryStats stats = scheduler.getStats("capped");
+        Assert.assertEquals(2, stats.getRunning());
+        Assert.assertEquals(2, stats.getQueued());
+        Assert.assertEquals(4, stats.getSubmitted());
+
+        Thread.sleep(50);
+        release.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        stats = scheduler.getStats("capped");
+        Assert.assertEquals(0, stats.getQueued());
+        Assert.assertEquals(4, stats.getCompleted());
+        Assert.assertTrue(stats.getMaxQueueTime() >= 50);
+        Assert.assertEquals(1, scheduler.getStats("other").getCompleted());
+    }
+
+    @Test
+    public void testCancelledTaskIsSkipped() throws Exception {
+        FairTaskScheduler scheduler = scheduler(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit(() -> await(release), "query", 1);
+
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        Future<?> cancelled = scheduler.submit(() -> ran.add("cancelled"), "query", 1);
+        Future<?> next = scheduler.submit(() -> ran.add("next"), "query", 1);
+        Assert.assertTrue(cancelled.cancel(false));
+        release.countDown();
+        next.get(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals(List.of("next"), ran);
+        Assert.assertEquals(2, scheduler.getStats("query").getCompleted());
+    }
+
+    @Test
+    public void testSetMaxThreads() throws Exception {
+        FairTaskScheduler scheduler = scheduler(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            scheduler.submit(() -> {
+                started.countDown();
+                await(release);
+            }, "query", 1);
+        }
+        Assert.assertFalse(started.await(100, TimeUnit.MILLISECONDS));
+
+        // the queued task starts on the new thread
+        scheduler.setMaxThreads(2);
+        Assert.assertEquals(2, scheduler.getMaxThreads());
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void testEvictIdleQueries() throws Exception {
+        FairTaskScheduler scheduler = scheduler(1);
+        scheduler.submit(() -> {}, null, 1).get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(1, scheduler.getStats(null).getCompleted());
+
+        scheduler.evictIdleQueries(1, TimeUnit.MINUTES);
+        Assert.assertEquals(1, scheduler.getStats().size());
+
+        Thread.sleep(10);
+        scheduler.evictIdleQueries(0, TimeUnit.MINUTES);
+        Assert.assertNull(scheduler.getStats(null));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
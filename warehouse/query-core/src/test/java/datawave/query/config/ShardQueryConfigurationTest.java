@@ -184,6 +184,7 @@ public class ShardQueryConfigurationTest {
         Assert.assertEquals(33, config.getMaxIvaratorSources());
         Assert.assertEquals(25, config.getMaxEvaluationPipelines());
         Assert.assertEquals(25, config.getMaxPipelineCachedResults());
+        Assert.assertFalse(config.isRingBufferEvaluationPipeline());
         Assert.assertFalse(config.isExpandAllTerms());
         Assert.assertNull(config.getQueryModel());
         Assert.assertNull(config.getModelName());
@@ -193,7 +194,19 @@ public class ShardQueryConfigurationTest {
         Assert.assertFalse(config.isCompressServerSideResults());
         Assert.assertFalse(config.isIndexOnlyFilterFunctionsEnabled());
         Assert.assertFalse(config.isCompositeFilterFunctionsEnabled());
-        Assert.assertEquals(0, config.getGroupFieldsBatchSize());
+        Assert.assertEquals(Integer.MAX_VALUE, config.getGroupFieldsBatchSize());
+        Assert.assertFalse(config.isExactUnique());
+        Assert.assertEquals(100000, config.getUniqueCacheBufferSize());
+        Assert.assertFalse(config.isSharedScannerPool());
+        Assert.assertEquals(100, config.getMaxScannersPerUser());
+        Assert.assertEquals(Integer.MAX_VALUE, config.getMaxScannersPerLogic());
+        Assert.assertEquals(0, config.getScannerPriority());
+        Assert.assertFalse(config.isSharedIndexLookupExecutor());
+        Assert.assertFalse(config.isCacheIndexLookups());
+        Assert.assertEquals(10000, config.getIndexLookupCacheSize());
+        Assert.assertEquals(600000L, config.getIndexLookupCacheExpirationMillis());
+        Assert.assertFalse(config.isCompiledEvaluation());
+        Assert.assertEquals(1, config.getQueryPriority());
         Assert.assertFalse(config.getAccrueStats());
         Assert.assertEquals(Sets.newHashSet(), config.getGroupFields());
         Assert.assertEquals(new UniqueFields(), config.getUniqueFields());
@@ -537,7 +550,7 @@ public class ShardQueryConfigurationTest {
      */
     @Test
     public void testCheckForNewAdditions() throws IOException {
-        int expectedObjectCount = 204;
+        int expectedObjectCount = 218;
         ShardQueryConfiguration config = ShardQueryConfiguration.create();
         ObjectMapper mapper = new ObjectMapper();
         JsonNode root = mapper.readTree(mapper.writeValueAsString(config));
@@ -301,6 +301,13 @@ public class JexlEvaluationTest {
         evaluation = new JexlEvaluation(query, new HitListArithmetic());
         result = evaluation.apply(new Tuple3<>(key, d, context));
         assertEquals(expected, result);
+
+        // the compiled query must agree with the interpreter
+        evaluation = new JexlEvaluation(query, new HitListArithmetic());
+        evaluation.setCompiled(true);
+        assertTrue(evaluation.isCompiled());
+        result = evaluation.apply(new Tuple3<>(key, d, context));
+        assertEquals(expected, result);
     }
 
     private TermFrequencyList buildTfList(String field, int... offsets) {
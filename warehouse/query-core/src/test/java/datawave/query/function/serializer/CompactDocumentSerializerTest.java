@@ -0,0 +1,136 @@
+package datawave.query.function.serializer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+import datawave.query.DocumentSerialization;
+import datawave.query.attributes.Attributes;
+import datawave.query.attributes.Content;
+import datawave.query.attributes.Document;
+import datawave.query.attributes.DocumentCodec;
+import datawave.query.attributes.Numeric;
+import datawave.query.function.deserializer.CompactDocumentDeserializer;
+
+public class CompactDocumentSerializerTest {
+
+    private static final Key KEY = new Key("20190314_0", "datatype\0uid");
+
+    private final CompactDocumentDeserializer deserializer = new CompactDocumentDeserializer();
+
+    @Test
+    public void testRoundTrip() {
+        CompactDocumentSerializer serializer = new CompactDocumentSerializer(false, false);
+        for (int fields : new int[] {0, 1, 10, 3}) {
+            Map.Entry<Key,Document> document = document(fields);
+            Map.Entry<Key,Value> serialized = serializer.apply(document);
+            assertEquals(DocumentSerialization.NONE, DocumentSerialization.readHeader(serialized.getValue().get()));
+            assertRoundTrip(document, serialized);
+        }
+    }
+
+    @Test
+    public void testCompressedRoundTrip() {
+        CompactDocumentSerializer serializer = new CompactDocumentSerializer(false, true);
+
+        // larger than the minimum compression size
+        Map.Entry<Key,Document> large = document(1000);
+        Map.Entry<Key,Value> serialized = serializer.apply(large);
+        assertEquals(DocumentSerialization.GZIP, DocumentSerialization.readHeader(serialized.getValue().get()));
+        assertRoundTrip(large, serialized);
+    }
+
+    @Test
+    public void testMultiValuedFields() {
+        Map.Entry<Key,Document> document = document(3);
+        assertTrue(document.getValue().get("FIELD_2") instanceof Attributes);
+
+        Document actual = deserializer.apply(new CompactDocumentSerializer(false, false).apply(document)).getValue();
+        assertTrue(actual.get("FIELD_2") instanceof Attributes);
+        assertEquals(document.getValue().get("FIELD_2"), actual.get("FIELD_2"));
+    }
+
+    @Test
+    public void testNestedDocuments() {
+        Map.Entry<Key,Document> document = document(3);
+        Document nested = new Document(KEY, true);
+        nested.put("FIELD_1", new Content("nested", KEY, true));
+        nested.put("NESTED_ONLY", new Numeric(7, KEY, true));
+        document.getValue().put("NESTED", nested);
+
+        assertRoundTrip(document, new CompactDocumentSerializer(false, false).apply(document));
+    }
+
+    @Test
+    public void testUnregisteredAttributeType() {
+        Map.Entry<Key,Document> document = document(2);
+        document.getValue().put("CUSTOM", new CustomContent("custom", KEY));
+
+        Document actual = deserializer.apply(new CompactDocumentSerializer(false, false).apply(document)).getValue();
+        assertEquals(document.getValue(), actual);
+        assertEquals(CustomContent.class, actual.get("CUSTOM").getClass());
+    }
+
+    @Test
+    public void testSmallerThanWritable() {
+        Map.Entry<Key,Document> document = document(100);
+        byte[] compact = new CompactDocumentSerializer(false, false).serialize(document.getValue());
+        byte[] writable = new WritableDocumentSerializer(false).serialize(document.getValue());
+        assertTrue(compact.length + " >= " + writable.length, compact.length < writable.length);
+    }
+
+    @Test
+    public void testReturnType() {
+        assertEquals(CompactDocumentSerializer.class, DocumentSerialization.getDocumentSerializer(DocumentSerialization.ReturnType.compact).getClass());
+        assertEquals(CompactDocumentDeserializer.class, DocumentSerialization.getDocumentDeserializer(DocumentSerialization.ReturnType.compact).getClass());
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownVersion() throws IOException {
+        byte[] serialized = new CompactDocumentSerializer(false, false).serialize(document(2).getValue());
+        serialized[0] = DocumentCodec.VERSION + 1;
+        DocumentCodec.read(new DataInputStream(new ByteArrayInputStream(serialized)));
+    }
+
+    private void assertRoundTrip(Map.Entry<Key,Document> expected, Map.Entry<Key,Value> serialized) {
+        Map.Entry<Key,Document> actual = deserializer.apply(serialized);
+        assertEquals(expected.getKey(), actual.getKey());
+        assertEquals(expected.getValue(), actual.getValue());
+    }
+
+    private static Map.Entry<Key,Document> document(int fields) {
+        Document document = new Document(KEY, true);
+        for (int i = 0; i < fields; i++) {
+            if (i % 3 == 0) {
+                document.put("FIELD_" + i, new Numeric(i, KEY, true));
+            } else if (i % 3 == 1) {
+                document.put("FIELD_" + i, new Content("value" + i, KEY, true));
+            } else {
+                // a second value makes the field an Attributes
+                document.put("FIELD_" + i, new Content("first" + i, KEY, true));
+                document.put("FIELD_" + i, new Content("second" + i, KEY, true));
+            }
+        }
+        return Maps.immutableEntry(KEY, document);
+    }
+
+    public static class CustomContent extends Content {
+        public CustomContent() {
+            super();
+        }
+
+        public CustomContent(String content, Key docKey) {
+            super(content, docKey, true);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package datawave.query.function.serializer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+import datawave.query.DocumentSerialization;
+import datawave.query.attributes.Content;
+import datawave.query.attributes.Document;
+import datawave.query.function.deserializer.KryoDocumentDeserializer;
+
+public class KryoDocumentSerializerTest {
+
+    private final KryoDocumentDeserializer deserializer = new KryoDocumentDeserializer();
+
+    @Test
+    public void testRoundTrip() {
+        KryoDocumentSerializer serializer = new KryoDocumentSerializer(false, false);
+        for (int fields : new int[] {1, 10, 3}) {
+            Map.Entry<Key,Document> document = document(fields, 8);
+            Map.Entry<Key,Value> serialized = serializer.apply(document);
+            assertEquals(DocumentSerialization.NONE, DocumentSerialization.readHeader(serialized.getValue().get()));
+            assertRoundTrip(document, serialized);
+        }
+    }
+
+    @Test
+    public void testCompressedRoundTrip() {
+        KryoDocumentSerializer serializer = new KryoDocumentSerializer(false, true);
+
+        // larger than the minimum compression size
+        Map.Entry<Key,Document> large = document(100, 200);
+        Map.Entry<Key,Value> serialized = serializer.apply(large);
+        assertEquals(DocumentSerialization.GZIP, DocumentSerialization.readHeader(serialized.getValue().get()));
+        assertRoundTrip(large, serialized);
+
+        Map.Entry<Key,Document> small = document(2, 8);
+        serialized = serializer.apply(small);
+        assertEquals(DocumentSerialization.NONE, DocumentSerialization.readHeader(serialized.getValue().get()));
+        assertRoundTrip(small, serialized);
+    }
+
+    @Test
+    public void testLargeBufferIsReleased() {
+        KryoDocumentSerializer serializer = new KryoDocumentSerializer(false, false);
+
+        Map.Entry<Key,Document> large = document(100, 20000);
+        assertRoundTrip(large, serializer.apply(large));
+        assertEquals(KryoDocumentSerializer.INITIAL_BUFFER_SIZE, serializer.output.getBuffer().length);
+
+        Map.Entry<Key,Document> small = document(2, 8);
+        assertRoundTrip(small, serializer.apply(small));
+    }
+
+    @Test
+    public void testSerializeMatchesApply() {
+        KryoDocumentSerializer serializer = new KryoDocumentSerializer(false, false);
+        Map.Entry<Key,Document> document = document(5, 8);
+
+        byte[] body = serializer.serialize(document.getValue());
+        byte[] value = serializer.apply(document).getValue().get();
+
+        assertEquals(body.length + DocumentSerialization.HEADER_LENGTH, value.length);
+        assertEquals(document.getValue(), deserializer.deserialize(DocumentSerialization.consumeHeader(value)));
+    }
+
+    private void assertRoundTrip(Map.Entry<Key,Document> expected, Map.Entry<Key,Value> serialized) {
+        Map.Entry<Key,Document> actual = deserializer.apply(serialized);
+        assertEquals(expected.getKey(), actual.getKey());
+        assertEquals(expected.getValue(), actual.getValue());
+    }
+
+    private static Map.Entry<Key,Document> document(int fields, int valueLength) {
+        Key key = new Key("20190314_0", "datatype\0uid");
+        Document document = new Document(key, true);
+        for (int i = 0; i < fields; i++) {
+            StringBuilder value = new StringBuilder();
+            while (value.length() < valueLength) {
+                value.append(i);
+            }
+            document.put("FIELD_" + i, new Content(value.toString(), key, true));
+        }
+        return Maps.immutableEntry(key, document);
+    }
+}
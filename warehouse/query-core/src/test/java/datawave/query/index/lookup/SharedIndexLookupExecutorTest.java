@@ -0,0 +1,160 @@
+package datawave.query.index.lookup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SharedIndexLookupExecutorTest {
+
+    private final List<ExecutorService> executors = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        SharedIndexLookupExecutor.setTargetThreads(SharedIndexLookupExecutor.DEFAULT_TARGET_THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        for (ExecutorService executor : executors) {
+            executor.shutdownNow();
+        }
+        SharedIndexLookupExecutor.setTargetThreads(SharedIndexLookupExecutor.DEFAULT_TARGET_THREADS);
+    }
+
+    @Test
+    public void testInvokeAll() throws Exception {
+        ExecutorService executor = newExecutor(1, 4);
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final int value = i;
+            tasks.add(() -> value);
+        }
+        List<Future<Integer>> futures = executor.invokeAll(tasks);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Integer.valueOf(i), futures.get(i).get());
+        }
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        ExecutorService executor = newExecutor(1, 3);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            tasks.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(5);
+                running.decrementAndGet();
+                return null;
+            });
+        }
+        executor.invokeAll(tasks);
+        assertTrue(maxRunning.get() <= 3);
+    }
+
+    @Test
+    public void testConcurrencyAdaptsToOpenExecutors() {
+        SharedIndexLookupExecutor.setTargetThreads(8);
+        SharedIndexLookupExecutor.QueryExecutor first = (SharedIndexLookupExecutor.QueryExecutor) newExecutor(2, 8);
+        int alone = first.getConcurrency();
+
+        // other queries take their share
+        for (int i = 0; i < 3; i++) {
+            newExecutor(1, 8);
+        }
+        int shared = first.getConcurrency();
+        assertTrue(shared < alone);
+        assertTrue(shared >= 2);
+
+        // but no less than the minimum
+        for (int i = 0; i < 100; i++) {
+            newExecutor(1, 8);
+        }
+        assertEquals(2, first.getConcurrency());
+    }
+
+    @Test
+    public void testShutdownNow() throws Exception {
+        ExecutorService executor = newExecutor(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        Future<?> blocking = executor.submit(() -> {
+            started.countDown();
+            Thread.sleep(60000);
+            return null;
+        });
+        Future<?> queued = executor.submit(() -> null);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        List<Runnable> notRun = executor.shutdownNow();
+        assertEquals(1, notRun.size());
+        assertTrue(queued.isCancelled());
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(blocking.isDone());
+        assertTrue(executor.isTerminated());
+    }
+
+    @Test
+    public void testCallerRunsWhenSharedThreadsAreFull() throws Exception {
+        ThreadPoolExecutor pool = SharedIndexLookupExecutor.newThreadPool(1, 1);
+        try {
+            ExecutorService executor = new SharedIndexLookupExecutor.QueryExecutor("test", 1, 4, pool);
+            executors.add(executor);
+
+            // one task holds the only shared thread, and another waits in the queue
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch started = new CountDownLatch(1);
+            Future<?> running = executor.submit(() -> {
+                started.countDown();
+                release.await();
+                return null;
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            Future<?> queued = executor.submit(() -> {
+                release.await();
+                return null;
+            });
+
+            // so the next one runs on the calling thread
+            Future<Thread> callerRun = executor.submit(Thread::currentThread);
+            assertTrue(callerRun.isDone());
+            assertSame(Thread.currentThread(), callerRun.get());
+            assertEquals(1, pool.getPoolSize());
+
+            release.countDown();
+            running.get(10, TimeUnit.SECONDS);
+            queued.get(10, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testRejectAfterShutdown() {
+        ExecutorService executor = newExecutor(1, 1);
+        executor.shutdown();
+        assertTrue(executor.isShutdown());
+        executor.submit(() -> null);
+    }
+
+    private ExecutorService newExecutor(int min, int max) {
+        ExecutorService executor = SharedIndexLookupExecutor.newExecutor("test", min, max);
+        executors.add(executor);
+        return executor;
+    }
+}
@@ -0,0 +1,95 @@
+package datawave.query.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.accumulo.core.data.Key;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+import datawave.data.type.LcNoDiacriticsType;
+import datawave.marking.MarkingFunctions;
+import datawave.query.attributes.Document;
+import datawave.query.attributes.TypeAttribute;
+import datawave.query.common.grouping.GroupingUtil;
+import datawave.query.common.grouping.GroupingUtil.GroupCountingHashMap;
+import datawave.query.common.grouping.GroupingUtil.GroupingTypeAttribute;
+
+public class GroupingIteratorTest {
+
+    private final MarkingFunctions markingFunctions = new MarkingFunctions.Default();
+
+    @Test
+    public void testPartialCountsAreNotRepeatedAcrossBatches() {
+        List<Map.Entry<Key,Document>> documents = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            documents.add(document(i, i < 7 ? "male" : "female"));
+        }
+
+        GroupingIterator iterator = new GroupingIterator(documents.iterator(), markingFunctions, Collections.singleton("GENDER"), 4, null, Long.MAX_VALUE);
+
+        // merge the partial counts the way the web server does
+        GroupingUtil groupingUtil = new GroupingUtil();
+        GroupCountingHashMap countingMap = new GroupCountingHashMap(markingFunctions);
+        Set<String> groupFields = Collections.singleton("GENDER");
+        int partials = 0;
+        while (iterator.hasNext()) {
+            countingMap = groupingUtil.getGroupingInfo(iterator.next(), groupFields, countingMap).getCountsMap();
+            partials++;
+        }
+
+        assertEquals(3, partials);
+        assertEquals(counts(7, 3), flatten(countingMap));
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testSingleBatch() {
+        List<Map.Entry<Key,Document>> documents = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            documents.add(document(i, i % 2 == 0 ? "male" : "female"));
+        }
+
+        GroupingIterator iterator = new GroupingIterator(documents.iterator(), markingFunctions, Collections.singleton("GENDER"), Integer.MAX_VALUE, null,
+                        Long.MAX_VALUE);
+
+        assertTrue(iterator.hasNext());
+        GroupCountingHashMap countingMap = new GroupCountingHashMap(markingFunctions);
+        countingMap = new GroupingUtil().getGroupingInfo(iterator.next(), Collections.singleton("GENDER"), countingMap).getCountsMap();
+
+        assertEquals(counts(5, 5), flatten(countingMap));
+        assertFalse(iterator.hasNext());
+    }
+
+    private static Map.Entry<Key,Document> document(int i, String gender) {
+        Key key = new Key("20190314_0", "datatype\0uid" + i);
+        Document document = new Document(key, true);
+        document.put("GENDER", new TypeAttribute<>(new LcNoDiacriticsType(gender), key, true));
+        return Maps.immutableEntry(key, document);
+    }
+
+    private static Map<String,Integer> counts(int male, int female) {
+        Map<String,Integer> counts = new HashMap<>();
+        counts.put("male", male);
+        counts.put("female", female);
+        return counts;
+    }
+
+    private static Map<String,Integer> flatten(GroupCountingHashMap countingMap) {
+        Map<String,Integer> counts = new HashMap<>();
+        for (Map.Entry<Collection<GroupingTypeAttribute<?>>,Integer> entry : countingMap.entrySet()) {
+            counts.put(entry.getKey().iterator().next().getType().getDelegateAsString(), entry.getValue());
+        }
+        return counts;
+    }
+}
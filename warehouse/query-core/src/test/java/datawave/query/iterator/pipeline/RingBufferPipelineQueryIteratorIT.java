@@ -0,0 +1,26 @@
+package datawave.query.iterator.pipeline;
+
+import static datawave.query.iterator.QueryOptions.MAX_EVALUATION_PIPELINES;
+import static datawave.query.iterator.QueryOptions.RING_BUFFER_EVALUATION_PIPELINE;
+import static datawave.query.iterator.QueryOptions.SERIAL_EVALUATION_PIPELINE;
+
+import java.io.IOException;
+
+import org.junit.Before;
+
+import datawave.query.iterator.QueryIteratorIT;
+
+/**
+ * Anything the QueryIterator does with a serial pipeline it should do with the ring buffer pipeline too
+ */
+public class RingBufferPipelineQueryIteratorIT extends QueryIteratorIT {
+
+    @Before
+    public void setup() throws IOException {
+        super.setup();
+
+        options.put(SERIAL_EVALUATION_PIPELINE, "false");
+        options.put(RING_BUFFER_EVALUATION_PIPELINE, "true");
+        options.put(MAX_EVALUATION_PIPELINES, "4");
+    }
+}
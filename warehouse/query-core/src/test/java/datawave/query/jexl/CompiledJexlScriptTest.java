@@ -0,0 +1,137 @@
+package datawave.query.jexl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.accumulo.core.data.Key;
+import org.junit.Test;
+
+import datawave.query.attributes.Attribute;
+import datawave.query.attributes.Attributes;
+import datawave.query.attributes.Content;
+import datawave.query.attributes.Document;
+import datawave.query.attributes.Numeric;
+import datawave.query.function.JexlEvaluation;
+import datawave.query.util.Tuple3;
+
+public class CompiledJexlScriptTest {
+
+    private static final Key DOC_KEY = new Key("shard", "datatype\0uid");
+
+    private static final List<String> FIELDS = Arrays.asList("FOO", "BAR", "NUM", "MISSING");
+
+    private static final List<String> QUERIES = Arrays.asList(
+                    // @formatter:off
+                    "FOO == 'bar'",
+                    "'bar' == FOO",
+                    "FOO != 'bar'",
+                    "FOO == 'nope'",
+                    "FOO =~ 'ba.*'",
+                    "FOO !~ 'ba.*'",
+                    "!(FOO == 'bar')",
+                    "FOO == 'bar' && BAR == 'x'",
+                    "FOO == 'bar' || BAR == 'x'",
+                    "(FOO == 'nope' || BAR == 'x') && NUM > 5",
+                    "FOO == 'bar' && (BAR == 'y' || !(NUM < 3))",
+                    "NUM >= 10 && NUM <= 20",
+                    "((_Bounded_ = true) && (NUM >= 10 && NUM <= 20))",
+                    "((_Delayed_ = true) && (FOO == 'bar'))",
+                    "MISSING == 'x'",
+                    "MISSING != 'x'",
+                    "!(MISSING == 'x')",
+                    "FOO == 'bar' && filter:includeRegex(BAR, 'x.*')",
+                    "filter:isNull(MISSING)",
+                    "FOO == 'bar' && filter:includeRegex((BAR||FOO), 'y.*')",
+                    "true",
+                    "false || FOO == 'other'");
+                    // @formatter:on
+
+    @Test
+    public void testMatchesInterpreter() {
+        for (String query : QUERIES) {
+            for (int i = 0; i < 3; i++) {
+                Document interpreted = document(i);
+                Document compiled = document(i);
+
+                boolean expected = evaluate(query, interpreted, false);
+                assertEquals(query + " against document " + i, expected, evaluate(query, compiled, true));
+                assertEquals(query + " hits against document " + i, hitTerms(interpreted), hitTerms(compiled));
+            }
+        }
+    }
+
+    @Test
+    public void testFunctionsAreInterpreted() throws Exception {
+        CompiledJexlScript script = compile("FOO == 'bar' && filter:includeRegex(BAR, 'x.*')");
+        assertEquals(2, script.getCompiledNodes());
+        assertEquals(1, script.getInterpretedNodes());
+    }
+
+    @Test
+    public void testBoundedRangeIsInterpreted() throws Exception {
+        CompiledJexlScript script = compile("FOO == 'bar' && ((_Bounded_ = true) && (NUM >= 10 && NUM <= 20))");
+        assertEquals(1, script.getInterpretedNodes());
+    }
+
+    @Test
+    public void testFullyCompiled() throws Exception {
+        CompiledJexlScript script = compile("FOO == 'bar' && (BAR =~ 'x.*' || !(NUM < 3))");
+        assertEquals(0, script.getInterpretedNodes());
+    }
+
+    private CompiledJexlScript compile(String query) throws Exception {
+        DefaultArithmetic arithmetic = new DefaultArithmetic();
+        CompiledJexlScript script = CompiledJexlScript.compile(ArithmeticJexlEngines.getEngine(arithmetic), arithmetic,
+                        JexlASTHelper.parseAndFlattenJexlQuery(query));
+        assertNotNull(script);
+        return script;
+    }
+
+    private static boolean evaluate(String query, Document document, boolean compiled) {
+        DatawaveJexlContext context = new DatawaveJexlContext();
+        document.visit(FIELDS, context);
+
+        JexlEvaluation evaluation = new JexlEvaluation(query, new HitListArithmetic());
+        evaluation.setCompiled(compiled);
+        assertEquals(compiled, evaluation.isCompiled());
+        return evaluation.apply(new Tuple3<>(DOC_KEY, document, context));
+    }
+
+    private static Set<String> hitTerms(Document document) {
+        Set<String> hits = new TreeSet<>();
+        Attribute<?> hitTerm = document.get(JexlEvaluation.HIT_TERM_FIELD);
+        if (hitTerm instanceof Attributes) {
+            for (Attribute<?> attr : ((Attributes) hitTerm).getAttributes()) {
+                hits.add(String.valueOf(attr.getData()));
+            }
+        } else if (hitTerm != null) {
+            hits.add(String.valueOf(hitTerm.getData()));
+        }
+        return hits;
+    }
+
+    private static Document document(int which) {
+        Document d = new Document();
+        switch (which) {
+            case 0:
+                d.put("FOO", new Content("bar", DOC_KEY, true));
+                d.put("FOO", new Content("bazaar", DOC_KEY, true));
+                d.put("BAR", new Content("x", DOC_KEY, true));
+                d.put("NUM", new Numeric("15", DOC_KEY, true));
+                break;
+            case 1:
+                d.put("FOO", new Content("other", DOC_KEY, true));
+                d.put("NUM", new Numeric("2", DOC_KEY, true));
+                break;
+            default:
+                d.put("BAR", new Content("y", DOC_KEY, true));
+                break;
+        }
+        return d;
+    }
+}
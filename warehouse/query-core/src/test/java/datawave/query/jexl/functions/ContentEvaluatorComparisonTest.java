@@ -0,0 +1,112 @@
+package datawave.query.jexl.functions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import datawave.ingest.protobuf.TermWeightPosition;
+import datawave.query.postprocessing.tf.TermOffsetMap;
+
+/**
+ * Compares the phrase and within evaluation over {@link TermPositions} with the {@link LegacyContentEvaluators} they replaced, on random term offsets. The
+ * offsets are drawn from a short document so that terms often overlap, share offsets, are skipped, and repeat in the function, and the distances include 0 and
+ * 1.
+ */
+public class ContentEvaluatorComparisonTest {
+
+    private static final String FIELD = "CONTENT";
+    private static final String EVENT_ID = "row\0datatype\0uid";
+    private static final String[] VOCABULARY = {"a", "b", "c"};
+    private static final float[] MAX_SCORES = {Float.NEGATIVE_INFINITY, -1.0f};
+    private static final int RUNS = 20000;
+
+    @Test
+    public void testPhraseMatchesLegacy() {
+        Random random = new Random(1234L);
+        for (int run = 0; run < RUNS; run++) {
+            String[] terms = randomTerms(random);
+            Map<String,List<TermWeightPosition>> offsets = randomOffsets(random);
+            int distance = random.nextInt(4);
+            float maxScore = MAX_SCORES[random.nextInt(MAX_SCORES.length)];
+
+            ContentOrderedEvaluator evaluator = new ContentOrderedEvaluator(Collections.emptySet(), distance, maxScore, new TermOffsetMap(), terms);
+            boolean expected = LegacyContentEvaluators.phrase(lists(terms, offsets), terms, distance, evaluator.maxScore);
+            boolean actual = evaluator.evaluate(FIELD, EVENT_ID, lists(terms, offsets));
+            Assert.assertEquals(describe("phrase", terms, offsets, distance, maxScore), expected, actual);
+        }
+    }
+
+    @Test
+    public void testWithinMatchesLegacy() {
+        Random random = new Random(5678L);
+        for (int run = 0; run < RUNS; run++) {
+            String[] terms = randomTerms(random);
+            Map<String,List<TermWeightPosition>> offsets = randomOffsets(random);
+            int distance = random.nextInt(5);
+            float maxScore = MAX_SCORES[random.nextInt(MAX_SCORES.length)];
+
+            ContentUnorderedEvaluator evaluator = new ContentUnorderedEvaluator(Collections.emptySet(), distance, maxScore, new TermOffsetMap(), terms);
+            boolean expected = LegacyContentEvaluators.within(lists(terms, offsets), terms, distance, evaluator.maxScore);
+            boolean actual = evaluator.evaluate(FIELD, EVENT_ID, lists(terms, offsets));
+            Assert.assertEquals(describe("within", terms, offsets, distance, maxScore), expected, actual);
+        }
+    }
+
+    private static String[] randomTerms(Random random) {
+        String[] terms = new String[2 + random.nextInt(3)];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = VOCABULARY[random.nextInt(VOCABULARY.length)];
+        }
+        return terms;
+    }
+
+    /**
+     * The offsets of each term, sorted and without duplicates as a TermFrequencyList holds them
+     */
+    private static Map<String,List<TermWeightPosition>> randomOffsets(Random random) {
+        Map<String,List<TermWeightPosition>> offsets = new HashMap<>();
+        int length = 1 + random.nextInt(16);
+        for (String term : VOCABULARY) {
+            TreeSet<TermWeightPosition> positions = new TreeSet<>();
+            int count = random.nextInt(7);
+            for (int i = 0; i < count; i++) {
+                TermWeightPosition.Builder builder = new TermWeightPosition.Builder().setOffset(random.nextInt(length));
+                if (random.nextInt(4) == 0) {
+                    builder.setPrevSkips(1 + random.nextInt(3));
+                }
+                if (random.nextInt(4) == 0) {
+                    builder.setZeroOffsetMatch(false);
+                }
+                if (random.nextInt(3) == 0) {
+                    builder.setScore(random.nextInt(20000000));
+                }
+                positions.add(builder.build());
+            }
+            offsets.put(term, new ArrayList<>(positions));
+        }
+        return offsets;
+    }
+
+    /**
+     * A fresh copy of the offsets of each term of the function, as the legacy within evaluation removes from its lists
+     */
+    private static List<List<TermWeightPosition>> lists(String[] terms, Map<String,List<TermWeightPosition>> offsets) {
+        List<List<TermWeightPosition>> lists = new ArrayList<>(terms.length);
+        for (String term : terms) {
+            lists.add(new ArrayList<>(offsets.get(term)));
+        }
+        return lists;
+    }
+
+    private static String describe(String function, String[] terms, Map<String,List<TermWeightPosition>> offsets, int distance, float maxScore) {
+        return function + " of " + Arrays.toString(terms) + " within " + distance + " scoring at most " + maxScore + " over " + offsets;
+    }
+}
@@ -0,0 +1,241 @@
+package datawave.query.jexl.functions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+import datawave.ingest.protobuf.TermWeightPosition;
+
+/**
+ * The content function evaluation as it was before the evaluators moved to {@link TermPositions}, kept as the baseline that
+ * {@link ContentEvaluatorComparisonTest} checks the evaluators against, and that the ContentEvaluatorBenchmark of query-benchmarks measures them against. The
+ * phrase evaluation converts the offsets of each term into a sorted set of position objects, and the within evaluation copies the offsets of each term into a
+ * linked list it removes from. Phrase offsets are not recorded.
+ */
+public final class LegacyContentEvaluators {
+
+    private LegacyContentEvaluators() {}
+
+    /**
+     * Evaluate content:phrase as the ContentOrderedEvaluator did
+     *
+     * @param offsets
+     *            the offsets of each term
+     * @param terms
+     *            the terms
+     * @param distance
+     *            the distance
+     * @param maxScore
+     *            the max score, as a term weight score
+     * @return true if the terms are in order within the distance of each other
+     */
+    public static boolean phrase(List<List<TermWeightPosition>> offsets, String[] terms, int distance, int maxScore) {
+        if (offsets.isEmpty() || offsets.size() < terms.length) {
+            return false;
+        }
+
+        List<NavigableSet<Position>> termPositions = new ArrayList<>(terms.length);
+        for (int index = 0; index < offsets.size(); index++) {
+            termPositions.add(new TreeSet<>());
+            for (TermWeightPosition twp : offsets.get(index)) {
+                if (twp.getScore() <= maxScore) {
+                    termPositions.get(index).add(new Position(terms[index], index, twp));
+                }
+            }
+            if (termPositions.get(index).isEmpty()) {
+                return false;
+            }
+        }
+
+        termPositions = trim(termPositions);
+        if (termPositions == null) {
+            return false;
+        }
+
+        while (!isConverged(termPositions, distance)) {
+            List<NavigableSet<Position>> alternativeTermPositions = trimAlternatives(termPositions, distance);
+            boolean alternativeConverged = false;
+            while (alternativeTermPositions != null && !(alternativeConverged = isConverged(alternativeTermPositions, distance))) {
+                alternativeTermPositions = trimAlternatives(alternativeTermPositions, distance);
+            }
+            if (alternativeConverged) {
+                return true;
+            }
+
+            termPositions.get(0).pollFirst();
+            if (termPositions.get(0).isEmpty()) {
+                return false;
+            }
+
+            termPositions = trim(termPositions);
+            if (termPositions == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<NavigableSet<Position>> trim(List<NavigableSet<Position>> offsets) {
+        for (int i = 0; i + 1 < offsets.size(); i++) {
+            NavigableSet<Position> first = offsets.get(i);
+            NavigableSet<Position> second = offsets.get(i + 1);
+
+            int termCompare = first.first().position.compareTo(second.first().position);
+            while (termCompare > 0 || (termCompare == 0 && first.first().term.equals(second.first().term))) {
+                second.pollFirst();
+                if (second.isEmpty()) {
+                    return null;
+                }
+                termCompare = first.first().position.compareTo(second.first().position);
+            }
+        }
+        return offsets;
+    }
+
+    private static List<NavigableSet<Position>> trimAlternatives(List<NavigableSet<Position>> offsets, int distance) {
+        List<NavigableSet<Position>> alternatives = new ArrayList<>(offsets.size());
+        alternatives.add(offsets.get(0));
+
+        for (int i = 1; i < offsets.size(); i++) {
+            NavigableSet<Position> candidateSet = offsets.get(i).tailSet(offsets.get(i).first(), false);
+            if (!candidateSet.isEmpty() && alternatives.get(i - 1).first().isWithIn(candidateSet.first(), distance)
+                            && !alternatives.get(i - 1).first().term.equals(candidateSet.first().term)) {
+                alternatives.add(candidateSet);
+                for (int j = i + 1; j < offsets.size(); j++) {
+                    alternatives.add(offsets.get(j));
+                }
+                return alternatives;
+            } else {
+                alternatives.add(offsets.get(i));
+            }
+        }
+        return null;
+    }
+
+    private static boolean isConverged(List<NavigableSet<Position>> offsets, int distance) {
+        for (int i = 0; i + 1 < offsets.size(); i++) {
+            if (!offsets.get(i).first().isWithIn(offsets.get(i + 1).first(), distance)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Position implements Comparable<Position> {
+        final String term;
+        final int phraseIndex;
+        final TermWeightPosition position;
+
+        Position(String term, int phraseIndex, TermWeightPosition position) {
+            this.term = term;
+            this.phraseIndex = phraseIndex;
+            this.position = position;
+        }
+
+        boolean isWithIn(Position o, int distance) {
+            if ((!position.getZeroOffsetMatch() || !o.position.getZeroOffsetMatch()) && position.getOffset() == o.position.getOffset()) {
+                return false;
+            }
+            int low = position.getLowOffset();
+            int high = position.getOffset() + distance;
+            return low <= o.position.getOffset() && o.position.getLowOffset() <= high;
+        }
+
+        @Override
+        public int compareTo(Position o) {
+            int result = position.compareTo(o.position);
+            if (result != 0) {
+                return result;
+            }
+            result = Integer.compare(o.phraseIndex, phraseIndex);
+            if (result != 0) {
+                return result;
+            }
+            return term.compareTo(o.term);
+        }
+    }
+
+    /**
+     * Evaluate content:within as the ContentUnorderedEvaluator did
+     *
+     * @param offsets
+     *            the offsets of each term
+     * @param terms
+     *            the terms
+     * @param distance
+     *            the distance
+     * @param maxScore
+     *            the max score, as a term weight score
+     * @return true if the terms are within the distance of each other
+     */
+    public static boolean within(List<List<TermWeightPosition>> offsets, String[] terms, int distance, int maxScore) {
+        if (terms.length > offsets.size()) {
+            return false;
+        }
+
+        for (List<TermWeightPosition> offset : offsets) {
+            offset.removeIf(twp -> twp.getScore() > maxScore);
+        }
+
+        PriorityQueue<OffsetList> offsetQueue = new PriorityQueue<>();
+        TermWeightPosition maxOffset = null;
+        Map<String,List<TermWeightPosition>> termsSeen = new HashMap<>();
+        for (int i = 0; i < terms.length; i++) {
+            List<TermWeightPosition> offsetList = termsSeen.get(terms[i]);
+            if (offsetList == null) {
+                offsetList = new LinkedList<>(offsets.get(i));
+                termsSeen.put(terms[i], offsetList);
+            }
+            if (offsetList.isEmpty()) {
+                return false;
+            }
+
+            OffsetList entry = new OffsetList(offsetList);
+            if (maxOffset == null || entry.minOffset.compareTo(maxOffset) > 0) {
+                maxOffset = entry.minOffset;
+            }
+            offsetQueue.add(entry);
+        }
+
+        while (true) {
+            OffsetList o = offsetQueue.remove();
+            if (maxOffset.getLowOffset() - o.minOffset.getOffset() <= distance) {
+                return true;
+            }
+            if (maxOffset.getLowOffset() - o.maxOffset.getOffset() > distance) {
+                return false;
+            }
+            if (o.offsets.isEmpty()) {
+                return false;
+            }
+            o.minOffset = o.offsets.remove(0);
+            if (o.minOffset.compareTo(maxOffset) > 0) {
+                maxOffset = o.minOffset;
+            }
+            offsetQueue.add(o);
+        }
+    }
+
+    private static class OffsetList implements Comparable<OffsetList> {
+        final List<TermWeightPosition> offsets;
+        final TermWeightPosition maxOffset;
+        TermWeightPosition minOffset;
+
+        OffsetList(List<TermWeightPosition> offsets) {
+            this.offsets = offsets;
+            this.maxOffset = Collections.max(offsets, new TermWeightPosition.MaxOffsetComparator());
+            this.minOffset = offsets.remove(0);
+        }
+
+        @Override
+        public int compareTo(OffsetList o) {
+            return minOffset.compareTo(o.minOffset);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package datawave.query.jexl.functions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import datawave.ingest.protobuf.TermWeightPosition;
+
+public class TermPositionsTest {
+
+    @Test
+    public void testCreate() {
+        List<TermWeightPosition> list = Arrays.asList(position(1, -1, -1), position(3, 2, -1), position(5, -1, 20000000), position(7, -1, -1));
+
+        TermPositions positions = TermPositions.create(list, Integer.MAX_VALUE);
+        Assert.assertEquals(4, positions.size());
+        Assert.assertEquals(3, positions.getOffset(1));
+        Assert.assertEquals(1, positions.getLowOffset(1));
+        Assert.assertEquals(7, positions.getMaxOffset(0));
+
+        // the positions scoring above the max score are skipped
+        positions = TermPositions.create(list, 10000000);
+        Assert.assertEquals(3, positions.size());
+        Assert.assertEquals(7, positions.getOffset(2));
+    }
+
+    @Test
+    public void testCreateSortsAndRemovesDuplicates() {
+        List<TermWeightPosition> list = new ArrayList<>();
+        list.add(position(5, -1, -1));
+        list.add(new TermWeightPosition.Builder().setOffset(2).setZeroOffsetMatch(false).build());
+        list.add(position(2, -1, -1));
+        list.add(position(4, 3, -1));
+
+        TermPositions positions = TermPositions.create(list, Integer.MAX_VALUE);
+        Assert.assertEquals("[1-4, 2-2!, 5-5]", positions.toString());
+        Assert.assertEquals(5, positions.getMaxOffset(1));
+        Assert.assertEquals(5, positions.getMaxOffset(0));
+    }
+
+    @Test
+    public void testAdvanceTo() {
+        List<TermWeightPosition> list = new ArrayList<>();
+        for (int offset = 0; offset < 1000; offset += 2) {
+            list.add(position(offset, -1, -1));
+        }
+        TermPositions positions = TermPositions.create(list, Integer.MAX_VALUE);
+
+        for (int target = -1; target < 1002; target++) {
+            TermPositions other = TermPositions.create(Arrays.asList(position(target, -1, -1)), Integer.MAX_VALUE);
+            for (int from = 0; from <= positions.size(); from += 7) {
+                int expected = from;
+                while (expected < positions.size() && positions.getOffset(expected) < target) {
+                    expected++;
+                }
+                Assert.assertEquals("advancing from " + from + " to " + target, expected, positions.advanceTo(from, other, 0));
+            }
+        }
+    }
+
+    private static TermWeightPosition position(int offset, int prevSkips, int score) {
+        return new TermWeightPosition.Builder().setOffset(offset).setPrevSkips(prevSkips).setScore(score).build();
+    }
+}
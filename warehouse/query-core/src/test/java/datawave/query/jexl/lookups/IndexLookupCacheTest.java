@@ -0,0 +1,161 @@
+package datawave.query.jexl.lookups;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.security.Authorizations;
+import org.junit.Before;
+import org.junit.Test;
+
+import datawave.query.config.ShardQueryConfiguration;
+
+public class IndexLookupCacheTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    // an hour before the end of some day
+    private final AtomicLong now = new AtomicLong(20001 * DAY - TimeUnit.HOURS.toMillis(1));
+    private IndexLookupCache cache;
+    private ShardQueryConfiguration config;
+
+    @Before
+    public void setUp() {
+        cache = new IndexLookupCache(10, TimeUnit.HOURS.toMillis(2), now::get);
+
+        config = ShardQueryConfiguration.create();
+        config.setAuthorizations(Collections.singleton(new Authorizations("A", "B")));
+        config.setBeginDate(new Date(now.get() - 30 * DAY));
+        config.setEndDate(new Date(now.get() - DAY));
+        config.setMaxValueExpansionThreshold(5);
+    }
+
+    @Test
+    public void testPutAndGet() {
+        IndexLookupCache.Key key = key("FOO", "ba.*");
+        assertNull(cache.get(key));
+
+        cache.put(key, result("FOO", "bar", "baz"));
+
+        IndexLookupMap cached = cache.get(key("FOO", "ba.*"));
+        assertNotNull(cached);
+        assertEquals(Set.of("bar", "baz"), new HashSet<>(cached.get("FOO")));
+
+        // the caller gets a copy it can modify
+        cached.get("FOO").remove("bar");
+        cached.put("BAR", "baz");
+        assertEquals(Set.of("bar", "baz"), new HashSet<>(cache.get(key).get("FOO")));
+        assertEquals(1, cache.get(key).size());
+    }
+
+    @Test
+    public void testKeyedByAuthorizationsAndDates() {
+        cache.put(key("FOO", "ba.*"), result("FOO", "bar"));
+
+        config.setAuthorizations(Collections.singleton(new Authorizations("A")));
+        assertNull(cache.get(key("FOO", "ba.*")));
+
+        config.setAuthorizations(Collections.singleton(new Authorizations("B", "A")));
+        assertNotNull(cache.get(key("FOO", "ba.*")));
+
+        config.setBeginDate(new Date(config.getBeginDate().getTime() - DAY));
+        assertNull(cache.get(key("FOO", "ba.*")));
+    }
+
+    @Test
+    public void testSameDayDatesShareResults() {
+        cache.put(key("FOO", "ba.*"), result("FOO", "bar"));
+
+        // the index is by day, so the time of day does not matter
+        config.setBeginDate(new Date(config.getBeginDate().getTime() + 1000));
+        assertNotNull(cache.get(key("FOO", "ba.*")));
+    }
+
+    @Test
+    public void testIncompleteResultsNotCached() {
+        IndexLookupMap exceeded = result("FOO", "a", "b", "c", "d", "e", "f");
+        assertTrue(exceeded.get("FOO").isThresholdExceeded());
+        cache.put(key("FOO", ".*"), exceeded);
+        assertNull(cache.get(key("FOO", ".*")));
+
+        IndexLookupMap keyExceeded = new IndexLookupMap(1, 5);
+        keyExceeded.setKeyThresholdExceeded();
+        cache.put(key("FOO", ".*"), keyExceeded);
+        assertNull(cache.get(key("FOO", ".*")));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testExpiration() {
+        cache.put(key("FOO", "ba.*"), result("FOO", "bar"));
+        now.addAndGet(TimeUnit.HOURS.toMillis(1));
+        assertNotNull(cache.get(key("FOO", "ba.*")));
+        now.addAndGet(TimeUnit.HOURS.toMillis(1) + 1);
+        assertNull(cache.get(key("FOO", "ba.*")));
+    }
+
+    @Test
+    public void testInvalidatedOnNewIngestDay() {
+        Date today = new Date(now.get());
+        Date yesterday = new Date(now.get() - DAY);
+
+        config.setEndDate(today);
+        cache.put(key("FOO", "ba.*"), result("FOO", "bar"));
+        assertNotNull(cache.get(key("FOO", "ba.*")));
+        config.setEndDate(yesterday);
+        cache.put(key("FOO", "ba.*"), result("FOO", "bar"));
+
+        // on to the next day
+        now.addAndGet(TimeUnit.HOURS.toMillis(1) + 1);
+
+        // a range that ended yesterday is unaffected
+        assertNotNull(cache.get(key("FOO", "ba.*")));
+
+        // but one that ended today may have had more data ingested since
+        config.setEndDate(today);
+        assertNull(cache.get(key("FOO", "ba.*")));
+    }
+
+    @Test
+    public void testSizeBounded() {
+        for (int i = 0; i < 100; i++) {
+            cache.put(key("FOO", "term" + i), result("FOO", "term" + i));
+        }
+        assertTrue(cache.size() <= 10);
+    }
+
+    @Test
+    public void testInstancePerSettings() {
+        ShardQueryConfiguration other = ShardQueryConfiguration.create();
+        other.setIndexLookupCacheSize(config.getIndexLookupCacheSize() + 1);
+
+        IndexLookupCache instance = IndexLookupCache.getInstance(config);
+        assertSame(instance, IndexLookupCache.getInstance(ShardQueryConfiguration.create()));
+        assertNotSame(instance, IndexLookupCache.getInstance(other));
+
+        // a configuration with other settings does not replace the cache of the first
+        assertSame(instance, IndexLookupCache.getInstance(config));
+    }
+
+    private IndexLookupCache.Key key(String field, String pattern) {
+        return IndexLookupCache.key(config, "test", Collections.singleton(field), Collections.emptySet(), Collections.singleton(pattern), false);
+    }
+
+    private IndexLookupMap result(String field, String... values) {
+        IndexLookupMap map = new IndexLookupMap(config.getMaxUnfieldedExpansionThreshold(), config.getMaxValueExpansionThreshold());
+        for (String value : values) {
+            map.put(field, value);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,289 @@
+package datawave.query.planner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+import datawave.query.CloseableIterable;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.iterator.CloseableListIterable;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
+import datawave.webservice.query.QueryImpl;
+
+public class QueryPlanCacheTest {
+
+    private ShardQueryConfiguration config;
+    private QueryImpl settings;
+
+    @Before
+    public void setup() {
+        config = ShardQueryConfiguration.create();
+        config.setBeginDate(new Date(0));
+        config.setEndDate(new Date(TimeUnit.DAYS.toMillis(1)));
+        config.setAuthorizations(Collections.singleton(new Authorizations("A", "B")));
+
+        settings = new QueryImpl();
+        settings.setQueryLogicName("EventQuery");
+    }
+
+    @Test
+    public void testKeyIsNormalized() {
+        String key = QueryPlanCache.createKey("FOO == 'bar' && BAR == 'baz'", config, settings);
+        assertNotNull(key);
+        assertEquals(key, QueryPlanCache.createKey("FOO=='bar'   &&   BAR  ==  'baz'", config, settings));
+
+        config.setAuthorizations(Collections.singleton(new Authorizations("B", "A")));
+        assertEquals(key, QueryPlanCache.createKey("FOO == 'bar' && BAR == 'baz'", config, settings));
+    }
+
+    @Test
+    public void testKeyCoversDateRangeAndAuths() {
+        String key = QueryPlanCache.createKey("FOO == 'bar'", config, settings);
+
+        config.setEndDate(new Date(TimeUnit.DAYS.toMillis(2)));
+        String otherDate = QueryPlanCache.createKey("FOO == 'bar'", config, settings);
+        assertNotEquals(key, otherDate);
+
+        config.setAuthorizations(Collections.singleton(new Authorizations("A")));
+        assertNotEquals(otherDate, QueryPlanCache.createKey("FOO == 'bar'", config, settings));
+    }
+
+    @Test
+    public void testKeyCoversParameters() {
+        String key = QueryPlanCache.createKey("FOO == 'bar'", config, settings);
+        settings.addParameter("hit.list", "true");
+        assertNotEquals(key, QueryPlanCache.createKey("FOO == 'bar'", config, settings));
+    }
+
+    @Test
+    public void testUnparseableQueryHasNoKey() {
+        assertNull(QueryPlanCache.createKey("FOO == ", config, settings));
+    }
+
+    @Test
+    public void testPlanIsCachedOnceExhausted() throws Exception {
+        QueryPlanCache cache = new QueryPlanCache(10, TimeUnit.MINUTES.toMillis(1), 10);
+        String key = QueryPlanCache.createKey("FOO == 'bar'", config, settings);
+        assertNull(cache.get(key));
+
+        config.setQueryTree(JexlASTHelper.parseJexlQuery("FOO == 'bar'"));
+        config.setIndexedFields(Sets.newHashSet("FOO"));
+        List<QueryPlan> plans = plans(3);
+        CloseableIterable<QueryPlan> recorded = cache.record(key, config, new CloseableListIterable<>(plans), false);
+
+        List<QueryPlan> read = new ArrayList<>();
+        for (QueryPlan plan : recorded) {
+            read.add(plan);
+            assertEquals(0, cache.size());
+        }
+        assertEquals(plans, read);
+        assertEquals(1, cache.size());
+
+        QueryPlanCache.CachedPlan cached = cache.get(key);
+        assertNotNull(cached);
+        assertFalse(cached.isFullTable());
+        assertEquals(3, cached.size());
+
+        List<QueryPlan> reused = new ArrayList<>();
+        cached.getQueryPlans().forEach(reused::add);
+        assertEquals(3, reused.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(plans.get(i).getRanges(), reused.get(i).getRanges());
+            assertNotSame(plans.get(i).getQueryTree(), reused.get(i).getQueryTree());
+        }
+
+        assertEquals(1, cache.getStats().hitCount());
+        assertEquals(1, cache.getStats().missCount());
+    }
+
+    @Test
+    public void testTooManyPlansAreNotCached() throws Exception {
+        QueryPlanCache cache = new QueryPlanCache(10, TimeUnit.MINUTES.toMillis(1), 2);
+        String key = QueryPlanCache.createKey("FOO == 'bar'", config, settings);
+        config.setQueryTree(JexlASTHelper.parseJexlQuery("FOO == 'bar'"));
+
+        int read = 0;
+        for (QueryPlan ignored : cache.record(key, config, new CloseableListIterable<>(plans(3)), false)) {
+            read++;
+        }
+        assertEquals(3, read);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testPartiallyReadPlanIsNotCached() throws Exception {
+        QueryPlanCache cache = new QueryPlanCache(10, TimeUnit.MINUTES.toMillis(1), 10);
+        String key = QueryPlanCache.createKey("FOO == 'bar'", config, settings);
+        config.setQueryTree(JexlASTHelper.parseJexlQuery("FOO == 'bar'"));
+
+        CloseableIterable<QueryPlan> recorded = cache.record(key, config, new CloseableListIterable<>(plans(3)), false);
+        recorded.iterator().next();
+        recorded.close();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testIteratingTwiceRecordsEachIterationOnce() throws Exception {
+        QueryPlanCache cache = new QueryPlanCache(10, TimeUnit.MINUTES.toMillis(1), 10);
+        String key = QueryPlanCache.createKey("FOO == 'bar'", config, settings);
+        config.setQueryTree(JexlASTHelper.parseJexlQuery("FOO == 'bar'"));
+
+        CloseableIterable<QueryPlan> recorded = cache.record(key, config, new CloseableListIterable<>(plans(3)), false);
+        Iterator<QueryPlan> first = recorded.iterator();
+        first.next();
+        for (QueryPlan ignored : recorded) {
+            // read all of the plans while the first iterator is still open
+        }
+        assertEquals(3, cache.get(key).size());
+
+        while (first.hasNext()) {
+            first.next();
+        }
+        assertEquals(3, cache.get(key).size());
+    }
+
+    @Test
+    public void testPlannersShareTheCacheOfTheirSettings() {
+        DefaultQueryPlanner planner = new DefaultQueryPlanner();
+        DefaultQueryPlanner sameSettings = new DefaultQueryPlanner();
+        DefaultQueryPlanner otherSettings = new DefaultQueryPlanner();
+        otherSettings.setQueryPlanCacheSize(planner.getQueryPlanCacheSize() + 1);
+
+        QueryPlanCache cache = planner.getQueryPlanCache();
+        assertSame(cache, sameSettings.getQueryPlanCache());
+        assertNotSame(cache, otherSettings.getQueryPlanCache());
+
+        // a planner with other settings does not replace the cache of the first
+        assertSame(cache, planner.getQueryPlanCache());
+    }
+
+    @Test
+    public void testRestore() throws Exception {
+        QueryPlanCache cache = new QueryPlanCache(10, TimeUnit.MINUTES.toMillis(1), 10);
+        String key = QueryPlanCache.createKey("FOO == 'bar'", config, settings);
+
+        config.setQueryTree(JexlASTHelper.parseJexlQuery("FOO == 'bar' && BAR == 'baz'"));
+        config.setIndexedFields(Sets.newHashSet("FOO", "BAR"));
+        config.setProjectFields(Sets.newHashSet("FOO"));
+        config.setHitList(true);
+        for (QueryPlan ignored : cache.record(key, config, new CloseableListIterable<>(plans(1)), true)) {
+            // read the plans to cache them
+        }
+
+        ShardQueryConfiguration other = ShardQueryConfiguration.create();
+        QueryPlanCache.CachedPlan cached = cache.get(key);
+        assertTrue(cached.isFullTable());
+        cached.restore(other);
+
+        assertEquals(JexlStringBuildingVisitor.buildQuery(config.getQueryTree()), JexlStringBuildingVisitor.buildQuery(other.getQueryTree()));
+        assertNotSame(config.getQueryTree(), other.getQueryTree());
+        assertEquals(config.getIndexedFields(), other.getIndexedFields());
+        assertEquals(Set.of("FOO"), other.getProjectFields());
+        assertTrue(other.isHitList());
+
+        // the restored state is a copy, so changing it does not change the cached plan
+        other.getProjectFields().add("BAR");
+        ShardQueryConfiguration another = ShardQueryConfiguration.create();
+        cached.restore(another);
+        assertEquals(Set.of("FOO"), another.getProjectFields());
+    }
+
+    /**
+     * The fields of the configuration that are not part of a {@link QueryPlanCache.PlannedConfiguration}: they are either set from the query logic or the query
+     * parameters, which the cache key covers, or they are the state of the query being run, which the planner does not derive.
+     */
+    private static final Set<String> NOT_PLANNED = Set.of(
+                    "client", "authorizations", "queryString", "queries", "query", "timers", "accumuloPassword", "maxWork", "baseIteratorPriority", "tableName",
+                    "bypassAccumulo", "tldQuery", "filterOptions", "disableIndexOnlyDocuments", "maxScannerBatchSize", "maxIndexBatchSize", "allTermsIndexOnly",
+                    "maxIndexScanTimeMillis", "parseTldUids", "collapseUidsThreshold", "enforceUniqueTermsWithinExpressions", "reduceQueryFields",
+                    "sequentialScheduler", "collectTimingDetails", "logTimingDetails", "sendTimingToStatsd", "statsdHost", "statsdPort", "statsdMaxQueueSize",
+                    "limitAnyFieldLookups", "generatePlanOnly", "backoffEnabled", "unsortedUIDsEnabled", "serializeQueryIterator", "debugMultithreadedSources",
+                    "sortGeoWaveQueryRanges", "numRangesToBuffer", "rangeBufferTimeoutMillis", "rangeBufferPollMillis", "geometryMaxExpansion",
+                    "pointMaxExpansion", "geoMaxExpansion", "geoWaveRangeSplitThreshold", "geoWaveMaxRangeOverlap", "optimizeGeoWaveRanges",
+                    "geoWaveMaxEnvelopes", "shardTableName", "indexTableName", "reverseIndexTableName", "metadataTableName", "dateIndexTableName",
+                    "indexStatsTableName", "defaultDateTypeName", "cleanupShardsAndDaysQueryHints", "numQueryThreads", "numLookupThreads",
+                    "sharedIndexLookupExecutor", "cacheIndexLookups", "indexLookupCacheSize", "indexLookupCacheExpirationMillis", "numDateIndexThreads",
+                    "sharedScannerPool", "maxScannersPerUser", "maxScannersPerLogic", "scannerPriority", "maxDocScanTimeout", "fstCount",
+                    "collapseDatePercentThreshold", "fullTableScanEnabled", "realmSuffixExclusionPatterns", "defaultType", "shardDateFormatter", "useEnrichers",
+                    "enricherClassNames", "useFilters", "filterClassNames", "indexFilteringClassNames", "nonEventKeyPrefixes", "unevaluatedFields",
+                    "datatypeFilter", "indexHoles", "normalizedFields", "dataTypes", "evaluationOnlyFields", "disallowedRegexPatterns",
+                    "disableWhindexFieldMappings", "whindexMappingFields", "whindexFieldMappings", "limitFieldsPreQueryEvaluation", "limitFieldsField",
+                    "dateIndexTimeTravel", "beginDateCap", "failOutsideValidDateRange", "rawTypes", "minSelectivity", "includeDataTypeAsField",
+                    "includeRecordId", "includeHierarchyFields", "hierarchyFieldOptions", "documentPermutations", "filterMaskedValues", "reducedResponse",
+                    "allowShortcutEvaluation", "speculativeScanning", "disableEvaluation", "allowFieldIndexEvaluation", "allowTermFrequencyLookup",
+                    "expandUnfieldedNegations", "returnType", "eventPerDayThreshold", "shardsPerDayThreshold", "initialMaxTermThreshold",
+                    "finalMaxTermThreshold", "maxDepthThreshold", "expandFields", "maxUnfieldedExpansionThreshold", "expandValues",
+                    "maxValueExpansionThreshold", "maxOrExpansionThreshold", "maxOrRangeThreshold", "maxOrRangeIvarators", "maxRangesPerRangeIvarator",
+                    "maxOrExpansionFstThreshold", "yieldThresholdMs", "hdfsSiteConfigURLs", "hdfsFileCompressionCodec", "zookeeperConfig",
+                    "ivaratorCacheDirConfigs", "ivaratorFstHdfsBaseURIs", "ivaratorCacheBufferSize", "ivaratorCacheScanPersistThreshold",
+                    "ivaratorCacheScanTimeout", "maxFieldIndexRangeSplit", "ivaratorMaxOpenFiles", "ivaratorNumRetries", "ivaratorPersistVerify",
+                    "ivaratorPersistVerifyCount", "maxIvaratorSources", "maxIvaratorResults", "maxEvaluationPipelines", "maxPipelineCachedResults",
+                    "ringBufferEvaluationPipeline", "compiledEvaluation", "queryPriority", "modelName", "modelTableName", "shouldLimitTermExpansionToModel",
+                    "compressServerSideResults", "indexOnlyFilterFunctionsEnabled", "compositeFilterFunctionsEnabled", "exactUnique", "uniqueCacheBufferSize",
+                    "accrueStats", "cacheModel", "trackSizes", "contentFieldNames", "activeQueryLogNameSource", "enforceUniqueConjunctionsWithinExpression",
+                    "enforceUniqueDisjunctionsWithinExpression", "queryExecutionForPageTimeout", "excerptIterator", "fiFieldSeek", "fiNextSeek",
+                    "eventFieldSeek", "eventNextSeek", "tfFieldSeek", "tfNextSeek", "visitorFunctionMaxWeight", "lazySetMechanismEnabled",
+                    "docAggregationThresholdMs", "tfAggregationThresholdMs", "pruneQueryOptions");
+
+    /**
+     * Fails when a field is added to the configuration without deciding whether the planner derives it, in which case it must be cached with the plan.
+     */
+    @Test
+    public void testEveryConfigurationFieldIsClassified() {
+        Set<String> planned = new HashSet<>();
+        for (Field field : QueryPlanCache.PlannedConfiguration.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                planned.add(field.getName());
+            }
+        }
+
+        Set<String> fields = new HashSet<>();
+        for (Class<?> clazz = ShardQueryConfiguration.class; clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                    fields.add(field.getName());
+                }
+            }
+        }
+
+        assertEquals("Planned fields that are not configuration fields", Collections.emptySet(), Sets.difference(planned, fields));
+        assertEquals("Fields classified as both planned and not planned", Collections.emptySet(), Sets.intersection(planned, NOT_PLANNED));
+        assertEquals("Unclassified configuration fields, add them to the PlannedConfiguration of the QueryPlanCache if the planner may change them, or else to "
+                        + "NOT_PLANNED", Collections.emptySet(), Sets.difference(fields, Sets.union(planned, NOT_PLANNED)));
+        assertEquals("Fields that are no longer in the configuration", Collections.emptySet(), Sets.difference(NOT_PLANNED, fields));
+    }
+
+    private static List<QueryPlan> plans(int count) throws Exception {
+        JexlNode queryTree = JexlASTHelper.parseJexlQuery("FOO == 'bar'");
+        List<QueryPlan> plans = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            plans.add(new QueryPlan(queryTree, Collections.singleton(new Range("20240101_" + i)), Collections.emptyList()));
+        }
+        return plans;
+    }
+}
@@ -0,0 +1,75 @@
+package datawave.query.tables;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.security.Authorizations;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import datawave.accumulo.inmemory.InMemoryAccumuloClient;
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.webservice.query.QueryImpl;
+
+public class ScannerFactoryTest {
+
+    private static final String TABLE = "shard";
+    private static final Set<Authorizations> AUTHS = Collections.singleton(new Authorizations());
+
+    private ScannerFactory factory;
+    private QueryImpl query;
+
+    @Before
+    public void setup() throws Exception {
+        AccumuloClient client = new InMemoryAccumuloClient("root", new InMemoryInstance());
+        client.tableOperations().create(TABLE);
+        factory = new ScannerFactory(client, 1);
+
+        query = new QueryImpl();
+        query.setId(UUID.randomUUID());
+        query.setQuery("FOO == 'bar'");
+    }
+
+    @Test
+    public void testScannersCreatedBeforeLockdown() throws Exception {
+        BatchScanner batchScanner = factory.newScanner(TABLE, AUTHS, query);
+        Assert.assertTrue(factory.currentScanners().contains(batchScanner));
+        Scanner scanner = factory.newSingleScanner(TABLE, AUTHS, query);
+        Assert.assertNotNull(scanner);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNewScannerAfterLockdown() throws Exception {
+        factory.lockdown();
+        factory.newScanner(TABLE, AUTHS, query);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNewScannerWithErrorReportingAfterLockdown() throws Exception {
+        factory.lockdown();
+        factory.newScanner(TABLE, AUTHS, 1, query, true);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNewSingleScannerAfterLockdown() throws Exception {
+        factory.lockdown();
+        factory.newSingleScanner(TABLE, AUTHS, query);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNewRfileScannerAfterLockdown() {
+        factory.lockdown();
+        factory.newRfileScanner(TABLE, AUTHS, query);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNewQueryScannerAfterLockdown() throws Exception {
+        factory.lockdown();
+        factory.newQueryScanner(TABLE, AUTHS, query);
+    }
+}
@@ -0,0 +1,195 @@
+package datawave.query.tables;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScannerResourceSchedulerTest {
+
+    private ScannerResourceScheduler scheduler;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        scheduler = new ScannerResourceScheduler(4);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testAcquireAndRelease() throws Exception {
+        ScannerResourceScheduler.Quota quota = quota("user", 10, "logic", 10, 0);
+        for (int i = 0; i < 4; i++) {
+            scheduler.acquire(quota);
+        }
+        assertEquals(4, scheduler.getActiveScanners());
+        assertEquals(4, scheduler.getActiveScannersForUser("user"));
+        assertEquals(4, scheduler.getActiveScannersForLogic("logic"));
+        assertEquals(0, scheduler.getWaitCount());
+
+        for (int i = 0; i < 4; i++) {
+            scheduler.release(quota);
+        }
+        assertEquals(0, scheduler.getActiveScanners());
+        assertEquals(0, scheduler.getActiveScannersForUser("user"));
+        assertEquals(4, scheduler.getCheckoutCount());
+    }
+
+    @Test
+    public void testWaitsForGlobalLimit() throws Exception {
+        ScannerResourceScheduler.Quota quota = quota("user", 10, "logic", 10, 0);
+        for (int i = 0; i < 4; i++) {
+            scheduler.acquire(quota);
+        }
+
+        Future<?> waiting = executor.submit(() -> {
+            scheduler.acquire(quota);
+            return null;
+        });
+        awaitWaiters(1);
+        assertFalse(waiting.isDone());
+
+        scheduler.release(quota);
+        waiting.get(10, TimeUnit.SECONDS);
+        assertEquals(4, scheduler.getActiveScanners());
+        assertEquals(1, scheduler.getWaitCount());
+        assertTrue(scheduler.getMaxWaitTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    public void testUserQuotaDoesNotBlockOtherUsers() throws Exception {
+        ScannerResourceScheduler.Quota greedy = quota("greedy", 2, "logic", 10, 0);
+        ScannerResourceScheduler.Quota other = quota("other", 2, "logic", 10, 0);
+        scheduler.acquire(greedy);
+        scheduler.acquire(greedy);
+
+        // the greedy user is at its limit and waits, even though there are scanners available
+        Future<?> greedyWaiting = executor.submit(() -> {
+            scheduler.acquire(greedy);
+            return null;
+        });
+        awaitWaiters(1);
+
+        // which does not hold up another user
+        Future<?> otherAcquired = executor.submit(() -> {
+            scheduler.acquire(other);
+            return null;
+        });
+        otherAcquired.get(10, TimeUnit.SECONDS);
+        assertFalse(greedyWaiting.isDone());
+        assertEquals(2, scheduler.getActiveScannersForUser("greedy"));
+        assertEquals(1, scheduler.getActiveScannersForUser("other"));
+
+        scheduler.release(greedy);
+        greedyWaiting.get(10, TimeUnit.SECONDS);
+        assertEquals(2, scheduler.getActiveScannersForUser("greedy"));
+    }
+
+    @Test
+    public void testLogicQuota() throws Exception {
+        ScannerResourceScheduler.Quota first = quota("first", 10, "logic", 1, 0);
+        ScannerResourceScheduler.Quota second = quota("second", 10, "logic", 1, 0);
+        scheduler.acquire(first);
+
+        Future<?> waiting = executor.submit(() -> {
+            scheduler.acquire(second);
+            return null;
+        });
+        awaitWaiters(1);
+        assertEquals(1, scheduler.getActiveScanners());
+
+        scheduler.release(first);
+        waiting.get(10, TimeUnit.SECONDS);
+        assertEquals(1, scheduler.getActiveScannersForLogic("logic"));
+    }
+
+    @Test
+    public void testCountersArePrunedOnRelease() throws Exception {
+        ScannerResourceScheduler.Quota first = quota("first", 10, "logic", 1, 0);
+        ScannerResourceScheduler.Quota second = quota("second", 10, "logic", 1, 0);
+        scheduler.acquire(first);
+        assertEquals(Set.of("first"), scheduler.getActiveUsers());
+        assertEquals(Set.of("logic"), scheduler.getActiveLogics());
+
+        Future<?> waiting = executor.submit(() -> {
+            scheduler.acquire(second);
+            return null;
+        });
+        awaitWaiters(1);
+
+        scheduler.release(first);
+        waiting.get(10, TimeUnit.SECONDS);
+        assertEquals(Set.of("second"), scheduler.getActiveUsers());
+
+        scheduler.release(second);
+        assertTrue(scheduler.getActiveUsers().isEmpty());
+        assertTrue(scheduler.getActiveLogics().isEmpty());
+        assertEquals(0, scheduler.getActiveScannersForUser("second"));
+    }
+
+    @Test
+    public void testPriority() throws Exception {
+        ScannerResourceScheduler.Quota quota = quota("user", 10, "logic", 10, 0);
+        for (int i = 0; i < 4; i++) {
+            scheduler.acquire(quota);
+        }
+
+        Future<?> low = executor.submit(() -> {
+            scheduler.acquire(quota("low", 10, "logic", 10, 0));
+            return null;
+        });
+        awaitWaiters(1);
+        Future<?> high = executor.submit(() -> {
+            scheduler.acquire(quota("high", 10, "logic", 10, 10));
+            return null;
+        });
+        awaitWaiters(2);
+
+        // the later, higher priority waiter goes first
+        scheduler.release(quota);
+        high.get(10, TimeUnit.SECONDS);
+        assertFalse(low.isDone());
+
+        scheduler.release(quota);
+        low.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void testInterrupted() throws Exception {
+        ScannerResourceScheduler.Quota quota = quota("user", 1, "logic", 10, 0);
+        scheduler.acquire(quota);
+        Thread.currentThread().interrupt();
+        try {
+            scheduler.acquire(quota);
+        } finally {
+            assertEquals(0, scheduler.getWaitingCount());
+            assertEquals(1, scheduler.getActiveScanners());
+        }
+    }
+
+    private void awaitWaiters(int count) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while (scheduler.getWaitingCount() < count && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, scheduler.getWaitingCount());
+    }
+
+    private static ScannerResourceScheduler.Quota quota(String user, int maxPerUser, String logic, int maxPerLogic, int priority) {
+        return new ScannerResourceScheduler.Quota(user, maxPerUser, logic, maxPerLogic, priority);
+    }
+}
@@ -0,0 +1,164 @@
+package datawave.query.tables.async;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SpeculativeScanTest {
+
+    private ExecutorService caller;
+
+    @Before
+    public void setup() {
+        caller = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void teardown() {
+        caller.shutdownNow();
+    }
+
+    @Test
+    public void testSpeculativeBranchSkippedWithoutIdleThread() throws Exception {
+        SpeculativeScanExecutor executor = new SpeculativeScanExecutor(1);
+        BlockingScan blocking = new BlockingScan();
+        SpeculativeScan scan = newSpeculativeScan(executor);
+
+        Assert.assertTrue(scan.addScan(blocking));
+        Assert.assertTrue(blocking.started.await(10, TimeUnit.SECONDS));
+        Assert.assertFalse(scan.addScan(new ResultScan()));
+        Assert.assertEquals(1, executor.getSkippedBranches());
+        Assert.assertEquals(0, executor.getSpeculations());
+
+        blocking.release.countDown();
+        scan.call();
+        Assert.assertEquals(1, scan.results.size());
+    }
+
+    @Test
+    public void testFirstBranchWinsAndLoserIsCancelled() throws Exception {
+        SpeculativeScanExecutor executor = new SpeculativeScanExecutor(2);
+        BlockingScan blocking = new BlockingScan();
+        SpeculativeScan scan = newSpeculativeScan(executor);
+
+        Assert.assertTrue(scan.addScan(blocking));
+        Assert.assertTrue(blocking.started.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(scan.addScan(new ResultScan()));
+
+        Assert.assertSame(scan, scan.call());
+        Assert.assertTrue("losing branch was not interrupted", blocking.interrupted.await(10, TimeUnit.SECONDS));
+
+        // only the results of the winning branch are passed on
+        Assert.assertEquals(1, scan.results.size());
+        Assert.assertEquals(1, executor.getSpeculations());
+        Assert.assertEquals(1, executor.getSpeculativeWins());
+        Assert.assertEquals(0, executor.getPrimaryWins());
+        Assert.assertEquals(1, executor.getCancelledBranches());
+        Assert.assertFalse(scan.addScan(new ResultScan()));
+    }
+
+    @Test
+    public void testSlowConsumerDoesNotHoldExecutorThread() throws Exception {
+        SpeculativeScanExecutor executor = new SpeculativeScanExecutor(1);
+        ArrayBlockingQueue<Entry<Key,Value>> results = new ArrayBlockingQueue<>(1);
+        SpeculativeScan scan = new SpeculativeScan("shard", Collections.emptySet(), newChunk(), null, null, results, caller, executor);
+
+        Assert.assertTrue(scan.addScan(new ResultScan(3)));
+
+        // nobody consumes the results yet, but the only executor thread is free to run the branches of other scans
+        SpeculativeScan other = newSpeculativeScan(executor);
+        Assert.assertTrue(other.addScan(new ResultScan()));
+        Assert.assertSame(other, other.call());
+        Assert.assertEquals(1, other.results.size());
+
+        // the results are moved on the thread of the scan session, as they are consumed
+        Future<Scan> session = caller.submit(scan);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertNotNull(results.poll(10, TimeUnit.SECONDS));
+        }
+        Assert.assertSame(scan, session.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSetMaxThreads() {
+        SpeculativeScanExecutor executor = new SpeculativeScanExecutor(4);
+        executor.setMaxThreads(8);
+        Assert.assertEquals(8, executor.getMaxThreads());
+        executor.setMaxThreads(2);
+        Assert.assertEquals(2, executor.getMaxThreads());
+    }
+
+    private SpeculativeScan newSpeculativeScan(SpeculativeScanExecutor executor) {
+        return new SpeculativeScan("shard", Collections.emptySet(), newChunk(), null, null, new ArrayBlockingQueue<>(10), caller, executor);
+    }
+
+    private static ScannerChunk newChunk() {
+        return new ScannerChunk(null, Collections.singleton(new Range()));
+    }
+
+    /**
+     * A branch that returns its results immediately
+     */
+    private class ResultScan extends Scan {
+        private final int count;
+
+        ResultScan() {
+            this(1);
+        }
+
+        ResultScan(int count) {
+            super("shard", Collections.emptySet(), newChunk(), null, null, new LinkedBlockingDeque<>(), caller);
+            this.count = count;
+        }
+
+        @Override
+        public Scan call() throws Exception {
+            for (int i = 0; i < count; i++) {
+                Entry<Key,Value> entry = new AbstractMap.SimpleEntry<>(new Key("row" + i), new Value());
+                results.put(entry);
+            }
+            return this;
+        }
+
+        @Override
+        public boolean finished() {
+            return true;
+        }
+    }
+
+    /**
+     * A branch that returns a single result once released
+     */
+    private class BlockingScan extends ResultScan {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+
+        @Override
+        public Scan call() throws Exception {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return super.call();
+        }
+    }
+}
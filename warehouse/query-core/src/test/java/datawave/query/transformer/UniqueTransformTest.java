@@ -1,10 +1,12 @@
 package datawave.query.transformer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -28,10 +30,14 @@ import org.apache.accumulo.core.data.Key;
 import org.apache.commons.collections4.Transformer;
 import org.apache.commons.collections4.iterators.TransformIterator;
 import org.apache.commons.lang.RandomStringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.LocalFileSystem;
 import org.apache.hadoop.io.Text;
 import org.junit.After;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Iterators;
@@ -47,6 +53,8 @@ import datawave.query.attributes.TimingMetadata;
 import datawave.query.attributes.UniqueFields;
 import datawave.query.attributes.UniqueGranularity;
 import datawave.query.function.LogTiming;
+import datawave.query.iterator.ivarator.IvaratorCacheDir;
+import datawave.query.iterator.ivarator.IvaratorCacheDirConfig;
 import datawave.query.jexl.JexlASTHelper;
 
 public class UniqueTransformTest {
@@ -54,10 +62,16 @@ public class UniqueTransformTest {
     private static final Random random = new Random(1000);
     private static final List<String> randomValues = new ArrayList<>();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private final List<Document> inputDocuments = new ArrayList<>();
     private final List<Document> expectedUniqueDocuments = new ArrayList<>();
     private byte[] expectedOrderedFieldValues = null;
     private UniqueFields uniqueFields = new UniqueFields();
+    private Integer exactBufferSize = null;
+    private File exactCacheDir = null;
+    private UniqueTransform exactUniqueTransform = null;
 
     @BeforeClass
     public static void setup() {
@@ -73,6 +87,9 @@ public class UniqueTransformTest {
         expectedUniqueDocuments.clear();
         uniqueFields = new UniqueFields();
         expectedOrderedFieldValues = null;
+        exactBufferSize = null;
+        exactCacheDir = null;
+        exactUniqueTransform = null;
     }
 
     @Test
@@ -108,6 +125,39 @@ public class UniqueTransformTest {
         assertEquals(expectedUniqueDocuments, uniqueDocuments.size());
     }
 
+    @Test
+    public void testExactUniquenessWithRandomDocuments() throws IOException {
+        // Create 100 random documents.
+        for (int i = 0; i < 100; i++) {
+            givenInputDocument().withRandomKeyValues(10, 100, 50);
+        }
+
+        Set<String> fields = new HashSet<>();
+        int expectedUniqueDocuments = inputDocuments.size();
+        while (expectedUniqueDocuments > inputDocuments.size() / 2 || expectedUniqueDocuments < 10) {
+            fields.clear();
+            while (fields.size() < 3) {
+                fields.add("Attr" + random.nextInt(100));
+            }
+            expectedUniqueDocuments = countUniqueness(inputDocuments, fields);
+        }
+
+        givenValueTransformerForFields(UniqueGranularity.ALL, fields.toArray(new String[0]));
+        // a small buffer forces the signatures to be flushed to several files
+        givenExactUniqueness(3);
+
+        // pass the documents through twice, all of the second pass should be filtered
+        List<Document> documents = new ArrayList<>(inputDocuments);
+        documents.addAll(inputDocuments);
+
+        List<Document> uniqueDocuments = getUniqueDocuments(documents);
+        assertEquals(expectedUniqueDocuments, uniqueDocuments.size());
+
+        // closing the transform deletes the flushed signatures
+        exactUniqueTransform.close();
+        assertFalse(new File(exactCacheDir, "signatures1").exists());
+    }
+
     private int countUniqueness(List<Document> input, Set<String> fields) {
         Set<String> uniqueValues = new HashSet<>();
         for (Document document : input) {
@@ -529,7 +579,24 @@ public class UniqueTransformTest {
         Arrays.stream(transformers).forEach((transformer) -> uniqueFields.put(field, transformer));
     }
 
+    private void givenExactUniqueness(int bufferSize) throws IOException {
+        exactBufferSize = bufferSize;
+        exactCacheDir = temporaryFolder.newFolder();
+    }
+
     private UniqueTransform getUniqueTransform() {
+        if (exactBufferSize != null) {
+            LocalFileSystem fs = new LocalFileSystem();
+            try {
+                fs.initialize(exactCacheDir.toURI(), new Configuration());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            String uri = exactCacheDir.toURI().toString();
+            List<IvaratorCacheDir> cacheDirs = Collections.singletonList(new IvaratorCacheDir(new IvaratorCacheDirConfig(uri), fs, uri));
+            exactUniqueTransform = new UniqueTransform(uniqueFields, true, exactBufferSize, cacheDirs);
+            return exactUniqueTransform;
+        }
         return new UniqueTransform(uniqueFields);
     }
 
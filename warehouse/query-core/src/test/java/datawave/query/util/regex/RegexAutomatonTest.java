@@ -0,0 +1,134 @@
+package datawave.query.util.regex;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class RegexAutomatonTest {
+
+    private static final String[] REGEXES = new String[] {".*a", "a.*", ".*ab.*", "a*b", "(ab|c)+", "[a-c]{2,3}", "[^a]*", "\\d+", "\\w*c", "\\W", "\\s?a",
+            "^ab$", "a??b", "(?:a|b)c*", "a{2,}", ".", "..", "é.*", ".*😀", "[é😀]+", "a|", "\\.1", "\\Q.1\\E.*", "[a-]+",
+            "[^\\d]c", "\\x61\\u0062", "\\0141", "a{0}", "[\\w&]", "(a(b|c)*)*"};
+
+    private static final String[] UNSUPPORTED = new String[] {"(?i)a", "a*+", "(?=a)", "(a)\\1", "a**", "[[a]]", "[a&&b]", "\\p{L}", "a\\b", "(a$)", "x^",
+            "[\\w-z]", "a{"};
+
+    // every value of up to 4 characters from a small alphabet, in UTF-8 byte order
+    private static final List<byte[]> values = new ArrayList<>();
+
+    @BeforeClass
+    public static void createValues() {
+        String[] alphabet = new String[] {"a", "b", "c", ".", "1", "_", " ", "\n", "é", "😀"};
+        List<String> strings = new ArrayList<>();
+        strings.add("");
+        List<String> previous = new ArrayList<>(strings);
+        for (int length = 1; length <= 4; length++) {
+            List<String> next = new ArrayList<>();
+            for (String prefix : previous) {
+                for (String c : alphabet) {
+                    next.add(prefix + c);
+                }
+            }
+            strings.addAll(next);
+            previous = next;
+        }
+        for (String string : strings) {
+            values.add(string.getBytes(StandardCharsets.UTF_8));
+        }
+        values.sort(Arrays::compareUnsigned);
+    }
+
+    @Test
+    public void testMatches() throws Exception {
+        for (String regex : REGEXES) {
+            RegexAutomaton automaton = RegexAutomaton.compile(regex);
+            Pattern pattern = Pattern.compile(regex);
+            for (byte[] value : values) {
+                String string = new String(value, StandardCharsets.UTF_8);
+                boolean expected = pattern.matcher(string).matches();
+                Assert.assertEquals(regex + " on " + string, expected, automaton.matches(value, 0, value.length));
+                Assert.assertEquals(regex + " on " + string, expected, automaton.matches(string));
+            }
+        }
+    }
+
+    @Test
+    public void testNextPossibleMatch() throws Exception {
+        for (String regex : REGEXES) {
+            RegexAutomaton automaton = RegexAutomaton.compile(regex);
+            Pattern pattern = Pattern.compile(regex);
+            // the index of the next matching value after each value
+            int[] nextMatch = new int[values.size()];
+            int match = -1;
+            for (int i = values.size() - 1; i >= 0; i--) {
+                nextMatch[i] = match;
+                if (pattern.matcher(string(values.get(i))).matches()) {
+                    match = i;
+                }
+            }
+
+            for (int i = 0; i < values.size(); i++) {
+                byte[] value = values.get(i);
+                byte[] next = automaton.nextPossibleMatch(value, 0, value.length);
+                if (next == null) {
+                    Assert.assertEquals(regex + " skipped matches after " + string(value), -1, nextMatch[i]);
+                } else {
+                    Assert.assertTrue(regex + " did not move past " + string(value), Arrays.compareUnsigned(next, value) > 0);
+                    // no value between this value and the next possible match may match
+                    if (nextMatch[i] >= 0) {
+                        Assert.assertTrue(regex + " skipped " + string(values.get(nextMatch[i])) + " from " + string(value),
+                                        Arrays.compareUnsigned(values.get(nextMatch[i]), next) >= 0);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSeeksPastNonMatchingValues() throws Exception {
+        RegexAutomaton automaton = RegexAutomaton.compile("abc|abd|b");
+        Assert.assertEquals("abc", nextPossibleMatch(automaton, "aa"));
+        Assert.assertEquals("abc", nextPossibleMatch(automaton, "ab"));
+        Assert.assertEquals("b", nextPossibleMatch(automaton, "abe"));
+        Assert.assertNull(nextPossibleMatch(automaton, "b"));
+
+        automaton = RegexAutomaton.compile("[0-9]{3}x");
+        Assert.assertEquals("000x", nextPossibleMatch(automaton, "0"));
+        Assert.assertEquals("010x", nextPossibleMatch(automaton, "00a"));
+        Assert.assertEquals("100x", nextPossibleMatch(automaton, "0a"));
+        Assert.assertNull(nextPossibleMatch(automaton, "999x"));
+    }
+
+    @Test
+    public void testUnsupported() {
+        for (String regex : UNSUPPORTED) {
+            try {
+                RegexAutomaton.compile(regex);
+                Assert.fail("Expected " + regex + " to be unsupported");
+            } catch (RegexAutomaton.UnsupportedRegexException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = RegexAutomaton.UnsupportedRegexException.class)
+    public void testTooManyStates() throws Exception {
+        RegexAutomaton.compile(".*a.{20}", 1000);
+    }
+
+    private static String nextPossibleMatch(RegexAutomaton automaton, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        byte[] next = automaton.nextPossibleMatch(bytes, 0, bytes.length);
+        return (next == null ? null : new String(next, StandardCharsets.UTF_8));
+    }
+
+    private static String string(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,111 @@
+package datawave.query.util.sortedset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.LocalFileSystem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import datawave.query.iterator.ivarator.IvaratorCacheDir;
+import datawave.query.iterator.ivarator.IvaratorCacheDirConfig;
+
+public class BufferedFileBackedByteSetTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File cacheDir;
+    private BufferedFileBackedByteSet set;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheDir = temporaryFolder.newFolder();
+        LocalFileSystem fs = new LocalFileSystem();
+        fs.initialize(cacheDir.toURI(), new Configuration());
+        IvaratorCacheDir ivaratorCacheDir = new IvaratorCacheDir(new IvaratorCacheDirConfig(cacheDir.toURI().toString()), fs, cacheDir.toURI().toString());
+        List<BufferedFileBackedSortedSet.SortedSetFileHandlerFactory> handlerFactories = Collections.singletonList(
+                        new HdfsBackedSortedSet.SortedSetHdfsFileHandlerFactory(ivaratorCacheDir, "signatures", new FileSortedSet.PersistOptions()));
+
+        // small blocks so that lookups have to find the right block of a file
+        set = new BufferedFileBackedByteSet(5, 3, 32, handlerFactories);
+    }
+
+    @After
+    public void tearDown() {
+        set.close();
+        assertFalse("Files were not deleted", new File(cacheDir, "signatures").exists());
+    }
+
+    @Test
+    public void testAddIfAbsent() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(set.add(bytes(i)));
+        }
+        assertEquals(100, set.size());
+        assertTrue(set.getFileCount() > 0);
+        assertTrue(set.getFileCount() <= 3);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(set.contains(bytes(i)));
+            assertFalse(set.add(bytes(i)));
+        }
+        for (int i = 100; i < 200; i++) {
+            assertFalse(set.contains(bytes(i)));
+        }
+        assertEquals(100, set.size());
+    }
+
+    @Test
+    public void testAddInReverseOrder() throws IOException {
+        for (int i = 99; i >= 0; i--) {
+            assertTrue(set.add(bytes(i)));
+            assertFalse(set.add(bytes(i)));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertFalse(set.add(bytes(i)));
+        }
+        assertEquals(100, set.size());
+    }
+
+    @Test
+    public void testLookupAfterCompaction() throws IOException {
+        for (int i = 0; i < 1000; i += 2) {
+            assertTrue(set.add(bytes(i)));
+        }
+        set.persist();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 2 == 0, set.contains(bytes(i)));
+        }
+        assertEquals(500, set.size());
+    }
+
+    @Test
+    public void testClear() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            set.add(bytes(i));
+        }
+        assertTrue(new File(cacheDir, "signatures").list().length > 0);
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertEquals(0, set.getFileCount());
+        assertEquals(0, set.getBufferSize());
+        assertEquals(0, new File(cacheDir, "signatures").list().length);
+        assertTrue(set.add(bytes(0)));
+    }
+
+    private static byte[] bytes(int i) {
+        return ("signature" + i).getBytes(StandardCharsets.UTF_8);
+    }
+}
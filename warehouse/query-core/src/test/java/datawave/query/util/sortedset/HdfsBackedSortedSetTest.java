@@ -5,7 +5,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.SortedSet;
 
+import org.apache.accumulo.core.data.Key;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FsStatus;
@@ -197,4 +199,42 @@ public class HdfsBackedSortedSetTest {
         compactedSortedSet.iterator().forEachRemaining(results::remove);
         Assert.assertTrue(results.isEmpty());
     }
+
+    @Test
+    public void persistKeysSubSetTest() throws Exception {
+        File tempDir = temporaryFolder.newFolder();
+
+        LocalFileSystem fs = new LocalFileSystem();
+        fs.initialize(tempDir.toURI(), new Configuration());
+
+        List<IvaratorCacheDir> ivaratorCacheDirs = Collections
+                        .singletonList(new IvaratorCacheDir(new IvaratorCacheDirConfig(tempDir.toURI().toString()), fs, tempDir.toURI().toString()));
+
+        HdfsBackedSortedSet<Key> sortedSet = new HdfsBackedSortedSet<>(null, 100, ivaratorCacheDirs, "blah", 9999, 2, new FileSortedSet.PersistOptions(),
+                        new FileKeySortedSet.Factory());
+
+        // enough keys to be spread over several persisted files, each read back through a memory mapped stream
+        for (int i = 0; i < 1000; i++) {
+            sortedSet.add(key(i));
+        }
+        sortedSet.persist();
+
+        Assert.assertEquals(1000, sortedSet.size());
+        Assert.assertEquals(key(0), sortedSet.first());
+        Assert.assertEquals(key(999), sortedSet.last());
+
+        SortedSet<Key> subSet = sortedSet.subSet(key(250), key(500));
+        Assert.assertEquals(key(250), subSet.first());
+        Assert.assertEquals(key(499), subSet.last());
+
+        int expected = 250;
+        for (Key key : subSet) {
+            Assert.assertEquals(key(expected++), key);
+        }
+        Assert.assertEquals(500, expected);
+    }
+
+    private static Key key(int i) {
+        return new Key(String.format("row%05d", i), "cf", "cq");
+    }
 }
@@ -0,0 +1,90 @@
+package datawave.query.util.sortedset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedFileInputStreamTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+    private byte[] data;
+
+    @Before
+    public void setUp() throws IOException {
+        data = new byte[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        file = temporaryFolder.newFile();
+        Files.write(file.toPath(), data);
+    }
+
+    @Test
+    public void testSequentialRead() throws IOException {
+        // use a small segment size so that reads span segments
+        try (MappedFileInputStream stream = new MappedFileInputStream(file, 64)) {
+            assertEquals(data.length, stream.getLength());
+            assertEquals(0, stream.read());
+
+            byte[] buffer = new byte[data.length];
+            buffer[0] = data[0];
+            int offset = 1;
+            int read;
+            while ((read = stream.read(buffer, offset, Math.min(100, buffer.length - offset))) > 0) {
+                offset += read;
+            }
+            assertEquals(data.length, offset);
+            assertArrayEquals(data, buffer);
+            assertEquals(-1, stream.read());
+        }
+    }
+
+    @Test
+    public void testSeekAndPositionedRead() throws IOException {
+        try (MappedFileInputStream stream = new MappedFileInputStream(file, 64)) {
+            stream.seek(500);
+            assertEquals(500, stream.getPos());
+            assertEquals(data[500] & 0xff, stream.read());
+
+            byte[] buffer = new byte[200];
+            stream.readFully(60, buffer);
+            assertArrayEquals(Arrays.copyOfRange(data, 60, 260), buffer);
+
+            // positioned reads do not move the stream
+            assertEquals(501, stream.getPos());
+
+            assertEquals(100, stream.read(900, buffer, 0, 200));
+            assertArrayEquals(Arrays.copyOfRange(data, 900, 1000), Arrays.copyOf(buffer, 100));
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void testReadFullyPastEnd() throws IOException {
+        try (MappedFileInputStream stream = new MappedFileInputStream(file)) {
+            stream.readFully(900, new byte[200]);
+        }
+    }
+
+    @Test
+    public void testFSDataInputStream() throws IOException {
+        try (FSDataInputStream stream = new FSDataInputStream(new MappedFileInputStream(file))) {
+            stream.seek(10);
+            assertEquals(10, stream.readByte());
+            assertEquals(11, stream.getPos());
+        }
+    }
+}
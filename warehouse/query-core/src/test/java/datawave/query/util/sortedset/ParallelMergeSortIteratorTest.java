@@ -0,0 +1,116 @@
+package datawave.query.util.sortedset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelMergeSortIteratorTest {
+
+    private final List<FileSortedSet<Integer>> persistedSets = new ArrayList<>();
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        for (FileSortedSet<Integer> set : persistedSets) {
+            set.clear();
+        }
+    }
+
+    @Test
+    public void testMatchesMergeSortIterator() {
+        Random random = new Random(42);
+        for (int numSets : new int[] {0, 1, 2, 3, 7, 16}) {
+            List<SortedSet<Integer>> sets = new ArrayList<>();
+            for (int i = 0; i < numSets; i++) {
+                SortedSet<Integer> set = new TreeSet<>();
+                for (int j = random.nextInt(50); j > 0; j--) {
+                    set.add(random.nextInt(100));
+                }
+                sets.add(set);
+            }
+            assertEquals(toList(new MergeSortIterator<>(sets)), toList(new ParallelMergeSortIterator<>(sets, executor, 3)));
+        }
+    }
+
+    @Test
+    public void testComparator() {
+        Comparator<Integer> reverse = Collections.reverseOrder();
+        List<SortedSet<Integer>> sets = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            SortedSet<Integer> set = new TreeSet<>(reverse);
+            for (int j = i; j < 20; j += i + 1) {
+                set.add(j);
+            }
+            sets.add(set);
+        }
+        List<Integer> expected = toList(new MergeSortIterator<>(sets));
+        assertEquals(expected, toList(new ParallelMergeSortIterator<>(sets, executor, 2)));
+        assertEquals(Integer.valueOf(19), expected.get(0));
+    }
+
+    @Test
+    public void testPersistedSets() throws IOException {
+        List<SortedSet<Integer>> sets = new ArrayList<>();
+        SortedSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 5; i++) {
+            SortedSet<Integer> values = new TreeSet<>();
+            for (int j = i; j < 500; j += i + 2) {
+                values.add(j);
+            }
+            expected.addAll(values);
+
+            FileSortedSet<Integer> set = new FileSerializableSortedSet<>(new TreeSet<>(values),
+                            new FileSerializableSortedSet.SerializableFileHandler(new SortedSetTempFileHandler()));
+            set.persist();
+            persistedSets.add(set);
+            sets.add(set);
+        }
+
+        // an in-memory set alongside the persisted ones
+        SortedSet<Integer> buffer = new TreeSet<>(Collections.singleton(1000));
+        expected.add(1000);
+        sets.add(buffer);
+
+        ParallelMergeSortIterator<Integer> it = new ParallelMergeSortIterator<>(sets, executor, 16);
+        assertEquals(new ArrayList<>(expected), toList(it));
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testMultiSetBackedSortedSet() {
+        MultiSetBackedSortedSet<Integer> set = new MultiSetBackedSortedSet<>();
+        set.setMergeExecutor(executor);
+        set.addSet(new TreeSet<>(List.of(1, 3, 5)));
+        set.addSet(new TreeSet<>(List.of(2, 3, 4)));
+
+        assertEquals(List.of(1, 2, 3, 4, 5), toList(set.iterator()));
+        assertEquals(List.of(2, 3), toList(set.subSet(2, 4).iterator()));
+    }
+
+    private static <T> List<T> toList(Iterator<T> it) {
+        List<T> list = new ArrayList<>();
+        it.forEachRemaining(list::add);
+        return list;
+    }
+}